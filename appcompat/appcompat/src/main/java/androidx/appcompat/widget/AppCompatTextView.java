@@ -43,6 +43,7 @@ import androidx.annotation.RestrictTo;
 import androidx.appcompat.content.res.AppCompatResources;
 import androidx.core.graphics.TypefaceCompat;
 import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.text.PrecomputedTextService;
 import androidx.core.view.TintableBackgroundView;
 import androidx.core.widget.AutoSizeableTextView;
 import androidx.core.widget.TextViewCompat;
@@ -489,7 +490,9 @@ public class AppCompatTextView extends TextView implements TintableBackgroundVie
             try {
                 Future<PrecomputedTextCompat> future = mPrecomputedTextFuture;
                 mPrecomputedTextFuture = null;
-                TextViewCompat.setPrecomputedText(this, future.get());
+                // Compute the text right away if it is still queued behind other work
+                PrecomputedTextCompat text = PrecomputedTextService.getNow(future);
+                TextViewCompat.setPrecomputedText(this, text != null ? text : future.get());
             } catch (InterruptedException | ExecutionException e) {
                 // ignore
             }
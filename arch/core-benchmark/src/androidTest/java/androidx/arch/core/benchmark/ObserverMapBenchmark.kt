@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.arch.core.benchmark
+
+import androidx.arch.core.internal.FastSafeIterableMap
+import androidx.arch.core.internal.SafeIterableMap
+import androidx.arch.core.internal.SnapshotIterableMap
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.filters.LargeTest
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import org.junit.runners.Parameterized.Parameters
+
+/**
+ * Compares the observer maps used by LiveData and LifecycleRegistry when dispatching to, and
+ * adding and removing, observers.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class ObserverMapBenchmark(private val size: Int) {
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val safeMap = SafeIterableMap<Any, Int>()
+    private val fastSafeMap = FastSafeIterableMap<Any, Int>()
+    private val snapshotMap = SnapshotIterableMap<Any, Int>()
+    private val keys = List(size) { Any() }
+
+    init {
+        keys.forEachIndexed { index, key ->
+            safeMap.putIfAbsent(key, index)
+            fastSafeMap.putIfAbsent(key, index)
+            snapshotMap.putIfAbsent(key, index)
+        }
+    }
+
+    @Test
+    fun iterateSafeIterableMap() {
+        var sum = 0L
+        benchmarkRule.measureRepeated {
+            for (entry in safeMap) {
+                sum += entry.value
+            }
+        }
+        assertTrue(sum > 0)
+    }
+
+    @Test
+    fun iterateFastSafeIterableMapWithAdditions() {
+        var sum = 0L
+        benchmarkRule.measureRepeated {
+            val iterator = fastSafeMap.iteratorWithAdditions()
+            while (iterator.hasNext()) {
+                sum += iterator.next().value
+            }
+        }
+        assertTrue(sum > 0)
+    }
+
+    @Test
+    fun iterateSnapshotIterableMap() {
+        var sum = 0L
+        benchmarkRule.measureRepeated {
+            val snapshot = snapshotMap.snapshot()
+            for (i in 0 until snapshot.size()) {
+                val entry = snapshot.get(i)
+                if (!entry.isRemoved) {
+                    sum += entry.value
+                }
+            }
+        }
+        assertTrue(sum > 0)
+    }
+
+    @Test
+    fun iterateSnapshotIterableMapWithAdditions() {
+        var sum = 0L
+        benchmarkRule.measureRepeated {
+            val iterator = snapshotMap.iteratorWithAdditions()
+            while (iterator.hasNext()) {
+                sum += iterator.next().value
+            }
+        }
+        assertTrue(sum > 0)
+    }
+
+    /**
+     * Removes and re-adds an observer while observers are being dispatched to, the way an
+     * observer removing itself from a nested dispatch would.
+     */
+    @Test
+    fun removeDuringIterationFastSafeIterableMap() {
+        val iterators = List(ITERATORS) { fastSafeMap.iteratorWithAdditions() }
+        val key = keys[size / 2]
+        benchmarkRule.measureRepeated {
+            fastSafeMap.remove(key)
+            fastSafeMap.putIfAbsent(key, 0)
+        }
+        assertEquals(ITERATORS, iterators.size)
+    }
+
+    @Test
+    fun removeDuringIterationSnapshotIterableMap() {
+        val iterators = List(ITERATORS) { snapshotMap.iteratorWithAdditions() }
+        val key = keys[size / 2]
+        benchmarkRule.measureRepeated {
+            snapshotMap.remove(key)
+            snapshotMap.putIfAbsent(key, 0)
+        }
+        assertEquals(ITERATORS, iterators.size)
+    }
+
+    companion object {
+        // Live iterators, as with observers nested several dispatches deep
+        private const val ITERATORS = 4
+
+        @JvmStatic
+        @Parameters(name = "size={0}")
+        fun parameters() = listOf(1_000, 10_000)
+    }
+}
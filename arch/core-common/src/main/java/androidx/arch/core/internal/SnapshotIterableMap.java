@@ -0,0 +1,403 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.arch.core.internal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Insertion ordered map, which supports modifications during iterations like
+ * {@link FastSafeIterableMap}, but keeps its entries in immutable snapshots instead of a linked
+ * list.
+ * <p>
+ * Every modification publishes a new {@link Snapshot}, so iterators never need to be registered
+ * with the map and modifications don't depend on the number of live iterators. A snapshot can
+ * be iterated by index without allocating anything:
+ * <pre>
+ * SnapshotIterableMap.Snapshot&lt;K, V&gt; snapshot = map.snapshot();
+ * for (int i = 0; i &lt; snapshot.size(); i++) {
+ *     SnapshotIterableMap.Entry&lt;K, V&gt; entry = snapshot.get(i);
+ *     if (!entry.isRemoved()) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * Entries removed after a snapshot was taken stay in it, but are marked as removed. Adding an
+ * entry reuses the spare capacity of the current snapshot's array, so it takes amortized constant
+ * time, while removing one copies the remaining entries.
+ * <p>
+ * Modifications are synchronized. Snapshots and iterators can be read from any thread without
+ * locking.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public class SnapshotIterableMap<K, V> implements Iterable<Map.Entry<K, V>> {
+
+    private final HashMap<K, Entry<K, V>> mHashMap = new HashMap<>();
+    @SuppressWarnings("unchecked")
+    private volatile Snapshot<K, V> mSnapshot = (Snapshot<K, V>) Snapshot.EMPTY;
+    private long mNextOrder;
+
+    /**
+     * If the specified key is not already associated
+     * with a value, associates it with the given value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param v   value to be associated with the specified key
+     * @return the previous value associated with the specified key,
+     * or {@code null} if there was no mapping for the key
+     */
+    public V putIfAbsent(@NonNull K key, @NonNull V v) {
+        synchronized (mHashMap) {
+            Entry<K, V> current = mHashMap.get(key);
+            if (current != null) {
+                return current.mValue;
+            }
+            Entry<K, V> entry = new Entry<>(key, v, mNextOrder++);
+            mHashMap.put(key, entry);
+            mSnapshot = mSnapshot.append(entry);
+            return null;
+        }
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with the specified key,
+     * or {@code null} if there was no mapping for the key
+     */
+    public V remove(@NonNull K key) {
+        synchronized (mHashMap) {
+            Entry<K, V> entry = mHashMap.remove(key);
+            if (entry == null) {
+                return null;
+            }
+            entry.mRemoved = true;
+            mSnapshot = mSnapshot.remove(entry);
+            return entry.mValue;
+        }
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified
+     * key.
+     */
+    public boolean contains(K key) {
+        synchronized (mHashMap) {
+            return mHashMap.containsKey(key);
+        }
+    }
+
+    /**
+     * Return an entry added to prior to an entry associated with the given key.
+     *
+     * @param k the key
+     */
+    @Nullable
+    public Map.Entry<K, V> ceil(K k) {
+        synchronized (mHashMap) {
+            Entry<K, V> entry = mHashMap.get(k);
+            if (entry == null) {
+                return null;
+            }
+            Snapshot<K, V> snapshot = mSnapshot;
+            int index = snapshot.indexAfter(entry.mOrder) - 2;
+            return index >= 0 ? snapshot.mEntries[index] : null;
+        }
+    }
+
+    /**
+     * @return the number of elements in this map
+     */
+    public int size() {
+        return mSnapshot.mSize;
+    }
+
+    /**
+     * @return eldest added entry or null
+     */
+    @Nullable
+    public Map.Entry<K, V> eldest() {
+        Snapshot<K, V> snapshot = mSnapshot;
+        return snapshot.mSize > 0 ? snapshot.mEntries[0] : null;
+    }
+
+    /**
+     * @return newest added entry or null
+     */
+    @Nullable
+    public Map.Entry<K, V> newest() {
+        Snapshot<K, V> snapshot = mSnapshot;
+        return snapshot.mSize > 0 ? snapshot.mEntries[snapshot.mSize - 1] : null;
+    }
+
+    /**
+     * @return the current entries of this map, which are not affected by later modifications
+     * except for being marked as removed.
+     */
+    @NonNull
+    public Snapshot<K, V> snapshot() {
+        return mSnapshot;
+    }
+
+    /**
+     * @return an ascending iterator, which doesn't include new elements added during an
+     * iteration.
+     */
+    @NonNull
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new AscendingIterator(false);
+    }
+
+    /**
+     * @return an descending iterator, which doesn't include new elements added during an
+     * iteration.
+     */
+    @NonNull
+    public Iterator<Map.Entry<K, V>> descendingIterator() {
+        return new DescendingIterator<>(mSnapshot);
+    }
+
+    /**
+     * @return an ascending iterator, which includes new elements added during an iteration.
+     */
+    @NonNull
+    public Iterator<Map.Entry<K, V>> iteratorWithAdditions() {
+        return new AscendingIterator(true);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("[");
+        Iterator<Map.Entry<K, V>> iterator = iterator();
+        while (iterator.hasNext()) {
+            builder.append(iterator.next().toString());
+            if (iterator.hasNext()) {
+                builder.append(", ");
+            }
+        }
+        builder.append("]");
+        return builder.toString();
+    }
+
+    private class AscendingIterator implements Iterator<Map.Entry<K, V>> {
+        private final boolean mWithAdditions;
+        private Snapshot<K, V> mCurrent;
+        private int mIndex;
+        private Entry<K, V> mLast;
+
+        AscendingIterator(boolean withAdditions) {
+            mWithAdditions = withAdditions;
+            mCurrent = mSnapshot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (true) {
+                while (mIndex < mCurrent.mSize) {
+                    if (!mCurrent.mEntries[mIndex].mRemoved) {
+                        return true;
+                    }
+                    mIndex++;
+                }
+                Snapshot<K, V> latest = mSnapshot;
+                if (!mWithAdditions || latest == mCurrent) {
+                    return false;
+                }
+                // Continue with the entries added after the last returned one
+                mIndex = mLast == null ? 0 : latest.indexAfter(mLast.mOrder);
+                mCurrent = latest;
+            }
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            mLast = mCurrent.mEntries[mIndex++];
+            return mLast;
+        }
+    }
+
+    private static class DescendingIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final Snapshot<K, V> mSnapshot;
+        private int mIndex;
+
+        DescendingIterator(Snapshot<K, V> snapshot) {
+            mSnapshot = snapshot;
+            mIndex = snapshot.mSize - 1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (mIndex >= 0 && mSnapshot.mEntries[mIndex].mRemoved) {
+                mIndex--;
+            }
+            return mIndex >= 0;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return mSnapshot.mEntries[mIndex--];
+        }
+    }
+
+    /**
+     * Immutable list of the entries of a {@link SnapshotIterableMap} in insertion order.
+     *
+     * @param <K> Key type
+     * @param <V> Value type
+     */
+    public static final class Snapshot<K, V> {
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        static final Snapshot EMPTY = new Snapshot(new Entry[0], 0);
+
+        // Entries at and after mSize belong to newer snapshots
+        final Entry<K, V>[] mEntries;
+        final int mSize;
+
+        Snapshot(Entry<K, V>[] entries, int size) {
+            mEntries = entries;
+            mSize = size;
+        }
+
+        /**
+         * @return the number of entries in this snapshot
+         */
+        public int size() {
+            return mSize;
+        }
+
+        /**
+         * @return the entry at the given index, which may have been removed from the map since
+         * this snapshot was taken.
+         */
+        @NonNull
+        public Entry<K, V> get(int index) {
+            if (index < 0 || index >= mSize) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of " + mSize);
+            }
+            return mEntries[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        Snapshot<K, V> append(Entry<K, V> entry) {
+            Entry<K, V>[] entries = mEntries;
+            if (mSize == entries.length) {
+                entries = new Entry[Math.max(4, mSize * 2)];
+                System.arraycopy(mEntries, 0, entries, 0, mSize);
+            }
+            // No other snapshot reads past mSize, so the slot can be written in place
+            entries[mSize] = entry;
+            return new Snapshot<>(entries, mSize + 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        Snapshot<K, V> remove(Entry<K, V> entry) {
+            int index = indexAfter(entry.mOrder) - 1;
+            Entry<K, V>[] entries = new Entry[mEntries.length];
+            System.arraycopy(mEntries, 0, entries, 0, index);
+            System.arraycopy(mEntries, index + 1, entries, index, mSize - index - 1);
+            return new Snapshot<>(entries, mSize - 1);
+        }
+
+        /**
+         * @return the index of the first entry added after the entry with the given order.
+         */
+        int indexAfter(long order) {
+            int low = 0;
+            int high = mSize;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (mEntries[mid].mOrder <= order) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * An entry of a {@link SnapshotIterableMap}.
+     *
+     * @param <K> Key type
+     * @param <V> Value type
+     */
+    public static final class Entry<K, V> implements Map.Entry<K, V> {
+        @NonNull
+        final K mKey;
+        @NonNull
+        final V mValue;
+        // Order in which the entries were added, which lets iterators find their place in newer
+        // snapshots
+        final long mOrder;
+        volatile boolean mRemoved;
+
+        Entry(@NonNull K key, @NonNull V value, long order) {
+            mKey = key;
+            mValue = value;
+            mOrder = order;
+        }
+
+        @NonNull
+        @Override
+        public K getKey() {
+            return mKey;
+        }
+
+        @NonNull
+        @Override
+        public V getValue() {
+            return mValue;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException("An entry modification is not supported");
+        }
+
+        /**
+         * @return {@code true} if this entry was removed from the map
+         */
+        public boolean isRemoved() {
+            return mRemoved;
+        }
+
+        @Override
+        public String toString() {
+            return mKey + "=" + mValue;
+        }
+    }
+}
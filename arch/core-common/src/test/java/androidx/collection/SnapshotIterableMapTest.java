@@ -0,0 +1,270 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import androidx.arch.core.internal.SnapshotIterableMap;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(JUnit4.class)
+public class SnapshotIterableMapTest {
+
+    @Test
+    public void testToString() {
+        SnapshotIterableMap<Integer, Boolean> map = mapOf(1, 2, 3);
+        map.remove(2);
+        assertThat(map.toString(), is("[1=true, 3=true]"));
+        assertThat(mapOf().toString(), is("[]"));
+    }
+
+    @Test
+    public void testPutAndRemove() {
+        SnapshotIterableMap<Integer, Integer> map = new SnapshotIterableMap<>();
+        assertThat(map.putIfAbsent(10, 20), nullValue());
+        assertThat(map.putIfAbsent(10, 30), is(20));
+        assertThat(map.contains(10), is(true));
+        assertThat(map.remove(10), is(20));
+        assertThat(map.remove(10), nullValue());
+        assertThat(map.contains(10), is(false));
+        assertThat(map.putIfAbsent(10, 40), nullValue());
+        assertThat(map.size(), is(1));
+    }
+
+    @Test
+    public void testSize() {
+        SnapshotIterableMap<Integer, Boolean> map = mapOf(1, 2, 3, 4);
+        assertThat(map.size(), is(4));
+        map.putIfAbsent(5, true);
+        map.remove(1);
+        map.remove(1);
+        assertThat(map.size(), is(4));
+        for (int i = 1; i <= 5; i++) {
+            map.remove(i);
+        }
+        assertThat(map.size(), is(0));
+    }
+
+    @Test
+    public void testCeil() {
+        SnapshotIterableMap<Integer, Boolean> map = mapOf();
+        assertThat(map.ceil(1), nullValue());
+        map.putIfAbsent(1, false);
+        assertThat(map.ceil(1), nullValue());
+        map.putIfAbsent(2, false);
+        map.putIfAbsent(3, false);
+        assertThat(map.ceil(3).getKey(), is(2));
+        map.remove(2);
+        assertThat(map.ceil(3).getKey(), is(1));
+        map.remove(1);
+        assertThat(map.ceil(3), nullValue());
+    }
+
+    @Test
+    public void testEldestAndNewest() {
+        SnapshotIterableMap<Integer, Boolean> map = mapOf();
+        assertThat(map.eldest(), nullValue());
+        assertThat(map.newest(), nullValue());
+        map.putIfAbsent(1, false);
+        map.putIfAbsent(2, false);
+        assertThat(map.eldest().getKey(), is(1));
+        assertThat(map.newest().getKey(), is(2));
+        map.remove(1);
+        assertThat(map.eldest().getKey(), is(2));
+        map.remove(2);
+        assertThat(map.eldest(), nullValue());
+        assertThat(map.newest(), nullValue());
+    }
+
+    @Test
+    public void testRemoveDuringIteration() {
+        SnapshotIterableMap<Integer, Boolean> map = mapOf(1, 2, 3, 4);
+        int[] expected = new int[]{1, 4};
+        int index = 0;
+        for (Entry<Integer, Boolean> entry : map) {
+            assertThat(entry.getKey(), is(expected[index++]));
+            if (index == 1) {
+                map.remove(2);
+                map.remove(3);
+            }
+        }
+        assertThat(index, is(2));
+    }
+
+    @Test
+    public void testAdditionDuringIteration() {
+        SnapshotIterableMap<Integer, Boolean> map = mapOf(1, 2, 3, 4);
+        int[] expected = new int[]{1, 2, 4};
+        int index = 0;
+        for (Entry<Integer, Boolean> entry : map) {
+            assertThat(entry.getKey(), is(expected[index++]));
+            if (index == 1) {
+                map.putIfAbsent(5, true);
+                // Re-added entries are new entries
+                map.remove(3);
+                map.putIfAbsent(3, true);
+            }
+        }
+        assertThat(index, is(3));
+    }
+
+    @Test
+    public void testIteratorWithAdditions() {
+        SnapshotIterableMap<Integer, Boolean> map = mapOf(1, 2, 3, 4);
+        int[] expected = new int[]{1, 2, 3, 5, 6};
+        int index = 0;
+        Iterator<Entry<Integer, Boolean>> iterator = map.iteratorWithAdditions();
+        while (iterator.hasNext()) {
+            Entry<Integer, Boolean> entry = iterator.next();
+            assertThat(entry.getKey(), is(expected[index++]));
+            if (index == 3) {
+                map.remove(4);
+                map.putIfAbsent(5, true);
+            }
+            if (index == 4) {
+                map.putIfAbsent(6, true);
+            }
+        }
+        assertThat(index, is(5));
+    }
+
+    @Test
+    public void testIteratorWithAdditionsRemovingCurrent() {
+        SnapshotIterableMap<Integer, Boolean> map = mapOf(1, 2);
+        int[] expected = new int[]{1, 2, 3};
+        int index = 0;
+        Iterator<Entry<Integer, Boolean>> iterator = map.iteratorWithAdditions();
+        while (iterator.hasNext()) {
+            Entry<Integer, Boolean> entry = iterator.next();
+            assertThat(entry.getKey(), is(expected[index++]));
+            if (index == 2) {
+                map.remove(2);
+                map.putIfAbsent(3, true);
+            }
+        }
+        assertThat(index, is(3));
+    }
+
+    @Test
+    public void testIteratorWithAdditionsOnEmptyMap() {
+        SnapshotIterableMap<Integer, Boolean> map = mapOf();
+        Iterator<Entry<Integer, Boolean>> iterator = map.iteratorWithAdditions();
+        assertThat(iterator.hasNext(), is(false));
+        map.putIfAbsent(1, true);
+        assertThat(iterator.hasNext(), is(true));
+        assertThat(iterator.next().getKey(), is(1));
+        assertThat(iterator.hasNext(), is(false));
+    }
+
+    @Test
+    public void testDescendingIteration() {
+        SnapshotIterableMap<Integer, Boolean> map = mapOf(1, 2, 3, 4);
+        int[] expected = new int[]{4, 2, 1};
+        int index = 0;
+        for (Iterator<Entry<Integer, Boolean>> iter = map.descendingIterator(); iter.hasNext(); ) {
+            if (index == 0) {
+                map.remove(3);
+                map.putIfAbsent(5, false);
+            }
+            assertThat(iter.next().getKey(), is(expected[index++]));
+        }
+        assertThat(index, is(3));
+    }
+
+    @Test
+    public void testSnapshot() {
+        SnapshotIterableMap<Integer, Boolean> map = mapOf(1, 2, 3);
+        SnapshotIterableMap.Snapshot<Integer, Boolean> snapshot = map.snapshot();
+        map.remove(2);
+        map.putIfAbsent(4, true);
+        assertThat(snapshot.size(), is(3));
+        assertThat(snapshot.get(0).isRemoved(), is(false));
+        assertThat(snapshot.get(1).getKey(), is(2));
+        assertThat(snapshot.get(1).isRemoved(), is(true));
+        assertThat(snapshot.get(2).isRemoved(), is(false));
+        assertThat(map.snapshot().size(), is(3));
+        assertThat(map.snapshot().get(2).getKey(), is(4));
+    }
+
+    @Test
+    public void testSnapshotUnaffectedByAppends() {
+        SnapshotIterableMap<Integer, Boolean> map = mapOf(1);
+        SnapshotIterableMap.Snapshot<Integer, Boolean> snapshot = map.snapshot();
+        for (int i = 2; i < 100; i++) {
+            map.putIfAbsent(i, true);
+        }
+        assertThat(snapshot.size(), is(1));
+        assertThat(snapshot.get(0).getKey(), is(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSnapshotOutOfBounds() {
+        mapOf(1, 2).snapshot().get(2);
+    }
+
+    @Test
+    public void testIterationFromAnotherThread() throws InterruptedException {
+        final SnapshotIterableMap<Integer, Boolean> map = new SnapshotIterableMap<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < 1000; i++) {
+                        int previous = -1;
+                        for (Entry<Integer, Boolean> entry : map) {
+                            // Entries are always seen in insertion order
+                            if (entry.getKey() <= previous) {
+                                throw new AssertionError(entry.getKey() + " after " + previous);
+                            }
+                            previous = entry.getKey();
+                        }
+                    }
+                } catch (Throwable throwable) {
+                    error.set(throwable);
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 10000; i++) {
+            map.putIfAbsent(i, true);
+            if (i % 3 == 0) {
+                map.remove(i / 2);
+            }
+        }
+        reader.join();
+        assertThat(error.get(), nullValue());
+    }
+
+    @SafeVarargs
+    private static <K> SnapshotIterableMap<K, Boolean> mapOf(K... keys) {
+        SnapshotIterableMap<K, Boolean> map = new SnapshotIterableMap<>();
+        for (K key : keys) {
+            map.putIfAbsent(key, true);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.camera.core.ImageProxy
+import androidx.camera.core.internal.utils.YuvConverter
+import androidx.camera.testing.ImageProxyUtil
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import org.junit.runners.Parameterized.Parameters
+
+/**
+ * Measures converting YUV_420_888 frames of the default ImageAnalysis resolution, for both
+ * chroma layouts devices commonly produce.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class YuvConverterBenchmark(private val interleavedVu: Boolean) {
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val image: ImageProxy =
+        ImageProxyUtil.createYuv420Image(WIDTH, HEIGHT, ROW_PADDING, interleavedVu)
+    private val converter = YuvConverter()
+
+    @Test
+    fun allocatingNv21() {
+        benchmarkRule.measureRepeated {
+            allocatingNv21(image)
+        }
+    }
+
+    @Test
+    fun pooledNv21() {
+        benchmarkRule.measureRepeated {
+            converter.recycle(converter.toNv21(image))
+        }
+    }
+
+    @Test
+    fun pooledI420() {
+        benchmarkRule.measureRepeated {
+            converter.recycle(converter.toI420(image))
+        }
+    }
+
+    @Test
+    fun pooledArgb() {
+        benchmarkRule.measureRepeated {
+            converter.recycle(converter.toArgb(image))
+        }
+    }
+
+    /**
+     * The conversion ImageUtil used to do: a new output buffer and line buffers for every
+     * frame, and a copy of each chroma sample.
+     */
+    private fun allocatingNv21(image: ImageProxy): ByteArray {
+        val width = image.width
+        val height = image.height
+        val (yPlane, uPlane, vPlane) = image.planes
+        val yBuffer = yPlane.buffer.duplicate()
+        val uBuffer = uPlane.buffer.duplicate()
+        val vBuffer = vPlane.buffer.duplicate()
+        val nv21 = ByteArray(width * height + width * height / 2)
+        var position = 0
+        for (row in 0 until height) {
+            yBuffer.position(row * yPlane.rowStride)
+            yBuffer.get(nv21, position, width)
+            position += width
+        }
+        val vLine = ByteArray(vPlane.rowStride)
+        val uLine = ByteArray(uPlane.rowStride)
+        for (row in 0 until height / 2) {
+            vBuffer.get(vLine, 0, minOf(vPlane.rowStride, vBuffer.remaining()))
+            uBuffer.get(uLine, 0, minOf(uPlane.rowStride, uBuffer.remaining()))
+            for (col in 0 until width / 2) {
+                nv21[position++] = vLine[col * vPlane.pixelStride]
+                nv21[position++] = uLine[col * uPlane.pixelStride]
+            }
+        }
+        return nv21
+    }
+
+    companion object {
+        private const val WIDTH = 640
+        private const val HEIGHT = 480
+        private const val ROW_PADDING = 64
+
+        @JvmStatic
+        @Parameters(name = "interleavedVu={0}")
+        fun parameters(): List<Array<Any>> = listOf(arrayOf(true), arrayOf(false))
+    }
+}
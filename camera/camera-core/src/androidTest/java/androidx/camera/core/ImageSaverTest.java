@@ -40,8 +40,10 @@ import android.util.Base64;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.experimental.UseExperimental;
 import androidx.camera.core.ImageSaver.OnImageSavedCallback;
 import androidx.camera.core.ImageSaver.SaveError;
+import androidx.camera.core.internal.utils.JpegSplicer;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.MediumTest;
@@ -56,9 +58,11 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.concurrent.ExecutorService;
@@ -335,6 +339,40 @@ public class ImageSaverTest {
         verify(mMockCallback).onImageSaved(any());
     }
 
+    @Test
+    public void uncroppedJpegImageDataIsSavedAsIs() throws InterruptedException, IOException {
+        when(mMockJpegImage.getCropRect()).thenReturn(new Rect(0, 0, WIDTH, HEIGHT));
+        File saveLocation = File.createTempFile("test", ".jpg");
+        saveLocation.deleteOnExit();
+
+        getDefaultImageSaver(mMockJpegImage, saveLocation).run();
+        mSemaphore.acquire();
+
+        verify(mMockCallback).onImageSaved(any());
+        ByteBuffer saved = ByteBuffer.wrap(readFile(saveLocation));
+        ByteBuffer savedImageData = saved.duplicate();
+        savedImageData.position(JpegSplicer.getScanOffset(saved));
+        ByteBuffer originalImageData = mJpegDataBuffer.duplicate();
+        originalImageData.position(JpegSplicer.getScanOffset(mJpegDataBuffer));
+        assertThat(savedImageData).isEqualTo(originalImageData);
+    }
+
+    @UseExperimental(markerClass = ExperimentalImageCaptureMetrics.class)
+    @Test
+    public void saveDurationIsReported() throws InterruptedException, IOException {
+        File saveLocation = File.createTempFile("test", ".jpg");
+        saveLocation.deleteOnExit();
+
+        getDefaultImageSaver(mMockJpegImage, saveLocation).run();
+        mSemaphore.acquire();
+
+        ArgumentCaptor<ImageCapture.OutputFileResults> outputFileResultsArgumentCaptor =
+                ArgumentCaptor.forClass(ImageCapture.OutputFileResults.class);
+        verify(mMockCallback).onImageSaved(outputFileResultsArgumentCaptor.capture());
+        assertThat(outputFileResultsArgumentCaptor.getValue().getSaveDurationNanos())
+                .isGreaterThan(0L);
+    }
+
     @Test
     public void errorCallbackWillBeCalledOnInvalidPath() throws InterruptedException {
         // Invalid filename should cause error
@@ -382,6 +420,19 @@ public class ImageSaverTest {
         assertThat(bitmap.getHeight()).isEqualTo(CROP_HEIGHT);
     }
 
+    private static byte[] readFile(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            int len;
+            while (offset < bytes.length
+                    && (len = in.read(bytes, offset, bytes.length - offset)) > 0) {
+                offset += len;
+            }
+        }
+        return bytes;
+    }
+
     @Test
     public void jpegImageCanBeCropped() throws InterruptedException, IOException {
         imageCanBeCropped(mMockJpegImage);
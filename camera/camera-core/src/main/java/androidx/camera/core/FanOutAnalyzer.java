@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * An {@link ImageAnalysis.Analyzer} which delivers every image to several analyzers, each on its
+ * own executor.
+ *
+ * <p>The analyzers share the same image without copying its pixel data. Each analyzer receives
+ * its own {@link ImageProxy} which it must close as usual, and the image is only returned to
+ * the producer once all of them have closed theirs. Each analyzer's image has its own crop rect
+ * and its own plane buffer positions, but the pixel data must not be modified.
+ *
+ * <p>Since the image is held until the slowest analyzer closes it, the
+ * {@linkplain ImageAnalysis.Builder#setBackpressureStrategy(int) backpressure strategy} applies
+ * to the slowest analyzer.
+ *
+ * <p>Set a fan-out analyzer with {@link ImageAnalysis#setAnalyzer(Executor,
+ * ImageAnalysis.Analyzer)}. Its {@link #analyze(ImageProxy)} only posts the image to the other
+ * executors, so it can run on any executor which responds quickly.
+ */
+@ExperimentalFanOutAnalyzer
+public final class FanOutAnalyzer implements ImageAnalysis.Analyzer {
+    private static final String TAG = "FanOutAnalyzer";
+
+    private final Object mLock = new Object();
+
+    // Replaced rather than modified, so images are delivered to a consistent snapshot.
+    @GuardedBy("mLock")
+    private List<Consumer> mConsumers = Collections.emptyList();
+
+    /** Creates a fan-out analyzer without analyzers. */
+    public FanOutAnalyzer() {
+    }
+
+    /**
+     * Adds an analyzer to receive the images.
+     *
+     * <p>The analyzer receives images starting with the next image delivered to this fan-out
+     * analyzer.
+     *
+     * @param executor The executor in which the
+     *                 {@link ImageAnalysis.Analyzer#analyze(ImageProxy)} will be run.
+     * @param analyzer of the images.
+     */
+    public void addAnalyzer(@NonNull Executor executor, @NonNull ImageAnalysis.Analyzer analyzer) {
+        synchronized (mLock) {
+            List<Consumer> consumers = new ArrayList<>(mConsumers);
+            consumers.add(new Consumer(executor, analyzer));
+            mConsumers = Collections.unmodifiableList(consumers);
+        }
+    }
+
+    /**
+     * Removes a previously added analyzer.
+     *
+     * <p>Images already posted to the analyzer will still be delivered to it.
+     *
+     * @param analyzer to remove.
+     */
+    public void removeAnalyzer(@NonNull ImageAnalysis.Analyzer analyzer) {
+        synchronized (mLock) {
+            List<Consumer> consumers = new ArrayList<>(mConsumers);
+            for (int i = consumers.size() - 1; i >= 0; i--) {
+                if (consumers.get(i).mAnalyzer == analyzer) {
+                    consumers.remove(i);
+                }
+            }
+            mConsumers = Collections.unmodifiableList(consumers);
+        }
+    }
+
+    /**
+     * Delivers the image to every added analyzer.
+     *
+     * <p>If no analyzer has been added, the image is closed.
+     */
+    @Override
+    public void analyze(@NonNull ImageProxy image) {
+        List<Consumer> consumers;
+        synchronized (mLock) {
+            consumers = mConsumers;
+        }
+
+        ReferenceCountedImageProxy sharedImage = new ReferenceCountedImageProxy(image);
+        for (Consumer consumer : consumers) {
+            ImageProxy consumerImage = sharedImage.acquire();
+            if (consumerImage == null) {
+                break;
+            }
+            try {
+                consumer.mExecutor.execute(() -> consumer.mAnalyzer.analyze(consumerImage));
+            } catch (RejectedExecutionException e) {
+                Logger.w(TAG, "Unable to post to the analyzer's executor.", e);
+                consumerImage.close();
+            }
+        }
+        // Release the reference held while posting, the last analyzer to close closes the image.
+        sharedImage.close();
+    }
+
+    private static final class Consumer {
+        final Executor mExecutor;
+        final ImageAnalysis.Analyzer mAnalyzer;
+
+        Consumer(@NonNull Executor executor, @NonNull ImageAnalysis.Analyzer analyzer) {
+            mExecutor = executor;
+            mAnalyzer = analyzer;
+        }
+    }
+}
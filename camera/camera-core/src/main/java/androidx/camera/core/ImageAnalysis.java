@@ -19,6 +19,7 @@ package androidx.camera.core;
 import static androidx.camera.core.impl.ImageAnalysisConfig.OPTION_BACKPRESSURE_STRATEGY;
 import static androidx.camera.core.impl.ImageAnalysisConfig.OPTION_IMAGE_QUEUE_DEPTH;
 import static androidx.camera.core.impl.ImageAnalysisConfig.OPTION_IMAGE_READER_PROXY_PROVIDER;
+import static androidx.camera.core.impl.ImageAnalysisConfig.OPTION_TARGET_ANALYSIS_FRAME_RATE;
 import static androidx.camera.core.impl.ImageOutputConfig.OPTION_MAX_RESOLUTION;
 import static androidx.camera.core.impl.ImageOutputConfig.OPTION_SUPPORTED_RESOLUTIONS;
 import static androidx.camera.core.impl.ImageOutputConfig.OPTION_TARGET_ASPECT_RATIO;
@@ -47,6 +48,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.RestrictTo.Scope;
+import androidx.annotation.experimental.UseExperimental;
 import androidx.camera.core.impl.CameraInternal;
 import androidx.camera.core.impl.CaptureConfig;
 import androidx.camera.core.impl.ConfigProvider;
@@ -66,6 +68,8 @@ import androidx.camera.core.internal.TargetConfig;
 import androidx.camera.core.internal.ThreadConfig;
 import androidx.core.util.Preconditions;
 
+import com.google.auto.value.AutoValue;
+
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.List;
@@ -130,6 +134,42 @@ public final class ImageAnalysis extends UseCase {
      * @see Builder#setImageQueueDepth(int)
      */
     public static final int STRATEGY_BLOCK_PRODUCER = 1;
+    /**
+     * Keep the latest images in a bounded queue and deliver them in order.
+     *
+     * <p>Up to the number of images set by {@link Builder#setImageQueueDepth(int)} are kept
+     * while an image is being analyzed. If another image is produced while the queue is full,
+     * the oldest queued image is dropped. Once the image being analyzed is closed by calling
+     * {@link ImageProxy#close()}, the oldest queued image will be delivered.
+     *
+     * <p>Unlike {@link #STRATEGY_BLOCK_PRODUCER}, the producer is never stopped, so the analyzer
+     * may fall behind without stalling other use cases. Unlike {@link #STRATEGY_KEEP_ONLY_LATEST},
+     * short spikes in analysis time do not lose frames, at the cost of analyzing images up to
+     * the queue depth frames late.
+     *
+     * <p>Like {@link #STRATEGY_KEEP_ONLY_LATEST}, this strategy uses the executor set by
+     * {@link Builder#setBackgroundExecutor(Executor)} to deliver queued images.
+     *
+     * @see Builder#setImageQueueDepth(int)
+     */
+    @ExperimentalBackpressureStrategy
+    public static final int STRATEGY_KEEP_LATEST_N = 2;
+    /**
+     * Skip images to deliver them to the analyzer at a steady rate.
+     *
+     * <p>Images are delivered at most at the rate set by
+     * {@link Builder#setTargetAnalysisFrameRate(int)}. The time the analyzer takes to close each
+     * image is measured, and if it is on average longer than the target frame period, images are
+     * spaced by that duration instead so that the analyzer keeps up with a lower, but still
+     * steady, rate. Images produced in between are dropped.
+     *
+     * <p>Only one image is delivered for analysis at a time and the producer is never stopped.
+     *
+     * @see Builder#setTargetAnalysisFrameRate(int)
+     * @see #getAnalyzerStats()
+     */
+    @ExperimentalBackpressureStrategy
+    public static final int STRATEGY_ADAPTIVE_FRAME_SKIP = 3;
 
     /**
      * Provides a static configuration with implementation-agnostic options.
@@ -144,6 +184,7 @@ public final class ImageAnalysis extends UseCase {
     @BackpressureStrategy
     private static final int DEFAULT_BACKPRESSURE_STRATEGY = STRATEGY_KEEP_ONLY_LATEST;
     private static final int DEFAULT_IMAGE_QUEUE_DEPTH = 6;
+    private static final int DEFAULT_TARGET_ANALYSIS_FRAME_RATE = 15;
 
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     final ImageAnalysisAbstractAnalyzer mImageAnalysisAbstractAnalyzer;
@@ -176,12 +217,48 @@ public final class ImageAnalysis extends UseCase {
         // Get the combined configuration with defaults
         ImageAnalysisConfig combinedConfig = (ImageAnalysisConfig) getUseCaseConfig();
 
-        if (combinedConfig.getBackpressureStrategy(DEFAULT_BACKPRESSURE_STRATEGY)
-                == STRATEGY_BLOCK_PRODUCER) {
-            mImageAnalysisAbstractAnalyzer = new ImageAnalysisBlockingAnalyzer();
-        } else {
-            mImageAnalysisAbstractAnalyzer = new ImageAnalysisNonBlockingAnalyzer(
-                    config.getBackgroundExecutor(CameraXExecutors.highPriorityExecutor()));
+        mImageAnalysisAbstractAnalyzer = createAnalyzer(combinedConfig);
+    }
+
+    /**
+     * Creates the analyzer which dispatches images to the user's analyzer following the
+     * configured backpressure strategy.
+     */
+    @UseExperimental(markerClass = ExperimentalBackpressureStrategy.class)
+    @NonNull
+    private static ImageAnalysisAbstractAnalyzer createAnalyzer(
+            @NonNull ImageAnalysisConfig config) {
+        switch (config.getBackpressureStrategy(DEFAULT_BACKPRESSURE_STRATEGY)) {
+            case STRATEGY_BLOCK_PRODUCER:
+                return new ImageAnalysisBlockingAnalyzer();
+            case STRATEGY_KEEP_LATEST_N:
+                return new ImageAnalysisRingBufferAnalyzer(
+                        config.getBackgroundExecutor(CameraXExecutors.highPriorityExecutor()),
+                        config.getImageQueueDepth(DEFAULT_IMAGE_QUEUE_DEPTH));
+            case STRATEGY_ADAPTIVE_FRAME_SKIP:
+                return new ImageAnalysisAdaptiveAnalyzer(
+                        config.getTargetAnalysisFrameRate(DEFAULT_TARGET_ANALYSIS_FRAME_RATE));
+            case STRATEGY_KEEP_ONLY_LATEST:
+            default:
+                return new ImageAnalysisNonBlockingAnalyzer(
+                        config.getBackgroundExecutor(CameraXExecutors.highPriorityExecutor()));
+        }
+    }
+
+    /**
+     * Returns the number of images the image producer needs for the backpressure strategy.
+     */
+    @UseExperimental(markerClass = ExperimentalBackpressureStrategy.class)
+    private int getImageReaderDepth() {
+        switch (getBackpressureStrategy()) {
+            case STRATEGY_BLOCK_PRODUCER:
+                return getImageQueueDepth();
+            case STRATEGY_KEEP_LATEST_N:
+                // The queued images, the image being analyzed and the newly produced image which
+                // pushes the oldest one out of the queue.
+                return getImageQueueDepth() + 2;
+            default:
+                return NON_BLOCKING_IMAGE_DEPTH;
         }
     }
 
@@ -193,9 +270,7 @@ public final class ImageAnalysis extends UseCase {
         Executor backgroundExecutor = Preconditions.checkNotNull(config.getBackgroundExecutor(
                 CameraXExecutors.highPriorityExecutor()));
 
-        int imageQueueDepth =
-                getBackpressureStrategy() == STRATEGY_BLOCK_PRODUCER ? getImageQueueDepth()
-                        : NON_BLOCKING_IMAGE_DEPTH;
+        int imageQueueDepth = getImageReaderDepth();
         SafeCloseImageReaderProxy imageReaderProxy;
         if (config.getImageReaderProxyProvider() != null) {
             imageReaderProxy = new SafeCloseImageReaderProxy(
@@ -413,6 +488,41 @@ public final class ImageAnalysis extends UseCase {
                 DEFAULT_IMAGE_QUEUE_DEPTH);
     }
 
+    /**
+     * Returns the number of images per second delivered to the analyzer for the
+     * {@link #STRATEGY_ADAPTIVE_FRAME_SKIP} backpressure mode.
+     *
+     * <p>
+     * The target analysis frame rate is set when constructing an {@link ImageAnalysis} instance
+     * using {@link ImageAnalysis.Builder#setTargetAnalysisFrameRate(int)}. If not set, the
+     * default will be 15 images per second.
+     * </p>
+     *
+     * @return The target analysis frame rate for the {@link #STRATEGY_ADAPTIVE_FRAME_SKIP}
+     * backpressure mode.
+     * @see ImageAnalysis.Builder#setTargetAnalysisFrameRate(int)
+     */
+    @ExperimentalBackpressureStrategy
+    public int getTargetAnalysisFrameRate() {
+        return ((ImageAnalysisConfig) getUseCaseConfig()).getTargetAnalysisFrameRate(
+                DEFAULT_TARGET_ANALYSIS_FRAME_RATE);
+    }
+
+    /**
+     * Returns statistics about the images handled for the current analyzer.
+     *
+     * <p>The statistics are reset every time an analyzer is set with
+     * {@link #setAnalyzer(Executor, Analyzer)}, and can be used to choose a backpressure
+     * strategy or tune its image queue depth or target analysis frame rate.
+     *
+     * @return A snapshot of the statistics of the current analyzer.
+     */
+    @ExperimentalBackpressureStrategy
+    @NonNull
+    public AnalyzerStats getAnalyzerStats() {
+        return mImageAnalysisAbstractAnalyzer.getStats();
+    }
+
     @Override
     @NonNull
     public String toString() {
@@ -519,9 +629,11 @@ public final class ImageAnalysis extends UseCase {
      * @hide
      * @see Builder#setBackpressureStrategy(int)
      */
-    @IntDef({STRATEGY_KEEP_ONLY_LATEST, STRATEGY_BLOCK_PRODUCER})
+    @IntDef({STRATEGY_KEEP_ONLY_LATEST, STRATEGY_BLOCK_PRODUCER, STRATEGY_KEEP_LATEST_N,
+            STRATEGY_ADAPTIVE_FRAME_SKIP})
     @Retention(RetentionPolicy.SOURCE)
     @RestrictTo(Scope.LIBRARY_GROUP)
+    @UseExperimental(markerClass = ExperimentalBackpressureStrategy.class)
     public @interface BackpressureStrategy {
     }
 
@@ -571,6 +683,67 @@ public final class ImageAnalysis extends UseCase {
         void analyze(@NonNull ImageProxy image);
     }
 
+    /**
+     * Statistics about the images handled for an {@link Analyzer}.
+     *
+     * <p>Only images dropped by the backpressure strategy are counted as dropped. Images the
+     * image producer discards before they are acquired, for example with
+     * {@link #STRATEGY_KEEP_ONLY_LATEST}, are not counted.
+     *
+     * @see #getAnalyzerStats()
+     */
+    @ExperimentalBackpressureStrategy
+    @AutoValue
+    public abstract static class AnalyzerStats {
+
+        AnalyzerStats() {
+        }
+
+        @NonNull
+        static AnalyzerStats create(long analyzedFrameCount, long droppedFrameCount,
+                long averageQueueLatencyNanos, long maxQueueLatencyNanos,
+                long averageAnalysisDurationNanos, long maxAnalysisDurationNanos) {
+            return new AutoValue_ImageAnalysis_AnalyzerStats(analyzedFrameCount,
+                    droppedFrameCount, averageQueueLatencyNanos, maxQueueLatencyNanos,
+                    averageAnalysisDurationNanos, maxAnalysisDurationNanos);
+        }
+
+        /**
+         * Returns the number of images delivered to the analyzer and closed.
+         */
+        public abstract long getAnalyzedFrameCount();
+
+        /**
+         * Returns the number of images dropped by the backpressure strategy without being
+         * delivered to the analyzer.
+         */
+        public abstract long getDroppedFrameCount();
+
+        /**
+         * Returns the average time, in nanoseconds, between an image being acquired from the
+         * producer and it being delivered to the analyzer.
+         */
+        public abstract long getAverageQueueLatencyNanos();
+
+        /**
+         * Returns the longest time, in nanoseconds, between an image being acquired from the
+         * producer and it being delivered to the analyzer.
+         */
+        public abstract long getMaxQueueLatencyNanos();
+
+        /**
+         * Returns the average time, in nanoseconds, between an image being delivered to the
+         * analyzer and it being closed.
+         */
+        public abstract long getAverageAnalysisDurationNanos();
+
+        /**
+         * Returns the longest time, in nanoseconds, between an image being delivered to the
+         * analyzer and it being closed.
+         */
+        public abstract long getMaxAnalysisDurationNanos();
+    }
+
     /**
      * Provides a base static default configuration for the ImageAnalysis.
      *
@@ -650,7 +823,8 @@ public final class ImageAnalysis extends UseCase {
          * where images may be produced faster than they can be analyzed.
          *
          * <p>The available values are {@link #STRATEGY_BLOCK_PRODUCER} and
-         * {@link #STRATEGY_KEEP_ONLY_LATEST}.
+         * {@link #STRATEGY_KEEP_ONLY_LATEST}, and the experimental
+         * {@link #STRATEGY_KEEP_LATEST_N} and {@link #STRATEGY_ADAPTIVE_FRAME_SKIP}.
          *
          * <p>If not set, the backpressure strategy will default to
          * {@link #STRATEGY_KEEP_ONLY_LATEST}.
@@ -680,8 +854,12 @@ public final class ImageAnalysis extends UseCase {
          * a single frame period for the current frame rate, <i>on average</i>, to avoid stalling
          * the camera pipeline.
          *
-         * <p>The value only applies to {@link #STRATEGY_BLOCK_PRODUCER} mode.
-         * For {@link #STRATEGY_KEEP_ONLY_LATEST} the value is ignored.
+         * <p>When the backpressure strategy is set to {@link #STRATEGY_KEEP_LATEST_N}, the
+         * image queue depth is instead the number of images kept while an image is being
+         * analyzed, not including that image.
+         *
+         * <p>The value only applies to {@link #STRATEGY_BLOCK_PRODUCER} and
+         * {@link #STRATEGY_KEEP_LATEST_N} modes. For other strategies the value is ignored.
          *
          * <p>If not set, and this option is used by the selected backpressure strategy,
          * the default will be a queue depth of 6 images.
@@ -695,6 +873,30 @@ public final class ImageAnalysis extends UseCase {
             return this;
         }
 
+        /**
+         * Sets the number of images per second to deliver to the analyzer for
+         * {@link #STRATEGY_ADAPTIVE_FRAME_SKIP} mode.
+         *
+         * <p>If the analyzer takes longer than the period of this frame rate to close images,
+         * images are delivered at the lower rate the analyzer can sustain instead.
+         *
+         * <p>The value only applies to {@link #STRATEGY_ADAPTIVE_FRAME_SKIP} mode. For other
+         * strategies the value is ignored.
+         *
+         * <p>If not set, and this option is used by the selected backpressure strategy,
+         * the default will be 15 images per second.
+         *
+         * @param frameRate The number of images per second to deliver, must be positive.
+         * @return The current Builder.
+         */
+        @ExperimentalBackpressureStrategy
+        @NonNull
+        public Builder setTargetAnalysisFrameRate(int frameRate) {
+            Preconditions.checkArgument(frameRate > 0, "Frame rate must be positive.");
+            getMutableConfig().insertOption(OPTION_TARGET_ANALYSIS_FRAME_RATE, frameRate);
+            return this;
+        }
+
         /**
          * {@inheritDoc}
          *
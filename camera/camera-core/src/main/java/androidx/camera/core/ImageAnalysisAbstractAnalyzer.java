@@ -16,8 +16,12 @@
 
 package androidx.camera.core;
 
+import android.os.SystemClock;
+
 import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.experimental.UseExperimental;
 import androidx.camera.core.impl.ImageReaderProxy;
 import androidx.camera.core.impl.utils.futures.Futures;
 import androidx.concurrent.futures.CallbackToFutureAdapter;
@@ -46,6 +50,21 @@ abstract class ImageAnalysisAbstractAnalyzer implements ImageReaderProxy.OnImage
 
     private final Object mAnalyzerLock = new Object();
 
+    // Statistics for the currently set analyzer.
+    private final Object mStatsLock = new Object();
+    @GuardedBy("mStatsLock")
+    private long mAnalyzedFrameCount;
+    @GuardedBy("mStatsLock")
+    private long mDroppedFrameCount;
+    @GuardedBy("mStatsLock")
+    private long mTotalQueueLatencyNanos;
+    @GuardedBy("mStatsLock")
+    private long mMaxQueueLatencyNanos;
+    @GuardedBy("mStatsLock")
+    private long mTotalAnalysisDurationNanos;
+    @GuardedBy("mStatsLock")
+    private long mMaxAnalysisDurationNanos;
+
     // Flag that reflects the state of ImageAnalysis.
     private AtomicBoolean mIsClosed;
 
@@ -64,6 +83,21 @@ abstract class ImageAnalysisAbstractAnalyzer implements ImageReaderProxy.OnImage
      * @return The future which will complete once analysis has finished or it failed.
      */
     ListenableFuture<Void> analyzeImage(ImageProxy imageProxy) {
+        return analyzeImage(imageProxy, SystemClock.elapsedRealtimeNanos());
+    }
+
+    /**
+     * Analyzes a {@link ImageProxy} which has been waiting for analysis since the given time.
+     *
+     * <p>The time between {@code queuedTimeNanos} and the analyzer being invoked is reported as
+     * queue latency, and the time between the analyzer being invoked and the image being closed
+     * as analysis duration, see {@link #onAnalysisFinished(long, long)}.
+     *
+     * @param queuedTimeNanos the time the image was acquired, in the
+     *                        {@link SystemClock#elapsedRealtimeNanos()} time base.
+     * @see #analyzeImage(ImageProxy)
+     */
+    ListenableFuture<Void> analyzeImage(ImageProxy imageProxy, long queuedTimeNanos) {
         Executor executor;
         ImageAnalysis.Analyzer analyzer;
         synchronized (mAnalyzerLock) {
@@ -84,7 +118,15 @@ abstract class ImageAnalysisAbstractAnalyzer implements ImageReaderProxy.OnImage
                                         imageProxy.getImageInfo().getTimestamp(),
                                         mRelativeRotation);
 
-                                analyzer.analyze(new SettableImageProxy(imageProxy, imageInfo));
+                                SettableImageProxy settableImageProxy =
+                                        new SettableImageProxy(imageProxy, imageInfo);
+                                long startTimeNanos = SystemClock.elapsedRealtimeNanos();
+                                settableImageProxy.addOnImageCloseListener(
+                                        image -> onAnalysisFinished(
+                                                startTimeNanos - queuedTimeNanos,
+                                                SystemClock.elapsedRealtimeNanos()
+                                                        - startTimeNanos));
+                                analyzer.analyze(settableImageProxy);
                                 completer.set(null);
                             } else {
                                 completer.setException(new OperationCanceledException("Closed "
@@ -111,6 +153,74 @@ abstract class ImageAnalysisAbstractAnalyzer implements ImageReaderProxy.OnImage
             mSubscribedAnalyzer = subscribedAnalyzer;
             mUserExecutor = userExecutor;
         }
+        resetStats();
+    }
+
+    /**
+     * Closes an image without analyzing it, counting it as dropped.
+     *
+     * <p>Subclasses should call this for images they discard to keep up with the producer, but not
+     * for images closed because the analyzer is closed or unset.
+     */
+    void dropImage(@NonNull ImageProxy imageProxy) {
+        imageProxy.close();
+        synchronized (mStatsLock) {
+            mDroppedFrameCount++;
+        }
+    }
+
+    /**
+     * Called when an image delivered to the analyzer has been closed.
+     *
+     * <p>Subclasses overriding this to measure the analyzer must call through to the super class.
+     *
+     * @param queueLatencyNanos time the image waited before being delivered to the analyzer.
+     * @param analysisDurationNanos time between the image being delivered and being closed.
+     */
+    void onAnalysisFinished(long queueLatencyNanos, long analysisDurationNanos) {
+        synchronized (mStatsLock) {
+            mAnalyzedFrameCount++;
+            mTotalQueueLatencyNanos += queueLatencyNanos;
+            mMaxQueueLatencyNanos = Math.max(mMaxQueueLatencyNanos, queueLatencyNanos);
+            mTotalAnalysisDurationNanos += analysisDurationNanos;
+            mMaxAnalysisDurationNanos = Math.max(mMaxAnalysisDurationNanos,
+                    analysisDurationNanos);
+        }
+    }
+
+    /**
+     * Returns the statistics gathered since the current analyzer was set.
+     */
+    @UseExperimental(markerClass = ExperimentalBackpressureStrategy.class)
+    @NonNull
+    ImageAnalysis.AnalyzerStats getStats() {
+        synchronized (mStatsLock) {
+            return ImageAnalysis.AnalyzerStats.create(mAnalyzedFrameCount, mDroppedFrameCount,
+                    average(mTotalQueueLatencyNanos, mAnalyzedFrameCount), mMaxQueueLatencyNanos,
+                    average(mTotalAnalysisDurationNanos, mAnalyzedFrameCount),
+                    mMaxAnalysisDurationNanos);
+        }
+    }
+
+    /**
+     * Clears the statistics gathered for the previous analyzer, when a new one is set.
+     *
+     * <p>Subclasses keeping their own measurements of the analyzer must call through to the
+     * super class.
+     */
+    void resetStats() {
+        synchronized (mStatsLock) {
+            mAnalyzedFrameCount = 0;
+            mDroppedFrameCount = 0;
+            mTotalQueueLatencyNanos = 0;
+            mMaxQueueLatencyNanos = 0;
+            mTotalAnalysisDurationNanos = 0;
+            mMaxAnalysisDurationNanos = 0;
+        }
+    }
+
+    private static long average(long total, long count) {
+        return count == 0 ? 0 : total / count;
     }
 
     /**
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.camera.core.impl.ImageReaderProxy;
+import androidx.camera.core.impl.utils.executor.CameraXExecutors;
+import androidx.camera.core.impl.utils.futures.FutureCallback;
+import androidx.camera.core.impl.utils.futures.Futures;
+import androidx.core.util.Preconditions;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OnImageAvailableListener which skips images to deliver them to the analyzer at a steady rate.
+ *
+ * <p>Images are spaced by the period of the target frame rate, or by the average time the
+ * analyzer takes to close an image if that is longer, so the analyzer is never handed an image
+ * it cannot finish before the next one is due. Images arriving while the analyzer is busy or
+ * before the next image is due are dropped.
+ *
+ * <p> Used with {@link ImageAnalysis}.
+ */
+final class ImageAnalysisAdaptiveAnalyzer extends ImageAnalysisAbstractAnalyzer {
+
+    // Weight of the latest analysis duration in the moving average, as a shift: 1/8.
+    private static final int AVERAGE_WEIGHT_SHIFT = 3;
+
+    private final long mTargetFrameIntervalNanos;
+
+    @GuardedBy("this")
+    private long mAverageAnalysisDurationNanos;
+
+    // Earliest timestamp of the next image to analyze, or 0 to analyze the next image.
+    @GuardedBy("this")
+    private long mNextFrameTimestamp;
+
+    // Whether an image has been posted to the analyzer and not closed yet.
+    @GuardedBy("this")
+    private boolean mAnalyzing;
+
+    /**
+     * @param targetFrameRate the number of images per second to deliver to the analyzer.
+     */
+    ImageAnalysisAdaptiveAnalyzer(int targetFrameRate) {
+        Preconditions.checkArgument(targetFrameRate > 0, "Target frame rate must be positive.");
+        mTargetFrameIntervalNanos = TimeUnit.SECONDS.toNanos(1) / targetFrameRate;
+        open();
+    }
+
+    @Override
+    public void onImageAvailable(@NonNull ImageReaderProxy imageReaderProxy) {
+        ImageProxy imageProxy = imageReaderProxy.acquireLatestImage();
+        if (imageProxy == null) {
+            return;
+        }
+        analyze(imageProxy);
+    }
+
+    @Override
+    synchronized void open() {
+        super.open();
+        mNextFrameTimestamp = 0;
+    }
+
+    @Override
+    void onAnalysisFinished(long queueLatencyNanos, long analysisDurationNanos) {
+        super.onAnalysisFinished(queueLatencyNanos, analysisDurationNanos);
+        synchronized (this) {
+            if (mAverageAnalysisDurationNanos == 0) {
+                mAverageAnalysisDurationNanos = analysisDurationNanos;
+            } else {
+                mAverageAnalysisDurationNanos += (analysisDurationNanos
+                        - mAverageAnalysisDurationNanos) >> AVERAGE_WEIGHT_SHIFT;
+            }
+        }
+    }
+
+    @Override
+    void resetStats() {
+        super.resetStats();
+        // The new analyzer may be much faster or slower than the previous one.
+        synchronized (this) {
+            mAverageAnalysisDurationNanos = 0;
+        }
+    }
+
+    /**
+     * Returns the interval between images delivered to the analyzer.
+     */
+    synchronized long getFrameIntervalNanos() {
+        return Math.max(mTargetFrameIntervalNanos, mAverageAnalysisDurationNanos);
+    }
+
+    /**
+     * Called once the posted image has been closed.
+     */
+    synchronized void onPostedImageClosed() {
+        mAnalyzing = false;
+    }
+
+    private synchronized void analyze(@NonNull ImageProxy imageProxy) {
+        if (isClosed()) {
+            imageProxy.close();
+            return;
+        }
+
+        long timestamp = imageProxy.getImageInfo().getTimestamp();
+        long interval = getFrameIntervalNanos();
+        // Allow images to arrive a little early, the producer's frame period jitters.
+        if (mAnalyzing || timestamp < mNextFrameTimestamp - interval / 4) {
+            dropImage(imageProxy);
+            return;
+        }
+
+        // Advance from the previous deadline rather than this timestamp so the average rate
+        // matches the interval, unless the analyzer fell behind by a whole interval.
+        mNextFrameTimestamp += interval;
+        if (mNextFrameTimestamp < timestamp) {
+            mNextFrameTimestamp = timestamp + interval;
+        }
+
+        final ForwardingImageProxy postedImage = new SingleCloseImageProxy(imageProxy);
+        postedImage.addOnImageCloseListener(image -> onPostedImageClosed());
+        mAnalyzing = true;
+
+        ListenableFuture<Void> analyzeFuture = analyzeImage(postedImage);
+
+        // Callback to close the image only after analysis complete regardless of success
+        Futures.addCallback(analyzeFuture, new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                // No-op. Keep dropping the images until user closes the current one.
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // Close the image if we didn't post it to user.
+                postedImage.close();
+            }
+        }, CameraXExecutors.directExecutor());
+    }
+}
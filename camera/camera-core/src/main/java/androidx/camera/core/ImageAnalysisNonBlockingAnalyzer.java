@@ -115,14 +115,14 @@ final class ImageAnalysisNonBlockingAnalyzer extends ImageAnalysisAbstractAnalyz
         if (postedImage != null
                 && imageProxy.getImageInfo().getTimestamp() <= mPostedImageTimestamp.get()) {
             // Discard image that is in wrong order. Reposted cached image can be in this state.
-            imageProxy.close();
+            dropImage(imageProxy);
             return;
         }
 
         if (postedImage != null && !postedImage.isClosed()) {
             // If the posted image hasn't been closed, cache the new image.
             if (mCachedImage != null) {
-                mCachedImage.close();
+                dropImage(mCachedImage);
             }
             mCachedImage = imageProxy;
             return;
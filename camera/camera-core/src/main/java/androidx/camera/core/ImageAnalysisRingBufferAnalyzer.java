@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core;
+
+import android.os.SystemClock;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.camera.core.impl.ImageReaderProxy;
+import androidx.camera.core.impl.utils.executor.CameraXExecutors;
+import androidx.camera.core.impl.utils.futures.FutureCallback;
+import androidx.camera.core.impl.utils.futures.Futures;
+import androidx.core.util.Preconditions;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * OnImageAvailableListener which keeps the latest images in a bounded ring. Images are analyzed
+ * in order; when the ring is full the oldest pending image is dropped to make room.
+ *
+ * <p> Used with {@link ImageAnalysis}.
+ */
+final class ImageAnalysisRingBufferAnalyzer extends ImageAnalysisAbstractAnalyzer {
+
+    // The executor for dispatching the next pending image.
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    final Executor mBackgroundExecutor;
+
+    private final int mCapacity;
+
+    // Images waiting for analysis, oldest first. Images removed from the ring must be closed by
+    // 1) closing them directly or 2) posting them to the analyzer.
+    @GuardedBy("this")
+    private final ArrayDeque<PendingImage> mPendingImages;
+
+    // Whether an image has been posted to the analyzer and not closed yet.
+    @GuardedBy("this")
+    private boolean mAnalyzing;
+
+    /**
+     * @param executor the executor used to post pending images once the analyzer is done.
+     * @param capacity the number of images to keep while the analyzer is busy.
+     */
+    ImageAnalysisRingBufferAnalyzer(@NonNull Executor executor, int capacity) {
+        Preconditions.checkArgument(capacity > 0, "Capacity must be positive.");
+        mBackgroundExecutor = executor;
+        mCapacity = capacity;
+        mPendingImages = new ArrayDeque<>(capacity);
+        open();
+    }
+
+    @Override
+    public void onImageAvailable(@NonNull ImageReaderProxy imageReaderProxy) {
+        // Acquire every image so frames dropped because the ring is full are accounted for.
+        ImageProxy imageProxy = imageReaderProxy.acquireNextImage();
+        if (imageProxy == null) {
+            return;
+        }
+        enqueue(imageProxy);
+    }
+
+    @Override
+    synchronized void open() {
+        super.open();
+        clearPendingImages();
+    }
+
+    @Override
+    synchronized void close() {
+        super.close();
+        clearPendingImages();
+    }
+
+    /**
+     * Returns the number of images waiting for analysis.
+     */
+    synchronized int getPendingImageCount() {
+        return mPendingImages.size();
+    }
+
+    private synchronized void enqueue(@NonNull ImageProxy imageProxy) {
+        if (isClosed()) {
+            imageProxy.close();
+            return;
+        }
+
+        if (mPendingImages.size() == mCapacity) {
+            dropImage(mPendingImages.removeFirst().mImageProxy);
+        }
+        mPendingImages.addLast(new PendingImage(imageProxy, SystemClock.elapsedRealtimeNanos()));
+
+        analyzeNextImage();
+    }
+
+    /**
+     * Called once the posted image has been closed.
+     */
+    synchronized void onPostedImageClosed() {
+        mAnalyzing = false;
+        analyzeNextImage();
+    }
+
+    @GuardedBy("this")
+    private void analyzeNextImage() {
+        if (mAnalyzing || isClosed() || mPendingImages.isEmpty()) {
+            return;
+        }
+
+        PendingImage pendingImage = mPendingImages.removeFirst();
+        final RingBufferImageProxy postedImage =
+                new RingBufferImageProxy(pendingImage.mImageProxy, this);
+        mAnalyzing = true;
+
+        ListenableFuture<Void> analyzeFuture = analyzeImage(postedImage,
+                pendingImage.mQueuedTimeNanos);
+
+        // Callback to close the image only after analysis complete regardless of success
+        Futures.addCallback(analyzeFuture, new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                // No-op. The next image is posted once the user closes the current one.
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // Close the image if we didn't post it to user.
+                postedImage.close();
+            }
+        }, CameraXExecutors.directExecutor());
+    }
+
+    @GuardedBy("this")
+    private void clearPendingImages() {
+        while (!mPendingImages.isEmpty()) {
+            mPendingImages.removeFirst().mImageProxy.close();
+        }
+    }
+
+    private static final class PendingImage {
+        final ImageProxy mImageProxy;
+        final long mQueuedTimeNanos;
+
+        PendingImage(ImageProxy imageProxy, long queuedTimeNanos) {
+            mImageProxy = imageProxy;
+            mQueuedTimeNanos = queuedTimeNanos;
+        }
+    }
+
+    /**
+     * An {@link ImageProxy} which will trigger analysis of the next pending image once closed.
+     */
+    static class RingBufferImageProxy extends ForwardingImageProxy {
+
+        // So that if the user holds onto the ImageProxy instance the analyzer can still be GC'ed
+        WeakReference<ImageAnalysisRingBufferAnalyzer> mRingBufferAnalyzerWeakReference;
+
+        RingBufferImageProxy(ImageProxy image, ImageAnalysisRingBufferAnalyzer analyzer) {
+            super(image);
+            mRingBufferAnalyzerWeakReference = new WeakReference<>(analyzer);
+
+            addOnImageCloseListener((imageProxy) -> {
+                ImageAnalysisRingBufferAnalyzer ringBufferAnalyzer =
+                        mRingBufferAnalyzerWeakReference.get();
+                if (ringBufferAnalyzer != null) {
+                    ringBufferAnalyzer.mBackgroundExecutor.execute(
+                            ringBufferAnalyzer::onPostedImageClosed);
+                }
+            });
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package androidx.camera.core;
 
 import static androidx.camera.core.impl.ImageCaptureConfig.OPTION_BUFFER_FORMAT;
+import static androidx.camera.core.impl.ImageCaptureConfig.OPTION_BURST_CAPTURE_DEPTH;
 import static androidx.camera.core.impl.ImageCaptureConfig.OPTION_CAPTURE_BUNDLE;
 import static androidx.camera.core.impl.ImageCaptureConfig.OPTION_CAPTURE_CONFIG_UNPACKER;
 import static androidx.camera.core.impl.ImageCaptureConfig.OPTION_CAPTURE_PROCESSOR;
@@ -242,6 +243,13 @@ public final class ImageCapture extends UseCase {
     @CaptureMode
     private final int mCaptureMode;
 
+    /** The number of captures kept in flight in burst mode, or 0 if burst mode is not used. */
+    private final int mBurstCaptureDepth;
+
+    /** Saves the images of a burst, only available in burst mode. */
+    @Nullable
+    private final ImageSavePipeline mImageSavePipeline;
+
     /**
      * A flag to check 3A converged or not.
      *
@@ -322,6 +330,15 @@ public final class ImageCapture extends UseCase {
         mIoExecutor = Preconditions.checkNotNull(
                 useCaseConfig.getIoExecutor(CameraXExecutors.ioExecutor()));
 
+        mBurstCaptureDepth = useCaseConfig.getBurstCaptureDepth(0);
+        if (mBurstCaptureDepth > 0) {
+            // Encoding is CPU bound, more concurrent saves than cores only adds contention.
+            mImageSavePipeline = new ImageSavePipeline(mIoExecutor,
+                    Math.min(mBurstCaptureDepth, Runtime.getRuntime().availableProcessors()));
+        } else {
+            mImageSavePipeline = null;
+        }
+
         if (mCaptureMode == CAPTURE_MODE_MAXIMIZE_QUALITY) {
             mEnableCheck3AConverged = true; // check 3A convergence in MAX_QUALITY mode
         } else {
@@ -342,7 +359,8 @@ public final class ImageCapture extends UseCase {
             mImageReader =
                     new SafeCloseImageReaderProxy(
                             config.getImageReaderProxyProvider().newInstance(resolution.getWidth(),
-                                    resolution.getHeight(), getImageFormat(), MAX_IMAGES, 0));
+                                    resolution.getHeight(), getImageFormat(), getMaxImages(),
+                                    0));
             mMetadataMatchingCaptureCallback = new CameraCaptureCallback() {
             };
         } else if (mCaptureProcessor != null) {
@@ -351,7 +369,8 @@ public final class ImageCapture extends UseCase {
                     new ProcessingImageReader(
                             resolution.getWidth(),
                             resolution.getHeight(),
-                            getImageFormat(), mMaxCaptureStages,
+                            // Also holds the captures in flight in burst mode
+                            getImageFormat(), Math.max(mMaxCaptureStages, mBurstCaptureDepth),
                             /* postProcessExecutor */mExecutor,
                             getCaptureBundle(CaptureBundles.singleDefaultCaptureBundle()),
                             mCaptureProcessor);
@@ -359,11 +378,11 @@ public final class ImageCapture extends UseCase {
             mImageReader = new SafeCloseImageReaderProxy(mProcessingImageReader);
         } else {
             MetadataImageReader metadataImageReader = new MetadataImageReader(resolution.getWidth(),
-                    resolution.getHeight(), getImageFormat(), MAX_IMAGES);
+                    resolution.getHeight(), getImageFormat(), getMaxImages());
             mMetadataMatchingCaptureCallback = metadataImageReader.getCameraCaptureCallback();
             mImageReader = new SafeCloseImageReaderProxy(metadataImageReader);
         }
-        mImageCaptureRequestProcessor = new ImageCaptureRequestProcessor(MAX_IMAGES,
+        mImageCaptureRequestProcessor = new ImageCaptureRequestProcessor(getMaxImages(),
                 request -> takePictureInternal(request));
 
         // By default close images that come from the listener.
@@ -395,6 +414,14 @@ public final class ImageCapture extends UseCase {
         return sessionConfigBuilder;
     }
 
+    /**
+     * Returns the maximum number of images acquired from the ImageReader at the same time, which
+     * is raised in burst mode so that captures are not blocked on the images being saved.
+     */
+    private int getMaxImages() {
+        return Math.max(MAX_IMAGES, mBurstCaptureDepth);
+    }
+
     /**
      * Clear the internal pipeline so that the pipeline can be set up again.
      */
@@ -623,6 +650,34 @@ public final class ImageCapture extends UseCase {
         return mCaptureMode;
     }
 
+    /**
+     * Returns the number of captures kept in flight in burst mode.
+     *
+     * <p>This is set when constructing an ImageCapture using
+     * {@link ImageCapture.Builder#setBurstCaptureDepth(int)}. If burst mode is not enabled,
+     * returns 0.
+     */
+    @ExperimentalBurstCapture
+    public int getBurstCaptureDepth() {
+        return mBurstCaptureDepth;
+    }
+
+    /**
+     * Returns the sustained rate of the most recent burst, in pictures saved per second.
+     *
+     * <p>A burst starts when a picture is taken while no other picture is in flight, and the
+     * rate is measured from then until the callback of the last picture saved so far was
+     * posted. Only pictures taken with
+     * {@link #takePicture(OutputFileOptions, Executor, OnImageSavedCallback)} are counted.
+     *
+     * @return The rate, or 0 if burst mode is not enabled or no picture was saved yet.
+     * @see ImageCapture.Builder#setBurstCaptureDepth(int)
+     */
+    @ExperimentalBurstCapture
+    public float getBurstShotsPerSecond() {
+        return mImageSavePipeline != null ? mImageSavePipeline.getShotsPerSecond() : 0;
+    }
+
     /**
      * Captures a new still image for in memory access.
      *
@@ -651,6 +706,10 @@ public final class ImageCapture extends UseCase {
      * set, or {@link #setCropAspectRatio} is used, the image may be cropped before saving to
      * disk which causes an additional latency.
      *
+     * <p>In burst mode, set with {@link Builder#setBurstCaptureDepth(int)}, images are saved
+     * concurrently while the next pictures are captured, and the callbacks are posted in the
+     * order this method was called.
+     *
      * @param outputFileOptions  Options to store the newly captured image.
      * @param executor           The executor in which the callback methods will be run.
      * @param imageSavedCallback Callback to be called for the newly captured image.
@@ -693,12 +752,24 @@ public final class ImageCapture extends UseCase {
          * +-----------------------+      +----------------------+
          */
 
+        // In burst mode the images are saved concurrently, so the callbacks are held back by the
+        // save pipeline until the callbacks of the previous pictures have been posted.
+        final ImageSavePipeline savePipeline = mImageSavePipeline;
+        final int sequence = savePipeline != null ? savePipeline.nextSequence() : 0;
+        final Executor saverExecutor =
+                savePipeline != null ? CameraXExecutors.directExecutor() : executor;
+
         // Convert the ImageSaver.OnImageSavedCallback to ImageCapture.OnImageSavedCallback
         final ImageSaver.OnImageSavedCallback imageSavedCallbackWrapper =
                 new ImageSaver.OnImageSavedCallback() {
                     @Override
                     public void onImageSaved(@NonNull OutputFileResults outputFileResults) {
-                        imageSavedCallback.onImageSaved(outputFileResults);
+                        if (savePipeline != null) {
+                            savePipeline.deliver(sequence, () -> executor.execute(
+                                    () -> imageSavedCallback.onImageSaved(outputFileResults)));
+                        } else {
+                            imageSavedCallback.onImageSaved(outputFileResults);
+                        }
                     }
 
                     @Override
@@ -714,8 +785,14 @@ public final class ImageCapture extends UseCase {
                                 break;
                         }
 
-                        imageSavedCallback.onError(
-                                new ImageCaptureException(imageCaptureError, message, cause));
+                        ImageCaptureException exception =
+                                new ImageCaptureException(imageCaptureError, message, cause);
+                        if (savePipeline != null) {
+                            savePipeline.deliver(sequence, () -> executor.execute(
+                                    () -> imageSavedCallback.onError(exception)));
+                        } else {
+                            imageSavedCallback.onError(exception);
+                        }
                     }
                 };
 
@@ -725,18 +802,34 @@ public final class ImageCapture extends UseCase {
                 new OnImageCapturedCallback() {
                     @Override
                     public void onCaptureSuccess(@NonNull ImageProxy image) {
-                        mIoExecutor.execute(
-                                new ImageSaver(
-                                        image,
-                                        outputFileOptions,
-                                        image.getImageInfo().getRotationDegrees(),
-                                        executor,
-                                        imageSavedCallbackWrapper));
+                        ImageSaver imageSaver = new ImageSaver(
+                                image,
+                                outputFileOptions,
+                                image.getImageInfo().getRotationDegrees(),
+                                saverExecutor,
+                                imageSavedCallbackWrapper);
+                        if (savePipeline != null) {
+                            // An unchecked exception, for example a SecurityException from the
+                            // ContentResolver, must still deliver this picture's outcome or the
+                            // callbacks of every later picture would be held back.
+                            savePipeline.save(imageSaver,
+                                    throwable -> imageSavedCallbackWrapper.onError(
+                                            ImageSaver.SaveError.UNKNOWN,
+                                            "Failed to save image", throwable));
+                        } else {
+                            mIoExecutor.execute(imageSaver);
+                        }
                     }
 
                     @Override
                     public void onError(@NonNull final ImageCaptureException exception) {
-                        imageSavedCallback.onError(exception);
+                        if (savePipeline != null) {
+                            savePipeline.deliver(sequence,
+                                    () -> executor.execute(() -> imageSavedCallback.onError(
+                                            exception)));
+                        } else {
+                            imageSavedCallback.onError(exception);
+                        }
                     }
                 };
 
@@ -1763,9 +1856,11 @@ public final class ImageCapture extends UseCase {
     public static class OutputFileResults {
         @Nullable
         private Uri mSavedUri;
+        private final long mSaveDurationNanos;
 
-        OutputFileResults(@Nullable Uri savedUri) {
+        OutputFileResults(@Nullable Uri savedUri, long saveDurationNanos) {
             mSavedUri = savedUri;
+            mSaveDurationNanos = saveDurationNanos;
         }
 
         /**
@@ -1781,6 +1876,18 @@ public final class ImageCapture extends UseCase {
         public Uri getSavedUri() {
             return mSavedUri;
         }
+
+        /**
+         * Returns the time taken to save the image, in nanoseconds.
+         *
+         * <p>This covers encoding the captured image if needed, updating its EXIF and writing it
+         * to the output, but not the capture itself nor the time the image waited for the
+         * {@linkplain Builder#setIoExecutor(Executor) IO executor}.
+         */
+        @ExperimentalImageCaptureMetrics
+        public long getSaveDurationNanos() {
+            return mSaveDurationNanos;
+        }
     }
 
     /** Holder class for metadata that will be saved with captured images. */
@@ -2265,6 +2372,10 @@ public final class ImageCapture extends UseCase {
             Preconditions.checkNotNull(getMutableConfig().retrieveOption(OPTION_IO_EXECUTOR,
                     CameraXExecutors.ioExecutor()), "The IO executor can't be null");
 
+            Preconditions.checkArgument(
+                    getMutableConfig().retrieveOption(OPTION_BURST_CAPTURE_DEPTH, 1) >= 1,
+                    "Burst capture depth must be at least 1");
+
             if (getMutableConfig().containsOption(OPTION_FLASH_MODE)) {
                 int flashMode = getMutableConfig().retrieveOption(OPTION_FLASH_MODE);
 
@@ -2316,6 +2427,31 @@ public final class ImageCapture extends UseCase {
             return this;
         }
 
+        /**
+         * Enables burst mode, keeping up to the given number of captures in flight.
+         *
+         * <p>Without burst mode, a capture waits for the image of an earlier capture to be saved
+         * once two images are held. In burst mode, the camera keeps capturing while up to
+         * {@code depth} images are being saved by
+         * {@link ImageCapture#takePicture(OutputFileOptions, Executor, OnImageSavedCallback)}.
+         * The images are encoded and saved concurrently, by at most as many tasks as there are
+         * processors, on the executor set by {@link #setIoExecutor(Executor)}. Callbacks are
+         * still posted in the order the pictures were taken.
+         *
+         * <p>Each image in flight holds a full resolution buffer, so a larger depth increases
+         * memory usage.
+         *
+         * @param depth The number of captures kept in flight. Must be at least 1.
+         * @return The current Builder.
+         * @see ImageCapture#getBurstShotsPerSecond()
+         */
+        @ExperimentalBurstCapture
+        @NonNull
+        public Builder setBurstCaptureDepth(@IntRange(from = 1) int depth) {
+            getMutableConfig().insertOption(OPTION_BURST_CAPTURE_DEPTH, depth);
+            return this;
+        }
+
         /**
          * Sets the {@link CaptureBundle}.
          *
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core;
+
+import android.os.SystemClock;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.core.util.Consumer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the images of an {@link ImageCapture} burst with a bounded number of concurrent tasks,
+ * while delivering the results in the order the pictures were taken.
+ *
+ * <p>Every picture reserves a sequence number with {@link #nextSequence()} when it is requested.
+ * The work to save it is started with {@link #save(Runnable)}, and at most the given number of
+ * saves run on the IO executor at the same time, so that encoding does not compete with the
+ * capture sequence for every thread of the executor. The outcome is handed back with
+ * {@link #deliver(int, Runnable)}, which holds it until the outcomes of all earlier sequence
+ * numbers have been delivered. Every sequence number must therefore get exactly one outcome: a
+ * save which throws reports the failure to its handler, and later outcomes for a sequence number
+ * are ignored.
+ */
+final class ImageSavePipeline {
+    private static final String TAG = "ImageSavePipeline";
+
+    private final Executor mIoExecutor;
+    private final int mMaxConcurrentSaves;
+
+    private final Object mLock = new Object();
+
+    @GuardedBy("mLock")
+    private final Deque<Runnable> mPendingSaves = new ArrayDeque<>();
+    @GuardedBy("mLock")
+    private int mRunningSaves = 0;
+
+    @GuardedBy("mLock")
+    private final Map<Integer, Runnable> mPendingResults = new HashMap<>();
+    @GuardedBy("mLock")
+    private int mNextSequence = 0;
+    @GuardedBy("mLock")
+    private int mNextResult = 0;
+
+    @GuardedBy("mLock")
+    private long mBurstStartNanos = 0;
+    @GuardedBy("mLock")
+    private long mBurstDurationNanos = 0;
+    @GuardedBy("mLock")
+    private int mBurstShots = 0;
+
+    /**
+     * @param ioExecutor         the executor the saves run on.
+     * @param maxConcurrentSaves the maximum number of saves running at the same time.
+     */
+    ImageSavePipeline(@NonNull Executor ioExecutor, int maxConcurrentSaves) {
+        if (maxConcurrentSaves < 1) {
+            throw new IllegalArgumentException(
+                    "Maximum concurrent saves must be at least 1: " + maxConcurrentSaves);
+        }
+        mIoExecutor = ioExecutor;
+        mMaxConcurrentSaves = maxConcurrentSaves;
+    }
+
+    /**
+     * Reserves the sequence number of a new picture.
+     *
+     * <p>If no picture is in flight, this starts a new burst for
+     * {@link #getShotsPerSecond()}.
+     */
+    int nextSequence() {
+        synchronized (mLock) {
+            if (mNextResult == mNextSequence) {
+                mBurstStartNanos = SystemClock.elapsedRealtimeNanos();
+                mBurstDurationNanos = 0;
+                mBurstShots = 0;
+            }
+            return mNextSequence++;
+        }
+    }
+
+    /**
+     * Runs the save on the IO executor once fewer than the maximum saves are running.
+     *
+     * @param saveTask  the save, which delivers its outcome when done.
+     * @param onFailure called with anything thrown by the save, to deliver an error outcome in
+     *                  its place so that later pictures are not held back.
+     */
+    void save(@NonNull Runnable saveTask, @NonNull Consumer<Throwable> onFailure) {
+        synchronized (mLock) {
+            mPendingSaves.offer(() -> {
+                try {
+                    saveTask.run();
+                } catch (Throwable throwable) {
+                    Logger.e(TAG, "Unexpected failure while saving image.", throwable);
+                    onFailure.accept(throwable);
+                }
+            });
+        }
+        startPendingSaves();
+    }
+
+    /**
+     * Delivers the outcome of the picture with the given sequence number, after the outcomes of
+     * all pictures requested before it.
+     *
+     * <p>The outcomes are run on the calling thread, or on the thread delivering the outcome
+     * they were waiting on. They are expected to only post to the application's executor.
+     */
+    void deliver(int sequence, @NonNull Runnable outcome) {
+        synchronized (mLock) {
+            if (sequence < mNextResult || mPendingResults.containsKey(sequence)) {
+                Logger.w(TAG, "Ignoring another outcome for picture " + sequence);
+                return;
+            }
+            mPendingResults.put(sequence, outcome);
+            Runnable next;
+            while ((next = mPendingResults.remove(mNextResult)) != null) {
+                mNextResult++;
+                mBurstShots++;
+                mBurstDurationNanos = SystemClock.elapsedRealtimeNanos() - mBurstStartNanos;
+                // Run while holding the lock so outcomes are posted in sequence order.
+                try {
+                    next.run();
+                } catch (RuntimeException e) {
+                    // Keep delivering the outcomes of the later pictures.
+                    Logger.e(TAG, "Unable to deliver outcome of picture " + (mNextResult - 1), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of pictures per second delivered since the start of the most recent
+     * burst, or 0 if no picture has been delivered yet.
+     */
+    float getShotsPerSecond() {
+        synchronized (mLock) {
+            if (mBurstShots == 0 || mBurstDurationNanos <= 0) {
+                return 0;
+            }
+            return mBurstShots * (float) TimeUnit.SECONDS.toNanos(1) / mBurstDurationNanos;
+        }
+    }
+
+    /** Returns the number of saves currently running on the IO executor. */
+    int getRunningSaveCount() {
+        synchronized (mLock) {
+            return mRunningSaves;
+        }
+    }
+
+    private void startPendingSaves() {
+        while (true) {
+            Runnable saveTask;
+            synchronized (mLock) {
+                if (mRunningSaves >= mMaxConcurrentSaves) {
+                    return;
+                }
+                saveTask = mPendingSaves.poll();
+                if (saveTask == null) {
+                    return;
+                }
+                mRunningSaves++;
+            }
+            try {
+                mIoExecutor.execute(() -> {
+                    try {
+                        saveTask.run();
+                    } finally {
+                        onSaveFinished();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                Logger.e(TAG, "Unable to start saving image.", e);
+                synchronized (mLock) {
+                    mRunningSaves--;
+                }
+                // Run it here so the outcome is still delivered and later pictures not blocked.
+                saveTask.run();
+            }
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic accessor */
+    void onSaveFinished() {
+        synchronized (mLock) {
+            mRunningSaves--;
+        }
+        startPendingSaves();
+    }
+}
@@ -20,6 +20,7 @@ import android.content.ContentValues;
 import android.graphics.ImageFormat;
 import android.net.Uri;
 import android.os.Build;
+import android.os.SystemClock;
 import android.provider.MediaStore;
 
 import androidx.annotation.NonNull;
@@ -27,6 +28,8 @@ import androidx.annotation.Nullable;
 import androidx.camera.core.impl.utils.Exif;
 import androidx.camera.core.internal.utils.ImageUtil;
 import androidx.camera.core.internal.utils.ImageUtil.CodecFailedException;
+import androidx.camera.core.internal.utils.JpegSplicer;
+import androidx.exifinterface.media.ExifInterface;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -36,15 +39,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 final class ImageSaver implements Runnable {
     private static final String TAG = "ImageSaver";
 
     private static final String TEMP_FILE_PREFIX = "CameraX";
     private static final String TEMP_FILE_SUFFIX = ".tmp";
-    private static final int COPY_BUFFER_SIZE = 1024;
     private static final int PENDING = 1;
     private static final int NOT_PENDING = 0;
 
@@ -75,60 +81,18 @@ final class ImageSaver implements Runnable {
 
     @Override
     public void run() {
+        long startTimeNanos = SystemClock.elapsedRealtimeNanos();
+
         // Finally, we save the file to disk
         SaveError saveError = null;
         String errorMessage = null;
         Exception exception = null;
-
-        File file;
         Uri outputUri = null;
-        try {
-            // Create a temp file if the save location is not a file. This is necessary because
-            // ExifInterface only supports saving to File.
-            file = isSaveToFile() ? mOutputFileOptions.getFile() :
-                    File.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX);
-        } catch (IOException e) {
-            postError(SaveError.FILE_IO_FAILED, "Failed to create temp file", e);
-            return;
-        }
-
-        try (ImageProxy imageToClose = mImage;
-             FileOutputStream output = new FileOutputStream(file)) {
-            byte[] bytes = ImageUtil.imageToJpegByteArray(mImage);
-            output.write(bytes);
-
-            Exif exif = Exif.createFromFile(file);
-            exif.attachTimestamp();
-
-            // Use exif for orientation (contains rotation only) from the original image if JPEG,
-            // because imageToJpegByteArray removes EXIF in certain conditions. See b/124280392
-            if (mImage.getFormat() == ImageFormat.JPEG) {
-                ByteBuffer buffer = mImage.getPlanes()[0].getBuffer();
-                // Rewind to make sure it is at the beginning of the buffer
-                buffer.rewind();
-
-                byte[] data = new byte[buffer.capacity()];
-                buffer.get(data);
-                InputStream inputStream = new ByteArrayInputStream(data);
-                Exif originalExif = Exif.createFromInputStream(inputStream);
-
-                exif.setOrientation(originalExif.getOrientation());
-            } else {
-                exif.rotate(mOrientation);
-            }
-
-            ImageCapture.Metadata metadata = mOutputFileOptions.getMetadata();
-            if (metadata.isReversedHorizontal()) {
-                exif.flipHorizontally();
-            }
-            if (metadata.isReversedVertical()) {
-                exif.flipVertically();
-            }
-            if (metadata.getLocation() != null) {
-                exif.attachLocation(mOutputFileOptions.getMetadata().getLocation());
-            }
 
-            exif.save();
+        try (ImageProxy imageToClose = mImage) {
+            ByteBuffer jpeg = getJpegBuffer();
+            int scanOffset = JpegSplicer.getScanOffset(jpeg);
+            byte[] header = createHeaderWithExif(jpeg, scanOffset);
 
             if (isSaveToMediaStore()) {
                 ContentValues values = mOutputFileOptions.getContentValues() != null
@@ -142,14 +106,19 @@ final class ImageSaver implements Runnable {
                     saveError = SaveError.FILE_IO_FAILED;
                     errorMessage = "Failed to insert URI.";
                 } else {
-                    if (!copyTempFileToUri(file, outputUri)) {
+                    if (!writeJpegToUri(jpeg, scanOffset, header, outputUri)) {
                         saveError = SaveError.FILE_IO_FAILED;
                         errorMessage = "Failed to save to URI.";
                     }
                     setUriNotPending(outputUri);
                 }
             } else if (isSaveToOutputStream()) {
-                copyTempFileToOutputStream(file, mOutputFileOptions.getOutputStream());
+                writeJpeg(jpeg, scanOffset, header, mOutputFileOptions.getOutputStream());
+            } else {
+                try (FileOutputStream output = new FileOutputStream(
+                        mOutputFileOptions.getFile())) {
+                    writeJpeg(jpeg, scanOffset, header, output);
+                }
             }
         } catch (IOException | IllegalArgumentException e) {
             saveError = SaveError.FILE_IO_FAILED;
@@ -172,17 +141,84 @@ final class ImageSaver implements Runnable {
                     break;
             }
             exception = e;
-        } finally {
-            if (!isSaveToFile()) {
-                // Cleanup temp file if created.
-                file.delete();
-            }
         }
 
         if (saveError != null) {
             postError(saveError, errorMessage, exception);
         } else {
-            postSuccess(outputUri);
+            long saveDurationNanos = SystemClock.elapsedRealtimeNanos() - startTimeNanos;
+            Logger.d(TAG, "Image saved in "
+                    + TimeUnit.NANOSECONDS.toMillis(saveDurationNanos) + " ms");
+            postSuccess(outputUri, saveDurationNanos);
+        }
+    }
+
+    /**
+     * Returns the JPEG to save.
+     *
+     * <p>A JPEG image which does not need cropping is saved straight from its plane buffer.
+     * Other images are encoded, or decoded, cropped and encoded again.
+     */
+    @NonNull
+    private ByteBuffer getJpegBuffer() throws CodecFailedException {
+        if (mImage.getFormat() == ImageFormat.JPEG && !ImageUtil.shouldCropImage(mImage)) {
+            return mImage.getPlanes()[0].getBuffer();
+        }
+        byte[] bytes = ImageUtil.imageToJpegByteArray(mImage);
+        if (bytes == null) {
+            throw new IllegalArgumentException("Unsupported image format: " + mImage.getFormat());
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Returns the header of the JPEG with the EXIF of the saved image.
+     *
+     * <p>Only the header is written to a temp file for {@link ExifInterface} to edit, which
+     * only supports saving to files. The image data is never copied.
+     */
+    @NonNull
+    private byte[] createHeaderWithExif(@NonNull ByteBuffer jpeg, int scanOffset)
+            throws IOException {
+        File headerFile = File.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX);
+        try {
+            try (FileOutputStream output = new FileOutputStream(headerFile)) {
+                output.write(JpegSplicer.getHeader(jpeg, scanOffset));
+            }
+
+            Exif exif = Exif.createFromFile(headerFile);
+            exif.attachTimestamp();
+
+            // Use exif for orientation (contains rotation only) from the original image if JPEG,
+            // because imageToJpegByteArray removes EXIF in certain conditions. See b/124280392
+            if (mImage.getFormat() == ImageFormat.JPEG) {
+                ByteBuffer buffer = mImage.getPlanes()[0].getBuffer();
+                byte[] originalHeader = JpegSplicer.getHeader(buffer,
+                        JpegSplicer.getScanOffset(buffer));
+                InputStream inputStream = new ByteArrayInputStream(originalHeader);
+                Exif originalExif = Exif.createFromInputStream(inputStream);
+
+                exif.setOrientation(originalExif.getOrientation());
+            } else {
+                exif.rotate(mOrientation);
+            }
+
+            ImageCapture.Metadata metadata = mOutputFileOptions.getMetadata();
+            if (metadata.isReversedHorizontal()) {
+                exif.flipHorizontally();
+            }
+            if (metadata.isReversedVertical()) {
+                exif.flipVertically();
+            }
+            if (metadata.getLocation() != null) {
+                exif.attachLocation(mOutputFileOptions.getMetadata().getLocation());
+            }
+
+            exif.save();
+
+            return readFile(headerFile);
+        } finally {
+            headerFile.delete();
         }
     }
 
@@ -219,37 +255,58 @@ final class ImageSaver implements Runnable {
     }
 
     /**
-     * Copies temp file to {@link Uri}.
+     * Writes the JPEG to {@link Uri}.
      *
      * @return false if the {@link Uri} is not writable.
      */
-    private boolean copyTempFileToUri(@NonNull File tempFile, @NonNull Uri uri) throws IOException {
+    private boolean writeJpegToUri(@NonNull ByteBuffer jpeg, int scanOffset,
+            @NonNull byte[] header, @NonNull Uri uri) throws IOException {
         try (OutputStream outputStream =
                      mOutputFileOptions.getContentResolver().openOutputStream(uri)) {
             if (outputStream == null) {
                 // The URI is not writable.
                 return false;
             }
-            copyTempFileToOutputStream(tempFile, outputStream);
+            writeJpeg(jpeg, scanOffset, header, outputStream);
         }
         return true;
     }
 
-    private void copyTempFileToOutputStream(@NonNull File tempFile,
-            @NonNull OutputStream outputStream) throws IOException {
-        try (InputStream in = new FileInputStream(tempFile)) {
-            byte[] buf = new byte[COPY_BUFFER_SIZE];
+    /**
+     * Writes the header followed by the image data of the JPEG, without closing the stream.
+     *
+     * <p>File streams, which include those opened for content URIs, are written through their
+     * {@link FileChannel} directly from the JPEG buffer.
+     */
+    private static void writeJpeg(@NonNull ByteBuffer jpeg, int scanOffset,
+            @NonNull byte[] header, @NonNull OutputStream outputStream) throws IOException {
+        WritableByteChannel channel = outputStream instanceof FileOutputStream
+                ? ((FileOutputStream) outputStream).getChannel()
+                : Channels.newChannel(outputStream);
+        JpegSplicer.write(jpeg, scanOffset, header, channel);
+    }
+
+    @NonNull
+    private static byte[] readFile(@NonNull File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int offset = 0;
             int len;
-            while ((len = in.read(buf)) > 0) {
-                outputStream.write(buf, 0, len);
+            while (offset < bytes.length
+                    && (len = in.read(bytes, offset, bytes.length - offset)) > 0) {
+                offset += len;
+            }
+            if (offset < bytes.length) {
+                throw new IOException("Unexpected end of " + file);
             }
         }
+        return bytes;
     }
 
-    private void postSuccess(@Nullable Uri outputUri) {
+    private void postSuccess(@Nullable Uri outputUri, long saveDurationNanos) {
         try {
-            mExecutor.execute(
-                    () -> mCallback.onImageSaved(new ImageCapture.OutputFileResults(outputUri)));
+            mExecutor.execute(() -> mCallback.onImageSaved(
+                    new ImageCapture.OutputFileResults(outputUri, saveDurationNanos)));
         } catch (RejectedExecutionException e) {
             Logger.e(TAG,
                     "Application executor rejected executing OnImageSavedCallback.onImageSaved "
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core;
+
+import android.graphics.Rect;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link ImageProxy} which shares the wrapped image between several consumers, and only
+ * closes it once every consumer has closed its reference.
+ *
+ * <p>The creator holds the first reference, which is released by calling {@link #close()}. Each
+ * call to {@link #acquire()} hands out another reference as a separate {@link ImageProxy}, so
+ * consumers can close their reference without affecting the others.
+ */
+final class ReferenceCountedImageProxy extends ForwardingImageProxy {
+    @GuardedBy("this")
+    private int mReferenceCount = 1;
+
+    /**
+     * Creates a new instance which wraps the given image, with a single reference held by the
+     * caller.
+     *
+     * @param image to wrap
+     */
+    ReferenceCountedImageProxy(@NonNull ImageProxy image) {
+        super(image);
+    }
+
+    /**
+     * Returns a new reference to the image, or {@code null} if the image has already been closed.
+     *
+     * <p>The returned image shares the pixel data of the wrapped image without copying it, but
+     * has its own crop rect and its own plane buffer positions and limits.
+     */
+    @Nullable
+    synchronized ImageProxy acquire() {
+        if (mReferenceCount <= 0) {
+            return null;
+        }
+        mReferenceCount++;
+        return new SharedImageProxy(this);
+    }
+
+    /**
+     * Releases a reference to the image, closing the wrapped image if it was the last one.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (mReferenceCount <= 0) {
+                return;
+            }
+            mReferenceCount--;
+            if (mReferenceCount > 0) {
+                return;
+            }
+        }
+        super.close();
+    }
+
+    /**
+     * Returns the number of references which have not been released.
+     */
+    synchronized int getReferenceCount() {
+        return mReferenceCount;
+    }
+
+    /**
+     * A reference to a shared image, which releases the reference when closed for the first time.
+     */
+    private static final class SharedImageProxy extends SingleCloseImageProxy {
+        @GuardedBy("this")
+        private final Rect mCropRect;
+        @GuardedBy("this")
+        private PlaneProxy[] mPlanes;
+
+        SharedImageProxy(@NonNull ReferenceCountedImageProxy image) {
+            super(image);
+            mCropRect = new Rect(image.getCropRect());
+        }
+
+        @NonNull
+        @Override
+        public synchronized Rect getCropRect() {
+            return new Rect(mCropRect);
+        }
+
+        @Override
+        public synchronized void setCropRect(@Nullable Rect rect) {
+            if (rect == null) {
+                mCropRect.set(0, 0, getWidth(), getHeight());
+            } else {
+                mCropRect.set(rect);
+            }
+        }
+
+        @NonNull
+        @Override
+        public synchronized PlaneProxy[] getPlanes() {
+            if (mPlanes == null) {
+                PlaneProxy[] planes = super.getPlanes();
+                mPlanes = new PlaneProxy[planes.length];
+                for (int i = 0; i < planes.length; i++) {
+                    mPlanes[i] = new SharedPlaneProxy(planes[i]);
+                }
+            }
+            return mPlanes;
+        }
+    }
+
+    /**
+     * A plane whose buffer is a duplicate of the shared plane's buffer, so that reading it does not
+     * move the position seen by other consumers.
+     */
+    private static final class SharedPlaneProxy implements PlaneProxy {
+        private final PlaneProxy mPlane;
+        private final ByteBuffer mBuffer;
+
+        SharedPlaneProxy(@NonNull PlaneProxy plane) {
+            mPlane = plane;
+            mBuffer = plane.getBuffer().duplicate();
+        }
+
+        @Override
+        public int getRowStride() {
+            return mPlane.getRowStride();
+        }
+
+        @Override
+        public int getPixelStride() {
+            return mPlane.getPixelStride();
+        }
+
+        @NonNull
+        @Override
+        public ByteBuffer getBuffer() {
+            return mBuffer;
+        }
+    }
+}
@@ -19,7 +19,7 @@ package androidx.camera.core;
 import androidx.annotation.GuardedBy;
 
 /** A {@link ImageProxy} which filters out redundant calls to {@link #close()}. */
-final class SingleCloseImageProxy extends ForwardingImageProxy {
+class SingleCloseImageProxy extends ForwardingImageProxy {
     @GuardedBy("this")
     private boolean mClosed = false;
 
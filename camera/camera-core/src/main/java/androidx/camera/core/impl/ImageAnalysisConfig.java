@@ -44,6 +44,8 @@ public final class ImageAnalysisConfig
                     BackpressureStrategy.class);
     public static final Option<Integer> OPTION_IMAGE_QUEUE_DEPTH =
             Option.create("camerax.core.imageAnalysis.imageQueueDepth", int.class);
+    public static final Option<Integer> OPTION_TARGET_ANALYSIS_FRAME_RATE =
+            Option.create("camerax.core.imageAnalysis.targetAnalysisFrameRate", int.class);
     public static final Option<ImageReaderProxyProvider> OPTION_IMAGE_READER_PROXY_PROVIDER =
             Option.create("camerax.core.imageAnalysis.imageReaderProxyProvider",
                     ImageReaderProxyProvider.class);
@@ -122,6 +124,29 @@ public final class ImageAnalysisConfig
         return retrieveOption(OPTION_IMAGE_QUEUE_DEPTH);
     }
 
+    /**
+     * Returns the number of images per second delivered to the analyzer by
+     * {@link ImageAnalysis#STRATEGY_ADAPTIVE_FRAME_SKIP}.
+     *
+     * @param valueIfMissing The value to return if this configuration option has not been set.
+     * @return The stored value or <code>valueIfMissing</code> if the value does not exist in this
+     * configuration.
+     */
+    public int getTargetAnalysisFrameRate(int valueIfMissing) {
+        return retrieveOption(OPTION_TARGET_ANALYSIS_FRAME_RATE, valueIfMissing);
+    }
+
+    /**
+     * Returns the number of images per second delivered to the analyzer by
+     * {@link ImageAnalysis#STRATEGY_ADAPTIVE_FRAME_SKIP}.
+     *
+     * @return The stored value, if it exists in this configuration.
+     * @throws IllegalArgumentException if the option does not exist in this configuration.
+     */
+    public int getTargetAnalysisFrameRate() {
+        return retrieveOption(OPTION_TARGET_ANALYSIS_FRAME_RATE);
+    }
+
     /**
      * Gets the caller provided {@link ImageReaderProxy}.
      *
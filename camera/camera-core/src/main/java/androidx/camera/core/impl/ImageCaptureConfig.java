@@ -50,6 +50,8 @@ public final class ImageCaptureConfig implements UseCaseConfig<ImageCapture>, Im
             Option.create("camerax.core.imageCapture.bufferFormat", Integer.class);
     public static final Option<Integer> OPTION_MAX_CAPTURE_STAGES =
             Option.create("camerax.core.imageCapture.maxCaptureStages", Integer.class);
+    public static final Option<Integer> OPTION_BURST_CAPTURE_DEPTH =
+            Option.create("camerax.core.imageCapture.burstCaptureDepth", int.class);
     public static final Option<ImageReaderProxyProvider> OPTION_IMAGE_READER_PROXY_PROVIDER =
             Option.create("camerax.core.imageAnalysis.imageReaderProxyProvider",
                     ImageReaderProxyProvider.class);
@@ -212,6 +214,27 @@ public final class ImageCaptureConfig implements UseCaseConfig<ImageCapture>, Im
         return retrieveOption(OPTION_MAX_CAPTURE_STAGES);
     }
 
+    /**
+     * Returns the number of captures kept in flight in burst mode.
+     *
+     * @param valueIfMissing The value to return if this configuration option has not been set.
+     * @return The stored value or <code>valueIfMissing</code> if the value does not exist in
+     * this configuration.
+     */
+    public int getBurstCaptureDepth(int valueIfMissing) {
+        return retrieveOption(OPTION_BURST_CAPTURE_DEPTH, valueIfMissing);
+    }
+
+    /**
+     * Returns the number of captures kept in flight in burst mode.
+     *
+     * @return The stored value, if it exists in this configuration.
+     * @throws IllegalArgumentException if the option does not exist in this configuration.
+     */
+    public int getBurstCaptureDepth() {
+        return retrieveOption(OPTION_BURST_CAPTURE_DEPTH);
+    }
+
     /**
      * Gets the caller provided {@link ImageReaderProxy}.
      *
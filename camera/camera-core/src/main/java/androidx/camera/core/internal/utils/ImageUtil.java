@@ -41,6 +41,9 @@ import java.nio.ByteBuffer;
 public final class ImageUtil {
     private static final String TAG = "ImageUtil";
 
+    // Shared so that consecutive captures of the same resolution reuse the same NV21 buffer
+    private static final YuvConverter sYuvConverter = new YuvConverter();
+
     private ImageUtil() {
     }
 
@@ -172,59 +175,6 @@ public final class ImageUtil {
         return out.toByteArray();
     }
 
-    private static byte[] yuv_420_888toNv21(ImageProxy image) {
-        ImageProxy.PlaneProxy yPlane = image.getPlanes()[0];
-        ImageProxy.PlaneProxy uPlane = image.getPlanes()[1];
-        ImageProxy.PlaneProxy vPlane = image.getPlanes()[2];
-
-        ByteBuffer yBuffer = yPlane.getBuffer();
-        ByteBuffer uBuffer = uPlane.getBuffer();
-        ByteBuffer vBuffer = vPlane.getBuffer();
-        yBuffer.rewind();
-        uBuffer.rewind();
-        vBuffer.rewind();
-
-        int ySize = yBuffer.remaining();
-
-        int position = 0;
-        // TODO(b/115743986): Pull these bytes from a pool instead of allocating for every image.
-        byte[] nv21 = new byte[ySize + (image.getWidth() * image.getHeight() / 2)];
-
-        // Add the full y buffer to the array. If rowStride > 1, some padding may be skipped.
-        for (int row = 0; row < image.getHeight(); row++) {
-            yBuffer.get(nv21, position, image.getWidth());
-            position += image.getWidth();
-            yBuffer.position(
-                    Math.min(ySize, yBuffer.position() - image.getWidth() + yPlane.getRowStride()));
-        }
-
-        int chromaHeight = image.getHeight() / 2;
-        int chromaWidth = image.getWidth() / 2;
-        int vRowStride = vPlane.getRowStride();
-        int uRowStride = uPlane.getRowStride();
-        int vPixelStride = vPlane.getPixelStride();
-        int uPixelStride = uPlane.getPixelStride();
-
-        // Interleave the u and v frames, filling up the rest of the buffer. Use two line buffers to
-        // perform faster bulk gets from the byte buffers.
-        byte[] vLineBuffer = new byte[vRowStride];
-        byte[] uLineBuffer = new byte[uRowStride];
-        for (int row = 0; row < chromaHeight; row++) {
-            vBuffer.get(vLineBuffer, 0, Math.min(vRowStride, vBuffer.remaining()));
-            uBuffer.get(uLineBuffer, 0, Math.min(uRowStride, uBuffer.remaining()));
-            int vLineBufferPosition = 0;
-            int uLineBufferPosition = 0;
-            for (int col = 0; col < chromaWidth; col++) {
-                nv21[position++] = vLineBuffer[vLineBufferPosition];
-                nv21[position++] = uLineBuffer[uLineBufferPosition];
-                vLineBufferPosition += vPixelStride;
-                uLineBufferPosition += uPixelStride;
-            }
-        }
-
-        return nv21;
-    }
-
     private static boolean isCropAspectRatioHasEffect(Size sourceSize, Rational aspectRatio) {
         int sourceWidth = sourceSize.getWidth();
         int sourceHeight = sourceSize.getHeight();
@@ -244,7 +194,8 @@ public final class ImageUtil {
                 /*denominator=*/ rational.getNumerator());
     }
 
-    private static boolean shouldCropImage(ImageProxy image) {
+    /** Returns whether the crop rect of the image does not cover the whole image. */
+    public static boolean shouldCropImage(@NonNull ImageProxy image) {
         Size sourceSize = new Size(image.getWidth(), image.getHeight());
         Size targetSize = new Size(image.getCropRect().width(), image.getCropRect().height());
 
@@ -265,11 +216,16 @@ public final class ImageUtil {
 
     private static byte[] yuvImageToJpegByteArray(ImageProxy image)
             throws CodecFailedException {
-        return ImageUtil.nv21ToJpeg(
-                ImageUtil.yuv_420_888toNv21(image),
-                image.getWidth(),
-                image.getHeight(),
-                shouldCropImage(image) ? image.getCropRect() : null);
+        byte[] nv21 = sYuvConverter.toNv21(image);
+        try {
+            return ImageUtil.nv21ToJpeg(
+                    nv21,
+                    image.getWidth(),
+                    image.getHeight(),
+                    shouldCropImage(image) ? image.getCropRect() : null);
+        } finally {
+            sYuvConverter.recycle(nv21);
+        }
     }
 
     /** Exception for error during transcoding image. */
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core.internal.utils;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Replaces the header of a JPEG while writing it, without copying the compressed image data.
+ *
+ * <p>A JPEG is a sequence of segments: the metadata segments, such as EXIF, followed by the
+ * start of scan segment and the entropy-coded image data which makes up most of the file. The
+ * header, everything before the start of scan, can be extracted with {@link #getHeader} as a
+ * small stand-alone JPEG which EXIF tools can edit. {@link #write} then writes the edited header
+ * followed by the image data of the original, straight from its buffer.
+ */
+public final class JpegSplicer {
+    private static final int MARKER_PREFIX = 0xFF;
+    private static final int MARKER_SOI = 0xD8;
+    private static final int MARKER_EOI = 0xD9;
+    private static final int MARKER_SOS = 0xDA;
+    private static final int MARKER_TEM = 0x01;
+    private static final int MARKER_RST0 = 0xD0;
+    private static final int MARKER_RST7 = 0xD7;
+
+    private JpegSplicer() {
+    }
+
+    /**
+     * Returns the offset of the start of scan marker of a JPEG, where the image data starts.
+     *
+     * <p>The JPEG spans from index 0 to the limit of the buffer. The position of the buffer is
+     * ignored and not modified.
+     *
+     * @throws IOException if the buffer is not a JPEG or has no image data.
+     */
+    public static int getScanOffset(@NonNull ByteBuffer jpeg) throws IOException {
+        int limit = jpeg.limit();
+        if (limit < 4 || getUnsigned(jpeg, 0) != MARKER_PREFIX
+                || getUnsigned(jpeg, 1) != MARKER_SOI) {
+            throw new IOException("Not a JPEG");
+        }
+
+        int offset = 2;
+        while (offset + 1 < limit) {
+            if (getUnsigned(jpeg, offset) != MARKER_PREFIX) {
+                throw new IOException("Invalid JPEG marker at " + offset);
+            }
+            int marker = getUnsigned(jpeg, offset + 1);
+            if (marker == MARKER_PREFIX) {
+                // Fill byte before a marker
+                offset++;
+            } else if (marker == MARKER_SOS) {
+                return offset;
+            } else if (marker == MARKER_EOI) {
+                break;
+            } else if (marker == MARKER_TEM
+                    || (marker >= MARKER_RST0 && marker <= MARKER_RST7)) {
+                // Markers without a length
+                offset += 2;
+            } else {
+                if (offset + 3 >= limit) {
+                    break;
+                }
+                int length = (getUnsigned(jpeg, offset + 2) << 8) | getUnsigned(jpeg, offset + 3);
+                if (length < 2) {
+                    throw new IOException("Invalid JPEG segment length at " + offset);
+                }
+                offset += 2 + length;
+            }
+        }
+        throw new IOException("No image data in JPEG");
+    }
+
+    /**
+     * Returns the segments of a JPEG before its image data, terminated by an end of image marker.
+     *
+     * @param jpeg       the JPEG, from index 0 to the limit of the buffer.
+     * @param scanOffset the offset returned by {@link #getScanOffset(ByteBuffer)}.
+     */
+    @NonNull
+    public static byte[] getHeader(@NonNull ByteBuffer jpeg, int scanOffset) {
+        byte[] header = new byte[scanOffset + 2];
+        ByteBuffer source = jpeg.duplicate();
+        source.position(0);
+        source.get(header, 0, scanOffset);
+        header[scanOffset] = (byte) MARKER_PREFIX;
+        header[scanOffset + 1] = (byte) MARKER_EOI;
+        return header;
+    }
+
+    /**
+     * Writes a header returned by {@link #getHeader(ByteBuffer, int)}, possibly edited, followed
+     * by the image data of the JPEG.
+     *
+     * @param jpeg       the JPEG, from index 0 to the limit of the buffer.
+     * @param scanOffset the offset returned by {@link #getScanOffset(ByteBuffer)}.
+     * @param header     the header to write instead of the one of the JPEG.
+     * @param channel    the channel to write to, which is not closed.
+     * @throws IOException if the header does not end with an end of image marker, or writing
+     *                     fails.
+     */
+    public static void write(@NonNull ByteBuffer jpeg, int scanOffset, @NonNull byte[] header,
+            @NonNull WritableByteChannel channel) throws IOException {
+        int headerLength = header.length - 2;
+        if (headerLength < 2 || (header[headerLength] & 0xFF) != MARKER_PREFIX
+                || (header[headerLength + 1] & 0xFF) != MARKER_EOI) {
+            throw new IOException("Invalid JPEG header");
+        }
+        writeFully(ByteBuffer.wrap(header, 0, headerLength), channel);
+
+        ByteBuffer imageData = jpeg.duplicate();
+        imageData.position(scanOffset);
+        writeFully(imageData, channel);
+    }
+
+    private static void writeFully(@NonNull ByteBuffer buffer,
+            @NonNull WritableByteChannel channel) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int getUnsigned(@NonNull ByteBuffer buffer, int index) {
+        return buffer.get(index) & 0xFF;
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core.internal.utils;
+
+import android.graphics.ImageFormat;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.camera.core.ImageProxy;
+import androidx.core.util.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Converts {@link ImageFormat#YUV_420_888} images to NV21, I420 or ARGB_8888 without allocating
+ * per frame.
+ *
+ * <p>Output buffers come from pools keyed by buffer size, so a stream of images of the same
+ * resolution reuses the same few arrays. Callers hand buffers back with {@link #recycle(byte[])}
+ * or {@link #recycle(int[])} once they are done with them; buffers which are not recycled are
+ * simply garbage collected.
+ *
+ * <p>Planes are copied a row at a time with bulk {@link ByteBuffer#get(byte[], int, int)}
+ * calls. When the V plane has a pixel stride of 2, which is what most devices produce, its rows
+ * are copied as is and only the U samples are copied one at a time.
+ *
+ * <p>The buffers of the image planes are never written to, so the same image can be converted
+ * by several threads at once. This class is thread-safe.
+ */
+public final class YuvConverter {
+    // Bounds the memory held by the pools when the resolution changes
+    private static final int MAX_POOLED_SIZES = 3;
+    private static final int MAX_POOLED_BUFFERS_PER_SIZE = 3;
+
+    private final ArrayPool<byte[]> mBytePool = new ArrayPool<byte[]>() {
+        @Override
+        byte[] create(int length) {
+            return new byte[length];
+        }
+
+        @Override
+        int length(byte[] array) {
+            return array.length;
+        }
+    };
+
+    private final ArrayPool<int[]> mIntPool = new ArrayPool<int[]>() {
+        @Override
+        int[] create(int length) {
+            return new int[length];
+        }
+
+        @Override
+        int length(int[] array) {
+            return array.length;
+        }
+    };
+
+    /**
+     * Converts the image to NV21: the Y plane followed by interleaved V and U samples.
+     *
+     * @return a buffer of {@code width * height + 2 * (width / 2) * (height / 2)} bytes, which
+     * should be passed to {@link #recycle(byte[])} when no longer needed.
+     */
+    @NonNull
+    public byte[] toNv21(@NonNull ImageProxy image) {
+        checkFormat(image);
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final byte[] nv21 = mBytePool.obtain(yuv420Size(width, height));
+        copyNv21(image, nv21);
+        return nv21;
+    }
+
+    /**
+     * Converts the image to I420: the Y plane followed by the U plane and the V plane.
+     *
+     * @return a buffer of {@code width * height + 2 * (width / 2) * (height / 2)} bytes, which
+     * should be passed to {@link #recycle(byte[])} when no longer needed.
+     */
+    @NonNull
+    public byte[] toI420(@NonNull ImageProxy image) {
+        checkFormat(image);
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int chromaWidth = width / 2;
+        final int chromaHeight = height / 2;
+        final byte[] i420 = mBytePool.obtain(yuv420Size(width, height));
+        final ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        copyPlane(planes[0], width, height, i420, 0, 1);
+        copyPlane(planes[1], chromaWidth, chromaHeight, i420, width * height, 1);
+        copyPlane(planes[2], chromaWidth, chromaHeight, i420,
+                width * height + chromaWidth * chromaHeight, 1);
+        return i420;
+    }
+
+    /**
+     * Converts the image to ARGB_8888 pixels, as used by
+     * {@link android.graphics.Bitmap#setPixels}, using the full range BT.601 coefficients of
+     * JPEG.
+     *
+     * @return a buffer of {@code width * height} pixels, which should be passed to
+     * {@link #recycle(int[])} when no longer needed.
+     */
+    @NonNull
+    public int[] toArgb(@NonNull ImageProxy image) {
+        final byte[] nv21 = toNv21(image);
+        try {
+            final int width = image.getWidth();
+            final int height = image.getHeight();
+            final int[] argb = mIntPool.obtain(width * height);
+            nv21ToArgb(nv21, width, height, argb);
+            return argb;
+        } finally {
+            recycle(nv21);
+        }
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #toNv21} or {@link #toI420} to the pool.
+     */
+    public void recycle(@NonNull byte[] buffer) {
+        mBytePool.release(buffer);
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #toArgb} to the pool.
+     */
+    public void recycle(@NonNull int[] buffer) {
+        mIntPool.release(buffer);
+    }
+
+    /**
+     * @return the size of a 4:2:0 image with the given dimensions, in bytes.
+     */
+    static int yuv420Size(int width, int height) {
+        return width * height + 2 * (width / 2) * (height / 2);
+    }
+
+    private static void checkFormat(ImageProxy image) {
+        Preconditions.checkArgument(image.getFormat() == ImageFormat.YUV_420_888,
+                "Unsupported image format: " + image.getFormat());
+    }
+
+    private void copyNv21(ImageProxy image, byte[] nv21) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int chromaWidth = width / 2;
+        final int chromaHeight = height / 2;
+        final ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        final ImageProxy.PlaneProxy uPlane = planes[1];
+        final ImageProxy.PlaneProxy vPlane = planes[2];
+        final int chromaOffset = width * height;
+
+        copyPlane(planes[0], width, height, nv21, 0, 1);
+        if (chromaWidth == 0 || chromaHeight == 0) {
+            return;
+        }
+
+        if (vPlane.getPixelStride() == 2) {
+            // The V samples are already at the even bytes of each V row, so the rows are copied
+            // as is and the U samples written over the odd bytes in between. When the planes
+            // are interleaved like NV21 in memory, those bytes already hold the U samples.
+            final ByteBuffer vBuffer = vPlane.getBuffer().duplicate();
+            final int rowStride = vPlane.getRowStride();
+            final int rowLength = 2 * chromaWidth;
+            vBuffer.rewind();
+            if (rowStride == rowLength) {
+                vBuffer.get(nv21, chromaOffset, rowLength * chromaHeight - 1);
+            } else {
+                for (int row = 0; row < chromaHeight; row++) {
+                    vBuffer.position(row * rowStride);
+                    vBuffer.get(nv21, chromaOffset + row * rowLength, rowLength - 1);
+                }
+            }
+            copyPlane(uPlane, chromaWidth, chromaHeight, nv21, chromaOffset + 1, 2);
+            return;
+        }
+
+        copyPlane(vPlane, chromaWidth, chromaHeight, nv21, chromaOffset, 2);
+        copyPlane(uPlane, chromaWidth, chromaHeight, nv21, chromaOffset + 1, 2);
+    }
+
+    /**
+     * Copies {@code width} samples from each of the first {@code height} rows of the plane to
+     * {@code dst}, starting at {@code offset} and {@code dstPixelStride} bytes apart.
+     */
+    private void copyPlane(ImageProxy.PlaneProxy plane, int width, int height, byte[] dst,
+            int offset, int dstPixelStride) {
+        final ByteBuffer buffer = plane.getBuffer().duplicate();
+        buffer.rewind();
+        final int rowStride = plane.getRowStride();
+        final int pixelStride = plane.getPixelStride();
+
+        if (pixelStride == 1 && dstPixelStride == 1) {
+            if (rowStride == width) {
+                buffer.get(dst, offset, width * height);
+                return;
+            }
+            for (int row = 0; row < height; row++) {
+                buffer.position(row * rowStride);
+                buffer.get(dst, offset + row * width, width);
+            }
+            return;
+        }
+
+        // The last row may be shorter than the row stride
+        final int rowLength = (width - 1) * pixelStride + 1;
+        final byte[] line = mBytePool.obtain(rowLength);
+        try {
+            int position = offset;
+            for (int row = 0; row < height; row++) {
+                buffer.position(row * rowStride);
+                buffer.get(line, 0, rowLength);
+                for (int col = 0; col < rowLength; col += pixelStride) {
+                    dst[position] = line[col];
+                    position += dstPixelStride;
+                }
+            }
+        } finally {
+            mBytePool.release(line);
+        }
+    }
+
+    static void nv21ToArgb(@NonNull byte[] nv21, int width, int height, @NonNull int[] argb) {
+        final int chromaOffset = width * height;
+        final int chromaRowLength = 2 * (width / 2);
+        for (int row = 0; row < height; row++) {
+            final int chromaRow = chromaOffset + Math.min(row / 2, height / 2 - 1)
+                    * chromaRowLength;
+            for (int col = 0; col < width; col++) {
+                final int y = nv21[row * width + col] & 0xff;
+                int v = 0;
+                int u = 0;
+                if (chromaRowLength > 0 && height > 1) {
+                    final int chroma = chromaRow + Math.min(col / 2, width / 2 - 1) * 2;
+                    v = (nv21[chroma] & 0xff) - 128;
+                    u = (nv21[chroma + 1] & 0xff) - 128;
+                }
+                // 16.16 fixed point versions of 1.402, 0.344136, 0.714136 and 1.772
+                final int r = clamp(y + ((91881 * v) >> 16));
+                final int g = clamp(y - ((22554 * u + 46802 * v) >> 16));
+                final int b = clamp(y + ((116130 * u) >> 16));
+                argb[row * width + col] = 0xff000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+
+    /**
+     * A pool of arrays keyed by length, keeping a few arrays of the most recently used lengths.
+     */
+    private abstract static class ArrayPool<T> {
+        private final Object mLock = new Object();
+        @GuardedBy("mLock")
+        private final LinkedHashMap<Integer, ArrayDeque<T>> mPools =
+                new LinkedHashMap<>(MAX_POOLED_SIZES, 0.75f, /* accessOrder= */ true);
+
+        abstract T create(int length);
+
+        abstract int length(T array);
+
+        @NonNull
+        T obtain(int length) {
+            T array = null;
+            synchronized (mLock) {
+                final ArrayDeque<T> pool = mPools.get(length);
+                if (pool != null) {
+                    array = pool.poll();
+                }
+            }
+            return array != null ? array : create(length);
+        }
+
+        void release(@Nullable T array) {
+            if (array == null) {
+                return;
+            }
+            final int length = length(array);
+            synchronized (mLock) {
+                ArrayDeque<T> pool = mPools.get(length);
+                if (pool == null) {
+                    pool = new ArrayDeque<>(MAX_POOLED_BUFFERS_PER_SIZE);
+                    mPools.put(length, pool);
+                    if (mPools.size() > MAX_POOLED_SIZES) {
+                        final Iterator<Map.Entry<Integer, ArrayDeque<T>>> eldest =
+                                mPools.entrySet().iterator();
+                        eldest.next();
+                        eldest.remove();
+                    }
+                }
+                if (pool.size() < MAX_POOLED_BUFFERS_PER_SIZE) {
+                    pool.add(array);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Rect;
+import android.os.Build;
+
+import androidx.annotation.experimental.UseExperimental;
+import androidx.camera.core.impl.utils.executor.CameraXExecutors;
+import androidx.camera.testing.ImageProxyUtil;
+import androidx.camera.testing.fakes.FakeImageProxy;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+@SmallTest
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(minSdk = Build.VERSION_CODES.LOLLIPOP)
+@UseExperimental(markerClass = ExperimentalFanOutAnalyzer.class)
+public class FanOutAnalyzerTest {
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 10;
+
+    private final FanOutAnalyzer mFanOutAnalyzer = new FanOutAnalyzer();
+    private final List<ImageProxy> mFirstImages = new ArrayList<>();
+    private final List<ImageProxy> mSecondImages = new ArrayList<>();
+    private FakeImageProxy mImageProxy;
+
+    @Before
+    public void setup() {
+        mImageProxy = ImageProxyUtil.createYuv420Image(WIDTH, HEIGHT, 0, false);
+        // Create the future before the image may be closed so that it completes
+        mImageProxy.getCloseFuture();
+        mFanOutAnalyzer.addAnalyzer(CameraXExecutors.directExecutor(), mFirstImages::add);
+        mFanOutAnalyzer.addAnalyzer(CameraXExecutors.directExecutor(), mSecondImages::add);
+    }
+
+    @Test
+    public void imageDeliveredToEveryAnalyzer() {
+        mFanOutAnalyzer.analyze(mImageProxy);
+
+        assertThat(mFirstImages).hasSize(1);
+        assertThat(mSecondImages).hasSize(1);
+        assertThat(mFirstImages.get(0)).isNotSameInstanceAs(mSecondImages.get(0));
+        assertThat(mFirstImages.get(0).getImageInfo()).isSameInstanceAs(
+                mImageProxy.getImageInfo());
+    }
+
+    @Test
+    public void imageClosedAfterLastAnalyzerCloses() {
+        mFanOutAnalyzer.analyze(mImageProxy);
+
+        mFirstImages.get(0).close();
+        assertThat(mImageProxy.getCloseFuture().isDone()).isFalse();
+
+        mSecondImages.get(0).close();
+        assertThat(mImageProxy.getCloseFuture().isDone()).isTrue();
+    }
+
+    @Test
+    public void closingTwiceReleasesOneReference() {
+        mFanOutAnalyzer.analyze(mImageProxy);
+
+        mFirstImages.get(0).close();
+        mFirstImages.get(0).close();
+
+        assertThat(mImageProxy.getCloseFuture().isDone()).isFalse();
+    }
+
+    @Test
+    public void imageClosedWithoutAnalyzers() {
+        FanOutAnalyzer fanOutAnalyzer = new FanOutAnalyzer();
+
+        fanOutAnalyzer.analyze(mImageProxy);
+
+        assertThat(mImageProxy.getCloseFuture().isDone()).isTrue();
+    }
+
+    @Test
+    public void removedAnalyzerNoLongerReceivesImages() {
+        ImageAnalysis.Analyzer third = image -> {
+            throw new AssertionError("Removed analyzer called");
+        };
+        mFanOutAnalyzer.addAnalyzer(CameraXExecutors.directExecutor(), third);
+        mFanOutAnalyzer.removeAnalyzer(third);
+
+        mFanOutAnalyzer.analyze(mImageProxy);
+        mFirstImages.get(0).close();
+        mSecondImages.get(0).close();
+
+        assertThat(mImageProxy.getCloseFuture().isDone()).isTrue();
+    }
+
+    @Test
+    public void referenceReleasedWhenExecutorRejects() {
+        Executor rejectingExecutor = runnable -> {
+            throw new RejectedExecutionException();
+        };
+        mFanOutAnalyzer.addAnalyzer(rejectingExecutor, image -> {
+        });
+
+        mFanOutAnalyzer.analyze(mImageProxy);
+        mFirstImages.get(0).close();
+        mSecondImages.get(0).close();
+
+        assertThat(mImageProxy.getCloseFuture().isDone()).isTrue();
+    }
+
+    @Test
+    public void planeBuffersAreSharedWithIndependentPositions() {
+        mFanOutAnalyzer.analyze(mImageProxy);
+
+        ByteBuffer first = mFirstImages.get(0).getPlanes()[0].getBuffer();
+        ByteBuffer second = mSecondImages.get(0).getPlanes()[0].getBuffer();
+        first.get(new byte[WIDTH]);
+
+        assertThat(first.position()).isEqualTo(WIDTH);
+        assertThat(second.position()).isEqualTo(0);
+        assertThat(mImageProxy.getPlanes()[0].getBuffer().position()).isEqualTo(0);
+        // Same memory, no copy
+        mImageProxy.getPlanes()[0].getBuffer().put(0, (byte) 42);
+        assertThat(second.get(0)).isEqualTo((byte) 42);
+    }
+
+    @Test
+    public void cropRectIsPerAnalyzer() {
+        mFanOutAnalyzer.analyze(mImageProxy);
+
+        mFirstImages.get(0).setCropRect(new Rect(0, 0, 4, 4));
+
+        assertThat(mFirstImages.get(0).getCropRect()).isEqualTo(new Rect(0, 0, 4, 4));
+        assertThat(mSecondImages.get(0).getCropRect()).isNotEqualTo(new Rect(0, 0, 4, 4));
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.os.Build;
+import android.os.SystemClock;
+
+import androidx.annotation.experimental.UseExperimental;
+import androidx.camera.core.impl.ImageReaderProxy;
+import androidx.camera.core.impl.utils.executor.CameraXExecutors;
+import androidx.camera.testing.fakes.FakeImageInfo;
+import androidx.camera.testing.fakes.FakeImageProxy;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@SmallTest
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(minSdk = Build.VERSION_CODES.LOLLIPOP)
+@UseExperimental(markerClass = ExperimentalBackpressureStrategy.class)
+public class ImageAnalysisAdaptiveAnalyzerTest {
+    private static final int TARGET_FRAME_RATE = 10;
+    private static final long CAMERA_FRAME_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1) / 30;
+    private static final long START_TIMESTAMP = TimeUnit.SECONDS.toNanos(1);
+
+    private ImageAnalysisAdaptiveAnalyzer mAdaptiveAnalyzer;
+    private ImageReaderProxy mImageReaderProxy;
+    private final List<ImageProxy> mAnalyzedImages = new ArrayList<>();
+    private boolean mCloseImages = true;
+    private long mAnalysisDurationMillis = 0;
+
+    @Before
+    public void setup() {
+        mImageReaderProxy = mock(ImageReaderProxy.class);
+        mAdaptiveAnalyzer = new ImageAnalysisAdaptiveAnalyzer(TARGET_FRAME_RATE);
+        mAdaptiveAnalyzer.setAnalyzer(CameraXExecutors.directExecutor(), image -> {
+            mAnalyzedImages.add(image);
+            if (mCloseImages) {
+                SystemClock.setCurrentTimeMillis(
+                        SystemClock.uptimeMillis() + mAnalysisDurationMillis);
+                image.close();
+            }
+        });
+    }
+
+    @Test
+    public void imagesDeliveredAtTargetFrameRate() {
+        // One second of frames from a 30 fps camera
+        produceImages(30, CAMERA_FRAME_INTERVAL_NANOS);
+
+        assertThat(mAnalyzedImages).hasSize(10);
+        assertThat(mAdaptiveAnalyzer.getStats().getAnalyzedFrameCount()).isEqualTo(10);
+        assertThat(mAdaptiveAnalyzer.getStats().getDroppedFrameCount()).isEqualTo(20);
+    }
+
+    @Test
+    public void allImagesDeliveredWhenSlowerThanTarget() {
+        produceImages(10, TimeUnit.SECONDS.toNanos(1) / 5);
+
+        assertThat(mAnalyzedImages).hasSize(10);
+        assertThat(mAdaptiveAnalyzer.getStats().getDroppedFrameCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void intervalFollowsSlowAnalyzer() {
+        mAnalysisDurationMillis = 200;
+        long slowDurationNanos = TimeUnit.MILLISECONDS.toNanos(mAnalysisDurationMillis);
+        mAdaptiveAnalyzer.onAnalysisFinished(0, slowDurationNanos);
+
+        assertThat(mAdaptiveAnalyzer.getFrameIntervalNanos()).isEqualTo(slowDurationNanos);
+
+        produceImages(30, CAMERA_FRAME_INTERVAL_NANOS);
+
+        // Paced at 5 fps instead of 10 fps
+        assertThat(mAnalyzedImages).hasSize(6);
+    }
+
+    @Test
+    public void intervalRecoversWhenAnalyzerSpeedsUp() {
+        mAdaptiveAnalyzer.onAnalysisFinished(0, TimeUnit.MILLISECONDS.toNanos(200));
+        for (int i = 0; i < 50; i++) {
+            mAdaptiveAnalyzer.onAnalysisFinished(0, TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        assertThat(mAdaptiveAnalyzer.getFrameIntervalNanos()).isEqualTo(
+                TimeUnit.SECONDS.toNanos(1) / TARGET_FRAME_RATE);
+    }
+
+    @Test
+    public void intervalResetWhenAnalyzerChanges() {
+        mAdaptiveAnalyzer.onAnalysisFinished(0, TimeUnit.MILLISECONDS.toNanos(200));
+
+        mAdaptiveAnalyzer.setAnalyzer(CameraXExecutors.directExecutor(), ImageProxy::close);
+
+        assertThat(mAdaptiveAnalyzer.getFrameIntervalNanos()).isEqualTo(
+                TimeUnit.SECONDS.toNanos(1) / TARGET_FRAME_RATE);
+        assertThat(mAdaptiveAnalyzer.getStats().getAnalyzedFrameCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void imagesDroppedWhileAnalyzing() {
+        mCloseImages = false;
+        produceImages(5, TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(mAnalyzedImages).hasSize(1);
+        assertThat(mAdaptiveAnalyzer.getStats().getDroppedFrameCount()).isEqualTo(4);
+
+        mAnalyzedImages.get(0).close();
+        produceImages(1, TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(mAnalyzedImages).hasSize(2);
+    }
+
+    @Test
+    public void imageClosedAfterAnalyzerClosed() {
+        mAdaptiveAnalyzer.close();
+
+        FakeImageProxy imageProxy = produceImage(START_TIMESTAMP);
+
+        assertThat(imageProxy.getCloseFuture().isDone()).isTrue();
+        assertThat(mAnalyzedImages).isEmpty();
+    }
+
+    private void produceImages(int count, long intervalNanos) {
+        long start = mAnalyzedImages.isEmpty() ? START_TIMESTAMP
+                : mAnalyzedImages.get(mAnalyzedImages.size() - 1).getImageInfo().getTimestamp()
+                        + TimeUnit.SECONDS.toNanos(10);
+        for (int i = 0; i < count; i++) {
+            produceImage(start + i * intervalNanos);
+        }
+    }
+
+    private FakeImageProxy produceImage(long timestamp) {
+        FakeImageInfo imageInfo = new FakeImageInfo();
+        imageInfo.setTimestamp(timestamp);
+        FakeImageProxy imageProxy = new FakeImageProxy(imageInfo);
+        // Create the future before the image may be closed so that it completes
+        imageProxy.getCloseFuture();
+        when(mImageReaderProxy.acquireLatestImage()).thenReturn(imageProxy);
+        mAdaptiveAnalyzer.onImageAvailable(mImageReaderProxy);
+        return imageProxy;
+    }
+}
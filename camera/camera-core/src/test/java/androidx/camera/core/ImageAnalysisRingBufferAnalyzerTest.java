@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core;
+
+import static android.os.Looper.getMainLooper;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Build;
+
+import androidx.annotation.experimental.UseExperimental;
+import androidx.camera.core.impl.ImageReaderProxy;
+import androidx.camera.core.impl.utils.executor.CameraXExecutors;
+import androidx.camera.testing.fakes.FakeImageInfo;
+import androidx.camera.testing.fakes.FakeImageProxy;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SmallTest
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(minSdk = Build.VERSION_CODES.LOLLIPOP)
+public class ImageAnalysisRingBufferAnalyzerTest {
+    private static final int CAPACITY = 2;
+
+    private ImageAnalysisRingBufferAnalyzer mRingBufferAnalyzer;
+    private ImageReaderProxy mImageReaderProxy;
+    private final List<ImageProxy> mAnalyzedImages = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        mImageReaderProxy = mock(ImageReaderProxy.class);
+        mRingBufferAnalyzer = new ImageAnalysisRingBufferAnalyzer(
+                CameraXExecutors.directExecutor(), CAPACITY);
+        mRingBufferAnalyzer.setAnalyzer(CameraXExecutors.mainThreadExecutor(),
+                mAnalyzedImages::add);
+    }
+
+    @Test
+    public void imagesQueuedWhileAnalyzerBusy() {
+        produceImage(1);
+        produceImage(2);
+        produceImage(3);
+        shadowOf(getMainLooper()).idle();
+
+        assertThat(getAnalyzedTimestamps()).containsExactly(1L);
+        assertThat(mRingBufferAnalyzer.getPendingImageCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void imagesAnalyzedInOrderOnceClosed() {
+        produceImage(1);
+        produceImage(2);
+        produceImage(3);
+        shadowOf(getMainLooper()).idle();
+
+        mAnalyzedImages.get(0).close();
+        shadowOf(getMainLooper()).idle();
+        mAnalyzedImages.get(1).close();
+        shadowOf(getMainLooper()).idle();
+
+        assertThat(getAnalyzedTimestamps()).containsExactly(1L, 2L, 3L).inOrder();
+        assertThat(mRingBufferAnalyzer.getPendingImageCount()).isEqualTo(0);
+    }
+
+    @UseExperimental(markerClass = ExperimentalBackpressureStrategy.class)
+    @Test
+    public void oldestImageDroppedWhenFull() {
+        produceImage(1);
+        FakeImageProxy second = produceImage(2);
+        FakeImageProxy third = produceImage(3);
+        produceImage(4);
+        shadowOf(getMainLooper()).idle();
+
+        assertThat(second.getCloseFuture().isDone()).isTrue();
+        assertThat(third.getCloseFuture().isDone()).isFalse();
+
+        mAnalyzedImages.get(0).close();
+        shadowOf(getMainLooper()).idle();
+
+        assertThat(getAnalyzedTimestamps()).containsExactly(1L, 3L).inOrder();
+        assertThat(mRingBufferAnalyzer.getStats().getDroppedFrameCount()).isEqualTo(1);
+    }
+
+    @UseExperimental(markerClass = ExperimentalBackpressureStrategy.class)
+    @Test
+    public void pendingImagesClosedWhenAnalyzerClosed() {
+        produceImage(1);
+        FakeImageProxy pending = produceImage(2);
+
+        mRingBufferAnalyzer.close();
+
+        assertThat(pending.getCloseFuture().isDone()).isTrue();
+        assertThat(mRingBufferAnalyzer.getPendingImageCount()).isEqualTo(0);
+        // Images discarded because analysis stopped are not counted as dropped
+        assertThat(mRingBufferAnalyzer.getStats().getDroppedFrameCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void imagesClosedWhenAnalyzerNull() {
+        mRingBufferAnalyzer.setAnalyzer(CameraXExecutors.mainThreadExecutor(), null);
+        FakeImageProxy first = produceImage(1);
+        FakeImageProxy second = produceImage(2);
+
+        assertThat(first.getCloseFuture().isDone()).isTrue();
+        assertThat(second.getCloseFuture().isDone()).isTrue();
+        assertThat(mRingBufferAnalyzer.getPendingImageCount()).isEqualTo(0);
+    }
+
+    @UseExperimental(markerClass = ExperimentalBackpressureStrategy.class)
+    @Test
+    public void statsCountAnalyzedImages() {
+        produceImage(1);
+        produceImage(2);
+        shadowOf(getMainLooper()).idle();
+        mAnalyzedImages.get(0).close();
+        shadowOf(getMainLooper()).idle();
+        mAnalyzedImages.get(1).close();
+
+        ImageAnalysis.AnalyzerStats stats = mRingBufferAnalyzer.getStats();
+        assertThat(stats.getAnalyzedFrameCount()).isEqualTo(2);
+        assertThat(stats.getDroppedFrameCount()).isEqualTo(0);
+        assertThat(stats.getMaxQueueLatencyNanos()).isAtLeast(
+                stats.getAverageQueueLatencyNanos());
+    }
+
+    @UseExperimental(markerClass = ExperimentalBackpressureStrategy.class)
+    @Test
+    public void statsResetWhenAnalyzerSet() {
+        produceImage(1);
+        shadowOf(getMainLooper()).idle();
+        mAnalyzedImages.get(0).close();
+
+        mRingBufferAnalyzer.setAnalyzer(CameraXExecutors.mainThreadExecutor(),
+                mAnalyzedImages::add);
+
+        assertThat(mRingBufferAnalyzer.getStats().getAnalyzedFrameCount()).isEqualTo(0);
+    }
+
+    private FakeImageProxy produceImage(long timestamp) {
+        FakeImageInfo imageInfo = new FakeImageInfo();
+        imageInfo.setTimestamp(timestamp);
+        FakeImageProxy imageProxy = new FakeImageProxy(imageInfo);
+        // Create the future before the image may be closed so that it completes
+        imageProxy.getCloseFuture();
+        when(mImageReaderProxy.acquireNextImage()).thenReturn(imageProxy);
+        mRingBufferAnalyzer.onImageAvailable(mImageReaderProxy);
+        return imageProxy;
+    }
+
+    private List<Long> getAnalyzedTimestamps() {
+        List<Long> timestamps = new ArrayList<>();
+        for (ImageProxy imageProxy : mAnalyzedImages) {
+            timestamps.add(imageProxy.getImageInfo().getTimestamp());
+        }
+        return timestamps;
+    }
+}
@@ -26,6 +26,7 @@ import android.os.Looper.getMainLooper
 import android.util.Pair
 import android.util.Rational
 import android.view.Surface
+import androidx.annotation.experimental.UseExperimental
 import androidx.camera.core.ImageCapture.ImageCaptureRequest
 import androidx.camera.core.ImageCapture.ImageCaptureRequestProcessor
 import androidx.camera.core.ImageCapture.ImageCaptureRequestProcessor.ImageCaptor
@@ -74,6 +75,7 @@ import java.util.concurrent.atomic.AtomicReference
 import kotlin.jvm.Throws
 
 private const val MAX_IMAGES = 3
+private const val BURST_CAPTURE_DEPTH = 4
 
 /**
  * Unit tests for [ImageCapture].
@@ -196,6 +198,43 @@ class ImageCaptureTest {
         assertThat(capturedImage!!.height).isEqualTo(fakeImageReaderProxy?.height)
     }
 
+    @Test
+    @UseExperimental(ExperimentalBurstCapture::class)
+    fun burstCapture_raisesImageReaderDepth() {
+        // Act.
+        val imageCapture = bindImageCapture(null, BURST_CAPTURE_DEPTH)
+
+        // Assert.
+        assertThat(imageCapture.burstCaptureDepth).isEqualTo(BURST_CAPTURE_DEPTH)
+        assertThat(fakeImageReaderProxy!!.maxImages).isEqualTo(BURST_CAPTURE_DEPTH)
+    }
+
+    @Test
+    fun burstCapture_keepsCapturesInFlightWhileImagesAreHeld() {
+        // Arrange.
+        val imageCapture = bindImageCapture(null, BURST_CAPTURE_DEPTH)
+        val images = ArrayList<ImageProxy>()
+        val callback = object : ImageCapture.OnImageCapturedCallback() {
+            override fun onCaptureSuccess(image: ImageProxy) {
+                images.add(image)
+            }
+        }
+
+        // Act.
+        // Take more pictures than the default depth without closing any image.
+        for (i in 0 until BURST_CAPTURE_DEPTH) {
+            imageCapture.takePicture(executor, callback)
+            fakeImageReaderProxy?.triggerImageAvailable(
+                TagBundle.create(Pair("TagBundleKey", i)), i.toLong()
+            )
+            shadowOf(getMainLooper()).idle()
+            flushHandler(callbackHandler)
+        }
+
+        // Assert.
+        assertThat(images).hasSize(BURST_CAPTURE_DEPTH)
+    }
+
     @Test
     fun imageCaptureRequestProcessor_canSendRequest() {
         // Arrange.
@@ -346,11 +385,15 @@ class ImageCaptureTest {
         return bindImageCapture(null)
     }
 
-    private fun bindImageCapture(viewPort: ViewPort?): ImageCapture {
+    @UseExperimental(ExperimentalBurstCapture::class)
+    private fun bindImageCapture(
+        viewPort: ViewPort?,
+        burstCaptureDepth: Int? = null
+    ): ImageCapture {
         // Arrange.
         val sessionOptionUnpacker =
             { _: UseCaseConfig<*>?, _: SessionConfig.Builder? -> }
-        val imageCapture = ImageCapture.Builder()
+        val builder = ImageCapture.Builder()
             // Set non jpg format so it doesn't trigger the exif code path.
             .setBufferFormat(ImageFormat.YUV_420_888)
             .setTargetRotation(Surface.ROTATION_0)
@@ -359,7 +402,8 @@ class ImageCaptureTest {
             .setCaptureOptionUnpacker { _: UseCaseConfig<*>?, _: CaptureConfig.Builder? -> }
             .setImageReaderProxyProvider(getImageReaderProxyProvider())
             .setSessionOptionUnpacker(sessionOptionUnpacker)
-            .build()
+        burstCaptureDepth?.let { builder.setBurstCaptureDepth(it) }
+        val imageCapture = builder.build()
 
         cameraUseCaseAdapter = CameraUtil.createCameraUseCaseAdapter(ApplicationProvider
             .getApplicationContext<Context>(), CameraSelector.DEFAULT_BACK_CAMERA)
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.Build;
+import android.os.SystemClock;
+
+import androidx.camera.core.impl.utils.executor.CameraXExecutors;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Unit tests for {@link ImageSavePipeline}.
+ */
+@SmallTest
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(minSdk = Build.VERSION_CODES.LOLLIPOP)
+public class ImageSavePipelineTest {
+
+    @Test
+    public void outcomesAreDeliveredInSequenceOrder() {
+        ImageSavePipeline pipeline = new ImageSavePipeline(CameraXExecutors.directExecutor(), 2);
+        int first = pipeline.nextSequence();
+        int second = pipeline.nextSequence();
+        int third = pipeline.nextSequence();
+        List<Integer> delivered = new ArrayList<>();
+
+        pipeline.deliver(third, () -> delivered.add(third));
+        pipeline.deliver(second, () -> delivered.add(second));
+        assertThat(delivered).isEmpty();
+
+        pipeline.deliver(first, () -> delivered.add(first));
+        assertThat(delivered).containsExactly(first, second, third).inOrder();
+    }
+
+    @Test
+    public void concurrentSavesAreBounded() {
+        ManualExecutor executor = new ManualExecutor();
+        ImageSavePipeline pipeline = new ImageSavePipeline(executor, 2);
+        List<String> saved = new ArrayList<>();
+        for (String name : Arrays.asList("a", "b", "c")) {
+            pipeline.save(() -> saved.add(name), ImageSavePipelineTest::fail);
+        }
+
+        assertThat(executor.getQueuedCount()).isEqualTo(2);
+        assertThat(pipeline.getRunningSaveCount()).isEqualTo(2);
+
+        executor.runNext();
+
+        // The pending save starts once a running one finishes.
+        assertThat(saved).containsExactly("a");
+        assertThat(executor.getQueuedCount()).isEqualTo(2);
+
+        executor.runNext();
+        executor.runNext();
+        assertThat(saved).containsExactly("a", "b", "c").inOrder();
+        assertThat(pipeline.getRunningSaveCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void rejectedSaveRunsOnCallingThread() {
+        ImageSavePipeline pipeline = new ImageSavePipeline(command -> {
+            throw new RejectedExecutionException();
+        }, 1);
+        List<String> saved = new ArrayList<>();
+
+        pipeline.save(() -> saved.add("a"), ImageSavePipelineTest::fail);
+        pipeline.save(() -> saved.add("b"), ImageSavePipelineTest::fail);
+
+        assertThat(saved).containsExactly("a", "b").inOrder();
+        assertThat(pipeline.getRunningSaveCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shotsPerSecondIsMeasuredOverTheBurst() {
+        ImageSavePipeline pipeline = new ImageSavePipeline(CameraXExecutors.directExecutor(), 2);
+        assertThat(pipeline.getShotsPerSecond()).isEqualTo(0f);
+
+        List<Integer> sequences = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            sequences.add(pipeline.nextSequence());
+        }
+        SystemClock.setCurrentTimeMillis(SystemClock.uptimeMillis() + 500);
+        for (int sequence : sequences) {
+            pipeline.deliver(sequence, () -> {});
+        }
+
+        assertThat(pipeline.getShotsPerSecond()).isWithin(0.01f).of(8f);
+    }
+
+    @Test
+    public void newBurstStartsWhenIdle() {
+        ImageSavePipeline pipeline = new ImageSavePipeline(CameraXExecutors.directExecutor(), 2);
+        int sequence = pipeline.nextSequence();
+        SystemClock.setCurrentTimeMillis(SystemClock.uptimeMillis() + 100);
+        pipeline.deliver(sequence, () -> {});
+
+        // Taken after the previous burst was fully delivered.
+        SystemClock.setCurrentTimeMillis(SystemClock.uptimeMillis() + 10_000);
+        sequence = pipeline.nextSequence();
+        SystemClock.setCurrentTimeMillis(SystemClock.uptimeMillis() + 250);
+        pipeline.deliver(sequence, () -> {});
+
+        assertThat(pipeline.getShotsPerSecond()).isWithin(0.01f).of(4f);
+    }
+
+    @Test
+    public void failingSaveStillDeliversAnOutcome() {
+        ImageSavePipeline pipeline = new ImageSavePipeline(CameraXExecutors.directExecutor(), 2);
+        int first = pipeline.nextSequence();
+        int second = pipeline.nextSequence();
+        List<String> delivered = new ArrayList<>();
+
+        pipeline.save(() -> {
+            throw new SecurityException();
+        }, throwable -> pipeline.deliver(first, () -> delivered.add("error")));
+        pipeline.deliver(second, () -> delivered.add("saved"));
+
+        assertThat(delivered).containsExactly("error", "saved").inOrder();
+        assertThat(pipeline.getRunningSaveCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void onlyFirstOutcomeOfSequenceIsDelivered() {
+        ImageSavePipeline pipeline = new ImageSavePipeline(CameraXExecutors.directExecutor(), 2);
+        int first = pipeline.nextSequence();
+        int second = pipeline.nextSequence();
+        List<String> delivered = new ArrayList<>();
+
+        pipeline.deliver(second, () -> delivered.add("second"));
+        pipeline.deliver(second, () -> delivered.add("second again"));
+        pipeline.deliver(first, () -> delivered.add("first"));
+        pipeline.deliver(first, () -> delivered.add("first again"));
+
+        assertThat(delivered).containsExactly("first", "second").inOrder();
+    }
+
+    private static void fail(Throwable throwable) {
+        throw new AssertionError("Save failed", throwable);
+    }
+
+    /** Only runs tasks when asked to, so tests can control the order. */
+    private static final class ManualExecutor implements Executor {
+        private final Deque<Runnable> mRunnables = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            mRunnables.add(runnable);
+        }
+
+        int getQueuedCount() {
+            return mRunnables.size();
+        }
+
+        void runNext() {
+            mRunnables.poll().run();
+        }
+    }
+}
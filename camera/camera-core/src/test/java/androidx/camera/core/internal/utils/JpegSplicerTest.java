@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core.internal.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.Build;
+
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+/**
+ * Unit tests for {@link JpegSplicer}.
+ */
+@SmallTest
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(minSdk = Build.VERSION_CODES.LOLLIPOP)
+public class JpegSplicerTest {
+    private static final byte[] SOI = {(byte) 0xFF, (byte) 0xD8};
+    private static final byte[] APP1 = {(byte) 0xFF, (byte) 0xE1, 0x00, 0x06, 'E', 'x', 'i', 'f'};
+    private static final byte[] APP0 = {(byte) 0xFF, (byte) 0xE0, 0x00, 0x04, 0x01, 0x02};
+    private static final byte[] SOS = {(byte) 0xFF, (byte) 0xDA, 0x00, 0x03, 0x01};
+    private static final byte[] IMAGE_DATA = {0x11, (byte) 0xFF, 0x00, 0x22, 0x33};
+    private static final byte[] EOI = {(byte) 0xFF, (byte) 0xD9};
+
+    @Test
+    public void getScanOffset_skipsHeaderSegments() throws IOException {
+        ByteBuffer jpeg = ByteBuffer.wrap(concat(SOI, APP1, APP0, SOS, IMAGE_DATA, EOI));
+
+        assertThat(JpegSplicer.getScanOffset(jpeg)).isEqualTo(
+                SOI.length + APP1.length + APP0.length);
+    }
+
+    @Test
+    public void getScanOffset_ignoresBufferPosition() throws IOException {
+        ByteBuffer jpeg = ByteBuffer.wrap(concat(SOI, APP0, SOS, IMAGE_DATA, EOI));
+        jpeg.position(5);
+
+        assertThat(JpegSplicer.getScanOffset(jpeg)).isEqualTo(SOI.length + APP0.length);
+        assertThat(jpeg.position()).isEqualTo(5);
+    }
+
+    @Test(expected = IOException.class)
+    public void getScanOffset_rejectsNonJpeg() throws IOException {
+        JpegSplicer.getScanOffset(ByteBuffer.wrap(concat(APP0, SOS, IMAGE_DATA, EOI)));
+    }
+
+    @Test(expected = IOException.class)
+    public void getScanOffset_rejectsJpegWithoutImageData() throws IOException {
+        JpegSplicer.getScanOffset(ByteBuffer.wrap(concat(SOI, APP0, EOI)));
+    }
+
+    @Test(expected = IOException.class)
+    public void getScanOffset_rejectsTruncatedJpeg() throws IOException {
+        ByteBuffer jpeg = ByteBuffer.wrap(concat(SOI, APP1));
+        jpeg.limit(6);
+        JpegSplicer.getScanOffset(jpeg);
+    }
+
+    @Test
+    public void getHeader_endsWithEndOfImage() throws IOException {
+        ByteBuffer jpeg = ByteBuffer.wrap(concat(SOI, APP1, SOS, IMAGE_DATA, EOI));
+
+        byte[] header = JpegSplicer.getHeader(jpeg, JpegSplicer.getScanOffset(jpeg));
+
+        assertThat(header).isEqualTo(concat(SOI, APP1, EOI));
+    }
+
+    @Test
+    public void write_replacesHeaderAndKeepsImageData() throws IOException {
+        ByteBuffer jpeg = ByteBuffer.wrap(concat(SOI, APP1, SOS, IMAGE_DATA, EOI));
+        int scanOffset = JpegSplicer.getScanOffset(jpeg);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        JpegSplicer.write(jpeg, scanOffset, concat(SOI, APP0, EOI),
+                Channels.newChannel(output));
+
+        assertThat(output.toByteArray()).isEqualTo(concat(SOI, APP0, SOS, IMAGE_DATA, EOI));
+        assertThat(jpeg.position()).isEqualTo(0);
+    }
+
+    @Test(expected = IOException.class)
+    public void write_rejectsHeaderWithoutEndOfImage() throws IOException {
+        ByteBuffer jpeg = ByteBuffer.wrap(concat(SOI, APP1, SOS, IMAGE_DATA, EOI));
+
+        JpegSplicer.write(jpeg, JpegSplicer.getScanOffset(jpeg), concat(SOI, APP0),
+                Channels.newChannel(new ByteArrayOutputStream()));
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (byte[] array : arrays) {
+            output.write(array, 0, array.length);
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core.internal.utils;
+
+import static androidx.camera.testing.ImageProxyUtil.getSample;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.ImageFormat;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.testing.ImageProxyUtil;
+import androidx.camera.testing.fakes.FakeImageProxy;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Unit tests for {@link YuvConverter}.
+ */
+@SmallTest
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(minSdk = Build.VERSION_CODES.LOLLIPOP)
+public class YuvConverterTest {
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 10;
+    private static final int CHROMA_WIDTH = WIDTH / 2;
+    private static final int CHROMA_HEIGHT = HEIGHT / 2;
+
+    private final YuvConverter mConverter = new YuvConverter();
+
+    @Test
+    public void toNv21_interleavedChroma() {
+        assertNv21(ImageProxyUtil.createYuv420Image(WIDTH, HEIGHT, 0, true));
+    }
+
+    @Test
+    public void toNv21_interleavedChromaWithRowPadding() {
+        assertNv21(ImageProxyUtil.createYuv420Image(WIDTH, HEIGHT, 8, true));
+    }
+
+    @Test
+    public void toNv21_planarChroma() {
+        assertNv21(ImageProxyUtil.createYuv420Image(WIDTH, HEIGHT, 0, false));
+    }
+
+    @Test
+    public void toNv21_planarChromaWithRowPadding() {
+        assertNv21(ImageProxyUtil.createYuv420Image(WIDTH, HEIGHT, 8, false));
+    }
+
+    @Test
+    public void toNv21_interleavedHeapChroma() {
+        FakeImageProxy image = ImageProxyUtil.createYuv420Image(WIDTH, HEIGHT, 8, true);
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        ByteBuffer vBuffer = planes[2].getBuffer();
+        ByteBuffer uBuffer = planes[1].getBuffer();
+        // The V plane followed by the last U sample, in an array
+        byte[] chroma = new byte[vBuffer.capacity() + 1];
+        vBuffer.duplicate().get(chroma, 0, vBuffer.capacity());
+        chroma[chroma.length - 1] = uBuffer.get(uBuffer.capacity() - 1);
+        int rowStride = planes[2].getRowStride();
+        image.setPlanes(new ImageProxy.PlaneProxy[]{planes[0],
+                createPlane(ByteBuffer.wrap(chroma, 1, chroma.length - 1).slice(), rowStride),
+                createPlane(ByteBuffer.wrap(chroma, 0, chroma.length - 1).slice(), rowStride)});
+
+        assertNv21(image);
+    }
+
+    @Test
+    public void toNv21_interleavedReadOnlyDirectChroma() {
+        FakeImageProxy image = ImageProxyUtil.createYuv420Image(WIDTH, HEIGHT, 8, true);
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        ByteBuffer vBuffer = planes[2].getBuffer();
+        ByteBuffer uBuffer = planes[1].getBuffer();
+        // The V plane followed by the last U sample, in direct memory which mustn't be written
+        ByteBuffer chroma = ByteBuffer.allocateDirect(vBuffer.capacity() + 1);
+        chroma.put(vBuffer.duplicate());
+        chroma.put(uBuffer.get(uBuffer.capacity() - 1));
+        chroma.rewind();
+        ByteBuffer readOnly = chroma.asReadOnlyBuffer();
+        ByteBuffer vChroma = readOnly.duplicate();
+        vChroma.limit(vBuffer.capacity());
+        ByteBuffer uChroma = readOnly.duplicate();
+        uChroma.position(1);
+        int rowStride = planes[2].getRowStride();
+        image.setPlanes(new ImageProxy.PlaneProxy[]{planes[0],
+                createPlane(uChroma.slice(), rowStride), createPlane(vChroma.slice(), rowStride)});
+
+        assertNv21(image);
+    }
+
+    @Test
+    public void toI420_interleavedChroma() {
+        assertI420(ImageProxyUtil.createYuv420Image(WIDTH, HEIGHT, 8, true));
+    }
+
+    @Test
+    public void toI420_planarChroma() {
+        assertI420(ImageProxyUtil.createYuv420Image(WIDTH, HEIGHT, 8, false));
+    }
+
+    @Test
+    public void toArgb_convertsWithFullRangeCoefficients() {
+        FakeImageProxy image = ImageProxyUtil.createYuv420Image(2, 2, 0, false);
+        // Pure red is Y=76, U=85, V=255 in full range BT.601
+        for (int i = 0; i < 4; i++) {
+            image.getPlanes()[0].getBuffer().put(i, (byte) 76);
+        }
+        image.getPlanes()[1].getBuffer().put(0, (byte) 85);
+        image.getPlanes()[2].getBuffer().put(0, (byte) 255);
+
+        int[] argb = mConverter.toArgb(image);
+
+        assertThat(argb).hasLength(4);
+        for (int pixel : argb) {
+            assertThat(pixel >>> 24).isEqualTo(0xff);
+            assertThat((pixel >> 16) & 0xff).isAtLeast(250);
+            assertThat((pixel >> 8) & 0xff).isAtMost(5);
+            assertThat(pixel & 0xff).isAtMost(5);
+        }
+    }
+
+    @Test
+    public void recycledBuffersAreReused() {
+        ImageProxy image = ImageProxyUtil.createYuv420Image(WIDTH, HEIGHT, 0, true);
+        byte[] first = mConverter.toNv21(image);
+        mConverter.recycle(first);
+
+        assertThat(mConverter.toNv21(image)).isSameInstanceAs(first);
+        // Not recycled, so a new buffer
+        assertThat(mConverter.toI420(image)).isNotSameInstanceAs(first);
+    }
+
+    @Test
+    public void planeBuffersAreNotModified() {
+        ImageProxy image = ImageProxyUtil.createYuv420Image(WIDTH, HEIGHT, 8, true);
+        mConverter.toNv21(image);
+
+        for (ImageProxy.PlaneProxy plane : image.getPlanes()) {
+            assertThat(plane.getBuffer().position()).isEqualTo(0);
+        }
+        assertNv21(image);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonYuvImages() {
+        FakeImageProxy image = ImageProxyUtil.createYuv420Image(WIDTH, HEIGHT, 0, true);
+        image.setFormat(ImageFormat.JPEG);
+        mConverter.toNv21(image);
+    }
+
+    private void assertNv21(ImageProxy image) {
+        byte[] nv21 = mConverter.toNv21(image);
+        assertThat(nv21).hasLength(WIDTH * HEIGHT + 2 * CHROMA_WIDTH * CHROMA_HEIGHT);
+        assertLuma(nv21);
+        int position = WIDTH * HEIGHT;
+        for (int row = 0; row < CHROMA_HEIGHT; row++) {
+            for (int col = 0; col < CHROMA_WIDTH; col++) {
+                assertThat(nv21[position++]).isEqualTo(getSample(2, row, col));
+                assertThat(nv21[position++]).isEqualTo(getSample(1, row, col));
+            }
+        }
+        mConverter.recycle(nv21);
+    }
+
+    private void assertI420(ImageProxy image) {
+        byte[] i420 = mConverter.toI420(image);
+        assertThat(i420).hasLength(WIDTH * HEIGHT + 2 * CHROMA_WIDTH * CHROMA_HEIGHT);
+        assertLuma(i420);
+        int uOffset = WIDTH * HEIGHT;
+        int vOffset = uOffset + CHROMA_WIDTH * CHROMA_HEIGHT;
+        for (int row = 0; row < CHROMA_HEIGHT; row++) {
+            for (int col = 0; col < CHROMA_WIDTH; col++) {
+                int index = row * CHROMA_WIDTH + col;
+                assertThat(i420[uOffset + index]).isEqualTo(getSample(1, row, col));
+                assertThat(i420[vOffset + index]).isEqualTo(getSample(2, row, col));
+            }
+        }
+        mConverter.recycle(i420);
+    }
+
+    private static ImageProxy.PlaneProxy createPlane(final ByteBuffer buffer,
+            final int rowStride) {
+        return new ImageProxy.PlaneProxy() {
+            @Override
+            public int getRowStride() {
+                return rowStride;
+            }
+
+            @Override
+            public int getPixelStride() {
+                return 2;
+            }
+
+            @NonNull
+            @Override
+            public ByteBuffer getBuffer() {
+                return buffer;
+            }
+        };
+    }
+
+    private static void assertLuma(byte[] data) {
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                assertThat(data[row * WIDTH + col]).isEqualTo(getSample(0, row, col));
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.testing;
+
+import android.graphics.ImageFormat;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.testing.fakes.FakeImageInfo;
+import androidx.camera.testing.fakes.FakeImageProxy;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Utility functions for creating fake {@link ImageProxy} frames with real plane data.
+ */
+public final class ImageProxyUtil {
+
+    private ImageProxyUtil() {
+    }
+
+    /**
+     * Creates a {@link ImageFormat#YUV_420_888} image with a fixed pattern in each plane.
+     *
+     * <p>The value of each sample is derived from its plane, row and column, see
+     * {@link #getSample(int, int, int)}.
+     *
+     * @param width the image width, must be even
+     * @param height the image height, must be even
+     * @param rowPadding extra bytes at the end of each row, on top of the row length
+     * @param interleavedVu if true the chroma planes have a pixel stride of 2 and share memory
+     *                      with U one byte after V, the layout of NV21. Otherwise they are planar
+     *                      with a pixel stride of 1.
+     */
+    @NonNull
+    public static FakeImageProxy createYuv420Image(int width, int height, int rowPadding,
+            boolean interleavedVu) {
+        FakeImageProxy image = new FakeImageProxy(new FakeImageInfo());
+        image.setFormat(ImageFormat.YUV_420_888);
+        image.setWidth(width);
+        image.setHeight(height);
+        image.setPlanes(createYuv420Planes(width, height, rowPadding, interleavedVu));
+        return image;
+    }
+
+    /**
+     * Returns the expected value of a sample of an image created by
+     * {@link #createYuv420Image(int, int, int, boolean)}.
+     *
+     * @param plane 0 for Y, 1 for U and 2 for V
+     */
+    public static byte getSample(int plane, int row, int col) {
+        return (byte) (plane * 85 + row * 3 + col);
+    }
+
+    @NonNull
+    private static ImageProxy.PlaneProxy[] createYuv420Planes(int width, int height,
+            int rowPadding, boolean interleavedVu) {
+        int chromaWidth = width / 2;
+        int chromaHeight = height / 2;
+
+        int yRowStride = width + rowPadding;
+        ByteBuffer yBuffer = ByteBuffer.allocateDirect(yRowStride * (height - 1) + width);
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                yBuffer.put(row * yRowStride + col, getSample(0, row, col));
+            }
+        }
+        ImageProxy.PlaneProxy yPlane = new FakePlaneProxy(yBuffer, yRowStride, 1);
+
+        if (interleavedVu) {
+            int rowStride = 2 * chromaWidth + rowPadding;
+            ByteBuffer chroma = ByteBuffer.allocateDirect(rowStride * (chromaHeight - 1)
+                    + 2 * chromaWidth);
+            for (int row = 0; row < chromaHeight; row++) {
+                for (int col = 0; col < chromaWidth; col++) {
+                    chroma.put(row * rowStride + 2 * col, getSample(2, row, col));
+                    chroma.put(row * rowStride + 2 * col + 1, getSample(1, row, col));
+                }
+            }
+            chroma.limit(chroma.capacity() - 1);
+            ByteBuffer vBuffer = chroma.slice();
+            chroma.limit(chroma.capacity());
+            chroma.position(1);
+            ByteBuffer uBuffer = chroma.slice();
+            return new ImageProxy.PlaneProxy[]{yPlane,
+                    new FakePlaneProxy(uBuffer, rowStride, 2),
+                    new FakePlaneProxy(vBuffer, rowStride, 2)};
+        }
+
+        int rowStride = chromaWidth + rowPadding;
+        ByteBuffer uBuffer = ByteBuffer.allocateDirect(rowStride * (chromaHeight - 1)
+                + chromaWidth);
+        ByteBuffer vBuffer = ByteBuffer.allocateDirect(uBuffer.capacity());
+        for (int row = 0; row < chromaHeight; row++) {
+            for (int col = 0; col < chromaWidth; col++) {
+                uBuffer.put(row * rowStride + col, getSample(1, row, col));
+                vBuffer.put(row * rowStride + col, getSample(2, row, col));
+            }
+        }
+        return new ImageProxy.PlaneProxy[]{yPlane,
+                new FakePlaneProxy(uBuffer, rowStride, 1),
+                new FakePlaneProxy(vBuffer, rowStride, 1)};
+    }
+
+    private static final class FakePlaneProxy implements ImageProxy.PlaneProxy {
+        private final ByteBuffer mBuffer;
+        private final int mRowStride;
+        private final int mPixelStride;
+
+        FakePlaneProxy(ByteBuffer buffer, int rowStride, int pixelStride) {
+            mBuffer = buffer;
+            mRowStride = rowStride;
+            mPixelStride = pixelStride;
+        }
+
+        @Override
+        public int getRowStride() {
+            return mRowStride;
+        }
+
+        @Override
+        public int getPixelStride() {
+            return mPixelStride;
+        }
+
+        @NonNull
+        @Override
+        public ByteBuffer getBuffer() {
+            return mBuffer;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.core.app;
+
+import static androidx.core.app.FrameMetricsAggregator.DRAW_DURATION;
+import static androidx.core.app.FrameMetricsAggregator.DRAW_INDEX;
+import static androidx.core.app.FrameMetricsAggregator.INPUT_INDEX;
+import static androidx.core.app.FrameMetricsAggregator.TOTAL_DURATION;
+import static androidx.core.app.FrameMetricsAggregator.TOTAL_INDEX;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Build;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.filters.SmallTest;
+import androidx.test.rule.ActivityTestRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class FrameMetricsReporterTest {
+    private static final long MS = 1000000;
+
+    @Rule
+    public final ActivityTestRule<FrameMetricsActivity> mActivityTestRule =
+            new ActivityTestRule<>(FrameMetricsActivity.class);
+
+    @Test
+    public void testPercentiles() {
+        FrameMetricsReporter reporter = new FrameMetricsReporter(TOTAL_DURATION);
+        Random random = new Random(0);
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) (random.nextDouble() * 50 * MS);
+            reporter.recordFrame(frame(values[i], -1));
+        }
+        Arrays.sort(values);
+
+        FrameMetricsReporter.Histogram histogram =
+                reporter.getSnapshot().getHistogram(null, TOTAL_INDEX);
+        assertNotNull(histogram);
+        assertEquals(values.length, histogram.getTotalCount());
+        assertEquals(values[values.length - 1], histogram.getMaxValue());
+        for (double percentile : new double[] {50, 90, 99}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long value = histogram.getValueAtPercentile(percentile);
+            assertTrue(value >= exact);
+            assertTrue(value <= exact + exact / 25);
+        }
+        assertEquals(values[values.length - 1], histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testCountAtOrAbove() {
+        FrameMetricsReporter reporter = new FrameMetricsReporter(TOTAL_DURATION);
+        reporter.recordFrame(frame(8 * MS, -1));
+        reporter.recordFrame(frame(12 * MS, -1));
+        reporter.recordFrame(frame(40 * MS, -1));
+        reporter.recordFrame(frame(700 * MS, -1));
+
+        FrameMetricsReporter.Histogram histogram =
+                reporter.getSnapshot().getHistogram(null, TOTAL_INDEX);
+        assertEquals(4, histogram.getCountAtOrAbove(0));
+        assertEquals(2, histogram.getCountAtOrAbove(17 * MS));
+        assertEquals(1, histogram.getCountAtOrAbove(100 * MS));
+    }
+
+    @Test
+    public void testUntrackedMetrics() {
+        FrameMetricsReporter reporter = new FrameMetricsReporter(TOTAL_DURATION | DRAW_DURATION);
+        reporter.recordFrame(frame(10 * MS, 2 * MS));
+
+        FrameMetricsReporter.Snapshot snapshot = reporter.getSnapshot();
+        assertEquals(1, snapshot.getHistogram(null, TOTAL_INDEX).getTotalCount());
+        assertEquals(1, snapshot.getHistogram(null, DRAW_INDEX).getTotalCount());
+        assertNull(snapshot.getHistogram(null, INPUT_INDEX));
+    }
+
+    @Test
+    public void testInteractions() {
+        FrameMetricsReporter reporter = new FrameMetricsReporter(TOTAL_DURATION);
+        reporter.recordFrame(frame(10 * MS, -1));
+        reporter.beginInteraction("scroll");
+        reporter.recordFrame(frame(20 * MS, -1));
+        reporter.beginInteraction("transition");
+        reporter.beginInteraction("scroll");
+        reporter.recordFrame(frame(30 * MS, -1));
+        reporter.endInteraction("scroll");
+        reporter.endInteraction("transition");
+        reporter.recordFrame(frame(40 * MS, -1));
+        reporter.endInteraction("scroll");
+        reporter.endInteraction("scroll");
+        reporter.recordFrame(frame(50 * MS, -1));
+
+        FrameMetricsReporter.Snapshot snapshot = reporter.getSnapshot();
+        assertEquals(Arrays.asList("scroll", "transition"),
+                Arrays.asList(snapshot.getInteractions().toArray()));
+        assertEquals(5, snapshot.getHistogram(null, TOTAL_INDEX).getTotalCount());
+        FrameMetricsReporter.Histogram scroll = snapshot.getHistogram("scroll", TOTAL_INDEX);
+        assertEquals(3, scroll.getTotalCount());
+        assertEquals(40 * MS, scroll.getMaxValue());
+        assertEquals(1, snapshot.getHistogram("transition", TOTAL_INDEX).getTotalCount());
+        assertNull(snapshot.getHistogram("unknown", TOTAL_INDEX));
+    }
+
+    @Test
+    public void testMaxInteractions() {
+        FrameMetricsReporter reporter = new FrameMetricsReporter(TOTAL_DURATION);
+        for (int i = 0; i <= FrameMetricsReporter.MAX_INTERACTIONS; i++) {
+            reporter.beginInteraction("interaction" + i);
+        }
+        reporter.recordFrame(frame(10 * MS, -1));
+
+        FrameMetricsReporter.Snapshot snapshot = reporter.getSnapshot();
+        assertEquals(FrameMetricsReporter.MAX_INTERACTIONS, snapshot.getInteractions().size());
+        assertEquals(1, snapshot.getHistogram(null, TOTAL_INDEX).getTotalCount());
+    }
+
+    @Test
+    public void testReset() {
+        FrameMetricsReporter reporter = new FrameMetricsReporter(TOTAL_DURATION);
+        reporter.beginInteraction("scroll");
+        reporter.recordFrame(frame(10 * MS, -1));
+
+        FrameMetricsReporter.Snapshot before = reporter.getSnapshot();
+        FrameMetricsReporter.Snapshot reset = reporter.reset();
+        reporter.recordFrame(frame(20 * MS, -1));
+        FrameMetricsReporter.Snapshot after = reporter.getSnapshot();
+
+        // Snapshots are copies, unaffected by later frames
+        assertEquals(1, before.getHistogram("scroll", TOTAL_INDEX).getTotalCount());
+        assertEquals(1, reset.getHistogram("scroll", TOTAL_INDEX).getTotalCount());
+        assertEquals(10 * MS, reset.getHistogram(null, TOTAL_INDEX).getMaxValue());
+        // The interaction is still active after the reset
+        assertEquals(1, after.getHistogram("scroll", TOTAL_INDEX).getTotalCount());
+        assertEquals(20 * MS, after.getHistogram(null, TOTAL_INDEX).getMaxValue());
+        assertTrue(after.getStartTime() >= reset.getEndTime());
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        FrameMetricsReporter reporter = new FrameMetricsReporter(TOTAL_DURATION);
+        FrameMetricsReporter.Histogram histogram =
+                reporter.getSnapshot().getHistogram(null, TOTAL_INDEX);
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(Collections.emptySet(), reporter.getSnapshot().getInteractions());
+    }
+
+    @Test
+    @LargeTest
+    public void testActivityFrames() throws Throwable {
+        FrameMetricsReporter reporter = new FrameMetricsReporter(TOTAL_DURATION);
+        final FrameMetricsActivity activity = mActivityTestRule.getActivity();
+        reporter.add(activity);
+        reporter.beginInteraction("invalidate");
+
+        long startTime = System.currentTimeMillis();
+        while (System.currentTimeMillis() - startTime < 500) {
+            mActivityTestRule.runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    activity.invalidate();
+                }
+            });
+            Thread.sleep(10);
+        }
+        reporter.endInteraction("invalidate");
+        reporter.stop();
+
+        FrameMetricsReporter.Snapshot snapshot = reporter.reset();
+        long frames = snapshot.getHistogram("invalidate", TOTAL_INDEX).getTotalCount();
+        if (Build.VERSION.SDK_INT < 24) {
+            assertEquals(0, frames);
+        } else {
+            assertTrue(frames > 0);
+            assertTrue(snapshot.getHistogram(null, TOTAL_INDEX).getValueAtPercentile(50) > 0);
+        }
+    }
+
+    private static long[] frame(long total, long draw) {
+        long[] durations = new long[FrameMetricsAggregator.ANIMATION_INDEX + 1];
+        Arrays.fill(durations, -1);
+        durations[TOTAL_INDEX] = total;
+        durations[DRAW_INDEX] = draw;
+        return durations;
+    }
+}
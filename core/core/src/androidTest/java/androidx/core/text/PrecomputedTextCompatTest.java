@@ -27,6 +27,7 @@ import static org.junit.Assert.fail;
 
 import android.graphics.Color;
 import android.text.Layout;
+import android.text.NoCopySpan;
 import android.text.Spannable;
 import android.text.SpannableStringBuilder;
 import android.text.Spanned;
@@ -368,4 +369,19 @@ public class PrecomputedTextCompatTest {
         assertEquals(pm1.length(), pm1.getParagraphEnd(1));
     }
 
+    @Test
+    public void testCopy_doesNotShareSpans() {
+        final Params param = new Params.Builder(PAINT).build();
+        final PrecomputedTextCompat pm = PrecomputedTextCompat.create(MULTIPARA_STRING, param);
+        pm.setSpan(new NoCopySpan.Concrete(), 0, pm.length(), 0);
+
+        final PrecomputedTextCompat copy = pm.copy();
+        assertEquals(0, copy.getSpans(0, copy.length(), NoCopySpan.class).length);
+        assertEquals(MULTIPARA_STRING, copy.toString());
+        assertEquals(pm.getParagraphCount(), copy.getParagraphCount());
+
+        copy.setSpan(new BackgroundColorSpan(Color.RED), 0, copy.length(), 0);
+        assertEquals(0, pm.getSpans(0, pm.length(), BackgroundColorSpan.class).length);
+    }
+
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.core.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.text.NoCopySpan;
+import android.text.TextPaint;
+
+import androidx.core.text.PrecomputedTextCompat.Params;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class PrecomputedTextServiceTest {
+    private static final Params PARAMS = new Params.Builder(new TextPaint()).build();
+
+    /**
+     * Only runs tasks when asked to, so tests can control the order.
+     */
+    private static class ManualExecutor implements Executor {
+        final List<Runnable> mRunnables = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            mRunnables.add(runnable);
+        }
+
+        void runAll() {
+            for (Runnable runnable : mRunnables) {
+                runnable.run();
+            }
+            mRunnables.clear();
+        }
+    }
+
+    @Test
+    public void testGetTextFuture() throws Exception {
+        PrecomputedTextService service = new PrecomputedTextService(2, 10);
+        Future<PrecomputedTextCompat> future = service.getTextFuture("Hello", PARAMS);
+        PrecomputedTextCompat text = future.get();
+        assertEquals("Hello", text.toString());
+        assertEquals(PARAMS, text.getParams());
+    }
+
+    @Test
+    public void testCacheHit() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        PrecomputedTextService service = new PrecomputedTextService(executor, 10);
+        Future<PrecomputedTextCompat> first = service.getTextFuture("Hello", PARAMS);
+        assertFalse(first.isDone());
+        executor.runAll();
+
+        Future<PrecomputedTextCompat> second = service.getTextFuture(new String("Hello"), PARAMS);
+        assertTrue(second.isDone());
+        assertTrue(executor.mRunnables.isEmpty());
+        assertNotSame(first.get(), second.get());
+        assertEquals("Hello", second.get().toString());
+    }
+
+    @Test
+    public void testResultsDoNotShareSpans() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        PrecomputedTextService service = new PrecomputedTextService(executor, 10);
+        Future<PrecomputedTextCompat> future = service.getTextFuture("Hello", PARAMS);
+        executor.runAll();
+
+        // Like the watcher TextView attaches to the text it displays
+        PrecomputedTextCompat first = future.get();
+        first.setSpan(new NoCopySpan.Concrete(), 0, first.length(), 0);
+
+        PrecomputedTextCompat second = service.getTextFuture("Hello", PARAMS).get();
+        assertEquals(0, second.getSpans(0, second.length(), NoCopySpan.class).length);
+        PrecomputedTextCompat cached = service.getCached("Hello", PARAMS);
+        assertEquals(0, cached.getSpans(0, cached.length(), NoCopySpan.class).length);
+    }
+
+    @Test
+    public void testSharedComputation() {
+        ManualExecutor executor = new ManualExecutor();
+        PrecomputedTextService service = new PrecomputedTextService(executor, 10);
+        service.prefetch("Hello", PARAMS, 0);
+        Future<PrecomputedTextCompat> first = service.getTextFuture("Hello", PARAMS);
+        Future<PrecomputedTextCompat> second = service.getTextFuture("Hello", PARAMS);
+        assertSame(first, second);
+        assertEquals(1, executor.mRunnables.size());
+    }
+
+    @Test
+    public void testPriority() {
+        ManualExecutor executor = new ManualExecutor();
+        PrecomputedTextService service = new PrecomputedTextService(executor, 10);
+        service.setPrefetchAnchor(10);
+        service.prefetch("far", PARAMS, 30);
+        service.prefetch("near", PARAMS, 9);
+        service.prefetch("middle", PARAMS, 0);
+        service.getTextFuture("urgent", PARAMS);
+
+        List<String> order = new ArrayList<>();
+        for (Runnable runnable : executor.mRunnables) {
+            runnable.run();
+            order.add(lastCached(service));
+        }
+        assertEquals("urgent", order.get(0));
+        assertEquals("near", order.get(1));
+        assertEquals("middle", order.get(2));
+        assertEquals("far", order.get(3));
+    }
+
+    @Test
+    public void testLruEviction() {
+        ManualExecutor executor = new ManualExecutor();
+        PrecomputedTextService service = new PrecomputedTextService(executor, 2);
+        service.prefetch("a", PARAMS, 0);
+        service.prefetch("b", PARAMS, 1);
+        service.prefetch("c", PARAMS, 2);
+        executor.runAll();
+
+        assertNull(service.getCached("a", PARAMS));
+        assertNotNull(service.getCached("b", PARAMS));
+        assertNotNull(service.getCached("c", PARAMS));
+
+        service.evictAll();
+        assertNull(service.getCached("c", PARAMS));
+    }
+
+    @Test
+    public void testDifferentParams() {
+        ManualExecutor executor = new ManualExecutor();
+        PrecomputedTextService service = new PrecomputedTextService(executor, 10);
+        TextPaint paint = new TextPaint();
+        paint.setTextSize(PARAMS.getTextPaint().getTextSize() * 2);
+        Params largeParams = new Params.Builder(paint).build();
+
+        service.prefetch("Hello", PARAMS, 0);
+        executor.runAll();
+        assertNull(service.getCached("Hello", largeParams));
+        assertFalse(service.getTextFuture("Hello", largeParams).isDone());
+    }
+
+    @Test
+    public void testCancelPrefetches() {
+        ManualExecutor executor = new ManualExecutor();
+        PrecomputedTextService service = new PrecomputedTextService(executor, 10);
+        service.prefetch("prefetched", PARAMS, 0);
+        Future<PrecomputedTextCompat> urgent = service.getTextFuture("urgent", PARAMS);
+        service.cancelPrefetches();
+        executor.runAll();
+
+        assertTrue(urgent.isDone());
+        assertNotNull(service.getCached("urgent", PARAMS));
+        assertNull(service.getCached("prefetched", PARAMS));
+    }
+
+    @Test
+    public void testGetNow() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        PrecomputedTextService service = new PrecomputedTextService(executor, 10);
+        Future<PrecomputedTextCompat> future = service.getTextFuture("Hello", PARAMS);
+
+        // Computed on the calling thread without the executor running anything
+        PrecomputedTextCompat text = PrecomputedTextService.getNow(future);
+        assertNotNull(text);
+        assertEquals("Hello", service.getCached("Hello", PARAMS).toString());
+
+        // The runnable scheduled for it has nothing left to do
+        executor.runAll();
+        assertEquals("Hello", future.get().toString());
+
+        FutureTask<PrecomputedTextCompat> other = new FutureTask<>(
+                new Callable<PrecomputedTextCompat>() {
+                    @Override
+                    public PrecomputedTextCompat call() {
+                        return PrecomputedTextCompat.create("Hello", PARAMS);
+                    }
+                });
+        assertNull(PrecomputedTextService.getNow(other));
+        assertFalse(other.isDone());
+    }
+
+    private static String lastCached(PrecomputedTextService service) {
+        for (String text : new String[] {"urgent", "near", "middle", "far"}) {
+            PrecomputedTextCompat cached = service.getCached(text, PARAMS);
+            if (cached != null) {
+                // Evict so the next lookup finds the next computed text
+                service.evictAll();
+                return text;
+            }
+        }
+        return null;
+    }
+}
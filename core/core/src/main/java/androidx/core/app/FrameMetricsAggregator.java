@@ -210,8 +210,17 @@ public class FrameMetricsAggregator {
      * be recorded.
      */
     public FrameMetricsAggregator(@MetricType int metricTypeFlags) {
+        this(metricTypeFlags, null);
+    }
+
+    /**
+     * Constructs a FrameMetricsAggregator which hands the raw durations of every frame to
+     * {@code frameListener} instead of bucketing them. {@link #getMetrics()} then always returns
+     * an array of null items.
+     */
+    FrameMetricsAggregator(@MetricType int metricTypeFlags, @Nullable FrameListener frameListener) {
         if (Build.VERSION.SDK_INT >= 24) {
-            mInstance = new FrameMetricsApi24Impl(metricTypeFlags);
+            mInstance = new FrameMetricsApi24Impl(metricTypeFlags, frameListener);
         } else {
             mInstance = new FrameMetricsBaseImpl();
         }
@@ -301,6 +310,18 @@ public class FrameMetricsAggregator {
         return mInstance.getMetrics();
     }
 
+    /**
+     * Receives the raw durations of each frame, on the thread frame metrics are delivered on.
+     */
+    interface FrameListener {
+        /**
+         * @param durations the duration of each metric in nanoseconds, indexed like
+         *                  {@link #getMetrics()}, or -1 for metrics which are not tracked. The
+         *                  array is reused for the next frame.
+         */
+        void onFrame(@NonNull long[] durations);
+    }
+
     /**
      * Base implementation noops everything - there's no data to return on pre-API24 releases.
      */
@@ -336,13 +357,17 @@ public class FrameMetricsAggregator {
         // rounding value adds half a millisecond, for rounding to nearest ms
         private static final int NANOS_ROUNDING_VALUE = NANOS_PER_MS / 2;
         int mTrackingFlags;
+        final FrameListener mFrameListener;
+        // Only touched on sHandlerThread
+        final long[] mFrameDurations = new long[LAST_INDEX + 1];
         SparseIntArray[] mMetrics = new SparseIntArray[LAST_INDEX + 1];
         private ArrayList<WeakReference<Activity>> mActivities = new ArrayList<>();
         private static HandlerThread sHandlerThread = null;
         private static Handler sHandler = null;
 
-        FrameMetricsApi24Impl(int trackingFlags) {
+        FrameMetricsApi24Impl(int trackingFlags, FrameListener frameListener) {
             mTrackingFlags = trackingFlags;
+            mFrameListener = frameListener;
         }
 
         Window.OnFrameMetricsAvailableListener mListener =
@@ -350,47 +375,34 @@ public class FrameMetricsAggregator {
             @Override
             public void onFrameMetricsAvailable(Window window,
                     android.view.FrameMetrics frameMetrics, int dropCountSinceLastInvocation) {
-                if ((mTrackingFlags & TOTAL_DURATION) != 0) {
-                    addDurationItem(mMetrics[TOTAL_INDEX],
-                            frameMetrics.getMetric(android.view.FrameMetrics.TOTAL_DURATION));
-                }
-                if ((mTrackingFlags & INPUT_DURATION) != 0) {
-                    addDurationItem(mMetrics[INPUT_INDEX],
-                            frameMetrics.getMetric(
-                                    android.view.FrameMetrics.INPUT_HANDLING_DURATION));
-                }
-                if ((mTrackingFlags & LAYOUT_MEASURE_DURATION) != 0) {
-                    addDurationItem(mMetrics[LAYOUT_MEASURE_INDEX],
-                            frameMetrics.getMetric(
-                                    android.view.FrameMetrics.LAYOUT_MEASURE_DURATION));
-                }
-                if ((mTrackingFlags & DRAW_DURATION) != 0) {
-                    addDurationItem(mMetrics[DRAW_INDEX],
-                            frameMetrics.getMetric(android.view.FrameMetrics.DRAW_DURATION));
-                }
-                if ((mTrackingFlags & SYNC_DURATION) != 0) {
-                    addDurationItem(mMetrics[SYNC_INDEX],
-                            frameMetrics.getMetric(android.view.FrameMetrics.SYNC_DURATION));
-                }
-                if ((mTrackingFlags & SWAP_DURATION) != 0) {
-                    addDurationItem(mMetrics[SWAP_INDEX],
-                            frameMetrics.getMetric(
-                                    android.view.FrameMetrics.SWAP_BUFFERS_DURATION));
-                }
-                if ((mTrackingFlags & COMMAND_DURATION) != 0) {
-                    addDurationItem(mMetrics[COMMAND_INDEX],
-                            frameMetrics.getMetric(
-                                    android.view.FrameMetrics.COMMAND_ISSUE_DURATION));
-                }
-                if ((mTrackingFlags & DELAY_DURATION) != 0) {
-                    addDurationItem(mMetrics[DELAY_INDEX],
-                            frameMetrics.getMetric(
-                                    android.view.FrameMetrics.UNKNOWN_DELAY_DURATION));
+                final long[] durations = mFrameDurations;
+                durations[TOTAL_INDEX] =
+                        frameMetrics.getMetric(android.view.FrameMetrics.TOTAL_DURATION);
+                durations[INPUT_INDEX] =
+                        frameMetrics.getMetric(android.view.FrameMetrics.INPUT_HANDLING_DURATION);
+                durations[LAYOUT_MEASURE_INDEX] =
+                        frameMetrics.getMetric(android.view.FrameMetrics.LAYOUT_MEASURE_DURATION);
+                durations[DRAW_INDEX] =
+                        frameMetrics.getMetric(android.view.FrameMetrics.DRAW_DURATION);
+                durations[SYNC_INDEX] =
+                        frameMetrics.getMetric(android.view.FrameMetrics.SYNC_DURATION);
+                durations[COMMAND_INDEX] =
+                        frameMetrics.getMetric(android.view.FrameMetrics.COMMAND_ISSUE_DURATION);
+                durations[SWAP_INDEX] =
+                        frameMetrics.getMetric(android.view.FrameMetrics.SWAP_BUFFERS_DURATION);
+                durations[DELAY_INDEX] =
+                        frameMetrics.getMetric(android.view.FrameMetrics.UNKNOWN_DELAY_DURATION);
+                durations[ANIMATION_INDEX] =
+                        frameMetrics.getMetric(android.view.FrameMetrics.ANIMATION_DURATION);
+                for (int i = 0; i <= LAST_INDEX; ++i) {
+                    if ((mTrackingFlags & (1 << i)) == 0) {
+                        durations[i] = -1;
+                    } else if (mFrameListener == null) {
+                        addDurationItem(mMetrics[i], durations[i]);
+                    }
                 }
-                if ((mTrackingFlags & ANIMATION_DURATION) != 0) {
-                    addDurationItem(mMetrics[ANIMATION_INDEX],
-                            frameMetrics.getMetric(
-                                    android.view.FrameMetrics.ANIMATION_DURATION));
+                if (mFrameListener != null) {
+                    mFrameListener.onFrame(durations);
                 }
             }
         };
@@ -413,7 +425,7 @@ public class FrameMetricsAggregator {
                 sHandlerThread.start();
                 sHandler = new Handler(sHandlerThread.getLooper());
             }
-            for (int i = 0; i <= LAST_INDEX; ++i) {
+            for (int i = 0; i <= LAST_INDEX && mFrameListener == null; ++i) {
                 if (mMetrics[i] == null && (mTrackingFlags & (1 << i)) != 0) {
                     mMetrics[i] = new SparseIntArray();
                 }
@@ -0,0 +1,435 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.core.app;
+
+import android.app.Activity;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records per-frame durations into fixed-size histograms, so that frame quality can be monitored
+ * continuously, for instance in production, without memory growing with the number of frames.
+ * <p>
+ * Unlike {@link FrameMetricsAggregator}, which counts frames per rounded millisecond, each
+ * metric is recorded into a {@link Histogram} whose buckets have a bounded relative error, from
+ * which percentiles such as the 50th, 90th or 99th can be computed on demand.
+ * <p>
+ * Frames can additionally be attributed to named interactions, such as a scroll or a screen
+ * transition, between calls to {@link #beginInteraction(String)} and
+ * {@link #endInteraction(String)}. Every frame is recorded in the overall histograms as well as
+ * in those of each interaction active when the frame was delivered.
+ *
+ * <pre>
+ * FrameMetricsReporter reporter = new FrameMetricsReporter(FrameMetricsAggregator.TOTAL_DURATION);
+ * reporter.add(activity);
+ *
+ * // When the list starts and stops scrolling
+ * reporter.beginInteraction("scroll");
+ * reporter.endInteraction("scroll");
+ *
+ * // Periodically
+ * FrameMetricsReporter.Snapshot snapshot = reporter.reset();
+ * long p99 = snapshot.getHistogram("scroll", FrameMetricsAggregator.TOTAL_INDEX)
+ *         .getValueAtPercentile(99);
+ * </pre>
+ *
+ * Frame metrics are only available on API 24 and above. On earlier releases snapshots are
+ * always empty.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class FrameMetricsReporter {
+    /**
+     * The maximum number of distinct interactions recorded between two calls to
+     * {@link #reset()}. Frames of further interactions are only recorded in the overall histograms.
+     */
+    public static final int MAX_INTERACTIONS = 16;
+
+    private static final int METRIC_COUNT = FrameMetricsAggregator.ANIMATION_INDEX + 1;
+
+    private final Object mLock = new Object();
+    private final int mTrackingFlags;
+    private final FrameMetricsAggregator mAggregator;
+
+    // Guarded by mLock
+    private Histogram[] mOverall;
+    private final Map<String, Histogram[]> mInteractions = new LinkedHashMap<>();
+    private final Map<String, Integer> mActiveInteractions = new HashMap<>();
+    private Histogram[][] mActiveHistograms = new Histogram[0][];
+    private long mStartTime;
+
+    /**
+     * Constructs a reporter that will record the metrics specified by {@code metricTypeFlags}, a
+     * combination of flags such as {@link FrameMetricsAggregator#TOTAL_DURATION}.
+     */
+    public FrameMetricsReporter(@FrameMetricsAggregator.MetricType int metricTypeFlags) {
+        mTrackingFlags = metricTypeFlags;
+        mOverall = newHistograms();
+        mStartTime = SystemClock.uptimeMillis();
+        mAggregator = new FrameMetricsAggregator(metricTypeFlags,
+                new FrameMetricsAggregator.FrameListener() {
+                    @Override
+                    public void onFrame(@NonNull long[] durations) {
+                        recordFrame(durations);
+                    }
+                });
+    }
+
+    /**
+     * Starts recording frame metrics for the given activity.
+     */
+    public void add(@NonNull Activity activity) {
+        mAggregator.add(activity);
+    }
+
+    /**
+     * Stops recording frame metrics for the given activity. Recording continues for the other
+     * activities being tracked.
+     */
+    public void remove(@NonNull Activity activity) {
+        mAggregator.remove(activity);
+    }
+
+    /**
+     * Stops recording frame metrics for all activities currently being tracked. The recorded data
+     * is kept until {@link #reset()} is called.
+     */
+    public void stop() {
+        mAggregator.stop();
+    }
+
+    /**
+     * Attributes the following frames to the named interaction, until the matching call to
+     * {@link #endInteraction(String)}. Interactions with different names may overlap, and calls
+     * for the same name nest.
+     */
+    public void beginInteraction(@NonNull String name) {
+        synchronized (mLock) {
+            final Integer depth = mActiveInteractions.get(name);
+            mActiveInteractions.put(name, depth == null ? 1 : depth + 1);
+            if (depth == null) {
+                updateActiveHistograms();
+            }
+        }
+    }
+
+    /**
+     * Ends an interaction started with {@link #beginInteraction(String)}. Does nothing if the
+     * interaction is not active.
+     */
+    public void endInteraction(@NonNull String name) {
+        synchronized (mLock) {
+            final Integer depth = mActiveInteractions.get(name);
+            if (depth == null) {
+                return;
+            }
+            if (depth > 1) {
+                mActiveInteractions.put(name, depth - 1);
+            } else {
+                mActiveInteractions.remove(name);
+                updateActiveHistograms();
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the data recorded since this reporter was created or last reset.
+     */
+    @NonNull
+    public Snapshot getSnapshot() {
+        synchronized (mLock) {
+            return createSnapshot();
+        }
+    }
+
+    /**
+     * Clears the recorded data and returns what was recorded so far. Active interactions stay
+     * active. Calling this periodically lets the data be exported in fixed time windows.
+     */
+    @NonNull
+    public Snapshot reset() {
+        synchronized (mLock) {
+            final Snapshot snapshot = createSnapshot();
+            mOverall = newHistograms();
+            mInteractions.clear();
+            mStartTime = SystemClock.uptimeMillis();
+            updateActiveHistograms();
+            return snapshot;
+        }
+    }
+
+    @VisibleForTesting
+    void recordFrame(@NonNull long[] durations) {
+        synchronized (mLock) {
+            record(mOverall, durations);
+            for (Histogram[] histograms : mActiveHistograms) {
+                record(histograms, durations);
+            }
+        }
+    }
+
+    private static void record(Histogram[] histograms, long[] durations) {
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            if (histograms[i] != null && durations[i] >= 0) {
+                histograms[i].record(durations[i]);
+            }
+        }
+    }
+
+    /**
+     * Caches the histograms of the active interactions, creating them if needed, so that
+     * recording a frame does not need any lookup.
+     */
+    private void updateActiveHistograms() {
+        final Histogram[][] active = new Histogram[mActiveInteractions.size()][];
+        int count = 0;
+        for (String name : mActiveInteractions.keySet()) {
+            Histogram[] histograms = mInteractions.get(name);
+            if (histograms == null && mInteractions.size() < MAX_INTERACTIONS) {
+                histograms = newHistograms();
+                mInteractions.put(name, histograms);
+            }
+            if (histograms != null) {
+                active[count++] = histograms;
+            }
+        }
+        mActiveHistograms = Arrays.copyOf(active, count);
+    }
+
+    private Histogram[] newHistograms() {
+        final Histogram[] histograms = new Histogram[METRIC_COUNT];
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            if ((mTrackingFlags & (1 << i)) != 0) {
+                histograms[i] = new Histogram();
+            }
+        }
+        return histograms;
+    }
+
+    private static Histogram[] copy(Histogram[] histograms) {
+        final Histogram[] copy = new Histogram[histograms.length];
+        for (int i = 0; i < histograms.length; i++) {
+            if (histograms[i] != null) {
+                copy[i] = new Histogram(histograms[i]);
+            }
+        }
+        return copy;
+    }
+
+    private Snapshot createSnapshot() {
+        final Map<String, Histogram[]> interactions = new LinkedHashMap<>();
+        for (Map.Entry<String, Histogram[]> entry : mInteractions.entrySet()) {
+            interactions.put(entry.getKey(), copy(entry.getValue()));
+        }
+        return new Snapshot(mStartTime, SystemClock.uptimeMillis(), copy(mOverall),
+                interactions);
+    }
+
+    /**
+     * An immutable copy of the histograms recorded by a {@link FrameMetricsReporter} over a
+     * period of time.
+     */
+    public static final class Snapshot {
+        private final long mStartTime;
+        private final long mEndTime;
+        private final Histogram[] mOverall;
+        private final Map<String, Histogram[]> mInteractions;
+
+        Snapshot(long startTime, long endTime, Histogram[] overall,
+                Map<String, Histogram[]> interactions) {
+            mStartTime = startTime;
+            mEndTime = endTime;
+            mOverall = overall;
+            mInteractions = interactions;
+        }
+
+        /**
+         * @return the {@link SystemClock#uptimeMillis()} at which recording of this data started.
+         */
+        public long getStartTime() {
+            return mStartTime;
+        }
+
+        /**
+         * @return the {@link SystemClock#uptimeMillis()} at which this snapshot was taken.
+         */
+        public long getEndTime() {
+            return mEndTime;
+        }
+
+        /**
+         * @return the names of the interactions which were active during this period, in the
+         * order they first started.
+         */
+        @NonNull
+        public Set<String> getInteractions() {
+            return Collections.unmodifiableSet(mInteractions.keySet());
+        }
+
+        /**
+         * Returns the histogram of a metric.
+         *
+         * @param interaction the name of an interaction, or null for all frames.
+         * @param metricIndex the index of the metric, such as
+         *                    {@link FrameMetricsAggregator#TOTAL_INDEX}.
+         * @return the histogram, or null if the metric was not tracked or the interaction was
+         * not active during this period.
+         */
+        @Nullable
+        public Histogram getHistogram(@Nullable String interaction, int metricIndex) {
+            final Histogram[] histograms =
+                    interaction == null ? mOverall : mInteractions.get(interaction);
+            if (histograms == null || metricIndex < 0 || metricIndex >= histograms.length) {
+                return null;
+            }
+            return histograms[metricIndex];
+        }
+    }
+
+    /**
+     * A histogram of durations using a fixed amount of memory, in the style of an HDR histogram.
+     * <p>
+     * Durations are recorded with microsecond resolution. Durations up to 64 microseconds are
+     * counted exactly. Above that, every power of two range is split into 32 equal buckets, which
+     * bounds the relative error of reported values to about 3%. Durations above
+     * {@link #MAX_TRACKABLE_VALUE} are counted in the highest bucket.
+     * <p>
+     * Histograms returned by a {@link Snapshot} are never modified.
+     */
+    public static final class Histogram {
+        private static final int NANOS_PER_UNIT = 1000;
+        private static final int SUB_BUCKET_BITS = 5;
+        private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+        // Values in units below 2^MAGNITUDES are tracked, a bit over a minute
+        private static final int MAGNITUDES = 26;
+
+        /**
+         * The highest duration, in nanoseconds, that is recorded with bounded error.
+         */
+        public static final long MAX_TRACKABLE_VALUE = (1L << MAGNITUDES) * NANOS_PER_UNIT - 1;
+        private static final int BUCKET_COUNT =
+                (MAGNITUDES - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+
+        private final int[] mCounts;
+        private long mTotalCount;
+        private long mMaxValue;
+
+        Histogram() {
+            mCounts = new int[BUCKET_COUNT];
+        }
+
+        Histogram(@NonNull Histogram other) {
+            mCounts = other.mCounts.clone();
+            mTotalCount = other.mTotalCount;
+            mMaxValue = other.mMaxValue;
+        }
+
+        void record(long durationNanos) {
+            mCounts[bucketIndex(durationNanos / NANOS_PER_UNIT)]++;
+            mTotalCount++;
+            mMaxValue = Math.max(mMaxValue, durationNanos);
+        }
+
+        /**
+         * @return the number of recorded durations.
+         */
+        public long getTotalCount() {
+            return mTotalCount;
+        }
+
+        /**
+         * @return the exact highest recorded duration in nanoseconds, or 0 if the histogram is
+         * empty.
+         */
+        public long getMaxValue() {
+            return mMaxValue;
+        }
+
+        /**
+         * Returns a duration such that the given percentage of recorded durations are lower than
+         * or equal to it. The value is the upper bound of the bucket the percentile falls in, so
+         * it overestimates the exact percentile by at most the bucket's width.
+         *
+         * @param percentile a percentage between 0 and 100, e.g. {@code 99} for the 99th
+         *                   percentile.
+         * @return the duration in nanoseconds, or 0 if the histogram is empty.
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100");
+            }
+            if (mTotalCount == 0) {
+                return 0;
+            }
+            final long target = Math.max(1, (long) Math.ceil(percentile / 100 * mTotalCount));
+            long count = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                count += mCounts[i];
+                if (count >= target) {
+                    return Math.min(highestEquivalentValue(i) * NANOS_PER_UNIT
+                            + NANOS_PER_UNIT - 1, mMaxValue);
+                }
+            }
+            return mMaxValue;
+        }
+
+        /**
+         * Returns the number of recorded durations which are greater than or equal to the given
+         * threshold, such as the frame deadline, up to the resolution of the histogram's buckets.
+         *
+         * @param thresholdNanos the threshold in nanoseconds.
+         */
+        public long getCountAtOrAbove(long thresholdNanos) {
+            long count = 0;
+            for (int i = bucketIndex(Math.max(0, thresholdNanos) / NANOS_PER_UNIT);
+                    i < BUCKET_COUNT; i++) {
+                count += mCounts[i];
+            }
+            return count;
+        }
+
+        static int bucketIndex(long value) {
+            if (value < 2 * SUB_BUCKET_COUNT) {
+                return (int) value;
+            }
+            if (value >= 1L << MAGNITUDES) {
+                return BUCKET_COUNT - 1;
+            }
+            final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+        }
+
+        static long highestEquivalentValue(int index) {
+            if (index < 2 * SUB_BUCKET_COUNT) {
+                return index;
+            }
+            final int shift = index / SUB_BUCKET_COUNT - 1;
+            final long lowest = (long) (index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << shift;
+            return lowest + (1L << shift) - 1;
+        }
+    }
+}
@@ -21,6 +21,7 @@ import static androidx.annotation.RestrictTo.Scope.LIBRARY_GROUP_PREFIX;
 import android.annotation.SuppressLint;
 import android.os.Build;
 import android.text.Layout;
+import android.text.NoCopySpan;
 import android.text.PrecomputedText;
 import android.text.Spannable;
 import android.text.SpannableString;
@@ -523,6 +524,24 @@ public class PrecomputedTextCompat implements Spannable {
         return mParams;
     }
 
+    /**
+     * Returns a copy of this text with none of its {@link NoCopySpan}s, such as the watchers a
+     * {@link android.widget.TextView} attaches to the text it displays. A copy of a wrapped
+     * {@link PrecomputedText} is measured again, since {@link PrecomputedText#create} would hand
+     * back the same instance for matching params.
+     */
+    @SuppressLint("NewApi")  // TODO: Remove once Q SDK is released
+    @NonNull PrecomputedTextCompat copy() {
+        final SpannableString text = new SpannableString(mText);
+        for (NoCopySpan span : text.getSpans(0, text.length(), NoCopySpan.class)) {
+            text.removeSpan(span);
+        }
+        if (mParagraphEnds == null) {
+            return create(text, mParams);
+        }
+        return new PrecomputedTextCompat(text, mParams, mParagraphEnds);
+    }
+
     /**
      * Returns the count of paragraphs.
      */
@@ -0,0 +1,430 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.core.text;
+
+import static androidx.annotation.RestrictTo.Scope.LIBRARY_GROUP_PREFIX;
+
+import android.os.Process;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.collection.LruCache;
+import androidx.core.util.ObjectsCompat;
+import androidx.core.util.Preconditions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes {@link PrecomputedTextCompat}s on background threads for lists of text, caching the
+ * results.
+ * <p>
+ * Results are kept in a least recently used cache keyed by the text and its
+ * {@link PrecomputedTextCompat.Params}, so binding the same text with the same params again, for
+ * example when scrolling back, does not measure it again. Texts are compared with
+ * {@link Object#equals(Object)}; most {@link android.text.Spanned} implementations only match
+ * themselves. Concurrent requests for the same text and params share a single computation.
+ * <p>
+ * Work is prioritized: texts requested with {@link #getTextFuture} are needed for an upcoming
+ * measure, so they are computed before texts requested with {@link #prefetch}. Prefetched texts
+ * are computed closest to the {@link #setPrefetchAnchor anchor position} first, typically the
+ * first visible adapter position. For instance, in a RecyclerView Adapter:
+ * <pre>
+ *     void onBindViewHolder(ViewHolder vh, int position) {
+ *         PrecomputedTextCompat.Params params = vh.textView.getTextMetricsParamsCompat();
+ *         vh.textView.setTextFuture(mService.getTextFuture(getData(position).text, params));
+ *
+ *         // Warm up the next rows
+ *         mService.setPrefetchAnchor(position);
+ *         for (int i = position + 1; i < position + PREFETCH_COUNT; i++) {
+ *             mService.prefetch(getData(i).text, params, i);
+ *         }
+ *     }
+ * </pre>
+ * If {@link androidx.appcompat.widget.AppCompatTextView} needs a text from this service which
+ * has not started computing yet, it computes it on the calling thread rather than waiting for a
+ * background thread to pick it up.
+ * <p>
+ * Every caller gets its own copy of a result, which shares the precomputed measurements with the
+ * cached one. A {@link android.widget.TextView} attaches watcher spans to the text it displays,
+ * so handing the cached result itself to several views would keep all of them reachable from the
+ * cache. This class is thread-safe.
+ */
+public final class PrecomputedTextService {
+    private static final int KEEP_ALIVE_MILLIS = 10000;
+
+    private final Executor mExecutor;
+    private final Object mLock = new Object();
+    @GuardedBy("mLock") private final LruCache<Key, PrecomputedTextCompat> mCache;
+    // Tasks which are queued or running, by key
+    @GuardedBy("mLock") private final Map<Key, Task> mTasks = new HashMap<>();
+    // Tasks which have not started yet
+    @GuardedBy("mLock") private final ArrayList<Task> mQueue = new ArrayList<>();
+    @GuardedBy("mLock") private int mAnchor;
+    @GuardedBy("mLock") private long mNextSequence;
+
+    private final Runnable mRunNextTask = new Runnable() {
+        @Override
+        public void run() {
+            final Task task;
+            synchronized (mLock) {
+                task = pollTask();
+            }
+            // Null if the task it was scheduled for was cancelled or run on another thread
+            if (task != null) {
+                task.run();
+            }
+        }
+    };
+
+    /**
+     * Creates a service with its own pool of background threads. Idle threads are stopped after
+     * a few seconds.
+     *
+     * @param threadCount the maximum number of texts to compute in parallel.
+     * @param maxCacheSize the maximum number of precomputed texts to keep in the cache.
+     */
+    public PrecomputedTextService(@IntRange(from = 1) int threadCount,
+            @IntRange(from = 1) int maxCacheSize) {
+        this(createThreadPool(threadCount), maxCacheSize);
+    }
+
+    /**
+     * Creates a service which computes texts on the given executor.
+     *
+     * @param executor the executor to compute texts on.
+     * @param maxCacheSize the maximum number of precomputed texts to keep in the cache.
+     */
+    public PrecomputedTextService(@NonNull Executor executor,
+            @IntRange(from = 1) int maxCacheSize) {
+        mExecutor = Preconditions.checkNotNull(executor);
+        mCache = new LruCache<>(maxCacheSize);
+    }
+
+    /**
+     * Returns a future of the precomputed text, to be passed to
+     * {@link androidx.appcompat.widget.AppCompatTextView#setTextFuture}. The future is already
+     * done if the text is in the cache. Otherwise the text is computed before any prefetched text.
+     *
+     * @param text the text to be displayed
+     * @param params the parameters to be used for displaying text
+     * @see PrecomputedTextCompat#getTextFuture
+     */
+    @NonNull
+    public Future<PrecomputedTextCompat> getTextFuture(@NonNull CharSequence text,
+            @NonNull PrecomputedTextCompat.Params params) {
+        final Key key = new Key(text, params);
+        Task task;
+        synchronized (mLock) {
+            final PrecomputedTextCompat cached = mCache.get(key);
+            if (cached != null) {
+                return new Task(this, key, cached);
+            }
+            task = mTasks.get(key);
+            if (task != null) {
+                task.mUrgent = true;
+                return task;
+            }
+            task = enqueue(key, 0);
+            task.mUrgent = true;
+        }
+        mExecutor.execute(mRunNextTask);
+        return task;
+    }
+
+    /**
+     * Computes the text in the background if it isn't cached or being computed already, so that
+     * a later call to {@link #getTextFuture} for it can return immediately.
+     *
+     * @param text the text to be displayed
+     * @param params the parameters to be used for displaying text
+     * @param position the adapter position the text will be displayed at. Prefetched texts are
+     *                 computed in order of their distance to the anchor position.
+     */
+    public void prefetch(@NonNull CharSequence text, @NonNull PrecomputedTextCompat.Params params,
+            int position) {
+        final Key key = new Key(text, params);
+        synchronized (mLock) {
+            if (mCache.get(key) != null) {
+                return;
+            }
+            final Task task = mTasks.get(key);
+            if (task != null) {
+                task.mPosition = position;
+                return;
+            }
+            enqueue(key, position);
+        }
+        mExecutor.execute(mRunNextTask);
+    }
+
+    /**
+     * Sets the adapter position around which prefetched texts are computed first, typically the
+     * position currently being bound or the first visible position.
+     */
+    public void setPrefetchAnchor(int position) {
+        synchronized (mLock) {
+            mAnchor = position;
+        }
+    }
+
+    /**
+     * Cancels all prefetches which have not started yet, for example when the data set changes.
+     * Texts requested with {@link #getTextFuture} are still computed.
+     */
+    public void cancelPrefetches() {
+        synchronized (mLock) {
+            for (int i = mQueue.size() - 1; i >= 0; i--) {
+                final Task task = mQueue.get(i);
+                if (!task.mUrgent) {
+                    mQueue.remove(i);
+                    mTasks.remove(task.mKey);
+                    task.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the cached precomputed text for the given text and params, or null.
+     */
+    @Nullable
+    public PrecomputedTextCompat getCached(@NonNull CharSequence text,
+            @NonNull PrecomputedTextCompat.Params params) {
+        final PrecomputedTextCompat cached;
+        synchronized (mLock) {
+            cached = mCache.get(new Key(text, params));
+        }
+        return cached != null ? cached.copy() : null;
+    }
+
+    /**
+     * Clears the cache of precomputed texts.
+     */
+    public void evictAll() {
+        synchronized (mLock) {
+            mCache.evictAll();
+        }
+    }
+
+    /**
+     * Computes the text of a future returned by {@link #getTextFuture} on the calling thread if
+     * it has not started yet, then waits for it.
+     *
+     * @return the precomputed text, or null if {@code future} did not come from this class or
+     * its computation failed or was cancelled.
+     * @hide
+     */
+    @RestrictTo(LIBRARY_GROUP_PREFIX)
+    @Nullable
+    public static PrecomputedTextCompat getNow(@NonNull Future<PrecomputedTextCompat> future)
+            throws InterruptedException {
+        if (!(future instanceof Task)) {
+            return null;
+        }
+        final Task task = (Task) future;
+        synchronized (task.mService.mLock) {
+            task.mService.mQueue.remove(task);
+        }
+        // Does nothing if the task already started on another thread
+        task.run();
+        try {
+            return task.get();
+        } catch (ExecutionException | CancellationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Queues a new task. The caller must then schedule {@link #mRunNextTask} once, outside of the
+     * lock since the executor may run it inline.
+     */
+    @GuardedBy("mLock")
+    private Task enqueue(Key key, int position) {
+        final Task task = new Task(this, key, mNextSequence++);
+        task.mPosition = position;
+        mTasks.put(key, task);
+        mQueue.add(task);
+        return task;
+    }
+
+    /**
+     * Removes and returns the queued task with the highest priority, or null if there is none.
+     * The queue is short and priorities change as the anchor moves, so it is simply scanned.
+     */
+    @GuardedBy("mLock")
+    @Nullable
+    Task pollTask() {
+        int best = -1;
+        for (int i = 0; i < mQueue.size(); i++) {
+            if (best < 0 || hasPriority(mQueue.get(i), mQueue.get(best))) {
+                best = i;
+            }
+        }
+        return best < 0 ? null : mQueue.remove(best);
+    }
+
+    @GuardedBy("mLock")
+    private boolean hasPriority(Task task, Task other) {
+        if (task.mUrgent != other.mUrgent) {
+            return task.mUrgent;
+        }
+        if (!task.mUrgent) {
+            final long distance = Math.abs((long) task.mPosition - mAnchor);
+            final long otherDistance = Math.abs((long) other.mPosition - mAnchor);
+            if (distance != otherDistance) {
+                return distance < otherDistance;
+            }
+        }
+        return task.mSequence < other.mSequence;
+    }
+
+    void onTaskDone(Task task, @Nullable PrecomputedTextCompat result) {
+        synchronized (mLock) {
+            if (mTasks.get(task.mKey) == task) {
+                mTasks.remove(task.mKey);
+            }
+            if (result != null) {
+                mCache.put(task.mKey, result);
+            }
+        }
+    }
+
+    private static Executor createThreadPool(int threadCount) {
+        Preconditions.checkArgument(threadCount > 0, "threadCount must be positive");
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+                KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger mCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(@NonNull final Runnable runnable) {
+                        return new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                                runnable.run();
+                            }
+                        }, "PrecomputedTextService-" + mCount.incrementAndGet());
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static final class Key {
+        final CharSequence mText;
+        final PrecomputedTextCompat.Params mParams;
+
+        Key(@NonNull CharSequence text, @NonNull PrecomputedTextCompat.Params params) {
+            mText = Preconditions.checkNotNull(text);
+            mParams = Preconditions.checkNotNull(params);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return mText.equals(other.mText) && mParams.equals(other.mParams);
+        }
+
+        @Override
+        public int hashCode() {
+            return ObjectsCompat.hash(mText, mParams);
+        }
+    }
+
+    static final class Task extends FutureTask<PrecomputedTextCompat> {
+        final PrecomputedTextService mService;
+        final Key mKey;
+        final long mSequence;
+        // Guarded by the service's lock
+        boolean mUrgent;
+        int mPosition;
+
+        Task(PrecomputedTextService service, final Key key, long sequence) {
+            super(new Callable<PrecomputedTextCompat>() {
+                @Override
+                public PrecomputedTextCompat call() {
+                    return PrecomputedTextCompat.create(key.mText, key.mParams);
+                }
+            });
+            mService = service;
+            mKey = key;
+            mSequence = sequence;
+        }
+
+        /**
+         * Creates an already completed task for a cached result.
+         */
+        Task(PrecomputedTextService service, Key key, PrecomputedTextCompat result) {
+            this(service, key, -1);
+            set(result);
+        }
+
+        /**
+         * @return a copy of the result, so that it is never shared between callers
+         */
+        @Override
+        public PrecomputedTextCompat get() throws InterruptedException, ExecutionException {
+            return super.get().copy();
+        }
+
+        /**
+         * @return a copy of the result, so that it is never shared between callers
+         */
+        @Override
+        public PrecomputedTextCompat get(long timeout, @NonNull TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            return super.get(timeout, unit).copy();
+        }
+
+        @Override
+        protected void done() {
+            PrecomputedTextCompat result = null;
+            if (!isCancelled()) {
+                try {
+                    result = super.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    // Not cached, the error is reported to callers of get()
+                }
+            }
+            mService.onTaskDone(this, result);
+        }
+    }
+}
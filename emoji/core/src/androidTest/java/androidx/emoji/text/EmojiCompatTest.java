@@ -19,6 +19,7 @@ import static androidx.emoji.util.Emoji.CHAR_DEFAULT_EMOJI_STYLE;
 import static androidx.emoji.util.Emoji.CHAR_DEFAULT_TEXT_STYLE;
 import static androidx.emoji.util.Emoji.CHAR_DIGIT;
 import static androidx.emoji.util.Emoji.CHAR_FITZPATRICK;
+import static androidx.emoji.util.Emoji.CHAR_MAN;
 import static androidx.emoji.util.Emoji.CHAR_VS_EMOJI;
 import static androidx.emoji.util.Emoji.CHAR_VS_TEXT;
 import static androidx.emoji.util.Emoji.DEFAULT_TEXT_STYLE;
@@ -399,13 +400,65 @@ public class EmojiCompatTest {
 
         processed = (Spannable) EmojiCompat.get().process(processed);
         assertThat(processed, hasEmojiCount(3));
-        // new spans should be new instances
+        // unchanged emojis should keep their spans
         final EmojiSpan[] newSpans = processed.getSpans(0, processed.length(), EmojiSpan.class);
         for (int i = 0; i < newSpans.length; i++) {
-            assertFalse(spanSet.contains(newSpans[i]));
+            assertTrue(spanSet.contains(newSpans[i]));
         }
     }
 
+    @Test
+    @SdkSuppress(minSdkVersion = 19)
+    public void testProcess_reprocess_keepsSpansAddedOutOfOrder() {
+        final Editable editable = new SpannableStringBuilder(new TestString(EMOJI_SINGLE_CODEPOINT)
+                .append(EMOJI_SINGLE_CODEPOINT)
+                .append(EMOJI_SINGLE_CODEPOINT)
+                .withPrefix().withSuffix().toString());
+        EmojiCompat.get().process(editable);
+
+        // Re-add the span of the first emoji, so that it comes after the others in getSpans().
+        EmojiSpan first = null;
+        for (EmojiSpan span : editable.getSpans(0, editable.length(), EmojiSpan.class)) {
+            if (first == null || editable.getSpanStart(span) < editable.getSpanStart(first)) {
+                first = span;
+            }
+        }
+        final int start = editable.getSpanStart(first);
+        final int end = editable.getSpanEnd(first);
+        editable.removeSpan(first);
+        EmojiCompat.get().process(editable, start, end);
+
+        final EmojiSpan[] spans = editable.getSpans(0, editable.length(), EmojiSpan.class);
+        final Set<EmojiSpan> spanSet = new HashSet<>();
+        Collections.addAll(spanSet, spans);
+
+        EmojiCompat.get().process(editable);
+        assertThat(editable, hasEmojiCount(3));
+        for (EmojiSpan span : editable.getSpans(0, editable.length(), EmojiSpan.class)) {
+            assertTrue(spanSet.contains(span));
+        }
+    }
+
+    @Test
+    @SdkSuppress(minSdkVersion = 19)
+    public void testProcess_reprocess_replacesChangedEmoji() {
+        final Editable editable = new SpannableStringBuilder(new TestString(CHAR_MAN)
+                .withPrefix().withSuffix().toString());
+        EmojiCompat.get().process(editable);
+        final EmojiSpan[] spans = editable.getSpans(0, editable.length(), EmojiSpan.class);
+        assertEquals(1, spans.length);
+        final int start = editable.getSpanStart(spans[0]);
+        final int end = editable.getSpanEnd(spans[0]);
+
+        editable.insert(end, new String(Character.toChars(CHAR_FITZPATRICK)));
+        EmojiCompat.get().process(editable, start, end + Character.charCount(CHAR_FITZPATRICK));
+
+        assertThat(editable, hasEmojiCount(1));
+        assertThat(editable, hasEmojiAt(EMOJI_SKIN_MODIFIER, start,
+                end + Character.charCount(CHAR_FITZPATRICK)));
+        assertEquals(-1, editable.getSpanStart(spans[0]));
+    }
+
     @SuppressLint("Range")
     @Test(expected = IllegalArgumentException.class)
     public void testProcess_throwsException_withMaxEmojiSetToNegative() {
@@ -16,8 +16,15 @@
 package androidx.emoji.text;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.SdkSuppress;
 import androidx.test.filters.SmallTest;
@@ -26,6 +33,9 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.File;
+import java.io.IOException;
+
 @SmallTest
 @RunWith(AndroidJUnit4.class)
 @SdkSuppress(minSdkVersion = 19)
@@ -92,16 +102,66 @@ public class MetadataRepoTest {
         assertEquals(null, getNode(new int[]{1, 2, 3, 4, 5}));
     }
 
-    final EmojiMetadata getNode(final int[] codepoints) {
-        return getNode(mMetadataRepo.getRootNode(), codepoints, 0);
+    @Test
+    public void testPut_overridesSameCodePoints() {
+        final int[] codePoint = new int[]{1, 2};
+        final EmojiMetadata metadata1 = new TestEmojiMetadata(codePoint);
+        final EmojiMetadata metadata2 = new TestEmojiMetadata(codePoint);
+
+        mMetadataRepo.put(metadata1);
+        mMetadataRepo.put(metadata2);
+
+        assertSame(metadata2, getNode(codePoint));
     }
 
-    final EmojiMetadata getNode(MetadataRepo.Node node, final int[] codepoints, int start) {
-        if (codepoints.length < start) return null;
-        if (codepoints.length == start) return node.getData();
+    @Test
+    public void testTrie_siblingsAndStartCodePoints() {
+        final int[][] codePoints = new int[][]{
+                {0x1F600}, {0x2764, 0xFE0F}, {0x1F468, 0x200D, 0x1F469}, {0x1F468}, {0x23}};
+        for (int[] codePoint : codePoints) {
+            mMetadataRepo.put(new TestEmojiMetadata(codePoint));
+        }
+
+        for (int[] codePoint : codePoints) {
+            assertNotNull(getNode(codePoint));
+        }
+        assertNull(getNode(new int[]{0x1F468, 0x200D}));
+        assertNull(getNode(new int[]{0x2764}));
+
+        final MetadataTrie trie = mMetadataRepo.getTrie();
+        assertTrue(trie.canStartEmoji(0x1F600));
+        assertTrue(trie.canStartEmoji(0x2764));
+        assertTrue(trie.canStartEmoji(0x23));
+        assertFalse(trie.canStartEmoji('a'));
+        assertFalse(trie.canStartEmoji(0x200D));
+        assertFalse(trie.canStartEmoji(0x1F601));
+        // root + 5 emoji + 2 intermediate nodes
+        assertEquals(8, trie.getNodeCount());
+    }
 
-        final MetadataRepo.Node childNode = node.get(codepoints[start]);
-        if (childNode == null) return null;
-        return getNode(childNode, codepoints, start + 1);
+    @Test
+    public void testCreate_fromFileMatchesAsset() throws IOException {
+        final Context context = ApplicationProvider.getApplicationContext();
+        final File file = FontRequestEmojiCompatConfigTest.loadFont(context,
+                "NotoColorEmojiCompat.ttf");
+        final MetadataRepo fromFile = MetadataRepo.create(file);
+        final MetadataRepo fromAsset = MetadataRepo.create(context.getAssets(),
+                "NotoColorEmojiCompat.ttf");
+
+        assertNotNull(fromFile.getTypeface());
+        assertEquals(fromAsset.getMetadataVersion(), fromFile.getMetadataVersion());
+        assertEquals(fromAsset.getMetadataList().listLength(),
+                fromFile.getMetadataList().listLength());
+        assertEquals(fromAsset.getTrie().getNodeCount(), fromFile.getTrie().getNodeCount());
+    }
+
+    final EmojiMetadata getNode(final int[] codepoints) {
+        final MetadataTrie trie = mMetadataRepo.getTrie();
+        int node = MetadataTrie.ROOT;
+        for (int codepoint : codepoints) {
+            node = trie.getChild(node, codepoint);
+            if (node == MetadataTrie.NO_NODE) return null;
+        }
+        return trie.getData(node);
     }
 }
@@ -66,6 +66,18 @@ public class EmojiTextWatcherTest {
         verify(mEmojiCompat, times(0)).registerInitCallback(any(EmojiCompat.InitCallback.class));
     }
 
+    @Test
+    public void testOnTextChanged_withModifier_processesPrecedingCodepoint() {
+        // thumbs up followed by a skin tone modifier which was just inserted
+        final Spannable testString = new SpannableString("a\uD83D\uDC4D\uD83C\uDFFD");
+        when(mEmojiCompat.getLoadState()).thenReturn(EmojiCompat.LOAD_STATE_SUCCEEDED);
+
+        mTextWatcher.onTextChanged(testString, 3, 0, 2);
+
+        verify(mEmojiCompat, times(1)).process(sameCharSequence(testString), eq(1), eq(5),
+                eq(Integer.MAX_VALUE), anyInt());
+    }
+
     @Test
     public void testOnTextChanged_whenEmojiCompatLoading() {
         final Spannable testString = new SpannableString("abc");
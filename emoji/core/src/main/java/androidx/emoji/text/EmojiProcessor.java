@@ -115,7 +115,7 @@ final class EmojiProcessor {
     }
 
     EmojiMetadata getEmojiMetadata(@NonNull final CharSequence charSequence) {
-        final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getRootNode(),
+        final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getTrie(),
                 mUseEmojiAsDefaultStyle, mEmojiAsDefaultStyleExceptions);
         final int end = charSequence.length();
         int currentOffset = 0;
@@ -183,41 +183,57 @@ final class EmojiProcessor {
                 }
             }
 
+            // Existing spans in the range which are replaced by this call. They are not removed
+            // right away: a span whose emoji is found again at the same indices is kept as is,
+            // which saves allocating a new span and notifying span watchers twice. The ones that
+            // are not found again are removed once the range is processed.
+            ReplacedSpans replacedSpans = null;
+            int replacedCount = 0;
             if (spannable != null) {
                 final EmojiSpan[] spans = spannable.getSpans(start, end, EmojiSpan.class);
                 if (spans != null && spans.length > 0) {
-                    // remove existing spans, and realign the start, end according to spans
+                    // realign the start, end according to spans
                     // if start or end is in the middle of an emoji they should be aligned
                     final int length = spans.length;
                     for (int index = 0; index < length; index++) {
                         final EmojiSpan span = spans[index];
                         final int spanStart = spannable.getSpanStart(span);
                         final int spanEnd = spannable.getSpanEnd(span);
-                        // Remove span only when its spanStart is NOT equal to current end.
+                        // Replace span only when its spanStart is NOT equal to current end.
                         // During add operation an emoji at index 0 is added with 0-1 as start and
                         // end indices. Therefore if there are emoji spans at [0-1] and [1-2]
-                        // and end is 1, the span between 0-1 should be deleted, not 1-2.
+                        // and end is 1, the span between 0-1 should be replaced, not 1-2.
                         if (spanStart != end) {
-                            spannable.removeSpan(span);
+                            replacedCount++;
+                        } else {
+                            spans[index] = null;
                         }
                         start = Math.min(spanStart, start);
                         end = Math.max(spanEnd, end);
                     }
+                    if (replacedCount > 0) {
+                        replacedSpans = new ReplacedSpans(spannable, spans, replacedCount);
+                    }
                 }
             }
 
             if (start == end || start >= charSequence.length()) {
+                if (replacedSpans != null) {
+                    replacedSpans.remove(spannable);
+                }
                 return charSequence;
             }
 
             // calculate max number of emojis that can be added. since getSpans call is a relatively
             // expensive operation, do it only when maxEmojiCount is not unlimited.
             if (maxEmojiCount != EmojiCompat.EMOJI_COUNT_UNLIMITED && spannable != null) {
-                maxEmojiCount -= spannable.getSpans(0, spannable.length(), EmojiSpan.class).length;
+                maxEmojiCount -= spannable.getSpans(0, spannable.length(), EmojiSpan.class).length
+                        - replacedCount;
             }
             // add new ones
             int addedCount = 0;
-            final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getRootNode(),
+            final MetadataTrie trie = mMetadataRepo.getTrie();
+            final ProcessorSm sm = new ProcessorSm(trie,
                     mUseEmojiAsDefaultStyle, mEmojiAsDefaultStyleExceptions);
 
             int currentOffset = start;
@@ -232,6 +248,17 @@ final class EmojiProcessor {
                         currentOffset = start;
                         if (currentOffset < end) {
                             codePoint = Character.codePointAt(charSequence, currentOffset);
+                            // The state machine is back at the root, skip over the run of
+                            // codepoints that cannot start an emoji without walking it through
+                            // them one by one.
+                            while (!trie.canStartEmoji(codePoint)) {
+                                currentOffset += Character.charCount(codePoint);
+                                if (currentOffset >= end) {
+                                    break;
+                                }
+                                codePoint = Character.codePointAt(charSequence, currentOffset);
+                            }
+                            start = currentOffset;
                         }
                         break;
                     case ACTION_ADVANCE_END:
@@ -246,7 +273,8 @@ final class EmojiProcessor {
                             if (spannable == null) {
                                 spannable = new SpannableString(charSequence);
                             }
-                            addEmoji(spannable, sm.getFlushMetadata(), start, currentOffset);
+                            addEmoji(spannable, replacedSpans, sm.getFlushMetadata(), start,
+                                    currentOffset);
                             addedCount++;
                         }
                         start = currentOffset;
@@ -264,10 +292,14 @@ final class EmojiProcessor {
                     if (spannable == null) {
                         spannable = new SpannableString(charSequence);
                     }
-                    addEmoji(spannable, sm.getCurrentMetadata(), start, currentOffset);
+                    addEmoji(spannable, replacedSpans, sm.getCurrentMetadata(), start,
+                            currentOffset);
                     addedCount++;
                 }
             }
+            if (replacedSpans != null) {
+                replacedSpans.remove(spannable);
+            }
             return spannable == null ? charSequence : spannable;
         } finally {
             if (isSpannableBuilder) {
@@ -432,8 +464,16 @@ final class EmojiProcessor {
         return !KeyEvent.metaStateHasNoModifiers(event.getMetaState());
     }
 
-    private void addEmoji(@NonNull final Spannable spannable, final EmojiMetadata metadata,
+    /**
+     * Adds an EmojiSpan for the emoji between {@code start} and {@code end}. If one of
+     * {@code replacedSpans} already covers exactly the same emoji, it is kept instead.
+     */
+    private void addEmoji(@NonNull final Spannable spannable,
+            @Nullable final ReplacedSpans replacedSpans, final EmojiMetadata metadata,
             final int start, final int end) {
+        if (replacedSpans != null && replacedSpans.keep(metadata, start, end)) {
+            return;
+        }
         final EmojiSpan span = mSpanFactory.createSpan(metadata);
         spannable.setSpan(span, start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
     }
@@ -487,20 +527,20 @@ final class EmojiProcessor {
         private int mState = STATE_DEFAULT;
 
         /**
-         * Root of the trie
+         * The trie being walked.
          */
-        private final MetadataRepo.Node mRootNode;
+        private final MetadataTrie mTrie;
 
         /**
          * Pointer to the node after last codepoint.
          */
-        private MetadataRepo.Node mCurrentNode;
+        private int mCurrentNode = MetadataTrie.ROOT;
 
         /**
          * The node where ACTION_FLUSH is called. Required since after flush action is
          * returned mCurrentNode is reset to be the root.
          */
-        private MetadataRepo.Node mFlushNode;
+        private int mFlushNode = MetadataTrie.NO_NODE;
 
         /**
          * The code point that was checked.
@@ -522,10 +562,9 @@ final class EmojiProcessor {
          */
         private final int[] mEmojiAsDefaultStyleExceptions;
 
-        ProcessorSm(MetadataRepo.Node rootNode, boolean useEmojiAsDefaultStyle,
+        ProcessorSm(MetadataTrie trie, boolean useEmojiAsDefaultStyle,
                 int[] emojiAsDefaultStyleExceptions) {
-            mRootNode = rootNode;
-            mCurrentNode = rootNode;
+            mTrie = trie;
             mUseEmojiAsDefaultStyle = useEmojiAsDefaultStyle;
             mEmojiAsDefaultStyleExceptions = emojiAsDefaultStyleExceptions;
         }
@@ -533,10 +572,10 @@ final class EmojiProcessor {
         @Action
         int check(final int codePoint) {
             final int action;
-            MetadataRepo.Node node = mCurrentNode.get(codePoint);
+            final int node = mTrie.getChild(mCurrentNode, codePoint);
             switch (mState) {
                 case STATE_WALKING:
-                    if (node != null) {
+                    if (node != MetadataTrie.NO_NODE) {
                         mCurrentNode = node;
                         mCurrentDepth += 1;
                         action = ACTION_ADVANCE_END;
@@ -545,7 +584,7 @@ final class EmojiProcessor {
                             action = reset();
                         } else if (isEmojiStyle(codePoint)) {
                             action = ACTION_ADVANCE_END;
-                        } else if (mCurrentNode.getData() != null) {
+                        } else if (mTrie.getData(mCurrentNode) != null) {
                             if (mCurrentDepth == 1) {
                                 if (shouldUseEmojiPresentationStyleForSingleCodepoint()) {
                                     mFlushNode = mCurrentNode;
@@ -566,7 +605,7 @@ final class EmojiProcessor {
                     break;
                 case STATE_DEFAULT:
                 default:
-                    if (node == null) {
+                    if (node == MetadataTrie.NO_NODE) {
                         action = reset();
                     } else {
                         mState = STATE_WALKING;
@@ -584,7 +623,7 @@ final class EmojiProcessor {
         @Action
         private int reset() {
             mState = STATE_DEFAULT;
-            mCurrentNode = mRootNode;
+            mCurrentNode = MetadataTrie.ROOT;
             mCurrentDepth = 0;
             return ACTION_ADVANCE_BOTH;
         }
@@ -593,14 +632,14 @@ final class EmojiProcessor {
          * @return the metadata node when ACTION_FLUSH is returned
          */
         EmojiMetadata getFlushMetadata() {
-            return mFlushNode.getData();
+            return mTrie.getData(mFlushNode);
         }
 
         /**
          * @return current pointer to the metadata node in the trie
          */
         EmojiMetadata getCurrentMetadata() {
-            return mCurrentNode.getData();
+            return mTrie.getData(mCurrentNode);
         }
 
         /**
@@ -611,12 +650,13 @@ final class EmojiProcessor {
          * @return whether the current state requires an emoji to be added
          */
         boolean isInFlushableState() {
-            return mState == STATE_WALKING && mCurrentNode.getData() != null
+            return mState == STATE_WALKING && mTrie.getData(mCurrentNode) != null
                     && (mCurrentDepth > 1 || shouldUseEmojiPresentationStyleForSingleCodepoint());
         }
 
         private boolean shouldUseEmojiPresentationStyleForSingleCodepoint() {
-            if (mCurrentNode.getData().isDefaultEmoji()) {
+            final EmojiMetadata data = mTrie.getData(mCurrentNode);
+            if (data.isDefaultEmoji()) {
                 // The codepoint is emoji style by default.
                 return true;
             }
@@ -630,7 +670,7 @@ final class EmojiProcessor {
                 if (mEmojiAsDefaultStyleExceptions == null) {
                     return true;
                 }
-                final int codepoint = mCurrentNode.getData().getCodepointAt(0);
+                final int codepoint = data.getCodepointAt(0);
                 final int index = Arrays.binarySearch(mEmojiAsDefaultStyleExceptions, codepoint);
                 if (index < 0) {
                     // Index is negative, so the codepoint was not found in the array of exceptions.
@@ -659,6 +699,78 @@ final class EmojiProcessor {
         }
     }
 
+    /**
+     * The existing spans replaced by a {@link #process} call, sorted by start. Emojis are found
+     * from left to right, so each one is matched against these spans by moving a cursor forward
+     * rather than by scanning all of them.
+     */
+    private static final class ReplacedSpans {
+        private final EmojiSpan[] mSpans;
+        private final int[] mStarts;
+        private final int[] mEnds;
+        private int mCursor;
+
+        /**
+         * @param spans the spans to replace, where {@code null} entries are skipped
+         * @param count the number of non-null entries in {@code spans}
+         */
+        ReplacedSpans(@NonNull final Spanned spanned, @NonNull final EmojiSpan[] spans,
+                final int count) {
+            // Sorts the span indices by start without boxing them, the start goes in the high
+            // bits and the index in the low bits.
+            final long[] keys = new long[count];
+            int keyCount = 0;
+            for (int index = 0; index < spans.length; index++) {
+                if (spans[index] != null) {
+                    keys[keyCount++] = ((long) spanned.getSpanStart(spans[index]) << 32) | index;
+                }
+            }
+            Arrays.sort(keys);
+
+            mSpans = new EmojiSpan[count];
+            mStarts = new int[count];
+            mEnds = new int[count];
+            for (int i = 0; i < count; i++) {
+                final EmojiSpan span = spans[(int) keys[i]];
+                mSpans[i] = span;
+                mStarts[i] = (int) (keys[i] >>> 32);
+                mEnds[i] = spanned.getSpanEnd(span);
+            }
+        }
+
+        /**
+         * Keeps the span which covers exactly the emoji between {@code start} and {@code end},
+         * if there is one. Must be called with increasing {@code start}.
+         *
+         * @return {@code true} if such a span was found, which is then no longer removed by
+         *         {@link #remove(Spannable)}
+         */
+        boolean keep(@NonNull final EmojiMetadata metadata, final int start, final int end) {
+            while (mCursor < mSpans.length && mStarts[mCursor] < start) {
+                mCursor++;
+            }
+            for (int i = mCursor; i < mSpans.length && mStarts[i] == start; i++) {
+                final EmojiSpan span = mSpans[i];
+                if (span != null && mEnds[i] == end && span.getMetadata() == metadata) {
+                    mSpans[i] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Removes the spans which were not kept.
+         */
+        void remove(@NonNull final Spannable spannable) {
+            for (int i = 0; i < mSpans.length; i++) {
+                if (mSpans[i] != null) {
+                    spannable.removeSpan(mSpans[i]);
+                }
+            }
+        }
+    }
+
     /**
      * Copy of BaseInputConnection findIndexBackward and findIndexForward functions.
      */
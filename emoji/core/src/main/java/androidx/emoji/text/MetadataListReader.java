@@ -17,18 +17,25 @@ package androidx.emoji.text;
 
 import static androidx.annotation.RestrictTo.Scope.LIBRARY_GROUP_PREFIX;
 
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 
 import androidx.annotation.AnyThread;
 import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.annotation.RestrictTo;
 import androidx.text.emoji.flatbuffer.MetadataList;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
 /**
  * Reads the emoji metadata from a given InputStream or ByteBuffer.
@@ -104,11 +111,52 @@ class MetadataListReader {
      */
     static MetadataList read(AssetManager assetManager, String assetPath)
             throws IOException {
+        final ByteBuffer mappedBuffer = mmap(assetManager, assetPath);
+        if (mappedBuffer != null) {
+            return read(mappedBuffer);
+        }
         try (InputStream inputStream = assetManager.open(assetPath)) {
             return read(inputStream);
         }
     }
 
+    /**
+     * Construct MetadataList from a font file. The file is memory mapped, the metadata is not
+     * copied into the Java heap.
+     *
+     * @param file font file that the metadata will be read from
+     */
+    static MetadataList read(@NonNull File file) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            final FileChannel channel = inputStream.getChannel();
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Memory maps an asset. Only assets which are stored uncompressed in the APK can be mapped.
+     *
+     * @return the mapped asset, or {@code null} if the asset is compressed
+     */
+    @Nullable
+    private static ByteBuffer mmap(AssetManager assetManager, String assetPath)
+            throws IOException {
+        final AssetFileDescriptor fd;
+        try {
+            fd = assetManager.openFd(assetPath);
+        } catch (FileNotFoundException e) {
+            // openFd fails for compressed assets, the caller falls back to reading a stream
+            return null;
+        }
+        try (FileInputStream inputStream = fd.createInputStream()) {
+            // The mapping stays valid after the channel is closed
+            return inputStream.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    fd.getStartOffset(), fd.getDeclaredLength());
+        } finally {
+            fd.close();
+        }
+    }
+
     /**
      * Finds the start offset and length of the emoji metadata in the font.
      *
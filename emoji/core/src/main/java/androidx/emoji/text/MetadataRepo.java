@@ -19,7 +19,6 @@ import static androidx.annotation.RestrictTo.Scope.LIBRARY_GROUP_PREFIX;
 
 import android.content.res.AssetManager;
 import android.graphics.Typeface;
-import android.util.SparseArray;
 
 import androidx.annotation.AnyThread;
 import androidx.annotation.NonNull;
@@ -29,9 +28,11 @@ import androidx.annotation.VisibleForTesting;
 import androidx.core.util.Preconditions;
 import androidx.text.emoji.flatbuffer.MetadataList;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * Class to hold the emoji metadata required to process and draw emojis.
@@ -39,11 +40,6 @@ import java.nio.ByteBuffer;
 @AnyThread
 @RequiresApi(19)
 public final class MetadataRepo {
-    /**
-     * The default children size of the root node.
-     */
-    private static final int DEFAULT_ROOT_SIZE = 1024;
-
     /**
      * MetadataList that contains the emoji metadata.
      */
@@ -56,9 +52,14 @@ public final class MetadataRepo {
     private final char[] mEmojiCharArray;
 
     /**
-     * Empty root node of the trie.
+     * All EmojiMetadata's, in the order of the MetadataList.
      */
-    private final Node mRootNode;
+    private EmojiMetadata[] mMetadata;
+
+    /**
+     * Trie mapping codepoint sequences to EmojiMetadata's.
+     */
+    private MetadataTrie mTrie;
 
     /**
      * Typeface to be used to render emojis.
@@ -74,8 +75,9 @@ public final class MetadataRepo {
     MetadataRepo() {
         mTypeface = null;
         mMetadataList = null;
-        mRootNode = new Node(DEFAULT_ROOT_SIZE);
         mEmojiCharArray = new char[0];
+        mMetadata = new EmojiMetadata[0];
+        mTrie = MetadataTrie.create(mMetadata);
     }
 
     /**
@@ -88,7 +90,6 @@ public final class MetadataRepo {
             @NonNull final MetadataList metadataList) {
         mTypeface = typeface;
         mMetadataList = metadataList;
-        mRootNode = new Node(DEFAULT_ROOT_SIZE);
         mEmojiCharArray = new char[mMetadataList.listLength() * 2];
         constructIndex(mMetadataList);
     }
@@ -118,7 +119,9 @@ public final class MetadataRepo {
     }
 
     /**
-     * Construct MetadataRepo from an asset.
+     * Construct MetadataRepo from an asset. If the asset is stored uncompressed in the APK (for
+     * instance by adding {@code noCompress "ttf"} to the app's {@code aaptOptions}), the metadata
+     * is memory mapped instead of being copied into the Java heap.
      *
      * @param assetManager AssetManager instance
      * @param assetPath asset manager path of the file that the Typeface and metadata will be
@@ -130,19 +133,36 @@ public final class MetadataRepo {
         return new MetadataRepo(typeface, MetadataListReader.read(assetManager, assetPath));
     }
 
+    /**
+     * Construct MetadataRepo from a font file. Both the Typeface and the metadata are memory
+     * mapped from the file, neither is copied into the Java heap.
+     *
+     * @param file font file that the Typeface and metadata will be created from
+     */
+    @NonNull
+    public static MetadataRepo create(@NonNull final File file) throws IOException {
+        final Typeface typeface = Typeface.createFromFile(file);
+        return new MetadataRepo(typeface, MetadataListReader.read(file));
+    }
+
     /**
      * Read emoji metadata list and construct the trie.
      */
     private void constructIndex(final MetadataList metadataList) {
         int length = metadataList.listLength();
+        final EmojiMetadata[] metadataArray = new EmojiMetadata[length];
         for (int i = 0; i < length; i++) {
             final EmojiMetadata metadata = new EmojiMetadata(this, i);
             //since all emojis are mapped to a single codepoint in Private Use Area A they are 2
             //chars wide
             //noinspection ResultOfMethodCallIgnored
             Character.toChars(metadata.getId(), mEmojiCharArray, i * 2);
-            put(metadata);
+            Preconditions.checkArgument(metadata.getCodepointsLength() > 0,
+                    "invalid metadata codepoint length");
+            metadataArray[i] = metadata;
         }
+        mMetadata = metadataArray;
+        mTrie = MetadataTrie.create(metadataArray);
     }
 
     /**
@@ -165,8 +185,8 @@ public final class MetadataRepo {
      * @hide
      */
     @RestrictTo(LIBRARY_GROUP_PREFIX)
-    Node getRootNode() {
-        return mRootNode;
+    MetadataTrie getTrie() {
+        return mTrie;
     }
 
     /**
@@ -186,7 +206,7 @@ public final class MetadataRepo {
     }
 
     /**
-     * Add an EmojiMetadata to the index.
+     * Add an EmojiMetadata to the index. Rebuilds the whole trie, therefore only meant for tests.
      *
      * @hide
      */
@@ -197,50 +217,9 @@ public final class MetadataRepo {
         Preconditions.checkArgument(data.getCodepointsLength() > 0,
                 "invalid metadata codepoint length");
 
-        mRootNode.put(data, 0, data.getCodepointsLength() - 1);
-    }
-
-    /**
-     * Trie node that holds mapping from emoji codepoint(s) to EmojiMetadata. A single codepoint
-     * emoji is represented by a child of the root node.
-     *
-     * @hide
-     */
-    @RestrictTo(LIBRARY_GROUP_PREFIX)
-    static class Node {
-        private final SparseArray<Node> mChildren;
-        private EmojiMetadata mData;
-
-        private Node() {
-            this(1);
-        }
-
-        @SuppressWarnings("WeakerAccess") /* synthetic access */
-        Node(final int defaultChildrenSize) {
-            mChildren = new SparseArray<>(defaultChildrenSize);
-        }
-
-        Node get(final int key) {
-            return mChildren == null ? null : mChildren.get(key);
-        }
-
-        final EmojiMetadata getData() {
-            return mData;
-        }
-
-        @SuppressWarnings("WeakerAccess") /* synthetic access */
-        void put(@NonNull final EmojiMetadata data, final int start, final int end) {
-            Node node = get(data.getCodepointAt(start));
-            if (node == null) {
-                node = new Node();
-                mChildren.put(data.getCodepointAt(start), node);
-            }
-
-            if (end > start) {
-                node.put(data, start + 1, end);
-            } else {
-                node.mData = data;
-            }
-        }
+        final EmojiMetadata[] metadata = Arrays.copyOf(mMetadata, mMetadata.length + 1);
+        metadata[mMetadata.length] = data;
+        mMetadata = metadata;
+        mTrie = MetadataTrie.create(metadata);
     }
 }
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.emoji.text;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.util.Arrays;
+
+/**
+ * Immutable trie that maps emoji codepoint sequences to {@link EmojiMetadata}, stored in two flat
+ * int arrays instead of one object per node.
+ * <p>
+ * Nodes are identified by their index, the root being {@link #ROOT}. Each node occupies
+ * {@link #NODE_SIZE} consecutive ints in {@link #mNodes}: the index of its first outgoing
+ * transition, the number of transitions, and the index of its metadata or {@code -1}. Transitions
+ * occupy {@link #TRANSITION_SIZE} consecutive ints in {@link #mTransitions}: the codepoint and
+ * the target node. The transitions of a node are sorted by codepoint so they can be binary
+ * searched.
+ * <p>
+ * The trie is built in a single pass over the codepoint sequences sorted lexicographically, which
+ * makes the children of every node a contiguous range of sequences.
+ */
+@AnyThread
+@RequiresApi(19)
+final class MetadataTrie {
+    /**
+     * Index of the root node.
+     */
+    static final int ROOT = 0;
+
+    /**
+     * Returned by {@link #getChild(int, int)} when there is no transition for the codepoint.
+     */
+    static final int NO_NODE = -1;
+
+    private static final int NODE_SIZE = 3;
+    private static final int NODE_TRANSITION_START = 0;
+    private static final int NODE_TRANSITION_COUNT = 1;
+    private static final int NODE_METADATA = 2;
+
+    private static final int TRANSITION_SIZE = 2;
+    private static final int TRANSITION_CODEPOINT = 0;
+    private static final int TRANSITION_TARGET = 1;
+
+    private static final int BMP_SIZE = 0x10000;
+
+    private final int[] mNodes;
+    private final int[] mTransitions;
+    private final EmojiMetadata[] mMetadata;
+
+    /**
+     * One bit per BMP codepoint, set if the codepoint is the first codepoint of an emoji. Lets
+     * {@link #canStartEmoji(int)} skip over plain text without searching the root transitions.
+     */
+    private final long[] mBmpStarts;
+
+    private MetadataTrie(int[] nodes, int[] transitions, EmojiMetadata[] metadata) {
+        mNodes = nodes;
+        mTransitions = transitions;
+        mMetadata = metadata;
+        mBmpStarts = new long[BMP_SIZE / 64];
+        final int start = nodes[ROOT * NODE_SIZE + NODE_TRANSITION_START];
+        final int end = start + nodes[ROOT * NODE_SIZE + NODE_TRANSITION_COUNT];
+        for (int i = start; i < end; i++) {
+            final int codePoint = transitions[i * TRANSITION_SIZE + TRANSITION_CODEPOINT];
+            if (codePoint < BMP_SIZE) {
+                mBmpStarts[codePoint >>> 6] |= 1L << (codePoint & 63);
+            }
+        }
+    }
+
+    /**
+     * Builds a trie for the given metadata. If two entries have the same codepoints the one with
+     * the highest index wins.
+     */
+    @NonNull
+    static MetadataTrie create(@NonNull final EmojiMetadata[] metadata) {
+        final int count = metadata.length;
+
+        // Copy all codepoint sequences into a single array, reading them from the flatbuffer once
+        final int[] offsets = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            offsets[i + 1] = offsets[i] + metadata[i].getCodepointsLength();
+        }
+        final int[] codePoints = new int[offsets[count]];
+        for (int i = 0; i < count; i++) {
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                codePoints[j] = metadata[i].getCodepointAt(j - offsets[i]);
+            }
+        }
+
+        final int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        sort(order, new int[count], 0, count, codePoints, offsets);
+
+        // There is at most one node and one transition per codepoint, plus the root
+        final Builder builder = new Builder(codePoints, offsets, order, codePoints.length + 1);
+        builder.buildNode(0, count, 0);
+        return new MetadataTrie(
+                Arrays.copyOf(builder.mNodes, builder.mNodeCount * NODE_SIZE),
+                Arrays.copyOf(builder.mTransitions, builder.mTransitionCount * TRANSITION_SIZE),
+                metadata);
+    }
+
+    /**
+     * @return the child of {@code node} for the codepoint, or {@link #NO_NODE}
+     */
+    int getChild(final int node, final int codePoint) {
+        int low = mNodes[node * NODE_SIZE + NODE_TRANSITION_START];
+        int high = low + mNodes[node * NODE_SIZE + NODE_TRANSITION_COUNT] - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midCodePoint = mTransitions[mid * TRANSITION_SIZE + TRANSITION_CODEPOINT];
+            if (midCodePoint < codePoint) {
+                low = mid + 1;
+            } else if (midCodePoint > codePoint) {
+                high = mid - 1;
+            } else {
+                return mTransitions[mid * TRANSITION_SIZE + TRANSITION_TARGET];
+            }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * @return the metadata of the emoji ending at {@code node}, or {@code null}
+     */
+    @Nullable
+    EmojiMetadata getData(final int node) {
+        final int index = mNodes[node * NODE_SIZE + NODE_METADATA];
+        return index < 0 ? null : mMetadata[index];
+    }
+
+    /**
+     * @return {@code true} if there is an emoji whose first codepoint is {@code codePoint}
+     */
+    boolean canStartEmoji(final int codePoint) {
+        if (codePoint < BMP_SIZE) {
+            return (mBmpStarts[codePoint >>> 6] & (1L << (codePoint & 63))) != 0;
+        }
+        return getChild(ROOT, codePoint) != NO_NODE;
+    }
+
+    /**
+     * @return the number of nodes, including the root
+     */
+    int getNodeCount() {
+        return mNodes.length / NODE_SIZE;
+    }
+
+    /**
+     * Stable merge sort of metadata indices by their codepoint sequences. Hand written to avoid
+     * boxing every index for {@link Arrays#sort(Object[], java.util.Comparator)}.
+     */
+    private static void sort(int[] order, int[] temp, int from, int to, int[] codePoints,
+            int[] offsets) {
+        if (to - from < 2) {
+            return;
+        }
+        final int mid = (from + to) >>> 1;
+        sort(order, temp, from, mid, codePoints, offsets);
+        sort(order, temp, mid, to, codePoints, offsets);
+        System.arraycopy(order, from, temp, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid
+                    && compare(temp[left], temp[right], codePoints, offsets) <= 0)) {
+                order[i] = temp[left++];
+            } else {
+                order[i] = temp[right++];
+            }
+        }
+    }
+
+    private static int compare(int lhs, int rhs, int[] codePoints, int[] offsets) {
+        final int lhsLength = offsets[lhs + 1] - offsets[lhs];
+        final int rhsLength = offsets[rhs + 1] - offsets[rhs];
+        final int length = Math.min(lhsLength, rhsLength);
+        for (int i = 0; i < length; i++) {
+            final int lhsCodePoint = codePoints[offsets[lhs] + i];
+            final int rhsCodePoint = codePoints[offsets[rhs] + i];
+            if (lhsCodePoint != rhsCodePoint) {
+                return lhsCodePoint < rhsCodePoint ? -1 : 1;
+            }
+        }
+        return lhsLength - rhsLength;
+    }
+
+    private static final class Builder {
+        private final int[] mCodePoints;
+        private final int[] mOffsets;
+        private final int[] mOrder;
+
+        final int[] mNodes;
+        final int[] mTransitions;
+        int mNodeCount;
+        int mTransitionCount;
+
+        Builder(int[] codePoints, int[] offsets, int[] order, int maxNodes) {
+            mCodePoints = codePoints;
+            mOffsets = offsets;
+            mOrder = order;
+            mNodes = new int[maxNodes * NODE_SIZE];
+            mTransitions = new int[maxNodes * TRANSITION_SIZE];
+        }
+
+        private int length(int orderIndex) {
+            final int index = mOrder[orderIndex];
+            return mOffsets[index + 1] - mOffsets[index];
+        }
+
+        private int codePointAt(int orderIndex, int depth) {
+            return mCodePoints[mOffsets[mOrder[orderIndex]] + depth];
+        }
+
+        /**
+         * Creates the node for the sorted sequences {@code [from, to)}, which all share their
+         * first {@code depth} codepoints.
+         *
+         * @return the index of the created node
+         */
+        int buildNode(int from, int to, int depth) {
+            final int node = mNodeCount++;
+            int metadata = -1;
+            // Sequences ending at this node sort first
+            while (from < to && length(from) == depth) {
+                metadata = mOrder[from];
+                from++;
+            }
+
+            int childCount = 0;
+            for (int i = from; i < to; i++) {
+                if (i == from || codePointAt(i, depth) != codePointAt(i - 1, depth)) {
+                    childCount++;
+                }
+            }
+
+            final int transitionStart = mTransitionCount;
+            mTransitionCount += childCount;
+            mNodes[node * NODE_SIZE + NODE_TRANSITION_START] = transitionStart;
+            mNodes[node * NODE_SIZE + NODE_TRANSITION_COUNT] = childCount;
+            mNodes[node * NODE_SIZE + NODE_METADATA] = metadata;
+
+            int transition = transitionStart;
+            int childFrom = from;
+            while (childFrom < to) {
+                final int codePoint = codePointAt(childFrom, depth);
+                int childTo = childFrom + 1;
+                while (childTo < to && codePointAt(childTo, depth) == codePoint) {
+                    childTo++;
+                }
+                final int child = buildNode(childFrom, childTo, depth + 1);
+                mTransitions[transition * TRANSITION_SIZE + TRANSITION_CODEPOINT] = codePoint;
+                mTransitions[transition * TRANSITION_SIZE + TRANSITION_TARGET] = child;
+                transition++;
+                childFrom = childTo;
+            }
+            return node;
+        }
+    }
+}
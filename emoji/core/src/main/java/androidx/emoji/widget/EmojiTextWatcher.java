@@ -76,8 +76,8 @@ final class EmojiTextWatcher implements android.text.TextWatcher {
             switch (EmojiCompat.get().getLoadState()){
                 case EmojiCompat.LOAD_STATE_SUCCEEDED:
                     final Spannable s = (Spannable) charSequence;
-                    EmojiCompat.get().process(s, start, start + after, mMaxEmojiCount,
-                            mEmojiReplaceStrategy);
+                    EmojiCompat.get().process(s, getProcessStart(s, start, after),
+                            start + after, mMaxEmojiCount, mEmojiReplaceStrategy);
                     break;
                 case EmojiCompat.LOAD_STATE_LOADING:
                 case EmojiCompat.LOAD_STATE_DEFAULT:
@@ -100,6 +100,25 @@ final class EmojiTextWatcher implements android.text.TextWatcher {
         // do nothing
     }
 
+    /**
+     * Returns the index to start processing an edit from. Only the inserted text is processed,
+     * together with any EmojiSpan it overlaps. If the inserted text starts with a codepoint that
+     * modifies the preceding emoji, such as a skin tone or the emoji presentation selector, the
+     * preceding codepoint is processed too so that both are matched as a single emoji.
+     */
+    static int getProcessStart(final CharSequence text, final int start, final int after) {
+        if (start > 0 && after > 0 && isEmojiModifier(Character.codePointAt(text, start))) {
+            return start - Character.charCount(Character.codePointBefore(text, start));
+        }
+        return start;
+    }
+
+    private static boolean isEmojiModifier(final int codePoint) {
+        return codePoint == 0xFE0F // emoji presentation selector
+                || codePoint == 0x20E3 // combining enclosing keycap
+                || (codePoint >= 0x1F3FB && codePoint <= 0x1F3FF); // skin tone modifiers
+    }
+
     private InitCallback getInitCallback() {
         if (mInitCallback == null) {
             mInitCallback = new InitCallbackImpl(mEditText);
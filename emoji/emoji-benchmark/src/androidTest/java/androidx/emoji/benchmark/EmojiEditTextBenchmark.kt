@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.emoji.benchmark
+
+import android.text.Editable
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.emoji.bundled.BundledEmojiCompatConfig
+import androidx.emoji.text.EmojiCompat
+import androidx.emoji.text.EmojiSpan
+import androidx.emoji.widget.EmojiEditText
+import androidx.test.annotation.UiThreadTest
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures typing into a long message with many emojis in an [EmojiEditText]. Every keystroke
+ * runs the emoji text watcher on the edited range only.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class EmojiEditTextBenchmark {
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private lateinit var editText: EmojiEditText
+    private lateinit var text: Editable
+
+    @Before
+    fun setup() {
+        initEmojiCompat()
+        editText = EmojiEditText(ApplicationProvider.getApplicationContext())
+        editText.setText(createMessage())
+        text = editText.text!!
+    }
+
+    @UiThreadTest
+    @Test
+    fun typeCharacter() {
+        val position = text.length / 2
+        benchmarkRule.measureRepeated {
+            text.insert(position, "a")
+            runWithTimingDisabled {
+                text.delete(position, position + 1)
+            }
+        }
+    }
+
+    @UiThreadTest
+    @Test
+    fun typeEmoji() {
+        val position = text.length / 2
+        benchmarkRule.measureRepeated {
+            text.insert(position, EMOJI)
+            runWithTimingDisabled {
+                text.delete(position, position + EMOJI.length)
+            }
+        }
+    }
+
+    @UiThreadTest
+    @Test
+    fun typeSkinToneAfterEmoji() {
+        // Position right after an emoji, so the modifier combines with it
+        val position = text.indexOf(HAND) + HAND.length
+        benchmarkRule.measureRepeated {
+            text.insert(position, SKIN_TONE)
+            runWithTimingDisabled {
+                text.delete(position, position + SKIN_TONE.length)
+                EmojiCompat.get().process(text, position - HAND.length, position)
+            }
+        }
+    }
+
+    @UiThreadTest
+    @Test
+    fun reprocessMessage() {
+        val emojiCount = spanCount()
+        benchmarkRule.measureRepeated {
+            EmojiCompat.get().process(text)
+        }
+        assertEquals(emojiCount, spanCount())
+    }
+
+    private fun spanCount() = text.getSpans(0, text.length, EmojiSpan::class.java).size
+
+    private fun initEmojiCompat() {
+        val config = BundledEmojiCompatConfig(ApplicationProvider.getApplicationContext())
+        config.setReplaceAll(true)
+        EmojiCompat.init(config)
+        // Metadata is loaded on a background thread, the init callbacks would be posted to the
+        // main thread which the test may be running on
+        while (EmojiCompat.get().loadState == EmojiCompat.LOAD_STATE_LOADING ||
+            EmojiCompat.get().loadState == EmojiCompat.LOAD_STATE_DEFAULT
+        ) {
+            Thread.sleep(10)
+        }
+        assertEquals(EmojiCompat.LOAD_STATE_SUCCEEDED, EmojiCompat.get().loadState)
+    }
+
+    private fun createMessage(): String {
+        val builder = StringBuilder()
+        var i = 0
+        while (builder.length < MESSAGE_LENGTH) {
+            builder.append("Lorem ipsum dolor sit amet ")
+            builder.append(if (i % 2 == 0) EMOJI else HAND)
+            builder.append(' ')
+            i++
+        }
+        return builder.toString()
+    }
+
+    companion object {
+        private const val MESSAGE_LENGTH = 10_000
+        private const val EMOJI = "😀" // grinning face
+        private const val HAND = "👋" // waving hand
+        private const val SKIN_TONE = "🏽" // medium skin tone
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import androidx.annotation.RestrictTo;
+
+/**
+ * Creates the {@link GeneratedAdapter} of an observer class without reflection. The annotation
+ * processor generates one as the nested {@code Factory} class of every adapter.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public interface GeneratedAdapterFactory {
+
+    /**
+     * Creates the adapter for the given observer.
+     *
+     * @param receiver The observer, an instance of the class the adapter was generated for
+     * @return A new adapter that dispatches to {@code receiver}
+     */
+    GeneratedAdapter create(Object receiver);
+}
@@ -40,7 +40,7 @@ public class Lifecycling {
     private static final int GENERATED_CALLBACK = 2;
 
     private static Map<Class<?>, Integer> sCallbackCache = new HashMap<>();
-    private static Map<Class<?>, List<Constructor<? extends GeneratedAdapter>>> sClassToAdapters =
+    private static Map<Class<?>, List<GeneratedAdapterFactory>> sClassToAdapters =
             new HashMap<>();
 
     // Left for binary compatibility when lifecycle-common goes up 2.1 as transitive dep
@@ -82,38 +82,27 @@ public class Lifecycling {
         final Class<?> klass = object.getClass();
         int type = getObserverConstructorType(klass);
         if (type == GENERATED_CALLBACK) {
-            List<Constructor<? extends GeneratedAdapter>> constructors =
-                    sClassToAdapters.get(klass);
-            if (constructors.size() == 1) {
-                GeneratedAdapter generatedAdapter = createGeneratedAdapter(
-                        constructors.get(0), object);
+            List<GeneratedAdapterFactory> factories = sClassToAdapters.get(klass);
+            if (factories.size() == 1) {
+                GeneratedAdapter generatedAdapter = factories.get(0).create(object);
                 return new SingleGeneratedAdapterObserver(generatedAdapter);
             }
-            GeneratedAdapter[] adapters = new GeneratedAdapter[constructors.size()];
-            for (int i = 0; i < constructors.size(); i++) {
-                adapters[i] = createGeneratedAdapter(constructors.get(i), object);
+            GeneratedAdapter[] adapters = new GeneratedAdapter[factories.size()];
+            for (int i = 0; i < factories.size(); i++) {
+                adapters[i] = factories.get(i).create(object);
             }
             return new CompositeGeneratedAdaptersObserver(adapters);
         }
         return new ReflectiveGenericLifecycleObserver(object);
     }
 
-    private static GeneratedAdapter createGeneratedAdapter(
-            Constructor<? extends GeneratedAdapter> constructor, Object object) {
-        //noinspection TryWithIdenticalCatches
-        try {
-            return constructor.newInstance(object);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-        } catch (InstantiationException e) {
-            throw new RuntimeException(e);
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
+    /**
+     * Returns the factory of the adapter generated for {@code klass}. Adapters generated by
+     * recent versions of the annotation processor come with a nested {@code Factory} class, which
+     * creates them without reflection. Older adapters are created via their constructor.
+     */
     @Nullable
-    private static Constructor<? extends GeneratedAdapter> generatedConstructor(Class<?> klass) {
+    private static GeneratedAdapterFactory generatedFactory(Class<?> klass) {
         try {
             Package aPackage = klass.getPackage();
             String name = klass.getCanonicalName();
@@ -124,12 +113,16 @@ public class Lifecycling {
             @SuppressWarnings("unchecked") final Class<? extends GeneratedAdapter> aClass =
                     (Class<? extends GeneratedAdapter>) Class.forName(
                             fullPackage.isEmpty() ? adapterName : fullPackage + "." + adapterName);
+            GeneratedAdapterFactory factory = newFactory(aClass);
+            if (factory != null) {
+                return factory;
+            }
             Constructor<? extends GeneratedAdapter> constructor =
                     aClass.getDeclaredConstructor(klass);
             if (!constructor.isAccessible()) {
                 constructor.setAccessible(true);
             }
-            return constructor;
+            return new ConstructorAdapterFactory(constructor);
         } catch (ClassNotFoundException e) {
             return null;
         } catch (NoSuchMethodException e) {
@@ -138,6 +131,26 @@ public class Lifecycling {
         }
     }
 
+    @Nullable
+    private static GeneratedAdapterFactory newFactory(
+            Class<? extends GeneratedAdapter> adapterClass) {
+        final Class<?> factoryClass;
+        try {
+            factoryClass = Class.forName(adapterClass.getName() + "$Factory", true,
+                    adapterClass.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        //noinspection TryWithIdenticalCatches
+        try {
+            return (GeneratedAdapterFactory) factoryClass.newInstance();
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        } catch (InstantiationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private static int getObserverConstructorType(Class<?> klass) {
         Integer callbackCache = sCallbackCache.get(klass);
         if (callbackCache != null) {
@@ -154,10 +167,9 @@ public class Lifecycling {
             return REFLECTIVE_CALLBACK;
         }
 
-        Constructor<? extends GeneratedAdapter> constructor = generatedConstructor(klass);
-        if (constructor != null) {
-            sClassToAdapters.put(klass, Collections
-                    .<Constructor<? extends GeneratedAdapter>>singletonList(constructor));
+        GeneratedAdapterFactory factory = generatedFactory(klass);
+        if (factory != null) {
+            sClassToAdapters.put(klass, Collections.singletonList(factory));
             return GENERATED_CALLBACK;
         }
 
@@ -167,12 +179,12 @@ public class Lifecycling {
         }
 
         Class<?> superclass = klass.getSuperclass();
-        List<Constructor<? extends GeneratedAdapter>> adapterConstructors = null;
+        List<GeneratedAdapterFactory> adapterFactories = null;
         if (isLifecycleParent(superclass)) {
             if (getObserverConstructorType(superclass) == REFLECTIVE_CALLBACK) {
                 return REFLECTIVE_CALLBACK;
             }
-            adapterConstructors = new ArrayList<>(sClassToAdapters.get(superclass));
+            adapterFactories = new ArrayList<>(sClassToAdapters.get(superclass));
         }
 
         for (Class<?> intrface : klass.getInterfaces()) {
@@ -182,13 +194,13 @@ public class Lifecycling {
             if (getObserverConstructorType(intrface) == REFLECTIVE_CALLBACK) {
                 return REFLECTIVE_CALLBACK;
             }
-            if (adapterConstructors == null) {
-                adapterConstructors = new ArrayList<>();
+            if (adapterFactories == null) {
+                adapterFactories = new ArrayList<>();
             }
-            adapterConstructors.addAll(sClassToAdapters.get(intrface));
+            adapterFactories.addAll(sClassToAdapters.get(intrface));
         }
-        if (adapterConstructors != null) {
-            sClassToAdapters.put(klass, adapterConstructors);
+        if (adapterFactories != null) {
+            sClassToAdapters.put(klass, adapterFactories);
             return GENERATED_CALLBACK;
         }
 
@@ -208,4 +220,30 @@ public class Lifecycling {
 
     private Lifecycling() {
     }
+
+    /**
+     * Creates adapters generated by older versions of the annotation processor, which have no
+     * {@code Factory}.
+     */
+    private static class ConstructorAdapterFactory implements GeneratedAdapterFactory {
+        private final Constructor<? extends GeneratedAdapter> mConstructor;
+
+        ConstructorAdapterFactory(Constructor<? extends GeneratedAdapter> constructor) {
+            mConstructor = constructor;
+        }
+
+        @Override
+        public GeneratedAdapter create(Object receiver) {
+            //noinspection TryWithIdenticalCatches
+            try {
+                return mConstructor.newInstance(receiver);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            } catch (InstantiationException e) {
+                throw new RuntimeException(e);
+            } catch (InvocationTargetException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
 }
@@ -32,6 +32,8 @@ import androidx.lifecycle.observers.DerivedWithOverridenMethodsWithLfAnnotation;
 import androidx.lifecycle.observers.InterfaceImpl1;
 import androidx.lifecycle.observers.InterfaceImpl2;
 import androidx.lifecycle.observers.InterfaceImpl3;
+import androidx.lifecycle.observers.WithFactory;
+import androidx.lifecycle.observers.WithFactory_LifecycleAdapter;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -78,6 +80,16 @@ public class LifecyclingTest {
         assertThat(callback, instanceOf(CompositeGeneratedAdaptersObserver.class));
     }
 
+    @Test
+    public void testGeneratedAdapterFactory() {
+        int created = WithFactory_LifecycleAdapter.sCreatedByFactory;
+        LifecycleEventObserver callback1 = lifecycleEventObserver(new WithFactory());
+        LifecycleEventObserver callback2 = lifecycleEventObserver(new WithFactory());
+        assertThat(callback1, instanceOf(SingleGeneratedAdapterObserver.class));
+        assertThat(callback2, instanceOf(SingleGeneratedAdapterObserver.class));
+        assertThat(WithFactory_LifecycleAdapter.sCreatedByFactory, is(created + 2));
+    }
+
     @Test
     public void testDerivedSequence() {
         LifecycleEventObserver callback2 = lifecycleEventObserver(new DerivedSequence2());
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.lifecycle.observers;
+
+import androidx.lifecycle.GeneratedAdapter;
+import androidx.lifecycle.GeneratedAdapterFactory;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.MethodCallsLogger;
+
+public class WithFactory_LifecycleAdapter implements GeneratedAdapter {
+    public static int sCreatedByFactory;
+
+    final WithFactory mReceiver;
+
+    WithFactory_LifecycleAdapter(WithFactory receiver) {
+        mReceiver = receiver;
+    }
+
+    @Override
+    public void callMethods(LifecycleOwner source, Lifecycle.Event event, boolean onAny,
+            MethodCallsLogger logger) {
+    }
+
+    public static final class Factory implements GeneratedAdapterFactory {
+        @Override
+        public GeneratedAdapter create(Object receiver) {
+            sCreatedByFactory++;
+            return new WithFactory_LifecycleAdapter((WithFactory) receiver);
+        }
+    }
+}
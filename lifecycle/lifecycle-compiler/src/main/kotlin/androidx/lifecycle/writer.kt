@@ -56,6 +56,8 @@ private val METHODS_LOGGER: ParameterSpec = ParameterSpec.builder(
 
 private const val HAS_LOGGER_VAR = "hasLogger"
 
+private const val FACTORY_NAME = "Factory"
+
 private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnvironment) {
     val receiverField: FieldSpec = FieldSpec.builder(ClassName.get(adapter.type), "mReceiver",
             Modifier.FINAL).build()
@@ -113,6 +115,22 @@ private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnviron
             .build()
 
     val adapterName = getAdapterName(adapter.type)
+    val factoryReceiverParam = ParameterSpec.builder(TypeName.OBJECT, "receiver").build()
+    val createMethod = MethodSpec.methodBuilder("create")
+            .returns(ClassName.get(GeneratedAdapter::class.java))
+            .addParameter(factoryReceiverParam)
+            .addModifiers(Modifier.PUBLIC)
+            .addAnnotation(Override::class.java)
+            .addStatement("return new $L(($T) $N)", adapterName, ClassName.get(adapter.type),
+                    factoryReceiverParam)
+            .build()
+    // Lets Lifecycling create adapters without reflective constructor calls
+    val factory = TypeSpec.classBuilder(FACTORY_NAME)
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+            .addSuperinterface(ClassName.get(GeneratedAdapterFactory::class.java))
+            .addMethod(createMethod)
+            .build()
+
     val adapterTypeSpecBuilder = TypeSpec.classBuilder(adapterName)
             .addModifiers(Modifier.PUBLIC)
             .addSuperinterface(ClassName.get(GeneratedAdapter::class.java))
@@ -120,6 +138,7 @@ private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnviron
             .addMethod(constructor)
             .addMethod(dispatchMethod)
             .addMethods(syntheticMethods)
+            .addType(factory)
             .addOriginatingElement(adapter.type)
 
     addGeneratedAnnotationIfAvailable(adapterTypeSpecBuilder, processingEnv)
@@ -157,6 +176,12 @@ private fun generateKeepRule(type: TypeElement, processingEnv: ProcessingEnviron
         |-keep class $adapterClass {
         |    <init>(...);
         |}
+        |-if class $observerClass {
+        |    <init>(...);
+        |}
+        |-keep class $adapterClass${'$'}$FACTORY_NAME {
+        |    <init>();
+        |}
         |""".trimMargin()
 
     // Write the keep rule to the META-INF/proguard directory of the Jar file. The file name
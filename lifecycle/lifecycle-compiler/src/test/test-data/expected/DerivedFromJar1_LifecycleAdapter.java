@@ -17,9 +17,11 @@
 package foo;
 
 import androidx.lifecycle.GeneratedAdapter;
+import androidx.lifecycle.GeneratedAdapterFactory;
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.MethodCallsLogger;
+import java.lang.Object;
 import java.lang.Override;
 import javax.annotation.Generated;
 
@@ -51,4 +53,11 @@ public class DerivedFromJar1_LifecycleAdapter implements GeneratedAdapter {
             return;
         }
     }
+
+  public static final class Factory implements GeneratedAdapterFactory {
+    @Override
+    public GeneratedAdapter create(Object receiver) {
+      return new DerivedFromJar1_LifecycleAdapter((DerivedFromJar1) receiver);
+    }
+  }
 }
@@ -17,9 +17,11 @@
 package foo;
 
 import androidx.lifecycle.GeneratedAdapter;
+import androidx.lifecycle.GeneratedAdapterFactory;
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.MethodCallsLogger;
+import java.lang.Object;
 import java.lang.Override;
 import javax.annotation.Generated;
 import test.library.LibraryBaseObserver_LifecycleAdapter;
@@ -55,4 +57,11 @@ public class DerivedFromJar_LifecycleAdapter implements GeneratedAdapter {
       return;
     }
   }
-}
\ No newline at end of file
+
+  public static final class Factory implements GeneratedAdapterFactory {
+    @Override
+    public GeneratedAdapter create(Object receiver) {
+      return new DerivedFromJar_LifecycleAdapter((DerivedFromJar) receiver);
+    }
+  }
+}
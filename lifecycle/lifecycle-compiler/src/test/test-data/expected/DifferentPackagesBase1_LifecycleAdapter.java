@@ -17,9 +17,11 @@
 package foo;
 
 import androidx.lifecycle.GeneratedAdapter;
+import androidx.lifecycle.GeneratedAdapterFactory;
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.MethodCallsLogger;
+import java.lang.Object;
 import java.lang.Override;
 import javax.annotation.Generated;
 
@@ -49,4 +51,11 @@ public class DifferentPackagesBase1_LifecycleAdapter implements GeneratedAdapter
   public static void __synthetic_onStop(DifferentPackagesBase1 receiver, LifecycleOwner owner) {
     receiver.onStop(owner);
   }
+
+  public static final class Factory implements GeneratedAdapterFactory {
+    @Override
+    public GeneratedAdapter create(Object receiver) {
+      return new DifferentPackagesBase1_LifecycleAdapter((DifferentPackagesBase1) receiver);
+    }
+  }
 }
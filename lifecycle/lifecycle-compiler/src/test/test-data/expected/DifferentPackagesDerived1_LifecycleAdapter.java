@@ -17,10 +17,12 @@
 package bar;
 
 import androidx.lifecycle.GeneratedAdapter;
+import androidx.lifecycle.GeneratedAdapterFactory;
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.MethodCallsLogger;
 import foo.DifferentPackagesBase1_LifecycleAdapter;
+import java.lang.Object;
 import java.lang.Override;
 import javax.annotation.Generated;
 
@@ -49,4 +51,11 @@ public class DifferentPackagesDerived1_LifecycleAdapter implements GeneratedAdap
       return;
     }
   }
+
+  public static final class Factory implements GeneratedAdapterFactory {
+    @Override
+    public GeneratedAdapter create(Object receiver) {
+      return new DifferentPackagesDerived1_LifecycleAdapter((DifferentPackagesDerived1) receiver);
+    }
+  }
 }
@@ -17,9 +17,11 @@
 package bar;
 
 import androidx.lifecycle.GeneratedAdapter;
+import androidx.lifecycle.GeneratedAdapterFactory;
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.MethodCallsLogger;
+import java.lang.Object;
 import java.lang.Override;
 import javax.annotation.Generated;
 
@@ -48,4 +50,11 @@ public class DifferentPackagesDerived2_LifecycleAdapter implements GeneratedAdap
       return;
     }
   }
+
+  public static final class Factory implements GeneratedAdapterFactory {
+    @Override
+    public GeneratedAdapter create(Object receiver) {
+      return new DifferentPackagesDerived2_LifecycleAdapter((DifferentPackagesDerived2) receiver);
+    }
+  }
 }
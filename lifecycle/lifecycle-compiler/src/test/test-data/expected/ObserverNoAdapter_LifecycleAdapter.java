@@ -17,9 +17,11 @@
 package test.library;
 
 import androidx.lifecycle.GeneratedAdapter;
+import androidx.lifecycle.GeneratedAdapterFactory;
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.MethodCallsLogger;
+import java.lang.Object;
 import java.lang.Override;
 import javax.annotation.Generated;
 
@@ -45,4 +47,11 @@ public class ObserverNoAdapter_LifecycleAdapter implements GeneratedAdapter {
             return;
         }
     }
+
+  public static final class Factory implements GeneratedAdapterFactory {
+    @Override
+    public GeneratedAdapter create(Object receiver) {
+      return new ObserverNoAdapter_LifecycleAdapter((ObserverNoAdapter) receiver);
+    }
+  }
 }
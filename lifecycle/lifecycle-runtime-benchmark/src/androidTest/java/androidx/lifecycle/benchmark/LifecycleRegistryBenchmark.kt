@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleObserver
+import androidx.lifecycle.LifecycleOwner
+import androidx.lifecycle.LifecycleRegistry
+import androidx.lifecycle.OnLifecycleEvent
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Assert.assertEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+private const val OBSERVER_COUNT = 10_000
+
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class LifecycleRegistryBenchmark {
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @Test
+    fun addObserversGenerated() = addObservers { GeneratedObserver() }
+
+    @Test
+    fun addObserversReflective() = addObservers { ReflectiveObserver() }
+
+    @Test
+    fun dispatchGenerated() {
+        val observers = List(OBSERVER_COUNT) { GeneratedObserver() }
+        dispatch(observers)
+        assertEquals(0, observers.count { it.mEventCount == 0 })
+    }
+
+    @Test
+    fun dispatchReflective() {
+        val observers = List(OBSERVER_COUNT) { ReflectiveObserver() }
+        dispatch(observers)
+        assertEquals(0, observers.count { it.eventCount == 0 })
+    }
+
+    /**
+     * Adds observers to a resumed lifecycle, which moves each of them through ON_CREATE, ON_START
+     * and ON_RESUME.
+     */
+    private fun addObservers(factory: () -> LifecycleObserver) {
+        benchmarkRule.measureRepeated {
+            val (owner, observers) = runWithTimingDisabled {
+                val owner = TestOwner()
+                owner.lifecycle.currentState = Lifecycle.State.RESUMED
+                owner to List(OBSERVER_COUNT) { factory() }
+            }
+            observers.forEach { owner.lifecycle.addObserver(it) }
+        }
+    }
+
+    /**
+     * Pauses and resumes a lifecycle, dispatching two events to each observer.
+     */
+    private fun dispatch(observers: List<LifecycleObserver>) {
+        val owner = TestOwner()
+        owner.lifecycle.currentState = Lifecycle.State.RESUMED
+        observers.forEach { owner.lifecycle.addObserver(it) }
+        benchmarkRule.measureRepeated {
+            owner.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_PAUSE)
+            owner.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_RESUME)
+        }
+    }
+
+    // The registry only references its owner weakly, so the benchmark keeps it alive
+    private class TestOwner : LifecycleOwner {
+        private val registry = LifecycleRegistry.createUnsafe(this)
+
+        override fun getLifecycle(): LifecycleRegistry = registry
+    }
+
+    // Kotlin classes are not processed by the Java annotation processor, so this observer is
+    // dispatched to through reflection
+    class ReflectiveObserver : LifecycleObserver {
+        var eventCount = 0
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_RESUME)
+        fun onResume() {
+            eventCount++
+        }
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_PAUSE)
+        fun onPause() {
+            eventCount++
+        }
+    }
+}
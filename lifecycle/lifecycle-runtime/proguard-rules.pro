@@ -11,6 +11,10 @@
     <init>(...);
 }
 
+-keep class * implements androidx.lifecycle.GeneratedAdapterFactory {
+    <init>();
+}
+
 -keepclassmembers class ** {
     @androidx.lifecycle.OnLifecycleEvent *;
 }
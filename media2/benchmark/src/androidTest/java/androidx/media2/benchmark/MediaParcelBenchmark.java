@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.media2.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import android.os.Parcel;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.media2.common.MediaItem;
+import androidx.media2.common.MediaMetadata;
+import androidx.media2.common.MediaParcelUtils;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.versionedparcelable.ParcelImpl;
+import androidx.versionedparcelable.VersionedParcelable;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures parceling lists of {@link MediaItem}s and {@link MediaMetadata} the way a session
+ * sends them to its controllers, one {@link ParcelImpl} per item.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class MediaParcelBenchmark {
+    private static final int LIST_SIZE = 100;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void writeMediaItemList() {
+        measureWrite(createMediaItems());
+    }
+
+    @Test
+    public void readMediaItemList() {
+        measureRead(createMediaItems());
+    }
+
+    @Test
+    public void writeMediaMetadataList() {
+        measureWrite(createMetadataList());
+    }
+
+    @Test
+    public void readMediaMetadataList() {
+        measureRead(createMetadataList());
+    }
+
+    private void measureWrite(List<? extends VersionedParcelable> items) {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        Parcel parcel = Parcel.obtain();
+        while (state.keepRunning()) {
+            parcel.setDataPosition(0);
+            writeList(items, parcel);
+        }
+        parcel.recycle();
+    }
+
+    private void measureRead(List<? extends VersionedParcelable> items) {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        Parcel parcel = Parcel.obtain();
+        writeList(items, parcel);
+        while (state.keepRunning()) {
+            parcel.setDataPosition(0);
+            List<VersionedParcelable> read = readList(parcel);
+            state.pauseTiming();
+            assertEquals(items.size(), read.size());
+            state.resumeTiming();
+        }
+        parcel.recycle();
+    }
+
+    private static void writeList(List<? extends VersionedParcelable> items, Parcel parcel) {
+        List<ParcelImpl> parcelables = MediaParcelUtils.toParcelableList(items);
+        parcel.writeInt(parcelables.size());
+        for (int i = 0; i < parcelables.size(); i++) {
+            parcelables.get(i).writeToParcel(parcel, 0);
+        }
+    }
+
+    private static List<VersionedParcelable> readList(Parcel parcel) {
+        int size = parcel.readInt();
+        List<ParcelImpl> parcelables = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            parcelables.add(ParcelImpl.CREATOR.createFromParcel(parcel));
+        }
+        return MediaParcelUtils.fromParcelableList(parcelables);
+    }
+
+    private static List<MediaItem> createMediaItems() {
+        List<MediaItem> items = new ArrayList<>(LIST_SIZE);
+        for (MediaMetadata metadata : createMetadataList()) {
+            items.add(new MediaItem.Builder()
+                    .setMetadata(metadata)
+                    .setStartPosition(0)
+                    .setEndPosition(metadata.getLong(MediaMetadata.METADATA_KEY_DURATION))
+                    .build());
+        }
+        return items;
+    }
+
+    private static List<MediaMetadata> createMetadataList() {
+        List<MediaMetadata> list = new ArrayList<>(LIST_SIZE);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            list.add(new MediaMetadata.Builder()
+                    .putString(MediaMetadata.METADATA_KEY_MEDIA_ID, "media_id_" + i)
+                    .putString(MediaMetadata.METADATA_KEY_TITLE, "Title " + i)
+                    .putString(MediaMetadata.METADATA_KEY_ARTIST, "Artist " + i % 10)
+                    .putString(MediaMetadata.METADATA_KEY_ALBUM, "Album " + i % 20)
+                    .putLong(MediaMetadata.METADATA_KEY_DURATION, 180_000 + i * 1000)
+                    .putLong(MediaMetadata.METADATA_KEY_BROWSABLE,
+                            MediaMetadata.BROWSABLE_TYPE_NONE)
+                    .putLong(MediaMetadata.METADATA_KEY_PLAYABLE, 1)
+                    .build());
+        }
+        return list;
+    }
+}
@@ -1236,6 +1236,22 @@ public final class MediaMetadata extends CustomVersionedParcelable {
             return this;
         }
 
+        /**
+         * Removes the value of the key from the metadata.
+         *
+         * @param key The key for referencing the value
+         * @return The Builder to allow chaining
+         * @hide
+         */
+        @RestrictTo(LIBRARY_GROUP)
+        public @NonNull Builder remove(@NonNull String key) {
+            if (key == null) {
+                throw new NullPointerException("key shouldn't be null");
+            }
+            mBundle.remove(key);
+            return this;
+        }
+
         /**
          * Creates a {@link MediaMetadata} instance with the specified fields.
          *
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.media2.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import android.graphics.Bitmap;
+
+import androidx.media2.common.MediaItem;
+import androidx.media2.common.MediaMetadata;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests {@link ArtworkCache}.
+ */
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class ArtworkCacheTest extends MediaTestBase {
+    private static final String MEDIA_ID = "media_id";
+
+    private final ArtworkCache mCache = new ArtworkCache(1024 * 1024);
+
+    @Test
+    public void replaceBitmaps_removesBitmapsAndAddsVersion() {
+        Bitmap art = createBitmap();
+        MediaItem item = createItem(MEDIA_ID, art);
+
+        MediaItem replacedItem = mCache.replaceBitmaps(item);
+
+        assertEquals(MEDIA_ID, replacedItem.getMediaId());
+        assertNull(replacedItem.getMetadata().getBitmap(MediaMetadata.METADATA_KEY_ART));
+        assertEquals("title",
+                replacedItem.getMetadata().getString(MediaMetadata.METADATA_KEY_TITLE));
+        long version = ArtworkCache.getArtworkVersion(replacedItem);
+        assertNotEquals(ArtworkCache.NO_VERSION, version);
+        assertEquals(version, mCache.get(MEDIA_ID).mVersion);
+        assertSame(art, mCache.get(MEDIA_ID).mBitmaps.get(MediaMetadata.METADATA_KEY_ART));
+    }
+
+    @Test
+    public void replaceBitmaps_keepsVersionOfSameBitmaps() {
+        Bitmap art = createBitmap();
+
+        long version = ArtworkCache.getArtworkVersion(
+                mCache.replaceBitmaps(createItem(MEDIA_ID, art)));
+        long sameVersion = ArtworkCache.getArtworkVersion(
+                mCache.replaceBitmaps(createItem(MEDIA_ID, art)));
+        long newVersion = ArtworkCache.getArtworkVersion(
+                mCache.replaceBitmaps(createItem(MEDIA_ID, createBitmap())));
+
+        assertEquals(version, sameVersion);
+        assertNotEquals(version, newVersion);
+    }
+
+    @Test
+    public void replaceBitmaps_returnsItemWithoutBitmaps() {
+        MediaItem item = createItem(MEDIA_ID, null);
+        List<MediaItem> items = new ArrayList<>();
+        items.add(item);
+
+        assertSame(item, mCache.replaceBitmaps(item));
+        assertSame(items, mCache.replaceBitmaps(items));
+        assertNull(mCache.get(MEDIA_ID));
+    }
+
+    @Test
+    public void put_addsBitmapsBackToItem() {
+        ArtworkCache sessionCache = new ArtworkCache(1024 * 1024);
+        Bitmap art = createBitmap();
+        MediaItem replacedItem = sessionCache.replaceBitmaps(createItem(MEDIA_ID, art));
+        MediaItem artwork = sessionCache.get(MEDIA_ID).toMediaItem(MEDIA_ID);
+
+        ArtworkCache.Entry entry = mCache.put(artwork);
+        MediaItem item = entry.addBitmaps(replacedItem);
+
+        assertEquals(ArtworkCache.getArtworkVersion(replacedItem), entry.mVersion);
+        assertSame(art, item.getMetadata().getBitmap(MediaMetadata.METADATA_KEY_ART));
+        assertEquals("title", item.getMetadata().getString(MediaMetadata.METADATA_KEY_TITLE));
+    }
+
+    @Test
+    public void replaceBitmaps_boundsSizeOfCache() {
+        Bitmap art = createBitmap();
+        ArtworkCache cache = new ArtworkCache(art.getByteCount());
+
+        cache.replaceBitmaps(createItem(MEDIA_ID, art));
+        cache.replaceBitmaps(createItem("other_media_id", createBitmap()));
+
+        assertNull(cache.get(MEDIA_ID));
+    }
+
+    @Test
+    public void replaceBitmaps_keepsVersionAfterEviction() {
+        Bitmap art = createBitmap();
+        ArtworkCache cache = new ArtworkCache(art.getByteCount());
+
+        long version = ArtworkCache.getArtworkVersion(
+                cache.replaceBitmaps(createItem(MEDIA_ID, art)));
+        cache.replaceBitmaps(createItem("other_media_id", createBitmap()));
+        assertNull(cache.get(MEDIA_ID));
+
+        assertEquals(version, ArtworkCache.getArtworkVersion(
+                cache.replaceBitmaps(createItem(MEDIA_ID, art))));
+    }
+
+    @Test
+    public void putBitmaps_returnsArtworkTooLargeForCache() {
+        Bitmap art = createBitmap();
+        ArtworkCache cache = new ArtworkCache(art.getByteCount());
+        cache.replaceBitmaps(createItem("other_media_id", createBitmap()));
+        Bitmap largeArt = Bitmap.createBitmap(32, 32, Bitmap.Config.ARGB_8888);
+
+        ArtworkCache.Entry entry = cache.putBitmaps(createItem(MEDIA_ID, largeArt));
+
+        assertSame(largeArt, entry.mBitmaps.get(MediaMetadata.METADATA_KEY_ART));
+        assertEquals(entry.mVersion, cache.putBitmaps(createItem(MEDIA_ID, largeArt)).mVersion);
+        assertNull(cache.get(MEDIA_ID));
+        // Didn't evict the artwork that fits
+        assertNotNull(cache.get("other_media_id"));
+    }
+
+    @Test
+    public void removeArtworkVersion_keepsVersionOutOfMetadata() {
+        ArtworkCache sessionCache = new ArtworkCache(1024 * 1024);
+        MediaItem replacedItem = sessionCache.replaceBitmaps(createItem(MEDIA_ID, createBitmap()));
+
+        MediaItem item = mCache.removeArtworkVersion(replacedItem);
+
+        assertFalse(item.getMetadata().containsKey(MediaConstants.METADATA_KEY_ARTWORK_VERSION));
+        assertEquals("title", item.getMetadata().getString(MediaMetadata.METADATA_KEY_TITLE));
+        assertEquals(ArtworkCache.getArtworkVersion(replacedItem),
+                mCache.getRemovedArtworkVersion(item));
+        assertEquals(ArtworkCache.NO_VERSION, mCache.getRemovedArtworkVersion(replacedItem));
+        MediaItem itemWithoutArtwork = createItem("other_media_id", null);
+        assertSame(itemWithoutArtwork, mCache.removeArtworkVersion(itemWithoutArtwork));
+    }
+
+    private static Bitmap createBitmap() {
+        return Bitmap.createBitmap(16, 16, Bitmap.Config.ARGB_8888);
+    }
+
+    private static MediaItem createItem(String mediaId, Bitmap art) {
+        MediaMetadata.Builder builder = new MediaMetadata.Builder()
+                .putString(MediaMetadata.METADATA_KEY_MEDIA_ID, mediaId)
+                .putString(MediaMetadata.METADATA_KEY_TITLE, "title");
+        if (art != null) {
+            builder.putBitmap(MediaMetadata.METADATA_KEY_ART, art);
+        }
+        return new MediaItem.Builder().setMetadata(builder.build()).build();
+    }
+}
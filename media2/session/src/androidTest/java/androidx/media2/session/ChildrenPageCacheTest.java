@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.media2.session;
+
+import static androidx.media2.session.LibraryResult.RESULT_SUCCESS;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.concurrent.futures.ResolvableFuture;
+import androidx.media2.session.MediaLibraryService.LibraryParams;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests {@link ChildrenPageCache}.
+ */
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class ChildrenPageCacheTest extends MediaTestBase {
+    private static final String PARENT_ID = "parent_id";
+    private static final int PAGE_SIZE = 10;
+    private static final int CHILDREN_COUNT = 25;
+
+    private final List<ResolvableFuture<LibraryResult>> mPendingFutures = new ArrayList<>();
+    private final List<Integer> mPendingPages = new ArrayList<>();
+    private final List<Integer> mFetchedPages = new ArrayList<>();
+    private boolean mHoldResults;
+    private ChildrenPageCache mCache;
+
+    @Before
+    public void setUp() {
+        mCache = createCache(100);
+    }
+
+    @Test
+    public void getChildren_cachesPagesOfSubscribedParent() throws Exception {
+        mCache.addSubscription(PARENT_ID);
+
+        LibraryResult first = mCache.getChildren(PARENT_ID, 1, PAGE_SIZE, null).get();
+        LibraryResult second = mCache.getChildren(PARENT_ID, 1, PAGE_SIZE, null).get();
+
+        assertTrue(first == second);
+        assertEquals(1, countFetches(1));
+    }
+
+    @Test
+    public void getChildren_doesNotCacheWithoutSubscription() throws Exception {
+        mCache.getChildren(PARENT_ID, 0, PAGE_SIZE, null).get();
+        mCache.getChildren(PARENT_ID, 0, PAGE_SIZE, null).get();
+
+        assertEquals(2, countFetches(0));
+        assertEquals(0, countFetches(1));
+    }
+
+    @Test
+    public void getChildren_doesNotCacheWithExtras() throws Exception {
+        mCache.addSubscription(PARENT_ID);
+        Bundle extras = new Bundle();
+        extras.putString("key", "value");
+        LibraryParams params = new LibraryParams.Builder().setExtras(extras).build();
+
+        mCache.getChildren(PARENT_ID, 0, PAGE_SIZE, params).get();
+        mCache.getChildren(PARENT_ID, 0, PAGE_SIZE, params).get();
+
+        assertEquals(2, countFetches(0));
+    }
+
+    @Test
+    public void getChildren_prefetchesAdjacentPages() throws Exception {
+        mCache.addSubscription(PARENT_ID);
+
+        mCache.getChildren(PARENT_ID, 1, PAGE_SIZE, null).get();
+        assertEquals(1, countFetches(0));
+        assertEquals(1, countFetches(2));
+
+        // The last page isn't full, so there's nothing after it.
+        mCache.getChildren(PARENT_ID, 2, PAGE_SIZE, null).get();
+        assertEquals(1, countFetches(2));
+        assertEquals(0, countFetches(3));
+    }
+
+    @Test
+    public void invalidate_dropsPagesOfParent() throws Exception {
+        mCache.addSubscription(PARENT_ID);
+        mCache.getChildren(PARENT_ID, 0, PAGE_SIZE, null).get();
+
+        mCache.invalidate(PARENT_ID);
+        mCache.getChildren(PARENT_ID, 0, PAGE_SIZE, null).get();
+
+        assertEquals(2, countFetches(0));
+    }
+
+    @Test
+    public void invalidate_doesNotCacheResultsInFlight() throws Exception {
+        mCache.addSubscription(PARENT_ID);
+        mHoldResults = true;
+        ListenableFuture<LibraryResult> future =
+                mCache.getChildren(PARENT_ID, 0, PAGE_SIZE, null);
+
+        mCache.invalidate(PARENT_ID);
+        mHoldResults = false;
+        completePendingFutures();
+        assertEquals(RESULT_SUCCESS, future.get().getResultCode());
+        mCache.getChildren(PARENT_ID, 0, PAGE_SIZE, null).get();
+
+        assertEquals(2, countFetches(0));
+    }
+
+    @Test
+    public void removeSubscription_dropsPagesOfParent() throws Exception {
+        mCache.addSubscription(PARENT_ID);
+        mCache.getChildren(PARENT_ID, 0, PAGE_SIZE, null).get();
+
+        mCache.removeSubscription(PARENT_ID);
+        mCache.getChildren(PARENT_ID, 0, PAGE_SIZE, null).get();
+
+        assertEquals(2, countFetches(0));
+    }
+
+    @Test
+    public void getChildren_boundsNumberOfCachedItems() throws Exception {
+        // Only enough for one page and its count.
+        mCache = createCache(PAGE_SIZE + 1);
+        mCache.addSubscription(PARENT_ID);
+
+        mCache.getChildren(PARENT_ID, 0, PAGE_SIZE, null).get();
+        // The prefetched page 1 evicts page 0.
+        mCache.getChildren(PARENT_ID, 0, PAGE_SIZE, null).get();
+
+        assertEquals(2, countFetches(0));
+    }
+
+    private ChildrenPageCache createCache(int maxItemCount) {
+        return new ChildrenPageCache(maxItemCount, new ChildrenPageCache.PageFetcher() {
+            @NonNull
+            @Override
+            public ListenableFuture<LibraryResult> fetch(@NonNull String parentId, int page,
+                    int pageSize, @Nullable LibraryParams params) {
+                mFetchedPages.add(page);
+                ResolvableFuture<LibraryResult> future = ResolvableFuture.create();
+                mPendingFutures.add(future);
+                mPendingPages.add(page);
+                if (!mHoldResults) {
+                    completePendingFutures();
+                }
+                return future;
+            }
+        });
+    }
+
+    private void completePendingFutures() {
+        List<ResolvableFuture<LibraryResult>> futures = new ArrayList<>(mPendingFutures);
+        List<Integer> pages = new ArrayList<>(mPendingPages);
+        mPendingFutures.clear();
+        mPendingPages.clear();
+        for (int i = 0; i < futures.size(); i++) {
+            int page = pages.get(i);
+            futures.get(i).set(new LibraryResult(RESULT_SUCCESS,
+                    TestUtils.createMediaItems(Math.max(0,
+                            Math.min(PAGE_SIZE, CHILDREN_COUNT - page * PAGE_SIZE))),
+                    null));
+        }
+    }
+
+    private int countFetches(int page) {
+        int count = 0;
+        for (int fetchedPage : mFetchedPages) {
+            if (fetchedPage == page) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
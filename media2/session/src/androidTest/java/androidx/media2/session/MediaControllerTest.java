@@ -68,6 +68,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -363,6 +364,34 @@ public class MediaControllerTest extends MediaSessionTestBase {
         TestUtils.assertMetadataEquals(testMetadata, controller.getPlaylistMetadata());
     }
 
+    @Test
+    public void onPlaylistChanged_doesNotChangePreviousPlaylist() throws InterruptedException {
+        final List<MediaItem> testList = TestUtils.createMediaItems(3);
+        final List<List<MediaItem>> playlists = new ArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(2);
+        final ControllerCallback callback = new ControllerCallback() {
+            @Override
+            public void onPlaylistChanged(@NonNull MediaController controller,
+                    List<MediaItem> playlist, MediaMetadata metadata) {
+                playlists.add(playlist);
+                latch.countDown();
+            }
+        };
+        MediaController controller = createController(mSession.getToken(), true, null, callback);
+        mPlayer.mPlaylist = testList;
+        mPlayer.notifyPlaylistChanged();
+        List<MediaItem> changedList = new ArrayList<>(testList);
+        changedList.remove(1);
+        mPlayer.mPlaylist = changedList;
+        mPlayer.notifyPlaylistChanged();
+        assertTrue(latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+        // The second change is sent as a diff, which must not be applied to the first playlist.
+        TestUtils.assertMediaItemListEquals(testList, playlists.get(0));
+        TestUtils.assertMediaItemListEquals(changedList, playlists.get(1));
+        TestUtils.assertMediaItemListEquals(changedList, controller.getPlaylist());
+    }
+
     @Test
     public void updatePlaylistMetadata() throws Exception {
         final MediaMetadata testMetadata = TestUtils.createMetadata();
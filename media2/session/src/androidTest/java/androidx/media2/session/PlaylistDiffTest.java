@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.media2.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.os.Parcel;
+
+import androidx.media2.common.MediaItem;
+import androidx.media2.common.MediaParcelUtils;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+import androidx.versionedparcelable.ParcelImpl;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests {@link PlaylistDiff}.
+ */
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class PlaylistDiffTest extends MediaTestBase {
+    private static final int SIZE = 10;
+    private static final int BASE_VERSION = 5;
+
+    @Test
+    public void insert() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(SIZE);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        newPlaylist.add(3, TestUtils.createMediaItem("inserted"));
+
+        PlaylistDiff diff = assertDiff(oldPlaylist, newPlaylist, PlaylistDiff.NO_VERSION);
+        assertEquals(1, diff.getInsertedItems().size());
+    }
+
+    @Test
+    public void remove() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(SIZE);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        newPlaylist.subList(2, 5).clear();
+
+        PlaylistDiff diff = assertDiff(oldPlaylist, newPlaylist, PlaylistDiff.NO_VERSION);
+        assertNull(diff.getInsertedItems());
+    }
+
+    @Test
+    public void move() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(SIZE);
+        List<MediaItem> forward = new ArrayList<>(oldPlaylist);
+        forward.add(7, forward.remove(1));
+        List<MediaItem> backward = new ArrayList<>(oldPlaylist);
+        backward.add(1, backward.remove(7));
+
+        assertNull(assertDiff(oldPlaylist, forward, PlaylistDiff.NO_VERSION).getInsertedItems());
+        assertNull(assertDiff(oldPlaylist, backward, PlaylistDiff.NO_VERSION).getInsertedItems());
+    }
+
+    @Test
+    public void moveBetweenFirstAndLast() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(SIZE);
+        List<MediaItem> toEnd = new ArrayList<>(oldPlaylist);
+        toEnd.add(toEnd.remove(0));
+        List<MediaItem> toFront = new ArrayList<>(oldPlaylist);
+        toFront.add(0, toFront.remove(SIZE - 1));
+
+        PlaylistDiff toEndDiff = assertDiff(oldPlaylist, toEnd, PlaylistDiff.NO_VERSION);
+        assertFalse(toEndDiff.isReset());
+        assertNull(toEndDiff.getInsertedItems());
+        PlaylistDiff toFrontDiff = assertDiff(oldPlaylist, toFront, PlaylistDiff.NO_VERSION);
+        assertFalse(toFrontDiff.isReset());
+        assertNull(toFrontDiff.getInsertedItems());
+    }
+
+    @Test
+    public void replace() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(SIZE);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        newPlaylist.set(4, TestUtils.createMediaItem("replaced"));
+        newPlaylist.set(6, TestUtils.createMediaItem("replaced2"));
+
+        PlaylistDiff diff = assertDiff(oldPlaylist, newPlaylist, PlaylistDiff.NO_VERSION);
+        assertEquals(3, diff.getInsertedItems().size());
+    }
+
+    @Test
+    public void changedItem() {
+        List<MediaItem> playlist = TestUtils.createMediaItems(SIZE);
+
+        PlaylistDiff diff = assertDiff(playlist, playlist, 8);
+        assertEquals(1, diff.getInsertedItems().size());
+        assertTrue(diff.getInsertedItems().get(0) == playlist.get(8));
+    }
+
+    @Test
+    public void unchanged() {
+        List<MediaItem> playlist = TestUtils.createMediaItems(SIZE);
+
+        PlaylistDiff diff = assertDiff(playlist, playlist, PlaylistDiff.NO_VERSION);
+        assertFalse(diff.isReset());
+        assertNull(diff.getInsertedItems());
+    }
+
+    @Test
+    public void resetWhenEverythingChanged() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(SIZE);
+        List<MediaItem> newPlaylist = TestUtils.createMediaItems(SIZE / 2);
+
+        PlaylistDiff diff = assertDiff(oldPlaylist, newPlaylist, PlaylistDiff.NO_VERSION);
+        assertTrue(diff.isReset());
+        assertTrue(PlaylistDiff.create(BASE_VERSION, null, newPlaylist, -1).isReset());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void applyToWrongPlaylist() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(SIZE);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        newPlaylist.subList(5, SIZE).clear();
+
+        PlaylistDiff diff = PlaylistDiff.create(BASE_VERSION, oldPlaylist, newPlaylist, -1);
+        diff.apply(TestUtils.createMediaItems(2), null);
+    }
+
+    @Test
+    public void applyFailureLeavesPlaylistUnchanged() {
+        List<MediaItem> oldPlaylist = TestUtils.createMediaItems(SIZE);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        newPlaylist.remove(0);
+        newPlaylist.add(3, TestUtils.createMediaItems(1).get(0));
+
+        PlaylistDiff diff = PlaylistDiff.create(BASE_VERSION, oldPlaylist, newPlaylist, -1);
+        List<MediaItem> playlist = new ArrayList<>(oldPlaylist);
+        try {
+            // The removal fits, but the inserted items are missing.
+            diff.apply(playlist, null);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // Expected.
+        }
+        assertEquals(oldPlaylist, playlist);
+    }
+
+    /**
+     * Checks that the diff survives parceling and turns a copy of the old playlist into the new
+     * one.
+     */
+    private static PlaylistDiff assertDiff(List<MediaItem> oldPlaylist,
+            List<MediaItem> newPlaylist, int changedIndex) {
+        PlaylistDiff diff = PlaylistDiff.create(BASE_VERSION, oldPlaylist, newPlaylist,
+                changedIndex);
+        assertEquals(BASE_VERSION + 1, diff.getVersion());
+
+        PlaylistDiff parceled = writeToParcelAndCreateDiff(diff);
+        assertEquals(diff.isReset(), parceled.isReset());
+        assertEquals(diff.getVersion(), parceled.getVersion());
+        List<MediaItem> playlist = parceled.apply(new ArrayList<>(oldPlaylist),
+                diff.getInsertedItems());
+        assertEquals(newPlaylist, playlist);
+        return diff;
+    }
+
+    private static PlaylistDiff writeToParcelAndCreateDiff(PlaylistDiff diff) {
+        Parcel parcel = Parcel.obtain();
+        parcel.writeParcelable(MediaParcelUtils.toParcelable(diff), 0);
+        parcel.setDataPosition(0);
+        ParcelImpl parcelImpl = parcel.readParcelable(ParcelImpl.class.getClassLoader());
+        parcel.recycle();
+        return MediaParcelUtils.fromParcelable(parcelImpl);
+    }
+}
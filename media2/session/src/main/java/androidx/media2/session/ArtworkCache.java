@@ -0,0 +1,351 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.media2.session;
+
+import static androidx.media2.session.MediaConstants.METADATA_KEY_ARTWORK_VERSION;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.ArrayMap;
+import androidx.collection.LruCache;
+import androidx.media2.common.MediaItem;
+import androidx.media2.common.MediaMetadata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Artwork of media items, for controllers that get it by reference.
+ * <p>
+ * Sessions send media items to those controllers without their bitmaps, but with a version of
+ * their artwork in {@link MediaConstants#METADATA_KEY_ARTWORK_VERSION}. The controllers get the
+ * bitmaps with {@link IMediaSession#getArtwork} only when they need them. Both sides keep the
+ * bitmaps in an LRU cache keyed by media id and bounded by the size of the bitmaps. The session
+ * can add evicted artwork back from its player, so its cache only saves looking it up.
+ * <p>
+ * The version only depends on which bitmaps the item has, so it stays the same when the artwork
+ * is evicted and added back, or doesn't fit in the cache at all. Controllers remove the version
+ * from the items they hand to the app and keep it on the side.
+ */
+class ArtworkCache {
+    static final long NO_VERSION = 0;
+
+    private final Object mLock = new Object();
+
+    @GuardedBy("mLock")
+    private final LruCache<String, Entry> mEntries;
+    // Ids of the bitmaps that versions were made of, for as long as the bitmaps are in use
+    @GuardedBy("mLock")
+    private final WeakHashMap<Bitmap, Long> mBitmapIds = new WeakHashMap<>();
+    @GuardedBy("mLock")
+    private long mLastBitmapId;
+    // Versions removed from the items handed to the app, see removeArtworkVersion()
+    @GuardedBy("mLock")
+    private final WeakHashMap<MediaItem, Long> mRemovedVersions = new WeakHashMap<>();
+
+    /**
+     * @param maxSizeInBytes the maximum size of the bitmaps in the cache
+     */
+    ArtworkCache(int maxSizeInBytes) {
+        mEntries = new LruCache<String, Entry>(maxSizeInBytes) {
+            @Override
+            protected int sizeOf(@NonNull String mediaId, @NonNull Entry entry) {
+                return entry.mSizeInBytes;
+            }
+        };
+    }
+
+    /**
+     * Puts the bitmaps of the item in the cache, and returns a copy of the item with their
+     * version instead of the bitmaps. Returns the item itself if it doesn't have any bitmaps or
+     * a media id.
+     */
+    @Nullable
+    MediaItem replaceBitmaps(@Nullable MediaItem item) {
+        Entry entry = item == null ? null : putBitmaps(item);
+        if (entry == null) {
+            return item;
+        }
+        MediaMetadata.Builder builder = new MediaMetadata.Builder(item.getMetadata());
+        for (String key : entry.mBitmaps.keySet()) {
+            builder.putBitmap(key, null);
+        }
+        builder.putLong(METADATA_KEY_ARTWORK_VERSION, entry.mVersion);
+        return new MediaItem.Builder()
+                .setStartPosition(item.getStartPosition())
+                .setEndPosition(item.getEndPosition())
+                .setMetadata(builder.build()).build();
+    }
+
+    /**
+     * Puts the bitmaps of the item in the cache, unless they are too large for it.
+     *
+     * @return the entry for the bitmaps, even if they weren't cached, or {@code null} if the
+     *         item doesn't have any bitmaps or a media id
+     */
+    @Nullable
+    Entry putBitmaps(@NonNull MediaItem item) {
+        MediaMetadata metadata = item.getMetadata();
+        String mediaId = item.getMediaId();
+        if (metadata == null || mediaId == null) {
+            return null;
+        }
+        Map<String, Bitmap> bitmaps = getBitmaps(metadata);
+        if (bitmaps.isEmpty()) {
+            return null;
+        }
+        synchronized (mLock) {
+            Entry entry = mEntries.get(mediaId);
+            if (entry == null || !entry.hasBitmaps(bitmaps)) {
+                entry = new Entry(getVersion(bitmaps), bitmaps);
+                // LruCache would evict everything, including the entry, to make room for it.
+                if (entry.mSizeInBytes <= mEntries.maxSize()) {
+                    mEntries.put(mediaId, entry);
+                }
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Same as {@link #replaceBitmaps(MediaItem)} for each item. Returns the list itself if none
+     * of the items have bitmaps.
+     */
+    @Nullable
+    List<MediaItem> replaceBitmaps(@Nullable List<MediaItem> items) {
+        if (items == null) {
+            return null;
+        }
+        List<MediaItem> result = null;
+        for (int i = 0; i < items.size(); i++) {
+            MediaItem item = items.get(i);
+            MediaItem replacedItem = replaceBitmaps(item);
+            if (result == null && replacedItem != item) {
+                result = new ArrayList<>(items.subList(0, i));
+            }
+            if (result != null) {
+                result.add(replacedItem);
+            }
+        }
+        return result != null ? result : items;
+    }
+
+    /**
+     * Puts artwork received from a session in the cache.
+     *
+     * @param artwork item with the media id, bitmaps, and version of the artwork
+     * @return the entry for the artwork, or {@code null} if it isn't valid
+     */
+    @Nullable
+    Entry put(@NonNull MediaItem artwork) {
+        MediaMetadata metadata = artwork.getMetadata();
+        String mediaId = artwork.getMediaId();
+        long version = getArtworkVersion(artwork);
+        if (metadata == null || mediaId == null || version == NO_VERSION) {
+            return null;
+        }
+        Entry entry = new Entry(version, getBitmaps(metadata));
+        synchronized (mLock) {
+            mEntries.put(mediaId, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Gets the artwork of the media id.
+     */
+    @Nullable
+    Entry get(@NonNull String mediaId) {
+        synchronized (mLock) {
+            return mEntries.get(mediaId);
+        }
+    }
+
+    /**
+     * Removes the artwork version from the metadata of an item received from the session, so
+     * that it isn't visible to the app, and keeps it for
+     * {@link #getRemovedArtworkVersion(MediaItem)}. Returns the item itself if it doesn't have
+     * a version.
+     */
+    @Nullable
+    MediaItem removeArtworkVersion(@Nullable MediaItem item) {
+        long version = getArtworkVersion(item);
+        if (version == NO_VERSION) {
+            return item;
+        }
+        MediaMetadata metadata = new MediaMetadata.Builder(item.getMetadata())
+                .remove(METADATA_KEY_ARTWORK_VERSION).build();
+        MediaItem removedItem = new MediaItem.Builder()
+                .setStartPosition(item.getStartPosition())
+                .setEndPosition(item.getEndPosition())
+                .setMetadata(metadata).build();
+        synchronized (mLock) {
+            mRemovedVersions.put(removedItem, version);
+        }
+        return removedItem;
+    }
+
+    /**
+     * Same as {@link #removeArtworkVersion(MediaItem)} for each item. Returns the list itself if
+     * none of the items have a version.
+     */
+    @Nullable
+    List<MediaItem> removeArtworkVersions(@Nullable List<MediaItem> items) {
+        if (items == null) {
+            return null;
+        }
+        List<MediaItem> result = null;
+        for (int i = 0; i < items.size(); i++) {
+            MediaItem item = items.get(i);
+            MediaItem removedItem = removeArtworkVersion(item);
+            if (result == null && removedItem != item) {
+                result = new ArrayList<>(items.subList(0, i));
+            }
+            if (result != null) {
+                result.add(removedItem);
+            }
+        }
+        return result != null ? result : items;
+    }
+
+    /**
+     * Gets the version that {@link #removeArtworkVersion(MediaItem)} removed from the item, or
+     * {@link #NO_VERSION}.
+     */
+    long getRemovedArtworkVersion(@NonNull MediaItem item) {
+        synchronized (mLock) {
+            Long version = mRemovedVersions.get(item);
+            return version != null ? version : NO_VERSION;
+        }
+    }
+
+    /**
+     * Gets the version of the artwork that was replaced in the item, or {@link #NO_VERSION}.
+     */
+    static long getArtworkVersion(@Nullable MediaItem item) {
+        MediaMetadata metadata = item == null ? null : item.getMetadata();
+        if (metadata == null || !metadata.containsKey(METADATA_KEY_ARTWORK_VERSION)) {
+            return NO_VERSION;
+        }
+        return metadata.getLong(METADATA_KEY_ARTWORK_VERSION);
+    }
+
+    /**
+     * Gets the version of a set of bitmaps, which is the same for as long as the bitmaps are in
+     * use. Bitmaps are told apart by identity, like in {@link Entry#hasBitmaps(Map)}.
+     */
+    @GuardedBy("mLock")
+    private long getVersion(@NonNull Map<String, Bitmap> bitmaps) {
+        long version = NO_VERSION;
+        for (Map.Entry<String, Bitmap> bitmap : bitmaps.entrySet()) {
+            Long id = mBitmapIds.get(bitmap.getValue());
+            if (id == null) {
+                id = ++mLastBitmapId;
+                mBitmapIds.put(bitmap.getValue(), id);
+            }
+            // Summed so that the order of the keys doesn't matter
+            version += (id * 0x9E3779B97F4A7C15L) ^ bitmap.getKey().hashCode();
+        }
+        return version != NO_VERSION ? version : NO_VERSION + 1;
+    }
+
+    private static Map<String, Bitmap> getBitmaps(@NonNull MediaMetadata metadata) {
+        Map<String, Bitmap> bitmaps = new ArrayMap<>();
+        for (String key : metadata.keySet()) {
+            Object value = metadata.getObject(key);
+            if (value instanceof Bitmap) {
+                bitmaps.put(key, (Bitmap) value);
+            }
+        }
+        return bitmaps;
+    }
+
+    private static int getSizeInBytes(@NonNull Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= 19) {
+            return bitmap.getAllocationByteCount();
+        } else {
+            return bitmap.getByteCount();
+        }
+    }
+
+    /**
+     * Bitmaps of a media item with their version.
+     */
+    static final class Entry {
+        final long mVersion;
+        final Map<String, Bitmap> mBitmaps;
+        final int mSizeInBytes;
+
+        Entry(long version, @NonNull Map<String, Bitmap> bitmaps) {
+            mVersion = version;
+            mBitmaps = bitmaps;
+            int sizeInBytes = 0;
+            for (Bitmap bitmap : bitmaps.values()) {
+                sizeInBytes += getSizeInBytes(bitmap);
+            }
+            mSizeInBytes = sizeInBytes;
+        }
+
+        /**
+         * Returns an item with only the media id, bitmaps and version of this artwork, for
+         * sending it to controllers.
+         */
+        @NonNull
+        MediaItem toMediaItem(@NonNull String mediaId) {
+            MediaMetadata.Builder builder = new MediaMetadata.Builder()
+                    .putString(MediaMetadata.METADATA_KEY_MEDIA_ID, mediaId)
+                    .putLong(METADATA_KEY_ARTWORK_VERSION, mVersion);
+            for (Map.Entry<String, Bitmap> bitmap : mBitmaps.entrySet()) {
+                builder.putBitmap(bitmap.getKey(), bitmap.getValue());
+            }
+            return new MediaItem.Builder().setMetadata(builder.build()).build();
+        }
+
+        /**
+         * Returns a copy of the item with the bitmaps of this artwork.
+         */
+        @NonNull
+        MediaItem addBitmaps(@NonNull MediaItem item) {
+            MediaMetadata.Builder builder = new MediaMetadata.Builder(item.getMetadata());
+            for (Map.Entry<String, Bitmap> bitmap : mBitmaps.entrySet()) {
+                builder.putBitmap(bitmap.getKey(), bitmap.getValue());
+            }
+            return new MediaItem.Builder()
+                    .setStartPosition(item.getStartPosition())
+                    .setEndPosition(item.getEndPosition())
+                    .setMetadata(builder.build()).build();
+        }
+
+        boolean hasBitmaps(@NonNull Map<String, Bitmap> bitmaps) {
+            if (bitmaps.size() != mBitmaps.size()) {
+                return false;
+            }
+            for (Map.Entry<String, Bitmap> bitmap : bitmaps.entrySet()) {
+                if (mBitmaps.get(bitmap.getKey()) != bitmap.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.media2.session;
+
+import static androidx.media2.session.LibraryResult.RESULT_ERROR_UNKNOWN;
+import static androidx.media2.session.LibraryResult.RESULT_SUCCESS;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.ArrayMap;
+import androidx.collection.ArraySet;
+import androidx.collection.LruCache;
+import androidx.concurrent.futures.ResolvableFuture;
+import androidx.media2.common.MediaItem;
+import androidx.media2.session.MediaLibraryService.LibraryParams;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Caches pages of children returned by {@link MediaBrowser#getChildren} for subscribed parents.
+ * <p>
+ * The size of the cache is bounded by the number of media items in it. As the pages of a parent
+ * are only dropped when the library session notifies that its children have changed, pages are
+ * only cached while the parent is subscribed. Requests that were in flight when the pages were
+ * dropped don't put their results in the cache.
+ * <p>
+ * Once a page is returned, the pages before and after it are fetched in the background so that
+ * the browser doesn't need to wait for the library session when it scrolls.
+ */
+class ChildrenPageCache {
+    /**
+     * Fetches a page of children from the library session.
+     */
+    interface PageFetcher {
+        @NonNull
+        ListenableFuture<LibraryResult> fetch(@NonNull String parentId, int page, int pageSize,
+                @Nullable LibraryParams params);
+    }
+
+    private final Object mLock = new Object();
+    private final PageFetcher mFetcher;
+
+    @GuardedBy("mLock")
+    private final LruCache<Key, LibraryResult> mPages;
+    @GuardedBy("mLock")
+    private final Map<Key, ListenableFuture<LibraryResult>> mPendingPages = new ArrayMap<>();
+    @GuardedBy("mLock")
+    private final Set<String> mSubscribedParentIds = new ArraySet<>();
+
+    /**
+     * @param maxItemCount the maximum number of media items in the cache. Should be positive.
+     * @param fetcher fetcher for the pages that aren't in the cache
+     */
+    ChildrenPageCache(int maxItemCount, @NonNull PageFetcher fetcher) {
+        mFetcher = fetcher;
+        mPages = new LruCache<Key, LibraryResult>(maxItemCount) {
+            @Override
+            protected int sizeOf(@NonNull Key key, @NonNull LibraryResult value) {
+                // Count the page itself, so that empty pages can't grow the cache unbounded.
+                return 1 + value.getMediaItems().size();
+            }
+        };
+    }
+
+    /**
+     * Starts caching the children of the parent.
+     */
+    void addSubscription(@NonNull String parentId) {
+        synchronized (mLock) {
+            mSubscribedParentIds.add(parentId);
+        }
+    }
+
+    /**
+     * Stops caching the children of the parent, and drops its pages.
+     */
+    void removeSubscription(@NonNull String parentId) {
+        synchronized (mLock) {
+            mSubscribedParentIds.remove(parentId);
+            invalidateLocked(parentId);
+        }
+    }
+
+    /**
+     * Drops the pages of the parent, called when its children have changed.
+     */
+    void invalidate(@NonNull String parentId) {
+        synchronized (mLock) {
+            invalidateLocked(parentId);
+        }
+    }
+
+    /**
+     * Gets a page of children from the cache, or from the library session if it isn't there.
+     */
+    @NonNull
+    ListenableFuture<LibraryResult> getChildren(@NonNull String parentId, int page,
+            int pageSize, @Nullable LibraryParams params) {
+        if (!isCacheable(params)) {
+            return mFetcher.fetch(parentId, page, pageSize, params);
+        }
+        final Key key = new Key(parentId, page, pageSize, params);
+        boolean subscribed;
+        LibraryResult cachedResult = null;
+        synchronized (mLock) {
+            subscribed = mSubscribedParentIds.contains(parentId);
+            if (subscribed) {
+                cachedResult = mPages.get(key);
+            }
+        }
+        if (!subscribed) {
+            return mFetcher.fetch(parentId, page, pageSize, params);
+        }
+        final ResolvableFuture<LibraryResult> result = ResolvableFuture.create();
+        if (cachedResult != null) {
+            result.set(cachedResult);
+            prefetchAdjacentPages(key, cachedResult);
+            return result;
+        }
+        // Don't hand out the shared future, as cancelling it would cancel the other requests for
+        // the same page.
+        final ListenableFuture<LibraryResult> future = fetchIntoCache(key);
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                LibraryResult fetchedResult = getDoneResult(future);
+                if (fetchedResult == null) {
+                    result.set(new LibraryResult(RESULT_ERROR_UNKNOWN));
+                    return;
+                }
+                result.set(fetchedResult);
+                prefetchAdjacentPages(key, fetchedResult);
+            }
+        }, MediaUtils.DIRECT_EXECUTOR);
+        return result;
+    }
+
+    @GuardedBy("mLock")
+    private void invalidateLocked(@NonNull String parentId) {
+        for (Key key : mPages.snapshot().keySet()) {
+            if (key.mParentId.equals(parentId)) {
+                mPages.remove(key);
+            }
+        }
+        // Forget about requests in flight so that their possibly stale results aren't cached.
+        List<Key> pendingKeys = new ArrayList<>(mPendingPages.keySet());
+        for (Key key : pendingKeys) {
+            if (key.mParentId.equals(parentId)) {
+                mPendingPages.remove(key);
+            }
+        }
+    }
+
+    private void prefetchAdjacentPages(@NonNull Key key, @NonNull LibraryResult result) {
+        if (result.getResultCode() != RESULT_SUCCESS) {
+            return;
+        }
+        List<MediaItem> items = result.getMediaItems();
+        if (items != null && items.size() >= key.mPageSize) {
+            prefetch(key.adjacent(key.mPage + 1));
+        }
+        if (key.mPage > 0) {
+            prefetch(key.adjacent(key.mPage - 1));
+        }
+    }
+
+    private void prefetch(@NonNull Key key) {
+        synchronized (mLock) {
+            if (!mSubscribedParentIds.contains(key.mParentId) || mPages.get(key) != null
+                    || mPendingPages.containsKey(key)) {
+                return;
+            }
+        }
+        fetchIntoCache(key);
+    }
+
+    @NonNull
+    private ListenableFuture<LibraryResult> fetchIntoCache(@NonNull final Key key) {
+        synchronized (mLock) {
+            ListenableFuture<LibraryResult> pendingFuture = mPendingPages.get(key);
+            if (pendingFuture != null) {
+                return pendingFuture;
+            }
+        }
+        final ListenableFuture<LibraryResult> future =
+                mFetcher.fetch(key.mParentId, key.mPage, key.mPageSize, key.mParams);
+        synchronized (mLock) {
+            mPendingPages.put(key, future);
+        }
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                LibraryResult result = getDoneResult(future);
+                synchronized (mLock) {
+                    if (mPendingPages.get(key) != future) {
+                        // Invalidated, or replaced by a newer request.
+                        return;
+                    }
+                    mPendingPages.remove(key);
+                    if (result != null && result.getResultCode() == RESULT_SUCCESS
+                            && result.getMediaItems() != null
+                            && mSubscribedParentIds.contains(key.mParentId)) {
+                        mPages.put(key, result);
+                    }
+                }
+            }
+        }, MediaUtils.DIRECT_EXECUTOR);
+        return future;
+    }
+
+    /**
+     * Returns whether pages requested with the params can be cached. Extras are the private
+     * contract between the browser and the library session, so pages requested with them aren't
+     * cached.
+     */
+    private static boolean isCacheable(@Nullable LibraryParams params) {
+        return params == null || params.getExtras() == null || params.getExtras().isEmpty();
+    }
+
+    @Nullable
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    static LibraryResult getDoneResult(@NonNull ListenableFuture<LibraryResult> future) {
+        if (future.isCancelled()) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException | InterruptedException e) {
+            return null;
+        }
+    }
+
+    private static final class Key {
+        final String mParentId;
+        final int mPage;
+        final int mPageSize;
+        // Only the flags are compared, as the params are known to have no extras.
+        final LibraryParams mParams;
+
+        Key(@NonNull String parentId, int page, int pageSize, @Nullable LibraryParams params) {
+            mParentId = parentId;
+            mPage = page;
+            mPageSize = pageSize;
+            mParams = params;
+        }
+
+        @NonNull
+        Key adjacent(int page) {
+            return new Key(mParentId, page, mPageSize, mParams);
+        }
+
+        private int getFlags() {
+            if (mParams == null) {
+                return 0;
+            }
+            return (mParams.isRecent() ? 1 : 0) | (mParams.isOffline() ? 2 : 0)
+                    | (mParams.isSuggested() ? 4 : 0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return mParentId.equals(other.mParentId) && mPage == other.mPage
+                    && mPageSize == other.mPageSize && getFlags() == other.getFlags();
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mParentId.hashCode();
+            result = 31 * result + mPage;
+            result = 31 * result + mPageSize;
+            return 31 * result + getFlags();
+        }
+    }
+}
@@ -38,6 +38,9 @@ public class MediaBrowser extends MediaController {
     static final String TAG = "MediaBrowser";
     static final boolean DEBUG = Log.isLoggable(TAG, Log.DEBUG);
 
+    final int mChildrenCacheSize;
+    final boolean mChildrenArtworkExcluded;
+
     /**
      * Callback to listen events from {@link MediaLibraryService}.
      */
@@ -81,17 +84,26 @@ public class MediaBrowser extends MediaController {
      * @param token token to connect to
      * @param executor executor to run callbacks on
      * @param callback controller callback to receive changes in
+     * @param childrenCacheSize maximum number of children to cache
+     * @param childrenArtworkExcluded whether to get children without artwork bitmaps
      */
     MediaBrowser(@NonNull Context context, @NonNull SessionToken token,
             @Nullable Bundle connectionHints, @Nullable Executor executor,
-            @Nullable BrowserCallback callback) {
+            @Nullable BrowserCallback callback, int childrenCacheSize,
+            boolean childrenArtworkExcluded) {
         super(context, token, connectionHints, executor, callback);
+        // The impl is created by the super constructor, so it reads these lazily.
+        mChildrenCacheSize = childrenCacheSize;
+        mChildrenArtworkExcluded = childrenArtworkExcluded;
     }
 
     MediaBrowser(@NonNull Context context, @NonNull MediaSessionCompat.Token token,
             @Nullable Bundle connectionHints, @Nullable Executor executor,
-            @Nullable BrowserCallback callback) {
+            @Nullable BrowserCallback callback, int childrenCacheSize,
+            boolean childrenArtworkExcluded) {
         super(context, token, connectionHints, executor, callback);
+        mChildrenCacheSize = childrenCacheSize;
+        mChildrenArtworkExcluded = childrenArtworkExcluded;
     }
 
     @Override
@@ -305,6 +317,9 @@ public class MediaBrowser extends MediaController {
      */
     public static final class Builder extends
             BuilderBase<MediaBrowser, MediaBrowser.Builder, BrowserCallback> {
+        private int mChildrenCacheSize;
+        private boolean mChildrenArtworkExcluded;
+
         public Builder(@NonNull Context context) {
             super(context);
         }
@@ -334,6 +349,60 @@ public class MediaBrowser extends MediaController {
             return super.setConnectionHints(connectionHints);
         }
 
+        @Override
+        @NonNull
+        public Builder setArtworkByReference(boolean byReference) {
+            return super.setArtworkByReference(byReference);
+        }
+
+        /**
+         * Sets the maximum number of media items to keep from
+         * {@link MediaBrowser#getChildren(String, int, int, LibraryParams)}, so that going back
+         * to a page doesn't need to get it from the library service again.
+         * <p>
+         * Only the children of parents subscribed with
+         * {@link MediaBrowser#subscribe(String, LibraryParams)} are cached, and they're dropped
+         * when {@link BrowserCallback#onChildrenChanged} is called for the parent. Children
+         * requested with {@link LibraryParams#getExtras() extras} aren't cached. Once a page is
+         * returned, the pages next to it are also fetched in the background.
+         * <p>
+         * Cached pages are shared between calls, so the returned
+         * {@link androidx.media2.common.MediaItem}s shouldn't be modified. This has no effect
+         * when connected to a {@link androidx.media.MediaBrowserServiceCompat}.
+         * <p>
+         * The default is {@code 0}, which doesn't cache anything.
+         *
+         * @param maxItemCount maximum number of media items to cache
+         * @return this builder
+         */
+        @NonNull
+        public Builder setChildrenCacheSize(@IntRange(from = 0) int maxItemCount) {
+            if (maxItemCount < 0) {
+                throw new IllegalArgumentException("maxItemCount shouldn't be negative");
+            }
+            mChildrenCacheSize = maxItemCount;
+            return this;
+        }
+
+        /**
+         * Sets whether the library service should remove the bitmaps from the metadata of
+         * the children returned by {@link MediaBrowser#getChildren(String, int, int,
+         * LibraryParams)}. Other metadata such as
+         * {@link androidx.media2.common.MediaMetadata#METADATA_KEY_ART_URI} is kept, so that the
+         * browser can load the artwork only for the items it shows.
+         * <p>
+         * Library services with an older version of this library always send the bitmaps. This
+         * has no effect when connected to a {@link androidx.media.MediaBrowserServiceCompat}.
+         *
+         * @param excluded {@code true} to get the children without bitmaps
+         * @return this builder
+         */
+        @NonNull
+        public Builder setChildrenArtworkExcluded(boolean excluded) {
+            mChildrenArtworkExcluded = excluded;
+            return this;
+        }
+
         /**
          * Builds a {@link MediaBrowser}.
          *
@@ -349,11 +418,13 @@ public class MediaBrowser extends MediaController {
                 throw new IllegalArgumentException("token and compat token shouldn't be both null");
             }
             if (mToken != null) {
-                return new MediaBrowser(mContext, mToken, mConnectionHints,
-                        mCallbackExecutor, (BrowserCallback) mCallback);
+                return new MediaBrowser(mContext, mToken, buildConnectionHints(),
+                        mCallbackExecutor, (BrowserCallback) mCallback, mChildrenCacheSize,
+                        mChildrenArtworkExcluded);
             } else {
-                return new MediaBrowser(mContext, mCompatToken, mConnectionHints,
-                        mCallbackExecutor, (BrowserCallback) mCallback);
+                return new MediaBrowser(mContext, mCompatToken, buildConnectionHints(),
+                        mCallbackExecutor, (BrowserCallback) mCallback, mChildrenCacheSize,
+                        mChildrenArtworkExcluded);
             }
         }
     }
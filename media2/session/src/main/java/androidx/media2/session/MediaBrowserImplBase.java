@@ -19,6 +19,7 @@ package androidx.media2.session;
 import static androidx.media2.session.LibraryResult.RESULT_ERROR_PERMISSION_DENIED;
 import static androidx.media2.session.LibraryResult.RESULT_ERROR_SESSION_DISCONNECTED;
 import static androidx.media2.session.LibraryResult.RESULT_INFO_SKIPPED;
+import static androidx.media2.session.LibraryResult.RESULT_SUCCESS;
 import static androidx.media2.session.SessionCommand.COMMAND_CODE_LIBRARY_GET_CHILDREN;
 import static androidx.media2.session.SessionCommand.COMMAND_CODE_LIBRARY_GET_ITEM;
 import static androidx.media2.session.SessionCommand.COMMAND_CODE_LIBRARY_GET_LIBRARY_ROOT;
@@ -32,6 +33,7 @@ import android.os.Bundle;
 import android.os.RemoteException;
 import android.util.Log;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.media2.common.MediaParcelUtils;
@@ -50,6 +52,12 @@ class MediaBrowserImplBase extends MediaControllerImplBase implements
     private static final LibraryResult RESULT_WHEN_CLOSED =
             new LibraryResult(RESULT_INFO_SKIPPED);
 
+    private final Object mChildrenCacheLock = new Object();
+    @GuardedBy("mChildrenCacheLock")
+    private ChildrenPageCache mChildrenCache;
+    @GuardedBy("mChildrenCacheLock")
+    private boolean mChildrenCacheCreated;
+
     MediaBrowserImplBase(Context context, MediaController instance, SessionToken token,
             @Nullable Bundle connectionHints) {
         super(context, instance, token, connectionHints);
@@ -75,7 +83,8 @@ class MediaBrowserImplBase extends MediaControllerImplBase implements
     @Override
     public ListenableFuture<LibraryResult> subscribe(final String parentId,
             final LibraryParams params) {
-        return dispatchRemoteLibrarySessionTask(COMMAND_CODE_LIBRARY_SUBSCRIBE,
+        final ListenableFuture<LibraryResult> result = dispatchRemoteLibrarySessionTask(
+                COMMAND_CODE_LIBRARY_SUBSCRIBE,
                 new RemoteLibrarySessionTask() {
                     @Override
                     public void run(IMediaSession iSession, int seq) throws RemoteException {
@@ -83,10 +92,29 @@ class MediaBrowserImplBase extends MediaControllerImplBase implements
                                 MediaParcelUtils.toParcelable(params));
                     }
                 });
+        final ChildrenPageCache cache = getChildrenCache();
+        if (cache != null) {
+            // Only cache children once the library session will notify when they change.
+            result.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    LibraryResult libraryResult = ChildrenPageCache.getDoneResult(result);
+                    if (libraryResult != null
+                            && libraryResult.getResultCode() == RESULT_SUCCESS) {
+                        cache.addSubscription(parentId);
+                    }
+                }
+            }, MediaUtils.DIRECT_EXECUTOR);
+        }
+        return result;
     }
 
     @Override
     public ListenableFuture<LibraryResult> unsubscribe(final String parentId) {
+        ChildrenPageCache cache = getChildrenCache();
+        if (cache != null) {
+            cache.removeSubscription(parentId);
+        }
         return dispatchRemoteLibrarySessionTask(COMMAND_CODE_LIBRARY_UNSUBSCRIBE,
                 new RemoteLibrarySessionTask() {
                     @Override
@@ -99,14 +127,11 @@ class MediaBrowserImplBase extends MediaControllerImplBase implements
     @Override
     public ListenableFuture<LibraryResult> getChildren(final String parentId, final int page,
             final int pageSize, final LibraryParams params) {
-        return dispatchRemoteLibrarySessionTask(COMMAND_CODE_LIBRARY_GET_CHILDREN,
-                new RemoteLibrarySessionTask() {
-                    @Override
-                    public void run(IMediaSession iSession, int seq) throws RemoteException {
-                        iSession.getChildren(mControllerStub, seq, parentId, page, pageSize,
-                                MediaParcelUtils.toParcelable(params));
-                    }
-                });
+        ChildrenPageCache cache = getChildrenCache();
+        if (cache != null) {
+            return cache.getChildren(parentId, page, pageSize, params);
+        }
+        return fetchChildren(parentId, page, pageSize, params);
     }
 
     @Override
@@ -158,6 +183,10 @@ class MediaBrowserImplBase extends MediaControllerImplBase implements
 
     void notifyChildrenChanged(final String parentId, final int itemCount,
             final LibraryParams libraryParams) {
+        ChildrenPageCache cache = getChildrenCache();
+        if (cache != null) {
+            cache.invalidate(parentId);
+        }
         getMediaBrowser().notifyBrowserCallback(new BrowserCallbackRunnable() {
             @Override
             public void run(@NonNull BrowserCallback callback) {
@@ -166,6 +195,63 @@ class MediaBrowserImplBase extends MediaControllerImplBase implements
         });
     }
 
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    ListenableFuture<LibraryResult> fetchChildren(final String parentId, final int page,
+            final int pageSize, @Nullable LibraryParams params) {
+        final LibraryParams sentParams = getMediaBrowser().mChildrenArtworkExcluded
+                ? addArtworkExcluded(params) : params;
+        return dispatchRemoteLibrarySessionTask(COMMAND_CODE_LIBRARY_GET_CHILDREN,
+                new RemoteLibrarySessionTask() {
+                    @Override
+                    public void run(IMediaSession iSession, int seq) throws RemoteException {
+                        iSession.getChildren(mControllerStub, seq, parentId, page, pageSize,
+                                MediaParcelUtils.toParcelable(sentParams));
+                    }
+                });
+    }
+
+    /**
+     * Gets the cache for children, which is created on first use as the options of the browser
+     * aren't set yet when this is constructed.
+     */
+    @Nullable
+    private ChildrenPageCache getChildrenCache() {
+        synchronized (mChildrenCacheLock) {
+            if (!mChildrenCacheCreated) {
+                mChildrenCacheCreated = true;
+                int cacheSize = getMediaBrowser().mChildrenCacheSize;
+                if (cacheSize > 0) {
+                    mChildrenCache = new ChildrenPageCache(cacheSize,
+                            new ChildrenPageCache.PageFetcher() {
+                                @NonNull
+                                @Override
+                                public ListenableFuture<LibraryResult> fetch(
+                                        @NonNull String parentId, int page, int pageSize,
+                                        @Nullable LibraryParams params) {
+                                    return fetchChildren(parentId, page, pageSize, params);
+                                }
+                            });
+                }
+            }
+            return mChildrenCache;
+        }
+    }
+
+    private static LibraryParams addArtworkExcluded(@Nullable LibraryParams params) {
+        LibraryParams.Builder builder = new LibraryParams.Builder();
+        Bundle extras;
+        if (params != null) {
+            builder.setRecent(params.isRecent())
+                    .setOffline(params.isOffline())
+                    .setSuggested(params.isSuggested());
+            extras = params.getExtras() != null ? new Bundle(params.getExtras()) : new Bundle();
+        } else {
+            extras = new Bundle();
+        }
+        extras.putBoolean(MediaConstants.ARGUMENT_ARTWORK_EXCLUDED, true);
+        return builder.setExtras(extras).build();
+    }
+
     private ListenableFuture<LibraryResult> dispatchRemoteLibrarySessionTask(int commandCode,
             RemoteLibrarySessionTask task) {
         final IMediaSession iSession = getSessionInterfaceIfAble(commandCode);
@@ -88,6 +88,17 @@ public class MediaConstants {
 
     static final String ARGUMENT_CAPTIONING_ENABLED = "androidx.media2.argument.CAPTIONING_ENABLED";
 
+    // Library params extra for getting children without bitmaps in their metadata.
+    static final String ARGUMENT_ARTWORK_EXCLUDED = "androidx.media2.argument.ARTWORK_EXCLUDED";
+
+    // Connection hint for getting artwork by reference, see ArtworkCache.
+    static final String CONNECTION_HINT_ARTWORK_BY_REFERENCE =
+            "androidx.media2.session.connection_hint.ARTWORK_BY_REFERENCE";
+
+    // Metadata key for the version of artwork replaced by reference, see ArtworkCache.
+    static final String METADATA_KEY_ARTWORK_VERSION =
+            "androidx.media2.session.metadata.ARTWORK_VERSION";
+
     private MediaConstants() {
     }
 }
@@ -687,6 +687,30 @@ public class MediaController implements Closeable {
         return createDisconnectedFuture();
     }
 
+    /**
+     * Loads the artwork bitmaps of a media item from the session.
+     * <p>
+     * When this controller is built with {@link Builder#setArtworkByReference(boolean)}, media
+     * items from the session don't have bitmaps in their metadata. Call this to get them when
+     * the artwork is shown. Loaded bitmaps are cached by the controller up to a limited size.
+     * <p>
+     * If it's successfully completed, {@link SessionResult#getMediaItem()} will return a copy of
+     * the media item with the bitmaps, or the media item itself if it has no artwork to load.
+     *
+     * @param item media item from this controller
+     * @see Builder#setArtworkByReference(boolean)
+     */
+    @NonNull
+    public ListenableFuture<SessionResult> loadArtwork(@NonNull MediaItem item) {
+        if (item == null) {
+            throw new NullPointerException("item shouldn't be null");
+        }
+        if (isConnected()) {
+            return getImpl().loadArtwork(item);
+        }
+        return createDisconnectedFuture();
+    }
+
     /**
      * Sends a custom command to the session
      * <p>
@@ -1406,6 +1430,18 @@ public class MediaController implements Closeable {
                 SessionResult.RESULT_ERROR_SESSION_DISCONNECTED);
     }
 
+    /**
+     * Returns whether any callback would be notified by {@link #notifyAllControllerCallbacks}.
+     */
+    boolean hasControllerCallbacks() {
+        if (mPrimaryCallback != null && mPrimaryCallbackExecutor != null) {
+            return true;
+        }
+        synchronized (mLock) {
+            return !mExtraControllerCallbacks.isEmpty();
+        }
+    }
+
     void notifyPrimaryControllerCallback(
             @NonNull final ControllerCallbackRunnable callbackRunnable) {
         if (mPrimaryCallback != null && mPrimaryCallbackExecutor != null) {
@@ -1480,6 +1516,7 @@ public class MediaController implements Closeable {
         PlaybackInfo getPlaybackInfo();
         ListenableFuture<SessionResult> setRating(@NonNull String mediaId,
                 @NonNull Rating rating);
+        ListenableFuture<SessionResult> loadArtwork(@NonNull MediaItem item);
         ListenableFuture<SessionResult> sendCustomCommand(@NonNull SessionCommand command,
                 @Nullable Bundle args);
         @Nullable
@@ -1571,6 +1608,12 @@ public class MediaController implements Closeable {
             return super.setControllerCallback(executor, callback);
         }
 
+        @Override
+        @NonNull
+        public Builder setArtworkByReference(boolean byReference) {
+            return super.setArtworkByReference(byReference);
+        }
+
         /**
          * Builds a {@link MediaController}.
          *
@@ -1585,10 +1628,10 @@ public class MediaController implements Closeable {
                 throw new IllegalArgumentException("token and compat token shouldn't be both null");
             }
             if (mToken != null) {
-                return new MediaController(mContext, mToken, mConnectionHints,
+                return new MediaController(mContext, mToken, buildConnectionHints(),
                         mCallbackExecutor, mCallback);
             } else {
-                return new MediaController(mContext, mCompatToken, mConnectionHints,
+                return new MediaController(mContext, mCompatToken, buildConnectionHints(),
                         mCallbackExecutor, mCallback);
             }
         }
@@ -1621,6 +1664,7 @@ public class MediaController implements Closeable {
         Bundle mConnectionHints;
         Executor mCallbackExecutor;
         ControllerCallback mCallback;
+        boolean mArtworkByReference;
 
         /**
          * Creates a builder for {@link MediaController}.
@@ -1751,6 +1795,43 @@ public class MediaController implements Closeable {
             return (U) this;
         }
 
+        /**
+         * Sets whether the session should send artwork by reference instead of sending its
+         * bitmaps in the metadata of every media item.
+         * <p>
+         * When set, bitmaps such as {@link MediaMetadata#METADATA_KEY_ART} are removed from the
+         * metadata of the current media item and the playlist, and
+         * {@link MediaController#loadArtwork(MediaItem)} should be used to load them when
+         * needed. This saves copying bitmaps to the controller whenever the metadata or the
+         * playlist changes.
+         * <p>
+         * Sessions with an older version of this library always send the bitmaps. This is
+         * ignored when connecting to {@link MediaSessionCompat}.
+         *
+         * @param byReference {@code true} to get artwork by reference
+         * @return the Builder to allow chaining
+         */
+        @NonNull
+        @SuppressWarnings("unchecked")
+        U setArtworkByReference(boolean byReference) {
+            mArtworkByReference = byReference;
+            return (U) this;
+        }
+
+        /**
+         * Gets the connection hints to send, with the ones for the options of this builder.
+         */
+        @Nullable
+        Bundle buildConnectionHints() {
+            if (!mArtworkByReference) {
+                return mConnectionHints;
+            }
+            Bundle connectionHints = mConnectionHints != null
+                    ? new Bundle(mConnectionHints) : new Bundle();
+            connectionHints.putBoolean(MediaConstants.CONNECTION_HINT_ARTWORK_BY_REFERENCE, true);
+            return connectionHints;
+        }
+
         @NonNull
         abstract T build();
     }
@@ -22,6 +22,7 @@ import static androidx.media2.common.SessionPlayer.UNKNOWN_TIME;
 import static androidx.media2.session.SessionCommand.COMMAND_CODE_CUSTOM;
 import static androidx.media2.session.SessionCommand.COMMAND_CODE_PLAYER_ADD_PLAYLIST_ITEM;
 import static androidx.media2.session.SessionCommand.COMMAND_CODE_PLAYER_DESELECT_TRACK;
+import static androidx.media2.session.SessionCommand.COMMAND_CODE_PLAYER_GET_CURRENT_MEDIA_ITEM;
 import static androidx.media2.session.SessionCommand.COMMAND_CODE_PLAYER_MOVE_PLAYLIST_ITEM;
 import static androidx.media2.session.SessionCommand.COMMAND_CODE_PLAYER_PAUSE;
 import static androidx.media2.session.SessionCommand.COMMAND_CODE_PLAYER_PLAY;
@@ -52,6 +53,7 @@ import static androidx.media2.session.SessionResult.RESULT_ERROR_PERMISSION_DENI
 import static androidx.media2.session.SessionResult.RESULT_ERROR_SESSION_DISCONNECTED;
 import static androidx.media2.session.SessionResult.RESULT_ERROR_UNKNOWN;
 import static androidx.media2.session.SessionResult.RESULT_INFO_SKIPPED;
+import static androidx.media2.session.SessionResult.RESULT_SUCCESS;
 import static androidx.media2.session.SessionToken.TYPE_SESSION;
 
 import android.app.PendingIntent;
@@ -73,6 +75,7 @@ import android.view.Surface;
 import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.concurrent.futures.ResolvableFuture;
 import androidx.media2.common.MediaItem;
 import androidx.media2.common.MediaMetadata;
 import androidx.media2.common.MediaParcelUtils;
@@ -95,12 +98,15 @@ import com.google.common.util.concurrent.ListenableFuture;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 class MediaControllerImplBase implements MediaControllerImpl {
     private static final boolean THROW_EXCEPTION_FOR_NULL_RESULT = true;
     private static final SessionResult RESULT_WHEN_CLOSED =
             new SessionResult(RESULT_INFO_SKIPPED);
 
+    private static final int ARTWORK_CACHE_SIZE_IN_BYTES = 4 * 1024 * 1024;
+
     static final String TAG = "MC2ImplBase";
     static final boolean DEBUG = Log.isLoggable(TAG, Log.DEBUG);
 
@@ -114,6 +120,8 @@ class MediaControllerImplBase implements MediaControllerImpl {
     private final IBinder.DeathRecipient mDeathRecipient;
     final SequencedFutureManager mSequencedFutureManager;
     final MediaControllerStub mControllerStub;
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    final ArtworkCache mArtworkCache = new ArtworkCache(ARTWORK_CACHE_SIZE_IN_BYTES);
 
     @GuardedBy("mLock")
     private SessionToken mConnectedToken;
@@ -124,6 +132,8 @@ class MediaControllerImplBase implements MediaControllerImpl {
     @GuardedBy("mLock")
     private List<MediaItem> mPlaylist;
     @GuardedBy("mLock")
+    private int mPlaylistVersion = PlaylistDiff.NO_VERSION;
+    @GuardedBy("mLock")
     private MediaMetadata mPlaylistMetadata;
     @GuardedBy("mLock")
     private @RepeatMode int mRepeatMode;
@@ -507,6 +517,49 @@ class MediaControllerImplBase implements MediaControllerImpl {
         });
     }
 
+    @Override
+    public ListenableFuture<SessionResult> loadArtwork(@NonNull final MediaItem item) {
+        final String mediaId = item.getMediaId();
+        final long version = mArtworkCache.getRemovedArtworkVersion(item);
+        if (mediaId == null || version == ArtworkCache.NO_VERSION) {
+            // Nothing was replaced, the item has all its artwork.
+            return SessionResult.createFutureWithResult(RESULT_SUCCESS, item);
+        }
+        ArtworkCache.Entry entry = mArtworkCache.get(mediaId);
+        if (entry != null && entry.mVersion == version) {
+            return SessionResult.createFutureWithResult(RESULT_SUCCESS, entry.addBitmaps(item));
+        }
+        final ListenableFuture<SessionResult> future = dispatchRemoteSessionTask(
+                COMMAND_CODE_PLAYER_GET_CURRENT_MEDIA_ITEM, new RemoteSessionTask() {
+                    @Override
+                    public void run(IMediaSession iSession, int seq) throws RemoteException {
+                        iSession.getArtwork(mControllerStub, seq, mediaId);
+                    }
+                });
+        final ResolvableFuture<SessionResult> result = ResolvableFuture.create();
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                SessionResult sessionResult;
+                try {
+                    sessionResult = future.get();
+                } catch (ExecutionException | InterruptedException e) {
+                    sessionResult = new SessionResult(RESULT_ERROR_UNKNOWN);
+                }
+                MediaItem artwork = sessionResult.getMediaItem();
+                ArtworkCache.Entry entry = sessionResult.getResultCode() == RESULT_SUCCESS
+                        && artwork != null ? mArtworkCache.put(artwork) : null;
+                if (entry == null) {
+                    result.set(sessionResult);
+                    return;
+                }
+                // The artwork may be newer than the item if it has changed in the meantime.
+                result.set(new SessionResult(RESULT_SUCCESS, null, entry.addBitmaps(item)));
+            }
+        }, MediaUtils.DIRECT_EXECUTOR);
+        return result;
+    }
+
     @Override
     public ListenableFuture<SessionResult> sendCustomCommand(
             @NonNull final SessionCommand command, @Nullable final Bundle args) {
@@ -964,8 +1017,12 @@ class MediaControllerImplBase implements MediaControllerImpl {
         });
     }
 
+    /**
+     * @param playlist the new playlist, which the controller takes ownership of
+     */
     void notifyPlaylistChanges(final List<MediaItem> playlist, final MediaMetadata metadata,
             int currentMediaItemIndex, int previousMediaItemIndex, int nextMediaItemIndex) {
+        final List<MediaItem> publishedPlaylist;
         synchronized (mLock) {
             mPlaylist = playlist;
             mPlaylistMetadata = metadata;
@@ -976,6 +1033,11 @@ class MediaControllerImplBase implements MediaControllerImpl {
                     && currentMediaItemIndex < playlist.size()) {
                 mCurrentMediaItem = playlist.get(currentMediaItemIndex);
             }
+            if (!mInstance.hasControllerCallbacks()) {
+                return;
+            }
+            // mPlaylist is updated in place by later changes, so the app gets a copy.
+            publishedPlaylist = playlist == null ? null : new ArrayList<>(playlist);
         }
         mInstance.notifyAllControllerCallbacks(new ControllerCallbackRunnable() {
             @Override
@@ -983,11 +1045,47 @@ class MediaControllerImplBase implements MediaControllerImpl {
                 if (!mInstance.isConnected()) {
                     return;
                 }
-                callback.onPlaylistChanged(mInstance, playlist, metadata);
+                callback.onPlaylistChanged(mInstance, publishedPlaylist, metadata);
             }
         });
     }
 
+    void notifyPlaylistDiff(@NonNull PlaylistDiff diff, @Nullable List<MediaItem> insertedItems,
+            MediaMetadata metadata, int currentMediaItemIndex, int previousMediaItemIndex,
+            int nextMediaItemIndex) {
+        List<MediaItem> playlist = null;
+        boolean applied = false;
+        final IMediaSession iSession;
+        synchronized (mLock) {
+            if (diff.isReset()
+                    || (mPlaylist != null && diff.getBaseVersion() == mPlaylistVersion)) {
+                try {
+                    // mPlaylist is never handed to the app, so the diff is applied in place.
+                    playlist = diff.apply(mPlaylist, insertedItems);
+                    applied = true;
+                } catch (IllegalArgumentException e) {
+                    Log.w(TAG, "Failed to apply playlist diff", e);
+                }
+            }
+            mPlaylistVersion = applied ? diff.getVersion() : PlaylistDiff.NO_VERSION;
+            iSession = mISession;
+        }
+        if (!applied) {
+            // Out of sync with the session, so ask for the whole playlist.
+            if (iSession != null) {
+                try {
+                    iSession.resyncPlaylist(mControllerStub,
+                            mSequencedFutureManager.obtainNextSequenceNumber());
+                } catch (RemoteException e) {
+                    Log.w(TAG, "Error in sending");
+                }
+            }
+            return;
+        }
+        notifyPlaylistChanges(playlist, metadata, currentMediaItemIndex, previousMediaItemIndex,
+                nextMediaItemIndex);
+    }
+
     void notifyPlaylistMetadataChanges(final MediaMetadata metadata) {
         synchronized (mLock) {
             mPlaylistMetadata = metadata;
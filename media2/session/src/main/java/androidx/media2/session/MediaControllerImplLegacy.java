@@ -471,6 +471,12 @@ class MediaControllerImplLegacy implements MediaController.MediaControllerImpl {
         return createFutureWithResult(RESULT_SUCCESS);
     }
 
+    @Override
+    public ListenableFuture<SessionResult> loadArtwork(@NonNull MediaItem item) {
+        // Legacy sessions always send the bitmaps with the metadata.
+        return SessionResult.createFutureWithResult(RESULT_SUCCESS, item);
+    }
+
     @Override
     public ListenableFuture<SessionResult> setPlaybackSpeed(float speed) {
         synchronized (mLock) {
@@ -92,9 +92,10 @@ class MediaControllerStub extends IMediaController.Stub {
         dispatchControllerTask(new ControllerTask() {
             @Override
             public void run(MediaControllerImplBase controller) {
+                MediaItem itemObj = MediaParcelUtils.fromParcelable(item);
                 controller.notifyCurrentMediaItemChanged(
-                        (MediaItem) MediaParcelUtils.fromParcelable(item), currentIdx, previousIdx,
-                        nextIdx);
+                        controller.mArtworkCache.removeArtworkVersion(itemObj), currentIdx,
+                        previousIdx, nextIdx);
             }
         });
     }
@@ -151,8 +152,8 @@ class MediaControllerStub extends IMediaController.Stub {
         dispatchControllerTask(new ControllerTask() {
             @Override
             public void run(MediaControllerImplBase controller) {
-                List<MediaItem> playlist =
-                        MediaUtils.convertParcelImplListSliceToMediaItemList(listSlice);
+                List<MediaItem> playlist = controller.mArtworkCache.removeArtworkVersions(
+                        MediaUtils.convertParcelImplListSliceToMediaItemList(listSlice));
                 controller.notifyPlaylistChanges(playlist,
                         (MediaMetadata) MediaParcelUtils.fromParcelable(metadata), currentIdx,
                         previousIdx, nextIdx);
@@ -160,6 +161,31 @@ class MediaControllerStub extends IMediaController.Stub {
         });
     }
 
+    @Override
+    public void onPlaylistDiff(int seq, final ParcelImpl diff,
+            final ParcelImplListSlice insertedItems, final ParcelImpl metadata,
+            final int currentIdx, final int previousIdx, final int nextIdx) {
+        if (diff == null || metadata == null) {
+            return;
+        }
+        dispatchControllerTask(new ControllerTask() {
+            @Override
+            public void run(MediaControllerImplBase controller) {
+                PlaylistDiff diffObj = MediaParcelUtils.fromParcelable(diff);
+                if (diffObj == null) {
+                    Log.w(TAG, "onPlaylistDiff(): Ignoring null diff");
+                    return;
+                }
+                controller.notifyPlaylistDiff(diffObj,
+                        controller.mArtworkCache.removeArtworkVersions(
+                                MediaUtils.convertParcelImplListSliceToMediaItemList(
+                                        insertedItems)),
+                        (MediaMetadata) MediaParcelUtils.fromParcelable(metadata), currentIdx,
+                        previousIdx, nextIdx);
+            }
+        });
+    }
+
     @Override
     public void onPlaylistMetadataChanged(int seq, final ParcelImpl metadata)
             throws RuntimeException {
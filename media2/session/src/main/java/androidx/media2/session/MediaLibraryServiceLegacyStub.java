@@ -455,8 +455,8 @@ class MediaLibraryServiceLegacyStub extends MediaSessionServiceLegacyStub {
 
         @Override
         final void onPlaylistChanged(int seq, @NonNull List<MediaItem> playlist,
-                MediaMetadata metadata, int currentIdx, int previousIdx, int nextIdx)
-                throws RemoteException {
+                PlaylistDiff diff, MediaMetadata metadata, int currentIdx, int previousIdx,
+                int nextIdx) throws RemoteException {
             // No-op. BrowserCompat doesn't understand Controller features.
         }
 
@@ -1197,8 +1197,8 @@ public class MediaSession implements Closeable {
         abstract void onCurrentMediaItemChanged(int seq, @Nullable MediaItem item, int currentIdx,
                 int previousIdx, int nextIdx) throws RemoteException;
         abstract void onPlaylistChanged(int seq, @NonNull List<MediaItem> playlist,
-                @Nullable MediaMetadata metadata, int currentIdx, int previousIdx,
-                int nextIdx) throws RemoteException;
+                @Nullable PlaylistDiff diff, @Nullable MediaMetadata metadata, int currentIdx,
+                int previousIdx, int nextIdx) throws RemoteException;
         abstract void onPlaylistMetadataChanged(int seq, @Nullable MediaMetadata metadata)
                 throws RemoteException;
         abstract void onShuffleModeChanged(int seq, @SessionPlayer.ShuffleMode int shuffleMode,
@@ -1263,6 +1263,7 @@ public class MediaSession implements Closeable {
         IBinder getLegacyBrowserServiceBinder();
         void connectFromService(IMediaController caller, int controllerVersion, String packageName,
                 int pid, int uid, @Nullable Bundle connectionHints);
+        void resyncPlaylist(@NonNull ControllerInfo controller);
     }
 
     /**
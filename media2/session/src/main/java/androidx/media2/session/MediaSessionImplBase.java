@@ -20,6 +20,7 @@ import static androidx.media2.common.BaseResult.RESULT_ERROR_BAD_VALUE;
 import static androidx.media2.common.MediaMetadata.METADATA_KEY_DURATION;
 import static androidx.media2.common.MediaMetadata.METADATA_KEY_MEDIA_ID;
 import static androidx.media2.common.MediaMetadata.METADATA_KEY_PLAYABLE;
+import static androidx.media2.common.SessionPlayer.INVALID_ITEM_INDEX;
 import static androidx.media2.common.SessionPlayer.PLAYER_STATE_IDLE;
 import static androidx.media2.common.SessionPlayer.UNKNOWN_TIME;
 import static androidx.media2.session.MediaUtils.DIRECT_EXECUTOR;
@@ -147,6 +148,13 @@ class MediaSessionImplBase implements MediaSession.MediaSessionImpl {
     @GuardedBy("mLock")
     private MediaBrowserServiceCompat mBrowserServiceLegacyStub;
 
+    // The playlist last sent to controllers, to find what changed when it's sent again.
+    @GuardedBy("mLock")
+    private List<MediaItem> mSentPlaylist;
+
+    @GuardedBy("mLock")
+    private int mSentPlaylistVersion;
+
     MediaSessionImplBase(MediaSession instance, Context context, String id, SessionPlayer player,
             PendingIntent sessionActivity, Executor callbackExecutor, SessionCallback callback,
             Bundle tokenExtras) {
@@ -1087,6 +1095,44 @@ class MediaSessionImplBase implements MediaSession.MediaSessionImpl {
         return player != null ? player.getPlaylist() : null;
     }
 
+    /**
+     * Records the playlist sent to controllers and returns how it changed.
+     *
+     * @param changedIndex index of an item whose metadata has changed, or a negative value
+     */
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    @NonNull
+    PlaylistDiff updateSentPlaylist(@Nullable List<MediaItem> playlist, int changedIndex) {
+        synchronized (mLock) {
+            PlaylistDiff diff = PlaylistDiff.create(mSentPlaylistVersion, mSentPlaylist,
+                    playlist, changedIndex);
+            mSentPlaylist = playlist == null ? null : new ArrayList<>(playlist);
+            mSentPlaylistVersion = diff.getVersion();
+            return diff;
+        }
+    }
+
+    /**
+     * Sends the whole playlist to a controller that has lost track of it.
+     */
+    @Override
+    public void resyncPlaylist(@NonNull ControllerInfo controller) {
+        final List<MediaItem> playlist;
+        final PlaylistDiff diff;
+        synchronized (mLock) {
+            playlist = mSentPlaylist == null ? null : new ArrayList<>(mSentPlaylist);
+            diff = PlaylistDiff.reset(mSentPlaylistVersion, playlist);
+        }
+        dispatchRemoteControllerTaskWithoutReturn(controller, new RemoteControllerTask() {
+            @Override
+            public void run(ControllerCb callback, int seq) throws RemoteException {
+                callback.onPlaylistChanged(seq, playlist, diff, getPlaylistMetadata(),
+                        getCurrentMediaItemIndex(), getPreviousMediaItemIndex(),
+                        getNextMediaItemIndex());
+            }
+        });
+    }
+
     private ListenableFuture<PlayerResult> dispatchPlayerTask(
             @NonNull PlayerTask<ListenableFuture<PlayerResult>> command) {
         ResolvableFuture<PlayerResult> result = ResolvableFuture.create();
@@ -1121,12 +1167,13 @@ class MediaSessionImplBase implements MediaSession.MediaSessionImpl {
         List<MediaItem> oldPlaylist = oldPlayer.getPlaylist();
         final List<MediaItem> newPlaylist = getPlaylistOrNull();
         if (!ObjectsCompat.equals(oldPlaylist, newPlaylist)) {
+            final PlaylistDiff diff = updateSentPlaylist(newPlaylist, INVALID_ITEM_INDEX);
             dispatchRemoteControllerTaskWithoutReturn(new RemoteControllerTask() {
                 @Override
                 public void run(ControllerCb callback, int seq) throws RemoteException {
-                    callback.onPlaylistChanged(seq,
-                            newPlaylist, getPlaylistMetadata(), getCurrentMediaItemIndex(),
-                            getPreviousMediaItemIndex(), getNextMediaItemIndex());
+                    callback.onPlaylistChanged(seq, newPlaylist, diff, getPlaylistMetadata(),
+                            getCurrentMediaItemIndex(), getPreviousMediaItemIndex(),
+                            getNextMediaItemIndex());
                 }
             });
         } else {
@@ -1474,10 +1521,11 @@ class MediaSessionImplBase implements MediaSession.MediaSessionImpl {
                 mList = list;
             }
 
+            final PlaylistDiff diff = session.updateSentPlaylist(list, INVALID_ITEM_INDEX);
             dispatchRemoteControllerTask(player, new RemoteControllerTask() {
                 @Override
                 public void run(ControllerCb callback, int seq) throws RemoteException {
-                    callback.onPlaylistChanged(seq, list, metadata,
+                    callback.onPlaylistChanged(seq, list, diff, metadata,
                             session.getCurrentMediaItemIndex(), session.getPreviousMediaItemIndex(),
                             session.getNextMediaItemIndex());
                 }
@@ -1799,10 +1847,11 @@ class MediaSessionImplBase implements MediaSession.MediaSessionImpl {
             }
             for (int i = 0; i < list.size(); i++) {
                 if (item.equals(list.get(i))) {
+                    final PlaylistDiff diff = session.updateSentPlaylist(list, i);
                     session.dispatchRemoteControllerTaskWithoutReturn(new RemoteControllerTask() {
                         @Override
                         public void run(ControllerCb callback, int seq) throws RemoteException {
-                            callback.onPlaylistChanged(seq, list,
+                            callback.onPlaylistChanged(seq, list, diff,
                                     session.getPlaylistMetadata(),
                                     session.getCurrentMediaItemIndex(),
                                     session.getPreviousMediaItemIndex(),
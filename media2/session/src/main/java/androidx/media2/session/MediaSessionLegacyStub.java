@@ -675,8 +675,9 @@ class MediaSessionLegacyStub extends MediaSessionCompat.Callback {
         }
 
         @Override
-        void onPlaylistChanged(int seq, @NonNull List<MediaItem> playlist, MediaMetadata metadata,
-                int currentIdx, int previousIdx, int nextIdx) throws RemoteException {
+        void onPlaylistChanged(int seq, @NonNull List<MediaItem> playlist, PlaylistDiff diff,
+                MediaMetadata metadata, int currentIdx, int previousIdx, int nextIdx)
+                throws RemoteException {
             throw new AssertionError("This shouldn't be called");
         }
 
@@ -850,8 +851,9 @@ class MediaSessionLegacyStub extends MediaSessionCompat.Callback {
         }
 
         @Override
-        void onPlaylistChanged(int seq, @NonNull List<MediaItem> playlist, MediaMetadata metadata,
-                int currentIdx, int previousIdx, int nextIdx) throws RemoteException {
+        void onPlaylistChanged(int seq, @NonNull List<MediaItem> playlist, PlaylistDiff diff,
+                MediaMetadata metadata, int currentIdx, int previousIdx, int nextIdx)
+                throws RemoteException {
             if (Build.VERSION.SDK_INT < 21) {
                 if (playlist == null) {
                     mSessionImpl.getSessionCompat().setQueue(null);
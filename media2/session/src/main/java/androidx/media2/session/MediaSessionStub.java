@@ -36,6 +36,7 @@ import android.util.Log;
 import android.util.SparseArray;
 import android.view.Surface;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.util.ObjectsCompat;
@@ -78,6 +79,9 @@ class MediaSessionStub extends IMediaSession.Stub {
 
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     static final boolean DEBUG = Log.isLoggable(TAG, Log.DEBUG);
+
+    private static final int ARTWORK_CACHE_SIZE_IN_BYTES = 8 * 1024 * 1024;
+
     static final SparseArray<SessionCommand> sCommandsForOnCommandRequest =
             new SparseArray<>();
 
@@ -97,6 +101,9 @@ class MediaSessionStub extends IMediaSession.Stub {
 
     final Object mLock = new Object();
 
+    // Artwork for controllers getting it by reference.
+    final ArtworkCache mArtworkCache = new ArtworkCache(ARTWORK_CACHE_SIZE_IN_BYTES);
+
     final MediaSession.MediaSessionImpl mSessionImpl;
     final Context mContext;
     final MediaSessionManager mSessionManager;
@@ -323,9 +330,20 @@ class MediaSessionStub extends IMediaSession.Stub {
             @Nullable Bundle connectionHints) {
         MediaSessionManager.RemoteUserInfo remoteUserInfo =
                 new MediaSessionManager.RemoteUserInfo(callingPackage, pid, uid);
+        boolean artworkByReference = connectionHints != null && connectionHints.getBoolean(
+                MediaConstants.CONNECTION_HINT_ARTWORK_BY_REFERENCE);
+        if (artworkByReference) {
+            // Not a part of the contract between the controller and the session, so don't pass
+            // it on.
+            connectionHints.remove(MediaConstants.CONNECTION_HINT_ARTWORK_BY_REFERENCE);
+            if (connectionHints.isEmpty()) {
+                connectionHints = null;
+            }
+        }
         final ControllerInfo controllerInfo = new ControllerInfo(remoteUserInfo, controllerVersion,
                 mSessionManager.isTrustedForMediaControl(remoteUserInfo),
-                new Controller2Cb(caller), connectionHints);
+                new Controller2Cb(caller, controllerVersion, artworkByReference),
+                connectionHints);
         mSessionImpl.getCallbackExecutor().execute(new Runnable() {
             @Override
             public void run() {
@@ -477,6 +495,108 @@ class MediaSessionStub extends IMediaSession.Stub {
         }
     }
 
+    @Override
+    public void resyncPlaylist(final IMediaController caller, int seq) {
+        if (caller == null) {
+            return;
+        }
+        final long token = Binder.clearCallingIdentity();
+        try {
+            final ControllerInfo controller = mConnectedControllersManager.getController(
+                    caller.asBinder());
+            if (controller == null) {
+                return;
+            }
+            mSessionImpl.getCallbackExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!mSessionImpl.isClosed()) {
+                        mSessionImpl.resyncPlaylist(controller);
+                    }
+                }
+            });
+        } finally {
+            Binder.restoreCallingIdentity(token);
+        }
+    }
+
+    @Override
+    public void getArtwork(final IMediaController caller, final int seq, final String mediaId) {
+        if (caller == null) {
+            return;
+        }
+        final long token = Binder.clearCallingIdentity();
+        try {
+            final ControllerInfo controller = mConnectedControllersManager.getController(
+                    caller.asBinder());
+            if (controller == null) {
+                return;
+            }
+            // Not dispatched as a session task, as it's not a command for the session callback.
+            mSessionImpl.getCallbackExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (mSessionImpl.isClosed()
+                            || !mConnectedControllersManager.isConnected(controller)) {
+                        return;
+                    }
+                    if (TextUtils.isEmpty(mediaId)) {
+                        Log.w(TAG, "getArtwork(): Ignoring empty mediaId from " + controller);
+                        sendSessionResult(controller, seq, RESULT_ERROR_BAD_VALUE);
+                        return;
+                    }
+                    MediaItem artwork = getArtwork(controller, mediaId);
+                    if (artwork == null) {
+                        sendSessionResult(controller, seq, RESULT_ERROR_BAD_VALUE);
+                        return;
+                    }
+                    sendSessionResult(controller, seq,
+                            new SessionResult(SessionResult.RESULT_SUCCESS, null, artwork));
+                }
+            });
+        } finally {
+            Binder.restoreCallingIdentity(token);
+        }
+    }
+
+    /**
+     * Gets the artwork of a media item that the controller is allowed to see. Artwork that isn't
+     * in the cache is looked up in the player.
+     */
+    @Nullable
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    MediaItem getArtwork(@NonNull ControllerInfo controller, @NonNull String mediaId) {
+        MediaItem item = null;
+        MediaItem currentItem = mSessionImpl.getCurrentMediaItem();
+        if (currentItem != null && mediaId.equals(currentItem.getMediaId())) {
+            item = currentItem;
+        } else if (mConnectedControllersManager.isAllowedCommand(controller,
+                SessionCommand.COMMAND_CODE_PLAYER_GET_PLAYLIST)) {
+            ArtworkCache.Entry entry = mArtworkCache.get(mediaId);
+            if (entry != null) {
+                return entry.toMediaItem(mediaId);
+            }
+            List<MediaItem> playlist = mSessionImpl.getPlaylist();
+            if (playlist != null) {
+                for (int i = 0; i < playlist.size(); i++) {
+                    if (mediaId.equals(playlist.get(i).getMediaId())) {
+                        item = playlist.get(i);
+                        break;
+                    }
+                }
+            }
+        } else {
+            Log.w(TAG, "getArtwork(): Controller isn't allowed to get the artwork, controller="
+                    + controller);
+        }
+        if (item == null) {
+            return null;
+        }
+        // Served from the item even if the artwork is too large to be cached.
+        ArtworkCache.Entry entry = mArtworkCache.putBitmaps(item);
+        return entry != null ? entry.toMediaItem(mediaId) : null;
+    }
+
     @Override
     public void setVolumeTo(final IMediaController caller, int seq, final int value,
             final int flags) throws RuntimeException {
@@ -1054,9 +1174,27 @@ class MediaSessionStub extends IMediaSession.Stub {
                                     + controller);
                             return new LibraryResult(LibraryResult.RESULT_ERROR_BAD_VALUE);
                         }
-                        return getLibrarySession().onGetChildrenOnExecutor(controller, parentId,
-                                page, pageSize,
-                                (LibraryParams) MediaParcelUtils.fromParcelable(libraryParams));
+                        LibraryParams params = MediaParcelUtils.fromParcelable(libraryParams);
+                        Bundle extras = params != null ? params.getExtras() : null;
+                        boolean artworkExcluded = extras != null
+                                && extras.getBoolean(MediaConstants.ARGUMENT_ARTWORK_EXCLUDED);
+                        if (artworkExcluded) {
+                            // Not a part of the contract between the browser and the library
+                            // session, so don't pass it on.
+                            extras.remove(MediaConstants.ARGUMENT_ARTWORK_EXCLUDED);
+                            if (extras.isEmpty()) {
+                                params.mBundle = null;
+                            }
+                        }
+                        LibraryResult result = getLibrarySession().onGetChildrenOnExecutor(
+                                controller, parentId, page, pageSize, params);
+                        if (artworkExcluded
+                                && result.getResultCode() == LibraryResult.RESULT_SUCCESS) {
+                            result = new LibraryResult(result.getResultCode(),
+                                    MediaUtils.removeBitmaps(result.getMediaItems()),
+                                    result.getLibraryParams());
+                        }
+                        return result;
                     }
                 });
     }
@@ -1177,9 +1315,19 @@ class MediaSessionStub extends IMediaSession.Stub {
     final class Controller2Cb extends ControllerCb {
         // TODO: Drop 'Callback' from the name.
         private final IMediaController mIControllerCallback;
+        private final int mControllerVersion;
+        // Whether to send bitmaps in metadata by reference, see ArtworkCache.
+        private final boolean mArtworkByReference;
 
-        Controller2Cb(@NonNull IMediaController callback) {
+        // Version of the playlist last sent to the controller, which diffs are applied to.
+        @GuardedBy("this")
+        private int mPlaylistVersion = PlaylistDiff.NO_VERSION;
+
+        Controller2Cb(@NonNull IMediaController callback, int controllerVersion,
+                boolean artworkByReference) {
             mIControllerCallback = callback;
+            mControllerVersion = controllerVersion;
+            mArtworkByReference = artworkByReference;
         }
 
         @NonNull
@@ -1187,6 +1335,14 @@ class MediaSessionStub extends IMediaSession.Stub {
             return mIControllerCallback.asBinder();
         }
 
+        private MediaItem replaceBitmaps(MediaItem item) {
+            return mArtworkByReference ? mArtworkCache.replaceBitmaps(item) : item;
+        }
+
+        private List<MediaItem> replaceBitmaps(List<MediaItem> items) {
+            return mArtworkByReference ? mArtworkCache.replaceBitmaps(items) : items;
+        }
+
         @Override
         void onPlayerResult(int seq, @Nullable PlayerResult result) throws RemoteException {
             onSessionResult(seq, SessionResult.from(result));
@@ -1260,19 +1416,42 @@ class MediaSessionStub extends IMediaSession.Stub {
         @Override
         void onCurrentMediaItemChanged(int seq, MediaItem item, int currentIdx, int previousIdx,
                 int nextIdx) throws RemoteException {
-            mIControllerCallback.onCurrentMediaItemChanged(seq, MediaParcelUtils.toParcelable(item),
-                    currentIdx, previousIdx, nextIdx);
+            mIControllerCallback.onCurrentMediaItemChanged(seq,
+                    MediaParcelUtils.toParcelable(replaceBitmaps(item)), currentIdx, previousIdx,
+                    nextIdx);
         }
 
         @Override
-        void onPlaylistChanged(int seq, @NonNull List<MediaItem> playlist, MediaMetadata metadata,
-                int currentIdx, int previousIdx, int nextIdx) throws RemoteException {
+        void onPlaylistChanged(int seq, @NonNull List<MediaItem> playlist,
+                @Nullable PlaylistDiff diff, MediaMetadata metadata, int currentIdx,
+                int previousIdx, int nextIdx) throws RemoteException {
             ControllerInfo controller = mConnectedControllersManager.getController(
                     getCallbackBinder());
             if (mConnectedControllersManager.isAllowedCommand(controller,
                     SessionCommand.COMMAND_CODE_PLAYER_GET_PLAYLIST)) {
+                if (diff != null && mControllerVersion >= MediaUtils.VERSION_1) {
+                    synchronized (this) {
+                        if (diff.getVersion() < mPlaylistVersion) {
+                            // A newer playlist has already been sent.
+                            return;
+                        }
+                        if (!diff.isReset() && diff.getBaseVersion() != mPlaylistVersion) {
+                            // The controller didn't get the previous playlist, e.g. because it
+                            // wasn't allowed to or has just connected.
+                            diff = PlaylistDiff.reset(diff.getVersion(), playlist);
+                        }
+                        mPlaylistVersion = diff.getVersion();
+                    }
+                    mIControllerCallback.onPlaylistDiff(seq, MediaParcelUtils.toParcelable(diff),
+                            MediaUtils.convertMediaItemListToParcelImplListSlice(
+                                    replaceBitmaps(diff.getInsertedItems())),
+                            MediaParcelUtils.toParcelable(metadata), currentIdx, previousIdx,
+                            nextIdx);
+                    return;
+                }
                 mIControllerCallback.onPlaylistChanged(seq,
-                        MediaUtils.convertMediaItemListToParcelImplListSlice(playlist),
+                        MediaUtils.convertMediaItemListToParcelImplListSlice(
+                                replaceBitmaps(playlist)),
                         MediaParcelUtils.toParcelable(metadata), currentIdx, previousIdx, nextIdx);
             } else if (mConnectedControllersManager.isAllowedCommand(controller,
                     SessionCommand.COMMAND_CODE_PLAYER_GET_PLAYLIST_METADATA)) {
@@ -109,8 +109,11 @@ public class MediaUtils {
     // Initial version for all Media2 APIs.
     public static final int VERSION_0 = 0;
 
+    // Version where sessions send controllers playlist diffs instead of whole playlists.
+    public static final int VERSION_1 = 1;
+
     // Current version for all Media2 APIs.
-    public static final int CURRENT_VERSION = VERSION_0;
+    public static final int CURRENT_VERSION = VERSION_1;
 
     private static final Map<String, String> METADATA_COMPAT_KEY_TO_METADATA_KEY = new HashMap<>();
     private static final Map<String, String> METADATA_KEY_TO_METADATA_COMPAT_KEY = new HashMap<>();
@@ -152,6 +155,50 @@ public class MediaUtils {
                 .setMetadata(item.getMetadata()).build();
     }
 
+    /**
+     * Removes the bitmaps from the metadata of the media items. Items without bitmaps are kept
+     * as is, and the others are replaced with upcasted copies so that the given items aren't
+     * modified.
+     *
+     * @param items list of items
+     * @return list of items without bitmaps
+     */
+    @Nullable
+    public static List<MediaItem> removeBitmaps(@Nullable List<MediaItem> items) {
+        if (items == null) {
+            return null;
+        }
+        List<MediaItem> result = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            result.add(removeBitmaps(items.get(i)));
+        }
+        return result;
+    }
+
+    @Nullable
+    private static MediaItem removeBitmaps(@Nullable MediaItem item) {
+        MediaMetadata metadata = item == null ? null : item.getMetadata();
+        if (metadata == null) {
+            return item;
+        }
+        MediaMetadata.Builder builder = null;
+        for (String key : metadata.keySet()) {
+            if (metadata.getObject(key) instanceof Bitmap) {
+                if (builder == null) {
+                    builder = new MediaMetadata.Builder(metadata);
+                }
+                builder.putBitmap(key, null);
+            }
+        }
+        if (builder == null) {
+            return item;
+        }
+        return new MediaItem.Builder()
+                .setStartPosition(item.getStartPosition())
+                .setEndPosition(item.getEndPosition())
+                .setMetadata(builder.build()).build();
+    }
+
     /**
      * Upcasts a {@link VideoSize} subclass to the {@link MediaItem} type for pre-parceling.
      * Note that {@link VideoSize}'s subclass object cannot be parceled due the issue that remote
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.media2.session;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.media2.common.MediaItem;
+import androidx.versionedparcelable.NonParcelField;
+import androidx.versionedparcelable.ParcelField;
+import androidx.versionedparcelable.VersionedParcelable;
+import androidx.versionedparcelable.VersionedParcelize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Changes from one version of a playlist to the next, sent to controllers instead of the whole
+ * playlist.
+ * <p>
+ * The operations are applied in order. Items inserted by them aren't part of the diff, but are
+ * sent next to it as a {@link androidx.media2.common.ParcelImplListSlice} in the order the
+ * operations use them. A diff without operations list replaces the whole playlist with the
+ * inserted items, so controllers can always be brought back in sync.
+ */
+@VersionedParcelize
+class PlaylistDiff implements VersionedParcelable {
+    static final int NO_VERSION = -1;
+
+    // Operations are stored as triples of the type and two arguments.
+    // Removes (index, count) items.
+    private static final int OPERATION_REMOVE = 0;
+    // Inserts (index, count) items taken from the inserted items.
+    private static final int OPERATION_INSERT = 1;
+    // Moves the item at (fromIndex) to (toIndex).
+    private static final int OPERATION_MOVE = 2;
+    private static final int OPERATION_SIZE = 3;
+
+    @ParcelField(1)
+    int mBaseVersion;
+    @ParcelField(2)
+    int mVersion;
+    @ParcelField(3)
+    int[] mOperations;
+
+    @NonParcelField
+    List<MediaItem> mInsertedItems;
+
+    // For versioned parcelable.
+    PlaylistDiff() {
+        // no-op
+    }
+
+    private PlaylistDiff(int baseVersion, int version, @Nullable int[] operations,
+            @Nullable List<MediaItem> insertedItems) {
+        mBaseVersion = baseVersion;
+        mVersion = version;
+        mOperations = operations;
+        mInsertedItems = insertedItems;
+    }
+
+    /**
+     * Creates a diff that replaces the whole playlist with {@code playlist}.
+     */
+    @NonNull
+    static PlaylistDiff reset(int version, @Nullable List<MediaItem> playlist) {
+        return new PlaylistDiff(NO_VERSION, version, null, playlist);
+    }
+
+    /**
+     * Creates a diff from {@code oldPlaylist} at {@code baseVersion} to {@code newPlaylist}.
+     * <p>
+     * Only the range between the items both playlists start and end with is sent, as a single
+     * move if that's all it is. Items are compared by identity, so an item whose metadata has
+     * changed can be passed as {@code changedIndex} to send it again.
+     *
+     * @param changedIndex index in {@code newPlaylist} of an item to send even if it hasn't
+     *                     moved, or a negative value
+     */
+    @NonNull
+    static PlaylistDiff create(int baseVersion, @Nullable List<MediaItem> oldPlaylist,
+            @Nullable List<MediaItem> newPlaylist, int changedIndex) {
+        int version = baseVersion + 1;
+        if (oldPlaylist == null || newPlaylist == null) {
+            return reset(version, newPlaylist);
+        }
+        int oldSize = oldPlaylist.size();
+        int newSize = newPlaylist.size();
+        int start = 0;
+        int minSize = Math.min(oldSize, newSize);
+        while (start < minSize && oldPlaylist.get(start) == newPlaylist.get(start)) {
+            start++;
+        }
+        int oldEnd = oldSize;
+        int newEnd = newSize;
+        while (oldEnd > start && newEnd > start
+                && oldPlaylist.get(oldEnd - 1) == newPlaylist.get(newEnd - 1)) {
+            oldEnd--;
+            newEnd--;
+        }
+        if (changedIndex >= 0 && changedIndex < newSize) {
+            if (start == oldEnd && start == newEnd) {
+                // Same items, only resend the changed one.
+                start = changedIndex;
+                oldEnd = changedIndex + 1;
+                newEnd = changedIndex + 1;
+            } else if (changedIndex < start) {
+                start = changedIndex;
+            } else if (changedIndex >= newEnd) {
+                oldEnd += changedIndex + 1 - newEnd;
+                newEnd = changedIndex + 1;
+            }
+        }
+        int removed = oldEnd - start;
+        int inserted = newEnd - start;
+
+        // Checked before the reset below, so that moving the first item to the end or the last
+        // item to the front is still sent as a single move.
+        if (changedIndex < 0 && removed == inserted && removed > 1) {
+            int last = start + removed - 1;
+            if (isShifted(oldPlaylist, start + 1, newPlaylist, start, removed - 1)
+                    && oldPlaylist.get(start) == newPlaylist.get(last)) {
+                return new PlaylistDiff(baseVersion, version,
+                        new int[] {OPERATION_MOVE, start, last}, null);
+            }
+            if (isShifted(oldPlaylist, start, newPlaylist, start + 1, removed - 1)
+                    && oldPlaylist.get(last) == newPlaylist.get(start)) {
+                return new PlaylistDiff(baseVersion, version,
+                        new int[] {OPERATION_MOVE, last, start}, null);
+            }
+        }
+
+        if (start == 0 && inserted == newSize) {
+            return reset(version, newPlaylist);
+        }
+        int[] operations = new int[(removed > 0 ? OPERATION_SIZE : 0)
+                + (inserted > 0 ? OPERATION_SIZE : 0)];
+        int i = 0;
+        if (removed > 0) {
+            operations[i++] = OPERATION_REMOVE;
+            operations[i++] = start;
+            operations[i++] = removed;
+        }
+        List<MediaItem> insertedItems = null;
+        if (inserted > 0) {
+            operations[i++] = OPERATION_INSERT;
+            operations[i++] = start;
+            operations[i] = inserted;
+            insertedItems = new ArrayList<>(newPlaylist.subList(start, newEnd));
+        }
+        return new PlaylistDiff(baseVersion, version, operations, insertedItems);
+    }
+
+    int getBaseVersion() {
+        return mBaseVersion;
+    }
+
+    int getVersion() {
+        return mVersion;
+    }
+
+    boolean isReset() {
+        return mOperations == null;
+    }
+
+    /**
+     * Gets the items inserted by this diff, on the side that created it.
+     */
+    @Nullable
+    List<MediaItem> getInsertedItems() {
+        return mInsertedItems;
+    }
+
+    /**
+     * Applies this diff to {@code playlist} in place.
+     *
+     * @param playlist the playlist at {@link #getBaseVersion()}, ignored for a reset
+     * @param insertedItems the items sent with this diff
+     * @return the playlist at {@link #getVersion()}, which is {@code playlist} unless this is a
+     *         reset
+     * @throws IllegalArgumentException if the diff doesn't fit {@code playlist}
+     */
+    @Nullable
+    List<MediaItem> apply(@Nullable List<MediaItem> playlist,
+            @Nullable List<MediaItem> insertedItems) {
+        if (isReset()) {
+            return insertedItems;
+        }
+        if (playlist == null) {
+            throw new IllegalArgumentException("Cannot apply a diff without a playlist");
+        }
+        // Everything is checked before the playlist is touched, so that a diff which doesn't fit
+        // leaves it as it was.
+        checkOperations(playlist.size(), insertedItems == null ? -1 : insertedItems.size());
+        int insertedIndex = 0;
+        for (int i = 0; i + OPERATION_SIZE <= mOperations.length; i += OPERATION_SIZE) {
+            int first = mOperations[i + 1];
+            int second = mOperations[i + 2];
+            switch (mOperations[i]) {
+                case OPERATION_REMOVE:
+                    playlist.subList(first, first + second).clear();
+                    break;
+                case OPERATION_INSERT:
+                    playlist.addAll(first,
+                            insertedItems.subList(insertedIndex, insertedIndex + second));
+                    insertedIndex += second;
+                    break;
+                default:
+                    playlist.add(second, playlist.remove(first));
+                    break;
+            }
+        }
+        return playlist;
+    }
+
+    private void checkOperations(int size, int insertedSize) {
+        int insertedIndex = 0;
+        for (int i = 0; i + OPERATION_SIZE <= mOperations.length; i += OPERATION_SIZE) {
+            int first = mOperations[i + 1];
+            int second = mOperations[i + 2];
+            switch (mOperations[i]) {
+                case OPERATION_REMOVE:
+                    checkRange(first, second, size);
+                    size -= second;
+                    break;
+                case OPERATION_INSERT:
+                    checkRange(first, 0, size);
+                    if (insertedSize < 0) {
+                        throw new IllegalArgumentException("Missing inserted items");
+                    }
+                    checkRange(insertedIndex, second, insertedSize);
+                    insertedIndex += second;
+                    size += second;
+                    break;
+                case OPERATION_MOVE:
+                    checkRange(first, 1, size);
+                    checkRange(second, 1, size);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown operation " + mOperations[i]);
+            }
+        }
+    }
+
+    private static boolean isShifted(List<MediaItem> oldPlaylist, int oldStart,
+            List<MediaItem> newPlaylist, int newStart, int count) {
+        for (int i = 0; i < count; i++) {
+            if (oldPlaylist.get(oldStart + i) != newPlaylist.get(newStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void checkRange(int index, int count, int size) {
+        if (index < 0 || count < 0 || index + count > size) {
+            throw new IllegalArgumentException("Range " + index + "+" + count
+                    + " is out of bounds for size " + size);
+        }
+    }
+}
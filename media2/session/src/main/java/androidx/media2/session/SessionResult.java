@@ -141,6 +141,13 @@ public class SessionResult extends CustomVersionedParcelable implements RemoteRe
         return result;
     }
 
+    static ListenableFuture<SessionResult> createFutureWithResult(@ResultCode int resultCode,
+            @Nullable MediaItem item) {
+        ResolvableFuture<SessionResult> result = ResolvableFuture.create();
+        result.set(new SessionResult(resultCode, null, item));
+        return result;
+    }
+
     /**
      * Gets the result code.
      *
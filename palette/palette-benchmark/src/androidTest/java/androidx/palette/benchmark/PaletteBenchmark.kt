@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.benchmark
+
+import android.graphics.Bitmap
+import android.graphics.Color
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.palette.graphics.Palette
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.Random
+import java.util.concurrent.Executors
+
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class PaletteBenchmark {
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val bitmap = createBitmap(1024, 1024)
+    private val executor = Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors()
+    )
+
+    @After
+    fun tearDown() {
+        executor.shutdown()
+    }
+
+    @Test
+    fun generateDefault() {
+        benchmarkRule.measureRepeated {
+            Palette.from(bitmap).generate()
+        }
+    }
+
+    @Test
+    fun generateFullResolution() {
+        benchmarkRule.measureRepeated {
+            Palette.from(bitmap).resizeBitmapArea(0).generate()
+        }
+    }
+
+    @Test
+    fun generateFullResolutionParallel() {
+        benchmarkRule.measureRepeated {
+            Palette.from(bitmap).resizeBitmapArea(0).setHistogramExecutor(executor).generate()
+        }
+    }
+
+    @Test
+    fun generateSampled() {
+        benchmarkRule.measureRepeated {
+            Palette.from(bitmap)
+                .resizeBitmapArea(0)
+                .maximumSampledPixelCount(SAMPLE_BUDGET)
+                .generate()
+        }
+    }
+
+    @Test
+    fun generateSampledParallel() {
+        benchmarkRule.measureRepeated {
+            Palette.from(bitmap)
+                .resizeBitmapArea(0)
+                .maximumSampledPixelCount(SAMPLE_BUDGET)
+                .setHistogramExecutor(executor)
+                .generate()
+        }
+    }
+
+    /**
+     * Not a timing benchmark: checks that the swatches picked by the faster modes stay close to
+     * the ones picked from the full resolution bitmap, so the numbers above remain comparable.
+     */
+    @Test
+    fun swatchQuality() {
+        val reference = Palette.from(bitmap).resizeBitmapArea(0).generate()
+        val modes = listOf(
+            Palette.from(bitmap).generate(),
+            Palette.from(bitmap).resizeBitmapArea(0).setHistogramExecutor(executor).generate(),
+            Palette.from(bitmap).resizeBitmapArea(0).maximumSampledPixelCount(SAMPLE_BUDGET)
+                .generate()
+        )
+        for (palette in modes) {
+            val expected = reference.dominantSwatch
+            val actual = palette.dominantSwatch
+            assertNotNull(expected)
+            assertNotNull(actual)
+            assertCloseColors(expected!!.rgb, actual!!.rgb)
+        }
+    }
+
+    private fun assertCloseColors(expected: Int, actual: Int) {
+        assertEquals(Color.red(expected).toFloat(), Color.red(actual).toFloat(), 16f)
+        assertEquals(Color.green(expected).toFloat(), Color.green(actual).toFloat(), 16f)
+        assertEquals(Color.blue(expected).toFloat(), Color.blue(actual).toFloat(), 16f)
+    }
+
+    companion object {
+        /** Same number of pixels as the default resize area of [Palette.Builder]. */
+        private const val SAMPLE_BUDGET = 112 * 112
+
+        /**
+         * Creates a bitmap made of a few large color blocks with per-pixel noise, roughly like a
+         * photo in terms of distinct colors.
+         */
+        private fun createBitmap(width: Int, height: Int): Bitmap {
+            val random = Random(0)
+            val blockColors = IntArray(16) {
+                Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256))
+            }
+            val pixels = IntArray(width * height)
+            for (y in 0 until height) {
+                for (x in 0 until width) {
+                    val block = blockColors[(y * 4 / height) * 4 + (x * 4 / width)]
+                    val noise = random.nextInt(33) - 16
+                    pixels[y * width + x] = Color.rgb(
+                        (Color.red(block) + noise).coerceIn(0, 255),
+                        (Color.green(block) + noise).coerceIn(0, 255),
+                        (Color.blue(block) + noise).coerceIn(0, 255)
+                    )
+                }
+            }
+            return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888)
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import static androidx.palette.graphics.TestUtils.assertCloseColors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@RunWith(AndroidJUnit4.class)
+public class HistogramTest {
+
+    @Test
+    @SmallTest
+    public void testParallelHistogramMatchesSequential() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Palette sequential = Palette.from(bitmap).resizeBitmapArea(0).generate();
+            Palette parallel = Palette.from(bitmap).resizeBitmapArea(0)
+                    .setHistogramExecutor(executor)
+                    .generate();
+            assertEquals(sequential.getSwatches(), parallel.getSwatches());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @SmallTest
+    public void testParallelHistogramOnSingleThreadedExecutor() {
+        // The only executor thread is busy, so the calling thread has to process all stripes
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    Palette parallel = Palette.from(bitmap)
+                            .setHistogramExecutor(executor)
+                            .generate();
+                    assertEquals(Palette.from(bitmap).generate().getSwatches(),
+                            parallel.getSwatches());
+                }
+            }).get();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @SmallTest
+    public void testSampledPixelsKeepDominantColor() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        Palette full = Palette.from(bitmap).resizeBitmapArea(0).generate();
+        Palette sampled = Palette.from(bitmap).resizeBitmapArea(0)
+                .maximumSampledPixelCount(bitmap.getWidth() * bitmap.getHeight() / 4)
+                .generate();
+
+        assertNotNull(sampled.getDominantSwatch());
+        assertCloseColors(full.getDominantSwatch().getRgb(),
+                sampled.getDominantSwatch().getRgb());
+    }
+
+    @Test
+    @SmallTest
+    public void testSampledPixelCountIsBounded() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final int budget = 1000;
+        Palette sampled = Palette.from(bitmap).resizeBitmapArea(0)
+                .maximumSampledPixelCount(budget)
+                .clearFilters()
+                .generate();
+
+        int population = 0;
+        for (Palette.Swatch swatch : sampled.getSwatches()) {
+            population += swatch.getPopulation();
+        }
+        assertTrue(population <= budget);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+import android.graphics.Bitmap;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+
+@RunWith(AndroidJUnit4.class)
+public class PaletteCacheTest {
+
+    @Test
+    @SmallTest
+    public void testCacheHitReturnsSamePalette() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final PaletteCache cache = new PaletteCache(10);
+
+        Palette first = cache.generate("photo", Palette.from(bitmap));
+        Palette second = cache.generate("photo", Palette.from(bitmap));
+
+        assertEquals(1, cache.size());
+        assertEquals(first.getSwatches(), second.getSwatches());
+        assertEquals(first.getVibrantSwatch(), second.getVibrantSwatch());
+        assertEquals(first.getDarkMutedSwatch(), second.getDarkMutedSwatch());
+    }
+
+    @Test
+    @SmallTest
+    public void testBuilderOptionsArePartOfKey() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final PaletteCache cache = new PaletteCache(10);
+
+        cache.generate("photo", Palette.from(bitmap));
+        cache.generate("photo", Palette.from(bitmap).maximumColorCount(8));
+        cache.generate("photo", Palette.from(bitmap).setRegion(0, 0, 10, 10));
+        cache.generate("photo", Palette.from(bitmap).clearFilters());
+        assertEquals(4, cache.size());
+
+        cache.remove("photo");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @SmallTest
+    public void testFiltersNeedCacheKey() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final PaletteCache cache = new PaletteCache(10);
+        final Palette.Filter filter = new Palette.Filter() {
+            @Override
+            public boolean isAllowed(int rgb, float[] hsl) {
+                return hsl[2] > 0.5f;
+            }
+        };
+
+        try {
+            cache.generate("photo", Palette.from(bitmap).addFilter(filter));
+            fail("Filters without a cache key should not be cached");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+        assertEquals(0, cache.size());
+
+        cache.generate("photo", Palette.from(bitmap).addFilter(filter, "light"));
+        cache.generate("photo", Palette.from(bitmap).addFilter(filter, "light"));
+        cache.generate("photo", Palette.from(bitmap).addFilter(filter, "other"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    @SmallTest
+    public void testRemoveOnlyMatchesWholeImageKey() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final PaletteCache cache = new PaletteCache(10);
+
+        cache.generate("photo", Palette.from(bitmap));
+        cache.generate("photo|1", Palette.from(bitmap));
+        cache.generate("photo:", Palette.from(bitmap));
+
+        cache.remove("photo");
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    @SmallTest
+    public void testRegionCacheHit() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final PaletteCache cache = new PaletteCache(10);
+
+        // Generating scales the region, make sure the cache key is stable regardless
+        Palette first = cache.generate("photo", Palette.from(bitmap)
+                .setRegion(0, 0, bitmap.getWidth() / 2, bitmap.getHeight() / 2));
+        Palette second = cache.generate("photo", Palette.from(bitmap)
+                .setRegion(0, 0, bitmap.getWidth() / 2, bitmap.getHeight() / 2));
+
+        assertEquals(1, cache.size());
+        assertEquals(first.getSwatches(), second.getSwatches());
+    }
+
+    @Test
+    @SmallTest
+    public void testTargetsAreAppliedOnHit() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final PaletteCache cache = new PaletteCache(10);
+
+        cache.generate("photo", Palette.from(bitmap));
+        Palette palette = cache.generate("photo", Palette.from(bitmap).clearTargets());
+
+        assertEquals(1, cache.size());
+        assertEquals(0, palette.getTargets().size());
+    }
+
+    @Test
+    @SmallTest
+    public void testPersistence() throws IOException {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final File file = new File(
+                ApplicationProvider.getApplicationContext().getCacheDir(), "palettes.bin");
+        file.delete();
+
+        final PaletteCache cache = new PaletteCache(10);
+        Palette original = cache.generate("photo", Palette.from(bitmap));
+        cache.writeToFile(file);
+
+        final PaletteCache restored = new PaletteCache(10);
+        restored.readFromFile(file);
+        assertEquals(1, restored.size());
+
+        // A different image key must not hit the restored entry
+        Palette other = restored.generate("other", Palette.from(bitmap).maximumColorCount(1));
+        assertNotEquals(original.getSwatches().size(), other.getSwatches().size());
+
+        Palette fromDisk = restored.generate("photo", Palette.from(bitmap));
+        assertEquals(original.getSwatches(), fromDisk.getSwatches());
+        assertEquals(2, restored.size());
+
+        file.delete();
+    }
+
+    @Test
+    @SmallTest
+    public void testReadMissingFile() throws IOException {
+        final PaletteCache cache = new PaletteCache(10);
+        cache.readFromFile(new File(
+                ApplicationProvider.getApplicationContext().getCacheDir(), "does_not_exist"));
+        assertEquals(0, cache.size());
+    }
+}
@@ -46,11 +46,10 @@ final class ColorCutQuantizer {
     static final int COMPONENT_GREEN = -2;
     static final int COMPONENT_BLUE = -1;
 
-    private static final int QUANTIZE_WORD_WIDTH = 5;
+    static final int QUANTIZE_WORD_WIDTH = 5;
     private static final int QUANTIZE_WORD_MASK = (1 << QUANTIZE_WORD_WIDTH) - 1;
 
     final int[] mColors;
-    final int[] mHistogram;
     final List<Palette.Swatch> mQuantizedColors;
     @Nullable final Palette.Filter[] mFilters;
 
@@ -59,21 +58,16 @@ final class ColorCutQuantizer {
     /**
      * Constructor.
      *
-     * @param pixels histogram representing an image's pixel data
+     * @param histogram histogram representing an image's pixel data, as built by
+     *                  {@link ColorHistogram}. Populations of filtered colors are cleared. It
+     *                  isn't referenced once the constructor returns, so it can be recycled.
      * @param maxColors The maximum number of colors that should be in the result palette.
      * @param filters Set of filters to use in the quantization stage
      */
-    ColorCutQuantizer(int[] pixels, int maxColors, @Nullable Palette.Filter[] filters) {
+    ColorCutQuantizer(int[] histogram, int maxColors, @Nullable Palette.Filter[] filters) {
         mFilters = filters;
 
-        final int[] hist = mHistogram = new int[1 << (QUANTIZE_WORD_WIDTH * 3)];
-        for (int i = 0; i < pixels.length; i++) {
-            final int quantizedColor = quantizeFromRgb888(pixels[i]);
-            // Now update the pixel value to the quantized value
-            pixels[i] = quantizedColor;
-            // And update the histogram
-            hist[quantizedColor]++;
-        }
+        final int[] hist = histogram;
 
         // Now let's count the number of distinct colors
         int distinctColorCount = 0;
@@ -105,7 +99,7 @@ final class ColorCutQuantizer {
             }
         } else {
             // We need use quantization to reduce the number of colors
-            mQuantizedColors = quantizePixels(maxColors);
+            mQuantizedColors = quantizePixels(hist, maxColors);
         }
     }
 
@@ -116,13 +110,13 @@ final class ColorCutQuantizer {
         return mQuantizedColors;
     }
 
-    private List<Palette.Swatch> quantizePixels(int maxColors) {
+    private List<Palette.Swatch> quantizePixels(int[] hist, int maxColors) {
         // Create the priority queue which is sorted by volume descending. This means we always
         // split the largest box in the queue
         final PriorityQueue<Vbox> pq = new PriorityQueue<>(maxColors, VBOX_COMPARATOR_VOLUME);
 
         // To start, offer a box which contains all of the colors
-        pq.offer(new Vbox(0, mColors.length - 1));
+        pq.offer(new Vbox(hist, 0, mColors.length - 1));
 
         // Now go through the boxes, splitting them until we have reached maxColors or there are no
         // more boxes to split
@@ -174,6 +168,8 @@ final class ColorCutQuantizer {
      * Represents a tightly fitting box around a color space.
      */
     private class Vbox {
+        // Histogram of the colors, only referenced while quantizing
+        private final int[] mHistogram;
         // lower and upper index are inclusive
         private int mLowerIndex;
         private int mUpperIndex;
@@ -184,7 +180,8 @@ final class ColorCutQuantizer {
         private int mMinGreen, mMaxGreen;
         private int mMinBlue, mMaxBlue;
 
-        Vbox(int lowerIndex, int upperIndex) {
+        Vbox(int[] histogram, int lowerIndex, int upperIndex) {
+            mHistogram = histogram;
             mLowerIndex = lowerIndex;
             mUpperIndex = upperIndex;
             fitBox();
@@ -266,7 +263,7 @@ final class ColorCutQuantizer {
             // find median along the longest dimension
             final int splitPoint = findSplitPoint();
 
-            Vbox newBox = new Vbox(splitPoint + 1, mUpperIndex);
+            Vbox newBox = new Vbox(mHistogram, splitPoint + 1, mUpperIndex);
 
             // Now change this box's upperIndex and recompute the color boundaries
             mUpperIndex = splitPoint;
@@ -426,7 +423,7 @@ final class ColorCutQuantizer {
     /**
      * Quantized a RGB888 value to have a word width of {@value #QUANTIZE_WORD_WIDTH}.
      */
-    private static int quantizeFromRgb888(int color) {
+    static int quantizeFromRgb888(int color) {
         int r = modifyWordWidth(Color.red(color), 8, QUANTIZE_WORD_WIDTH);
         int g = modifyWordWidth(Color.green(color), 8, QUANTIZE_WORD_WIDTH);
         int b = modifyWordWidth(Color.blue(color), 8, QUANTIZE_WORD_WIDTH);
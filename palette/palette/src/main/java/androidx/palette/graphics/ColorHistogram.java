@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.util.Pools;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the quantized color histogram consumed by {@link ColorCutQuantizer} directly from a
+ * {@link Bitmap}, one row at a time.
+ *
+ * Rows can optionally be sampled at a fixed step, and split into horizontal stripes which are
+ * histogrammed in parallel and then merged. Since a histogram does not depend on the order in
+ * which pixels are visited, the parallel result is identical to the sequential one.
+ *
+ * Histogram buffers are pooled, as each one is 32k entries. Callers must hand them back via
+ * {@link #recycle(int[])} once they are done with them.
+ */
+final class ColorHistogram {
+    static final int SIZE = 1 << (ColorCutQuantizer.QUANTIZE_WORD_WIDTH * 3);
+
+    private static final int MAX_POOLED_HISTOGRAMS = 4;
+    private static final Pools.SynchronizedPool<int[]> sPool =
+            new Pools.SynchronizedPool<>(MAX_POOLED_HISTOGRAMS);
+
+    private ColorHistogram() {
+    }
+
+    /**
+     * @return an empty histogram, reused from the pool if possible.
+     */
+    static int[] obtain() {
+        final int[] histogram = sPool.acquire();
+        if (histogram == null) {
+            return new int[SIZE];
+        }
+        Arrays.fill(histogram, 0);
+        return histogram;
+    }
+
+    /**
+     * Returns a histogram obtained from {@link #obtain()} to the pool.
+     */
+    static void recycle(@NonNull int[] histogram) {
+        sPool.release(histogram);
+    }
+
+    /**
+     * Builds the histogram of the given region of the bitmap.
+     *
+     * @param bitmap the source bitmap
+     * @param region the region of the bitmap to read
+     * @param step only every {@code step}th pixel of every {@code step}th row is read
+     * @param executor if non-null, used to histogram stripes of the region in parallel. The calling
+     *                 thread processes stripes too, so this is safe to use with an executor that
+     *                 the caller itself is running on.
+     * @return a histogram obtained from {@link #obtain()}
+     */
+    static int[] build(@NonNull Bitmap bitmap, @NonNull Rect region, int step,
+            @Nullable Executor executor) {
+        final int sampledRows = (region.height() + step - 1) / step;
+        final int stripeCount = executor == null ? 1
+                : Math.min(sampledRows, Runtime.getRuntime().availableProcessors());
+
+        if (stripeCount <= 1) {
+            final int[] histogram = obtain();
+            addRows(bitmap, region, step, 0, sampledRows, histogram);
+            return histogram;
+        }
+
+        final StripeWork work = new StripeWork(bitmap, region, step, sampledRows, stripeCount);
+        for (int i = 1; i < stripeCount; i++) {
+            try {
+                executor.execute(work);
+            } catch (RejectedExecutionException e) {
+                // The calling thread will pick up the remaining stripes
+                break;
+            }
+        }
+        work.run();
+        return work.awaitAndMerge();
+    }
+
+    /**
+     * Adds the sampled rows {@code [firstSampledRow, lastSampledRow)} of the region to the
+     * histogram.
+     */
+    static void addRows(Bitmap bitmap, Rect region, int step, int firstSampledRow,
+            int lastSampledRow, int[] histogram) {
+        final int width = region.width();
+        final int[] row = new int[width];
+        for (int i = firstSampledRow; i < lastSampledRow; i++) {
+            bitmap.getPixels(row, 0, width, region.left, region.top + i * step, width, 1);
+            for (int x = 0; x < width; x += step) {
+                histogram[ColorCutQuantizer.quantizeFromRgb888(row[x])]++;
+            }
+        }
+    }
+
+    /**
+     * Stripes are claimed from a shared counter by whichever thread gets to them first, so the
+     * calling thread never waits on a stripe which has not started yet.
+     */
+    private static final class StripeWork implements Runnable {
+        private final Bitmap mBitmap;
+        private final Rect mRegion;
+        private final int mStep;
+        private final int mSampledRows;
+        private final int mStripeCount;
+
+        private final AtomicInteger mNextStripe = new AtomicInteger();
+        private final CountDownLatch mDone;
+        private final int[][] mHistograms;
+        private volatile RuntimeException mError;
+
+        StripeWork(Bitmap bitmap, Rect region, int step, int sampledRows, int stripeCount) {
+            mBitmap = bitmap;
+            mRegion = region;
+            mStep = step;
+            mSampledRows = sampledRows;
+            mStripeCount = stripeCount;
+            mDone = new CountDownLatch(stripeCount);
+            mHistograms = new int[stripeCount][];
+        }
+
+        @Override
+        public void run() {
+            int stripe;
+            while ((stripe = mNextStripe.getAndIncrement()) < mStripeCount) {
+                try {
+                    final int[] histogram = obtain();
+                    mHistograms[stripe] = histogram;
+                    addRows(mBitmap, mRegion, mStep,
+                            stripe * mSampledRows / mStripeCount,
+                            (stripe + 1) * mSampledRows / mStripeCount,
+                            histogram);
+                } catch (RuntimeException e) {
+                    mError = e;
+                } finally {
+                    mDone.countDown();
+                }
+            }
+        }
+
+        int[] awaitAndMerge() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    mDone.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (mError != null) {
+                for (int[] histogram : mHistograms) {
+                    if (histogram != null) {
+                        recycle(histogram);
+                    }
+                }
+                throw mError;
+            }
+
+            final int[] merged = mHistograms[0];
+            for (int i = 1; i < mStripeCount; i++) {
+                final int[] histogram = mHistograms[i];
+                for (int color = 0; color < SIZE; color++) {
+                    merged[color] += histogram[color];
+                }
+                recycle(histogram);
+            }
+            return merged;
+        }
+    }
+}
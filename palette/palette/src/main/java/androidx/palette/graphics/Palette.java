@@ -34,6 +34,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * A helper class to extract prominent colors from an image.
@@ -598,8 +599,12 @@ public final class Palette {
         private int mMaxColors = DEFAULT_CALCULATE_NUMBER_COLORS;
         private int mResizeArea = DEFAULT_RESIZE_BITMAP_AREA;
         private int mResizeMaxDimension = -1;
+        private int mMaxSampledPixels = -1;
+        @Nullable private Executor mHistogramExecutor;
 
         private final List<Filter> mFilters = new ArrayList<>();
+        // Cache keys of the filters, or null for filters added without one
+        private final List<String> mFilterKeys = new ArrayList<>();
         @Nullable private Rect mRegion;
 
         /**
@@ -610,6 +615,7 @@ public final class Palette {
                 throw new IllegalArgumentException("Bitmap is not valid");
             }
             mFilters.add(DEFAULT_FILTER);
+            mFilterKeys.add(DEFAULT_FILTER_KEY);
             mBitmap = bitmap;
             mSwatches = null;
 
@@ -631,6 +637,7 @@ public final class Palette {
                 throw new IllegalArgumentException("List of Swatches is not valid");
             }
             mFilters.add(DEFAULT_FILTER);
+            mFilterKeys.add(DEFAULT_FILTER_KEY);
             mSwatches = swatches;
             mBitmap = null;
         }
@@ -689,6 +696,44 @@ public final class Palette {
             return this;
         }
 
+        /**
+         * Set the maximum number of pixels which are read when using a
+         * {@link android.graphics.Bitmap} as the source.
+         * <p>
+         * If the (possibly resized) bitmap, or the region set via
+         * {@link #setRegion(int, int, int, int)}, contains more pixels than {@code count}, pixels
+         * are sampled on an evenly spaced grid instead of being read one by one. Unlike
+         * {@link #resizeBitmapArea(int)} this does not allocate a scaled copy of the bitmap, so it
+         * can be combined with {@code resizeBitmapArea(0)} to bound processing time of large
+         * bitmaps without any intermediate bitmap.
+         *
+         * @param count the maximum number of pixels to sample, or any value <= 0 to read all
+         *              pixels.
+         */
+        @NonNull
+        public Builder maximumSampledPixelCount(int count) {
+            mMaxSampledPixels = count;
+            return this;
+        }
+
+        /**
+         * Set an {@link Executor} used to build the color histogram of a
+         * {@link android.graphics.Bitmap} source in parallel.
+         * <p>
+         * The bitmap is split into horizontal stripes, up to one per available processor, which
+         * are read on the executor and then merged. The generated palette is the same as without
+         * an executor. The thread calling {@link #generate()} also processes stripes, so it is safe
+         * to pass the executor that {@link #generate()} itself is running on.
+         *
+         * @param executor the executor to use, or {@code null} to build the histogram on the
+         *                 calling thread only.
+         */
+        @NonNull
+        public Builder setHistogramExecutor(@Nullable Executor executor) {
+            mHistogramExecutor = executor;
+            return this;
+        }
+
         /**
          * Clear all added filters. This includes any default filters added automatically by
          * {@link Palette}.
@@ -696,6 +741,7 @@ public final class Palette {
         @NonNull
         public Builder clearFilters() {
             mFilters.clear();
+            mFilterKeys.clear();
             return this;
         }
 
@@ -709,10 +755,30 @@ public final class Palette {
         public Builder addFilter(@NonNull Filter filter) {
             if (filter != null) {
                 mFilters.add(filter);
+                mFilterKeys.add(null);
             }
             return this;
         }
 
+        /**
+         * Add a filter with a key identifying what it does, so that palettes generated with it
+         * can be cached by a {@link PaletteCache}. Filters which allow different colors must have
+         * different keys, and the key must stay the same across builds of the app, as cached
+         * palettes may be written to a file.
+         *
+         * @param filter filter to add.
+         * @param cacheKey key identifying the colors the filter allows.
+         * @see #addFilter(Filter)
+         */
+        @NonNull
+        public Builder addFilter(@NonNull Filter filter, @NonNull String cacheKey) {
+            Preconditions.checkNotNull(filter);
+            Preconditions.checkNotNull(cacheKey);
+            mFilters.add(filter);
+            mFilterKeys.add(cacheKey);
+            return this;
+        }
+
         /**
          * Set a region of the bitmap to be used exclusively when calculating the palette.
          * <p>This only works when the original input is a {@link Bitmap}.</p>
@@ -797,11 +863,18 @@ public final class Palette {
                             bitmap.getHeight());
                 }
 
-                // Now generate a quantizer from the Bitmap
-                final ColorCutQuantizer quantizer = new ColorCutQuantizer(
-                        getPixelsFromBitmap(bitmap),
-                        mMaxColors,
-                        mFilters.isEmpty() ? null : mFilters.toArray(new Filter[mFilters.size()]));
+                // Now generate a quantizer from the Bitmap's histogram
+                final int[] histogram = getHistogramFromBitmap(bitmap);
+                final ColorCutQuantizer quantizer;
+                try {
+                    quantizer = new ColorCutQuantizer(
+                            histogram,
+                            mMaxColors,
+                            mFilters.isEmpty() ? null
+                                    : mFilters.toArray(new Filter[mFilters.size()]));
+                } finally {
+                    ColorHistogram.recycle(histogram);
+                }
 
                 // If created a new bitmap, recycle it
                 if (bitmap != mBitmap) {
@@ -817,6 +890,15 @@ public final class Palette {
                 throw new AssertionError();
             }
 
+            return generateFromSwatches(swatches);
+        }
+
+        /**
+         * Generate the {@link Palette} from previously quantized swatches, using this builder's
+         * targets.
+         */
+        @NonNull
+        Palette generateFromSwatches(@NonNull List<Swatch> swatches) {
             // Now create a Palette instance
             final Palette p = new Palette(swatches, mTargets);
             // And make it generate itself
@@ -825,6 +907,47 @@ public final class Palette {
             return p;
         }
 
+        /**
+         * Returns a key identifying the swatches this builder would generate for the given
+         * caller-supplied image key. Includes every option which affects quantization, but not the
+         * targets, which are only used to pick swatches afterwards. Filters are identified by
+         * the keys they were added with.
+         * <p>
+         * Each part of the key is prefixed with its length, so that the image key can't be
+         * confused with the options whatever characters it contains.
+         *
+         * @throws IllegalStateException if a filter was added without a cache key.
+         */
+        @NonNull
+        String getCacheKey(@NonNull String imageKey) {
+            final StringBuilder key = new StringBuilder();
+            appendCacheKeyPart(key, imageKey);
+            appendCacheKeyPart(key, mMaxColors + "," + mResizeArea + "," + mResizeMaxDimension
+                    + "," + mMaxSampledPixels);
+            if (mBitmap != null) {
+                appendCacheKeyPart(key, mBitmap.getWidth() + "x" + mBitmap.getHeight());
+            }
+            if (mRegion != null) {
+                appendCacheKeyPart(key, mRegion.flattenToString());
+            }
+            for (int i = 0, count = mFilterKeys.size(); i < count; i++) {
+                final String filterKey = mFilterKeys.get(i);
+                if (filterKey == null) {
+                    throw new IllegalStateException("Filters must be added with "
+                            + "addFilter(Filter, String) to cache the palette");
+                }
+                appendCacheKeyPart(key, filterKey);
+            }
+            return key.toString();
+        }
+
+        /**
+         * Appends a part of a cache key, prefixed with its length.
+         */
+        static void appendCacheKeyPart(@NonNull StringBuilder key, @NonNull String part) {
+            key.append(part.length()).append(':').append(part);
+        }
+
         /**
          * Generate the {@link Palette} asynchronously. The provided listener's
          * {@link PaletteAsyncListener#onGenerated} method will be called with the palette when
@@ -859,29 +982,26 @@ public final class Palette {
             }.executeOnExecutor(android.os.AsyncTask.THREAD_POOL_EXECUTOR, mBitmap);
         }
 
-        private int[] getPixelsFromBitmap(Bitmap bitmap) {
-            final int bitmapWidth = bitmap.getWidth();
-            final int bitmapHeight = bitmap.getHeight();
-            final int[] pixels = new int[bitmapWidth * bitmapHeight];
-            bitmap.getPixels(pixels, 0, bitmapWidth, 0, 0, bitmapWidth, bitmapHeight);
-
-            if (mRegion == null) {
-                // If we don't have a region, return all of the pixels
-                return pixels;
-            } else {
-                // If we do have a region, lets create a subset array containing only the region's
-                // pixels
-                final int regionWidth = mRegion.width();
-                final int regionHeight = mRegion.height();
-                // pixels contains all of the pixels, so we need to iterate through each row and
-                // copy the regions pixels into a new smaller array
-                final int[] subsetPixels = new int[regionWidth * regionHeight];
-                for (int row = 0; row < regionHeight; row++) {
-                    System.arraycopy(pixels, ((row + mRegion.top) * bitmapWidth) + mRegion.left,
-                            subsetPixels, row * regionWidth, regionWidth);
+        private int[] getHistogramFromBitmap(Bitmap bitmap) {
+            // If we don't have a region, use all of the pixels
+            final Rect region = mRegion != null
+                    ? mRegion
+                    : new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight());
+
+            int step = 1;
+            final int regionWidth = region.width();
+            final int regionHeight = region.height();
+            final int regionArea = regionWidth * regionHeight;
+            if (mMaxSampledPixels > 0 && regionArea > mMaxSampledPixels) {
+                // Sample on a square grid, so that the samples are spread out in both directions
+                step = (int) Math.ceil(Math.sqrt(regionArea / (double) mMaxSampledPixels));
+                // Partial rows and columns at the edges are sampled too, account for them
+                while (((regionWidth + step - 1) / step) * ((regionHeight + step - 1) / step)
+                        > mMaxSampledPixels) {
+                    step++;
                 }
-                return subsetPixels;
             }
+            return ColorHistogram.build(bitmap, region, step, mHistogramExecutor);
         }
 
         /**
@@ -932,6 +1052,11 @@ public final class Palette {
         boolean isAllowed(@ColorInt int rgb, @NonNull float[] hsl);
     }
 
+    /**
+     * The cache key of the default filter.
+     */
+    static final String DEFAULT_FILTER_KEY = "androidx.palette.DEFAULT_FILTER";
+
     /**
      * The default filter.
      */
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import androidx.annotation.NonNull;
+import androidx.collection.LruCache;
+import androidx.core.util.AtomicFile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded, in-memory cache of generated {@link Palette}s.
+ * <p>
+ * Quantizing a bitmap is by far the most expensive part of generating a palette. This cache
+ * stores the quantized swatches of each image, keyed by a caller-supplied key identifying the
+ * image, together with every {@link Palette.Builder} option which affects quantization: the
+ * maximum color count, resize and sampling options, the region and the filters. A cached result
+ * is then turned back into a {@link Palette} for the builder's targets, which is cheap.
+ * <p>
+ * Filters other than the default one must be added with
+ * {@link Palette.Builder#addFilter(Palette.Filter, String)}, as only their keys identify them in
+ * the cache.
+ * <p>
+ * The cache contents can optionally be written to and read from a small binary file, so that
+ * palettes survive process restarts:
+ *
+ * <pre>
+ * PaletteCache cache = new PaletteCache(200);
+ * cache.readFromFile(file);
+ *
+ * // When binding a list item
+ * Palette p = cache.generate(imageUrl, Palette.from(bitmap));
+ *
+ * // Later, on a background thread
+ * cache.writeToFile(file);
+ * </pre>
+ *
+ * This class is thread-safe.
+ */
+public final class PaletteCache {
+    private static final int FILE_MAGIC = 0x50414c43; // "PALC"
+    private static final int FILE_VERSION = 2;
+
+    private final LruCache<String, int[]> mCache;
+
+    /**
+     * Construct a new cache.
+     *
+     * @param maxEntries the maximum number of palettes to keep in memory.
+     */
+    public PaletteCache(int maxEntries) {
+        mCache = new LruCache<>(maxEntries);
+    }
+
+    /**
+     * Returns the {@link Palette} generated by {@code builder}, reusing a previously cached
+     * result for the same image key and builder options if there is one. Otherwise the palette is
+     * generated synchronously and its swatches are added to the cache.
+     *
+     * @param imageKey a key uniquely identifying the image content of the builder's source.
+     * @param builder the builder to generate the palette with.
+     * @throws IllegalStateException if a filter of the builder was added without a cache key.
+     */
+    @NonNull
+    public Palette generate(@NonNull String imageKey, @NonNull Palette.Builder builder) {
+        // Compute the key first, generating may modify the builder's region
+        final String key = builder.getCacheKey(imageKey);
+        final int[] cached = mCache.get(key);
+        if (cached != null) {
+            return builder.generateFromSwatches(decodeSwatches(cached));
+        }
+        final Palette palette = builder.generate();
+        mCache.put(key, encodeSwatches(palette.getSwatches()));
+        return palette;
+    }
+
+    /**
+     * Removes all cached palettes generated for the given image key, with any builder options.
+     */
+    public void remove(@NonNull String imageKey) {
+        final StringBuilder prefixBuilder = new StringBuilder();
+        Palette.Builder.appendCacheKeyPart(prefixBuilder, imageKey);
+        final String prefix = prefixBuilder.toString();
+        for (String key : mCache.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                mCache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Removes all cached palettes.
+     */
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    /**
+     * @return the number of palettes currently in the cache.
+     */
+    public int size() {
+        return mCache.size();
+    }
+
+    /**
+     * Writes the cache contents to a file, replacing it atomically. This performs disk I/O and
+     * should not be called on the main thread.
+     */
+    public void writeToFile(@NonNull File file) throws IOException {
+        final Map<String, int[]> entries = mCache.snapshot();
+        final AtomicFile atomicFile = new AtomicFile(file);
+        final FileOutputStream fos = atomicFile.startWrite();
+        try {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(entries.size());
+            // Entries are ordered from least to most recently used, so reading them back in
+            // order restores the eviction order too
+            for (Map.Entry<String, int[]> entry : entries.entrySet()) {
+                final int[] swatches = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(swatches.length);
+                for (int value : swatches) {
+                    out.writeInt(value);
+                }
+            }
+            out.flush();
+            atomicFile.finishWrite(fos);
+        } catch (IOException e) {
+            atomicFile.failWrite(fos);
+            throw e;
+        }
+    }
+
+    /**
+     * Adds the palettes stored in a file previously written by {@link #writeToFile(File)} to the
+     * cache. Does nothing if the file does not exist, or was written by a version of this class
+     * with different keys. This performs disk I/O and should not be called on the main thread.
+     *
+     * @throws IOException if the file can't be read or was not written by this class.
+     */
+    public void readFromFile(@NonNull File file) throws IOException {
+        final AtomicFile atomicFile = new AtomicFile(file);
+        final DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(atomicFile.openRead()));
+        } catch (FileNotFoundException e) {
+            return;
+        }
+        try {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Not a palette cache file: " + file);
+            }
+            if (in.readInt() != FILE_VERSION) {
+                // Written with keys which can't be matched anymore
+                return;
+            }
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final String key = in.readUTF();
+                final int length = in.readInt();
+                if (length < 0 || length % 2 != 0) {
+                    throw new IOException("Corrupt palette cache file: " + file);
+                }
+                final int[] swatches = new int[length];
+                for (int j = 0; j < length; j++) {
+                    swatches[j] = in.readInt();
+                }
+                mCache.put(key, swatches);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Packs swatches as consecutive (rgb, population) int pairs.
+     */
+    @NonNull
+    static int[] encodeSwatches(@NonNull List<Palette.Swatch> swatches) {
+        final int[] encoded = new int[swatches.size() * 2];
+        for (int i = 0, count = swatches.size(); i < count; i++) {
+            final Palette.Swatch swatch = swatches.get(i);
+            encoded[i * 2] = swatch.getRgb();
+            encoded[i * 2 + 1] = swatch.getPopulation();
+        }
+        return encoded;
+    }
+
+    @NonNull
+    static List<Palette.Swatch> decodeSwatches(@NonNull int[] encoded) {
+        final List<Palette.Swatch> swatches = new ArrayList<>(encoded.length / 2);
+        for (int i = 0; i < encoded.length; i += 2) {
+            swatches.add(new Palette.Swatch(encoded[i], encoded[i + 1]));
+        }
+        return swatches;
+    }
+}
@@ -34,6 +34,7 @@ import org.junit.runner.RunWith;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 @SmallTest
 @RunWith(AndroidJUnit4.class)
@@ -67,6 +68,41 @@ public class GapWorkerTest {
         registry.addPosition(0, -1);
     }
 
+    @Test
+    public void frameIntervalDefaultsToDisplayRate() {
+        GapWorker worker = new GapWorker();
+        worker.mFrameIntervalNs = 16666666;
+        worker.recordFrameVsync(1000);
+        worker.recordFrameVsync(1008);
+        assertEquals(16666666, worker.getFrameIntervalNs());
+    }
+
+    @Test
+    public void frameIntervalMeasured() {
+        GapWorker worker = new GapWorker();
+        worker.mFrameIntervalNs = 16666666;
+        long vsyncMs = 1000;
+        for (int i = 0; i < 8; i++) {
+            worker.recordFrameVsync(vsyncMs);
+            // one dropped frame shouldn't affect the estimate
+            vsyncMs += (i == 3) ? 16 : 8;
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(8), worker.getFrameIntervalNs());
+    }
+
+    @Test
+    public void frameIntervalIgnoresIdleGaps() {
+        GapWorker worker = new GapWorker();
+        worker.mFrameIntervalNs = 16666666;
+        long vsyncMs = 1000;
+        for (int i = 0; i < 8; i++) {
+            worker.recordFrameVsync(vsyncMs);
+            vsyncMs += 500;
+        }
+        assertEquals(0, worker.mFrameIntervalSampleCount);
+        assertEquals(16666666, worker.getFrameIntervalNs());
+    }
+
     @Test
     public void registryResetCorrectly() {
         GapWorker.LayoutPrefetchRegistryImpl registry = new GapWorker.LayoutPrefetchRegistryImpl();
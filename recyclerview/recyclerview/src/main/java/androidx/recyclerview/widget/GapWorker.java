@@ -31,10 +31,41 @@ final class GapWorker implements Runnable {
 
     static final ThreadLocal<GapWorker> sGapWorker = new ThreadLocal<>();
 
+    /**
+     * Number of recent vsync to vsync intervals used to estimate the actual frame interval.
+     */
+    private static final int FRAME_INTERVAL_SAMPLE_COUNT = 8;
+
+    /**
+     * Vsync deltas outside of this range are not frame intervals (e.g. the list was idle in
+     * between two prefetch passes), so they are not used as samples.
+     */
+    private static final long MIN_FRAME_INTERVAL_SAMPLE_NS = TimeUnit.MILLISECONDS.toNanos(4);
+    private static final long MAX_FRAME_INTERVAL_SAMPLE_NS = TimeUnit.MILLISECONDS.toNanos(100);
+
     ArrayList<RecyclerView> mRecyclerViews = new ArrayList<>();
     long mPostTimeNs;
+
+    /**
+     * Frame interval derived from the display refresh rate, used until enough frames have been
+     * observed to measure it.
+     */
     long mFrameIntervalNs;
 
+    /**
+     * Vsync time of the frame preceding the last prefetch pass, or 0 if unknown.
+     */
+    long mLastFrameVsyncMs;
+
+    /**
+     * Ring buffer of measured vsync to vsync intervals. The displayed refresh rate can change
+     * after the worker is created (e.g. 60/90/120 Hz switching), and querying the display again is
+     * too expensive to do per frame.
+     */
+    final long[] mFrameIntervalSamplesNs = new long[FRAME_INTERVAL_SAMPLE_COUNT];
+    int mFrameIntervalSampleCount;
+    private int mFrameIntervalSampleIndex;
+
     static class Task {
         public boolean immediate;
         public int viewVelocity;
@@ -288,12 +319,21 @@ final class GapWorker implements Runnable {
             holder = recycler.tryGetViewHolderForPositionByDeadline(
                     position, false, deadlineNs);
 
-            if (holder != null) {
+            if (holder == null) {
+                // Creation was skipped, it wouldn't have finished before the deadline
+                if (view.mOnPrefetchListener != null) {
+                    view.mOnPrefetchListener.onPrefetchDeadlineMissed(view, position);
+                }
+            } else {
                 if (holder.isBound() && !holder.isInvalid()) {
                     // Only give the view a chance to go into the cache if binding succeeded
                     // Note that we must use public method, since item may need cleanup
+                    holder.addFlags(RecyclerView.ViewHolder.FLAG_PREFETCHED);
                     recycler.recycleView(holder.itemView);
                 } else {
+                    if (view.mOnPrefetchListener != null) {
+                        view.mOnPrefetchListener.onPrefetchDeadlineMissed(view, position);
+                    }
                     // Didn't bind, so we can't cache the view, but it will stay in the pool until
                     // next prefetch/traversal. If a View fails to bind, it means we didn't have
                     // enough time prior to the deadline (and won't for other instances of this
@@ -363,6 +403,44 @@ final class GapWorker implements Runnable {
         }
     }
 
+    /**
+     * Records the vsync time of the most recent frame, and uses its distance to the previously
+     * recorded one as a frame interval sample when it looks like consecutive frames.
+     */
+    void recordFrameVsync(long frameVsyncMs) {
+        if (mLastFrameVsyncMs != 0 && frameVsyncMs > mLastFrameVsyncMs) {
+            final long intervalNs = TimeUnit.MILLISECONDS.toNanos(frameVsyncMs - mLastFrameVsyncMs);
+            if (intervalNs >= MIN_FRAME_INTERVAL_SAMPLE_NS
+                    && intervalNs <= MAX_FRAME_INTERVAL_SAMPLE_NS) {
+                mFrameIntervalSamplesNs[mFrameIntervalSampleIndex] = intervalNs;
+                mFrameIntervalSampleIndex =
+                        (mFrameIntervalSampleIndex + 1) % FRAME_INTERVAL_SAMPLE_COUNT;
+                if (mFrameIntervalSampleCount < FRAME_INTERVAL_SAMPLE_COUNT) {
+                    mFrameIntervalSampleCount++;
+                }
+            }
+        }
+        mLastFrameVsyncMs = frameVsyncMs;
+    }
+
+    /**
+     * Returns the expected time between two frames.
+     * <p>
+     * Dropped frames only ever make the distance between two prefetch passes longer, so the
+     * shortest recent sample is the best estimate of the current refresh rate. Until enough
+     * samples have been collected, the interval derived from the display refresh rate is used.
+     */
+    long getFrameIntervalNs() {
+        if (mFrameIntervalSampleCount < FRAME_INTERVAL_SAMPLE_COUNT / 2) {
+            return mFrameIntervalNs;
+        }
+        long minIntervalNs = Long.MAX_VALUE;
+        for (int i = 0; i < mFrameIntervalSampleCount; i++) {
+            minIntervalNs = Math.min(minIntervalNs, mFrameIntervalSamplesNs[i]);
+        }
+        return minIntervalNs;
+    }
+
     void prefetch(long deadlineNs) {
         buildTaskList();
         flushTasksWithDeadline(deadlineNs);
@@ -394,7 +472,9 @@ final class GapWorker implements Runnable {
                 return;
             }
 
-            long nextFrameNs = TimeUnit.MILLISECONDS.toNanos(latestFrameVsyncMs) + mFrameIntervalNs;
+            recordFrameVsync(latestFrameVsyncMs);
+            long nextFrameNs = TimeUnit.MILLISECONDS.toNanos(latestFrameVsyncMs)
+                    + getFrameIntervalNs();
 
             prefetch(nextFrameNs);
 
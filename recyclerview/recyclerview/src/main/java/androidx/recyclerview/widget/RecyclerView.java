@@ -428,6 +428,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
     RecyclerListener mRecyclerListener;
     // default access to avoid the need for synthetic accessors for Recycler inner class.
     final List<RecyclerListener> mRecyclerListeners = new ArrayList<>();
+    // default access to avoid the need for synthetic accessors for Recycler inner class.
+    @Nullable
+    OnPrefetchListener mOnPrefetchListener;
     final ArrayList<ItemDecoration> mItemDecorations = new ArrayList<>();
     private final ArrayList<OnItemTouchListener> mOnItemTouchListeners =
             new ArrayList<>();
@@ -1302,6 +1305,22 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         mRecyclerListeners.remove(listener);
     }
 
+    /**
+     * Register a listener that will be notified about the outcome of item prefetching.
+     *
+     * <p>Prefetching happens in between frames, while the UI thread would otherwise be idle. The
+     * listener is told when a prefetched item is later used by layout (a hit), when it is dropped
+     * from the view cache without having been used (a miss), and when prefetching an item had to
+     * be abandoned because it would not have completed before the next frame. This can be used to
+     * tune {@link #setItemViewCacheSize(int)} and
+     * {@link LinearLayoutManager#setInitialPrefetchItemCount(int)} for a given device.</p>
+     *
+     * @param listener Listener to register, or null to clear
+     */
+    public void setOnPrefetchListener(@Nullable OnPrefetchListener listener) {
+        mOnPrefetchListener = listener;
+    }
+
     /**
      * <p>Return the offset of the RecyclerView's text baseline from the its top
      * boundary. If the LayoutManager of this RecyclerView does not support baseline alignment,
@@ -6728,6 +6747,12 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             if (dispatchRecycled) {
                 dispatchViewRecycled(holder);
             }
+            if (holder.wasPrefetched()) {
+                holder.setFlags(0, ViewHolder.FLAG_PREFETCHED);
+                if (mOnPrefetchListener != null) {
+                    mOnPrefetchListener.onPrefetchedItemDiscarded(RecyclerView.this, holder);
+                }
+            }
             holder.mBindingAdapter = null;
             holder.mOwnerRecyclerView = null;
             getRecycledViewPool().putRecycledView(holder);
@@ -7868,6 +7893,12 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
     @SuppressWarnings("unchecked")
     void dispatchChildAttached(View child) {
         final ViewHolder viewHolder = getChildViewHolderInt(child);
+        if (viewHolder != null && viewHolder.wasPrefetched()) {
+            viewHolder.setFlags(0, ViewHolder.FLAG_PREFETCHED);
+            if (mOnPrefetchListener != null) {
+                mOnPrefetchListener.onPrefetchedItemUsed(this, viewHolder);
+            }
+        }
         onChildAttachedToWindow(child);
         if (mAdapter != null && viewHolder != null) {
             mAdapter.onViewAttachedToWindow(viewHolder);
@@ -11187,6 +11218,47 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         void onViewRecycled(@NonNull ViewHolder holder);
     }
 
+    /**
+     * An OnPrefetchListener can be set on a RecyclerView to observe how effective item prefetch
+     * is, for example to collect hit and miss counts on devices with high refresh rates.
+     *
+     * @see RecyclerView#setOnPrefetchListener(OnPrefetchListener)
+     */
+    public abstract static class OnPrefetchListener {
+
+        /**
+         * Called when a ViewHolder that was created or bound by prefetch is attached to the
+         * RecyclerView by layout.
+         *
+         * @param recyclerView The RecyclerView which prefetched the item.
+         * @param holder       The prefetched ViewHolder that is being attached.
+         */
+        public void onPrefetchedItemUsed(@NonNull RecyclerView recyclerView,
+                @NonNull ViewHolder holder) {
+        }
+
+        /**
+         * Called when a ViewHolder that was created or bound by prefetch is sent to the
+         * {@link RecycledViewPool} without ever having been attached.
+         *
+         * @param recyclerView The RecyclerView which prefetched the item.
+         * @param holder       The prefetched ViewHolder that is being discarded.
+         */
+        public void onPrefetchedItemDiscarded(@NonNull RecyclerView recyclerView,
+                @NonNull ViewHolder holder) {
+        }
+
+        /**
+         * Called when prefetching the item at the given position was abandoned because creating
+         * or binding it was not expected to finish before the next frame.
+         *
+         * @param recyclerView The RecyclerView which attempted the prefetch.
+         * @param position     The layout position of the item that was not prefetched.
+         */
+        public void onPrefetchDeadlineMissed(@NonNull RecyclerView recyclerView, int position) {
+        }
+    }
+
     /**
      * A Listener interface that can be attached to a RecylcerView to get notified
      * whenever a ViewHolder is attached to or detached from RecyclerView.
@@ -11329,6 +11401,12 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
          */
         static final int FLAG_BOUNCED_FROM_HIDDEN_LIST = 1 << 13;
 
+        /**
+         * Set by GapWorker when this ViewHolder was created or bound ahead of time by prefetch and
+         * has not yet been attached. Used to report prefetch hits and misses.
+         */
+        static final int FLAG_PREFETCHED = 1 << 14;
+
         int mFlags;
 
         private static final List<Object> FULLUPDATE_PAYLOADS = Collections.emptyList();
@@ -11606,6 +11684,10 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             return (mFlags & FLAG_RETURNED_FROM_SCRAP) != 0;
         }
 
+        boolean wasPrefetched() {
+            return (mFlags & FLAG_PREFETCHED) != 0;
+        }
+
         void clearReturnedFromScrapFlag() {
             mFlags = mFlags & ~FLAG_RETURNED_FROM_SCRAP;
         }
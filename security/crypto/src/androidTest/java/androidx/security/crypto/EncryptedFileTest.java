@@ -22,8 +22,10 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Build;
 
 import androidx.test.core.app.ApplicationProvider;
+import androidx.test.filters.SdkSuppress;
 import androidx.test.filters.SmallTest;
 
 import com.google.crypto.tink.KeysetHandle;
@@ -45,6 +47,9 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
 import java.security.KeyStore;
 
 @SmallTest
@@ -85,6 +90,9 @@ public class EncryptedFileTest {
         dataFile = new File(mContext.getFilesDir(), "tink_test_file");
         dataFile.delete();
 
+        dataFile = new File(mContext.getFilesDir(), "seekable_test_file");
+        dataFile.delete();
+
         // Delete MasterKeys
         KeyStore keyStore = KeyStore.getInstance("AndroidKeyStore");
         keyStore.load(null);
@@ -349,4 +357,53 @@ public class EncryptedFileTest {
         inputStream.close();
     }
 
+    @SdkSuppress(minSdkVersion = Build.VERSION_CODES.N)
+    @Test
+    public void testSeekableByteChannel() throws Exception {
+        final String fileName = "seekable_test_file";
+        // Spans several 4KB segments.
+        byte[] fileContent = new byte[20000];
+        for (int i = 0; i < fileContent.length; i++) {
+            fileContent[i] = (byte) i;
+        }
+
+        EncryptedFile encryptedFile = new EncryptedFile.Builder(mContext,
+                new File(mContext.getFilesDir(), fileName), mMasterKey,
+                EncryptedFile.FileEncryptionScheme.AES256_GCM_HKDF_4KB)
+                .build();
+
+        OutputStream outputStream = encryptedFile.openFileOutput();
+        outputStream.write(fileContent);
+        outputStream.close();
+
+        SeekableByteChannel channel = encryptedFile.openSeekableByteChannel();
+        Assert.assertEquals(fileContent.length, channel.size());
+
+        // Read a range that crosses a segment boundary, then one before it.
+        int[] positions = new int[] {15000, 3000};
+        for (int position : positions) {
+            ByteBuffer buffer = ByteBuffer.allocate(2000);
+            channel.position(position);
+            while (buffer.hasRemaining()) {
+                Assert.assertTrue(channel.read(buffer) > 0);
+            }
+            for (int i = 0; i < buffer.capacity(); i++) {
+                Assert.assertEquals(fileContent[position + i], buffer.get(i));
+            }
+            Assert.assertEquals(position + buffer.capacity(), channel.position());
+        }
+
+        channel.position(fileContent.length);
+        Assert.assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+
+        boolean exceptionThrown = false;
+        try {
+            channel.write(ByteBuffer.allocate(1));
+        } catch (NonWritableChannelException ex) {
+            exceptionThrown = true;
+        }
+        Assert.assertTrue("The channel should be read only.", exceptionThrown);
+        channel.close();
+    }
+
 }
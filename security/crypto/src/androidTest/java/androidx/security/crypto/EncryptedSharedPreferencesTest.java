@@ -408,4 +408,76 @@ public class EncryptedSharedPreferencesTest {
                 testValue);
     }
 
+    @Test
+    public void testValueCache() throws Exception {
+        String testKey = "TestKey";
+
+        SharedPreferences cachedSharedPreferences = EncryptedSharedPreferences
+                .create(mContext,
+                        PREFS_FILE,
+                        mMasterKey,
+                        EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                        EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM,
+                        10);
+        SharedPreferences sharedPreferences = EncryptedSharedPreferences
+                .create(mContext,
+                        PREFS_FILE,
+                        mMasterKey,
+                        EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                        EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM);
+
+        cachedSharedPreferences.edit().putString(testKey, "FirstVal").commit();
+        Assert.assertEquals("FirstVal", cachedSharedPreferences.getString(testKey, null));
+        Assert.assertEquals("FirstVal", cachedSharedPreferences.getString(testKey, null));
+
+        // Changes made by another instance must not be hidden by the cache.
+        sharedPreferences.edit().putString(testKey, "SecondVal").commit();
+        Assert.assertEquals("SecondVal", cachedSharedPreferences.getString(testKey, null));
+
+        sharedPreferences.edit().remove(testKey).commit();
+        Assert.assertNull(cachedSharedPreferences.getString(testKey, null));
+        Assert.assertFalse(cachedSharedPreferences.contains(testKey));
+
+        // Returned sets can be changed without changing the cached value.
+        Set<String> stringSetValue = new ArraySet<>();
+        stringSetValue.add("Test1");
+        cachedSharedPreferences.edit().putStringSet(testKey, stringSetValue).commit();
+        cachedSharedPreferences.getStringSet(testKey, null).add("Test2");
+        Assert.assertEquals(stringSetValue, cachedSharedPreferences.getStringSet(testKey, null));
+
+        cachedSharedPreferences.edit().clear().commit();
+        Assert.assertEquals(0, cachedSharedPreferences.getAll().size());
+    }
+
+    @Test
+    public void testEditorBatch() throws Exception {
+        SharedPreferences sharedPreferences = EncryptedSharedPreferences
+                .create(mContext,
+                        PREFS_FILE,
+                        mMasterKey,
+                        EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                        EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM);
+        sharedPreferences.edit()
+                .putInt("Kept", 1)
+                .putInt("Removed", 2)
+                .commit();
+
+        // The last change to a key in an editor wins, and clear happens first.
+        sharedPreferences.edit()
+                .putInt("Kept", 3)
+                .putInt("Kept", 4)
+                .remove("Removed")
+                .putInt("Added", 5)
+                .remove("Added")
+                .putInt("Added", 6)
+                .clear()
+                .commit();
+
+        Map<String, ?> all = sharedPreferences.getAll();
+        Assert.assertEquals(2, all.size());
+        Assert.assertEquals(4, all.get("Kept"));
+        Assert.assertEquals(6, all.get("Added"));
+        Assert.assertFalse(sharedPreferences.contains("Removed"));
+    }
+
 }
@@ -22,8 +22,10 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.os.Build;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
 
 import com.google.crypto.tink.KeyTemplate;
 import com.google.crypto.tink.KeysetHandle;
@@ -40,6 +42,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.security.GeneralSecurityException;
 
 /**
@@ -252,6 +255,39 @@ public final class EncryptedFile {
         return new EncryptedFileInputStream(fileInputStream.getFD(), decryptingStream);
     }
 
+    /**
+     * Opens a read only SeekableByteChannel that reads encrypted files based on the previous
+     * settings.
+     *
+     * Unlike {@link #openFileInput()}, only the segments that contain the data being read are
+     * decrypted, so any range of the file can be read without decrypting the data before it.
+     * The position and size of the channel are those of the plain text.
+     *
+     * Please ensure that the same master key and keyset are  used to decrypt or it
+     * will cause failures.
+     *
+     * @return The channel to read previously encrypted data.
+     * @throws GeneralSecurityException when a bad master key or keyset has been used
+     * @throws IOException              when the file was not found
+     */
+    @RequiresApi(Build.VERSION_CODES.N)
+    @NonNull
+    public SeekableByteChannel openSeekableByteChannel()
+            throws GeneralSecurityException, IOException {
+        if (!mFile.exists()) {
+            throw new IOException("file doesn't exist: " + mFile.getName());
+        }
+        // Closing the decrypting channel closes the file channel, and the stream with it.
+        FileChannel fileChannel = new FileInputStream(mFile).getChannel();
+        try {
+            return mStreamingAead.newSeekableDecryptingChannel(fileChannel,
+                    mFile.getName().getBytes(UTF_8));
+        } catch (GeneralSecurityException | IOException | RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
     /**
      * Encrypted file output stream
      */
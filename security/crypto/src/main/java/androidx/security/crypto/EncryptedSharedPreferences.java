@@ -24,9 +24,11 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Pair;
 
+import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.collection.ArraySet;
+import androidx.collection.LruCache;
 
 import com.google.crypto.tink.Aead;
 import com.google.crypto.tink.DeterministicAead;
@@ -43,6 +45,7 @@ import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -76,6 +79,9 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
 
     private static final String NULL_VALUE = "__NULL__";
 
+    // Number of pref keys whose encrypted form is remembered.
+    private static final int KEY_CACHE_SIZE = 256;
+
     final SharedPreferences mSharedPreferences;
     final List<OnSharedPreferenceChangeListener> mListeners;
     final String mFileName;
@@ -84,17 +90,35 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
     final Aead mValueAead;
     final DeterministicAead mKeyDeterministicAead;
 
+    // Keys are encrypted deterministically, so their encrypted form never changes.
+    final LruCache<String, String> mEncryptedKeys = new LruCache<>(KEY_CACHE_SIZE);
+    final LruCache<String, String> mDecryptedKeys = new LruCache<>(KEY_CACHE_SIZE);
+    // Decrypted values by encrypted key, or null if values aren't cached.
+    @Nullable
+    final LruCache<String, CachedValue> mValueCache;
+
     EncryptedSharedPreferences(@NonNull String name,
             @NonNull String masterKeyAlias,
             @NonNull SharedPreferences sharedPreferences,
             @NonNull Aead aead,
             @NonNull DeterministicAead deterministicAead) {
+        this(name, masterKeyAlias, sharedPreferences, aead, deterministicAead, 0);
+    }
+
+    EncryptedSharedPreferences(@NonNull String name,
+            @NonNull String masterKeyAlias,
+            @NonNull SharedPreferences sharedPreferences,
+            @NonNull Aead aead,
+            @NonNull DeterministicAead deterministicAead,
+            int maxCachedValueCount) {
         mFileName = name;
         mSharedPreferences = sharedPreferences;
         mMasterKeyAlias = masterKeyAlias;
         mValueAead = aead;
         mKeyDeterministicAead = deterministicAead;
         mListeners = new ArrayList<>();
+        mValueCache = maxCachedValueCount > 0
+                ? new LruCache<String, CachedValue>(maxCachedValueCount) : null;
     }
 
     /**
@@ -120,6 +144,42 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
                 prefKeyEncryptionScheme, prefValueEncryptionScheme);
     }
 
+    /**
+     * Opens an instance of encrypted SharedPreferences that keeps up to
+     * {@code maxCachedValueCount} decrypted values in memory.
+     * <p>
+     * Reading a cached value doesn't decrypt it again, which helps when the same prefs are read
+     * often, such as when a settings screen is shown. A cached value is only used while the
+     * encrypted value stored for its key is the one it was decrypted from, so it is never stale,
+     * even when the prefs are changed by another instance. As decrypted values stay in memory,
+     * only use this for prefs whose values may be kept there.
+     *
+     * @param fileName                  The name of the file to open; can not contain path
+     *                                  separators.
+     * @param masterKey                 The master key to use.
+     * @param prefKeyEncryptionScheme   The scheme to use for encrypting keys.
+     * @param prefValueEncryptionScheme The scheme to use for encrypting values.
+     * @param maxCachedValueCount       The maximum number of decrypted values to keep in memory,
+     *                                  or 0 not to keep any.
+     * @return The SharedPreferences instance that encrypts all data.
+     * @throws GeneralSecurityException when a bad master key or keyset has been attempted
+     * @throws IOException              when fileName can not be used
+     */
+    @NonNull
+    public static SharedPreferences create(@NonNull Context context,
+            @NonNull String fileName,
+            @NonNull MasterKey masterKey,
+            @NonNull PrefKeyEncryptionScheme prefKeyEncryptionScheme,
+            @NonNull PrefValueEncryptionScheme prefValueEncryptionScheme,
+            @IntRange(from = 0) int maxCachedValueCount)
+            throws GeneralSecurityException, IOException {
+        if (maxCachedValueCount < 0) {
+            throw new IllegalArgumentException("maxCachedValueCount shouldn't be negative");
+        }
+        return createInternal(fileName, masterKey.getKeyAlias(), context,
+                prefKeyEncryptionScheme, prefValueEncryptionScheme, maxCachedValueCount);
+    }
+
     /**
      * Opens an instance of encrypted SharedPreferences
      *
@@ -143,6 +203,17 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
             @NonNull PrefKeyEncryptionScheme prefKeyEncryptionScheme,
             @NonNull PrefValueEncryptionScheme prefValueEncryptionScheme)
             throws GeneralSecurityException, IOException {
+        return createInternal(fileName, masterKeyAlias, context, prefKeyEncryptionScheme,
+                prefValueEncryptionScheme, 0);
+    }
+
+    private static SharedPreferences createInternal(@NonNull String fileName,
+            @NonNull String masterKeyAlias,
+            @NonNull Context context,
+            @NonNull PrefKeyEncryptionScheme prefKeyEncryptionScheme,
+            @NonNull PrefValueEncryptionScheme prefValueEncryptionScheme,
+            int maxCachedValueCount)
+            throws GeneralSecurityException, IOException {
         TinkConfig.register();
 
         final Context applicationContext = context.getApplicationContext();
@@ -162,7 +233,7 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
 
         return new EncryptedSharedPreferences(fileName, masterKeyAlias,
                 applicationContext.getSharedPreferences(fileName, Context.MODE_PRIVATE), aead,
-                daead);
+                daead, maxCachedValueCount);
     }
 
     /**
@@ -217,6 +288,8 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
         private final EncryptedSharedPreferences mEncryptedSharedPreferences;
         private final SharedPreferences.Editor mEditor;
         private final List<String> mKeysChanged;
+        // Plain text values by key, encrypted together on commit. A null value removes the key.
+        private final Map<String, byte[]> mPendingChanges = new LinkedHashMap<>();
         private AtomicBoolean mClearRequested = new AtomicBoolean(false);
 
         Editor(EncryptedSharedPreferences encryptedSharedPreferences,
@@ -315,7 +388,9 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
             if (mEncryptedSharedPreferences.isReservedKey(key)) {
                 throw new SecurityException(key + " is a reserved key for the encryption keyset.");
             }
-            mEditor.remove(mEncryptedSharedPreferences.encryptKey(key));
+            synchronized (mPendingChanges) {
+                mPendingChanges.put(key == null ? NULL_VALUE : key, null);
+            }
             mKeysChanged.remove(key);
             return this;
         }
@@ -333,6 +408,7 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
         @Override
         public boolean commit() {
             clearKeysIfNeeded();
+            writePendingChanges();
             try {
                 return mEditor.commit();
             } finally {
@@ -344,20 +420,47 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
         @Override
         public void apply() {
             clearKeysIfNeeded();
+            writePendingChanges();
             mEditor.apply();
             notifyListeners();
             mKeysChanged.clear();
         }
 
         private void clearKeysIfNeeded() {
-            // Call "clear" first as per the documentation, remove all keys that haven't
-            // been modified in this editor.
+            // Call "clear" first as per the documentation. The keys modified in this editor are
+            // written after, so they are kept. Keys are removed in their encrypted form, so that
+            // nothing needs to be decrypted.
             if (mClearRequested.getAndSet(false)) {
-                for (String key : mEncryptedSharedPreferences.getAll().keySet()) {
-                    if (!mKeysChanged.contains(key)
-                            && !mEncryptedSharedPreferences.isReservedKey(key)) {
-                        mEditor.remove(mEncryptedSharedPreferences.encryptKey(key));
+                for (String encryptedKey
+                        : mEncryptedSharedPreferences.mSharedPreferences.getAll().keySet()) {
+                    if (!mEncryptedSharedPreferences.isReservedKey(encryptedKey)) {
+                        mEditor.remove(encryptedKey);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Encrypts the changes made in this editor in one pass, and writes them to the editor of
+         * the underlying prefs. A key put several times is only encrypted once.
+         */
+        private void writePendingChanges() {
+            synchronized (mPendingChanges) {
+                try {
+                    for (Map.Entry<String, byte[]> change : mPendingChanges.entrySet()) {
+                        if (change.getValue() == null) {
+                            mEditor.remove(
+                                    mEncryptedSharedPreferences.encryptKey(change.getKey()));
+                            continue;
+                        }
+                        Pair<String, String> encryptedPair = mEncryptedSharedPreferences
+                                .encryptKeyValuePair(change.getKey(), change.getValue());
+                        mEditor.putString(encryptedPair.first, encryptedPair.second);
                     }
+                } catch (GeneralSecurityException ex) {
+                    throw new SecurityException("Could not encrypt data: " + ex.getMessage(), ex);
+                } finally {
+                    mPendingChanges.clear();
                 }
             }
         }
@@ -370,12 +473,8 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
             if (key == null) {
                 key = NULL_VALUE;
             }
-            try {
-                Pair<String, String> encryptedPair = mEncryptedSharedPreferences
-                        .encryptKeyValuePair(key, value);
-                mEditor.putString(encryptedPair.first, encryptedPair.second);
-            } catch (GeneralSecurityException ex) {
-                throw new SecurityException("Could not encrypt data: " + ex.getMessage(), ex);
+            synchronized (mPendingChanges) {
+                mPendingChanges.put(key, value);
             }
         }
 
@@ -397,9 +496,11 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
         Map<String, ? super Object> allEntries = new HashMap<>();
         for (Map.Entry<String, ?> entry : mSharedPreferences.getAll().entrySet()) {
             if (!isReservedKey(entry.getKey())) {
+                // The value is decrypted with the encrypted key it's stored with, so that the key
+                // doesn't need to be encrypted again.
                 String decryptedKey = decryptKey(entry.getKey());
                 allEntries.put(decryptedKey,
-                        getDecryptedObject(decryptedKey));
+                        decryptValue(entry.getKey(), (String) entry.getValue()));
             }
         }
         return allEntries;
@@ -524,91 +625,127 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
         if (key == null) {
             key = NULL_VALUE;
         }
+        String encryptedKey = encryptKey(key);
+        String encryptedValue = mSharedPreferences.getString(encryptedKey, null);
+        if (encryptedValue == null) {
+            return null;
+        }
+        return decryptValue(encryptedKey, encryptedValue);
+    }
+
+    private Object decryptValue(@NonNull String encryptedKey, @NonNull String encryptedValue) {
+        byte[] value = getDecryptedValue(encryptedKey, encryptedValue);
         Object returnValue = null;
-        try {
-            String encryptedKey = encryptKey(key);
-            String encryptedValue = mSharedPreferences.getString(encryptedKey, null);
-            if (encryptedValue != null) {
-                byte[] cipherText = Base64.decode(encryptedValue, Base64.DEFAULT);
-                byte[] value = mValueAead.decrypt(cipherText, encryptedKey.getBytes(UTF_8));
-                ByteBuffer buffer = ByteBuffer.wrap(value);
-                buffer.position(0);
-                int typeId = buffer.getInt();
-                EncryptedType type = EncryptedType.fromId(typeId);
-                switch (type) {
-                    case STRING:
-                        int stringLength = buffer.getInt();
-                        ByteBuffer stringSlice = buffer.slice();
-                        buffer.limit(stringLength);
-                        String stringValue = UTF_8.decode(stringSlice).toString();
-                        if (stringValue.equals(NULL_VALUE)) {
-                            returnValue = null;
-                        } else {
-                            returnValue = stringValue;
-                        }
-                        break;
-                    case INT:
-                        returnValue = buffer.getInt();
-                        break;
-                    case LONG:
-                        returnValue = buffer.getLong();
-                        break;
-                    case FLOAT:
-                        returnValue = buffer.getFloat();
-                        break;
-                    case BOOLEAN:
-                        returnValue = buffer.get() != (byte) 0;
-                        break;
-                    case STRING_SET:
-                        ArraySet<String> stringSet = new ArraySet<>();
-                        while (buffer.hasRemaining()) {
-                            int subStringLength = buffer.getInt();
-                            ByteBuffer subStringSlice = buffer.slice();
-                            subStringSlice.limit(subStringLength);
-                            buffer.position(buffer.position() + subStringLength);
-                            stringSet.add(UTF_8.decode(subStringSlice).toString());
-                        }
-                        if (stringSet.size() == 1 && NULL_VALUE.equals(stringSet.valueAt(0))) {
-                            returnValue = null;
-                        } else {
-                            returnValue = stringSet;
-                        }
-                        break;
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        buffer.position(0);
+        int typeId = buffer.getInt();
+        EncryptedType type = EncryptedType.fromId(typeId);
+        switch (type) {
+            case STRING:
+                int stringLength = buffer.getInt();
+                ByteBuffer stringSlice = buffer.slice();
+                buffer.limit(stringLength);
+                String stringValue = UTF_8.decode(stringSlice).toString();
+                if (stringValue.equals(NULL_VALUE)) {
+                    returnValue = null;
+                } else {
+                    returnValue = stringValue;
+                }
+                break;
+            case INT:
+                returnValue = buffer.getInt();
+                break;
+            case LONG:
+                returnValue = buffer.getLong();
+                break;
+            case FLOAT:
+                returnValue = buffer.getFloat();
+                break;
+            case BOOLEAN:
+                returnValue = buffer.get() != (byte) 0;
+                break;
+            case STRING_SET:
+                ArraySet<String> stringSet = new ArraySet<>();
+                while (buffer.hasRemaining()) {
+                    int subStringLength = buffer.getInt();
+                    ByteBuffer subStringSlice = buffer.slice();
+                    subStringSlice.limit(subStringLength);
+                    buffer.position(buffer.position() + subStringLength);
+                    stringSet.add(UTF_8.decode(subStringSlice).toString());
+                }
+                if (stringSet.size() == 1 && NULL_VALUE.equals(stringSet.valueAt(0))) {
+                    returnValue = null;
+                } else {
+                    returnValue = stringSet;
                 }
+                break;
+        }
+        return returnValue;
+    }
+
+    /**
+     * Gets the plain text of an encrypted value, from the value cache if it has the plain text of
+     * that same encrypted value.
+     */
+    private byte[] getDecryptedValue(@NonNull String encryptedKey,
+            @NonNull String encryptedValue) {
+        if (mValueCache != null) {
+            CachedValue cachedValue = mValueCache.get(encryptedKey);
+            if (cachedValue != null && cachedValue.mEncryptedValue.equals(encryptedValue)) {
+                return cachedValue.mValue;
             }
+        }
+        try {
+            byte[] cipherText = Base64.decode(encryptedValue, Base64.DEFAULT);
+            byte[] value = mValueAead.decrypt(cipherText, encryptedKey.getBytes(UTF_8));
+            if (mValueCache != null) {
+                mValueCache.put(encryptedKey, new CachedValue(encryptedValue, value));
+            }
+            return value;
         } catch (GeneralSecurityException ex) {
             throw new SecurityException("Could not decrypt value. " + ex.getMessage(), ex);
         }
-        return returnValue;
     }
 
     String encryptKey(String key) {
         if (key == null) {
             key = NULL_VALUE;
         }
+        String encryptedKey = mEncryptedKeys.get(key);
+        if (encryptedKey != null) {
+            return encryptedKey;
+        }
         try {
             byte[] encryptedKeyBytes = mKeyDeterministicAead.encryptDeterministically(
                     key.getBytes(UTF_8),
                     mFileName.getBytes());
-            return Base64.encode(encryptedKeyBytes);
+            encryptedKey = Base64.encode(encryptedKeyBytes);
         } catch (GeneralSecurityException ex) {
             throw new SecurityException("Could not encrypt key. " + ex.getMessage(), ex);
         }
+        mEncryptedKeys.put(key, encryptedKey);
+        mDecryptedKeys.put(encryptedKey, key);
+        return encryptedKey;
     }
 
     String decryptKey(String encryptedKey) {
-        try {
-            byte[] clearText = mKeyDeterministicAead.decryptDeterministically(
-                    Base64.decode(encryptedKey, Base64.DEFAULT),
-                    mFileName.getBytes());
-            String key = new String(clearText, UTF_8);
-            if (key.equals(NULL_VALUE)) {
-                key = null;
+        String key = mDecryptedKeys.get(encryptedKey);
+        if (key == null) {
+            try {
+                byte[] clearText = mKeyDeterministicAead.decryptDeterministically(
+                        Base64.decode(encryptedKey, Base64.DEFAULT),
+                        mFileName.getBytes());
+                key = new String(clearText, UTF_8);
+            } catch (GeneralSecurityException ex) {
+                throw new SecurityException("Could not decrypt key. " + ex.getMessage(), ex);
             }
-            return key;
-        } catch (GeneralSecurityException ex) {
-            throw new SecurityException("Could not decrypt key. " + ex.getMessage(), ex);
+            mDecryptedKeys.put(encryptedKey, key);
+            mEncryptedKeys.put(key, encryptedKey);
+        }
+        if (key.equals(NULL_VALUE)) {
+            key = null;
         }
+        return key;
     }
 
 
@@ -628,7 +765,25 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
             throws GeneralSecurityException {
         String encryptedKey = encryptKey(key);
         byte[] cipherText = mValueAead.encrypt(value, encryptedKey.getBytes(UTF_8));
-        return new Pair<>(encryptedKey, Base64.encode(cipherText));
+        String encryptedValue = Base64.encode(cipherText);
+        if (mValueCache != null) {
+            // Cached before the value is written, but it's only used if it is written.
+            mValueCache.put(encryptedKey, new CachedValue(encryptedValue, value));
+        }
+        return new Pair<>(encryptedKey, encryptedValue);
+    }
+
+    /**
+     * The plain text of an encrypted value.
+     */
+    private static final class CachedValue {
+        final String mEncryptedValue;
+        final byte[] mValue;
+
+        CachedValue(String encryptedValue, byte[] value) {
+            mEncryptedValue = encryptedValue;
+            mValue = value;
+        }
     }
 
 }
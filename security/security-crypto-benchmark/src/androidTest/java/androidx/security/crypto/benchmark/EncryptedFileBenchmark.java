@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.security.crypto.benchmark;
+
+import android.content.Context;
+import android.os.Build;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.security.crypto.EncryptedFile;
+import androidx.security.crypto.MasterKey;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.filters.SdkSuppress;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Random;
+
+/**
+ * Measures serving range requests from an {@link EncryptedFile}, with
+ * {@link EncryptedFile#openFileInput()} which decrypts everything before the range, and with
+ * {@link EncryptedFile#openSeekableByteChannel()} which only decrypts the range.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class EncryptedFileBenchmark {
+    private static final String FILE_NAME = "benchmark_encrypted_file";
+    private static final int FILE_SIZE = 16 * 1024 * 1024;
+    private static final int RANGE_SIZE = 64 * 1024;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private File mFile;
+    private EncryptedFile mEncryptedFile;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        mFile = new File(context.getFilesDir(), FILE_NAME);
+        mFile.delete();
+        MasterKey masterKey = new MasterKey.Builder(context)
+                .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
+                .build();
+        mEncryptedFile = new EncryptedFile.Builder(context, mFile, masterKey,
+                EncryptedFile.FileEncryptionScheme.AES256_GCM_HKDF_4KB)
+                .build();
+
+        byte[] buffer = new byte[RANGE_SIZE];
+        new Random(0).nextBytes(buffer);
+        OutputStream outputStream = mEncryptedFile.openFileOutput();
+        for (int written = 0; written < FILE_SIZE; written += buffer.length) {
+            outputStream.write(buffer);
+        }
+        outputStream.close();
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void readLastRange_inputStream() throws Exception {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        byte[] buffer = new byte[RANGE_SIZE];
+        while (state.keepRunning()) {
+            InputStream inputStream = mEncryptedFile.openFileInput();
+            skipFully(inputStream, FILE_SIZE - RANGE_SIZE);
+            readFully(inputStream, buffer);
+            inputStream.close();
+        }
+    }
+
+    @SdkSuppress(minSdkVersion = Build.VERSION_CODES.N)
+    @Test
+    public void readLastRange_seekableByteChannel() throws Exception {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        ByteBuffer buffer = ByteBuffer.allocate(RANGE_SIZE);
+        while (state.keepRunning()) {
+            SeekableByteChannel channel = mEncryptedFile.openSeekableByteChannel();
+            readFully(channel, FILE_SIZE - RANGE_SIZE, buffer);
+            channel.close();
+        }
+    }
+
+    @SdkSuppress(minSdkVersion = Build.VERSION_CODES.N)
+    @Test
+    public void readRandomRanges_seekableByteChannel() throws Exception {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        ByteBuffer buffer = ByteBuffer.allocate(RANGE_SIZE);
+        Random random = new Random(0);
+        SeekableByteChannel channel = mEncryptedFile.openSeekableByteChannel();
+        while (state.keepRunning()) {
+            readFully(channel, random.nextInt(FILE_SIZE - RANGE_SIZE), buffer);
+        }
+        channel.close();
+    }
+
+    private static void skipFully(InputStream inputStream, long count) throws IOException {
+        while (count > 0) {
+            long skipped = inputStream.skip(count);
+            if (skipped <= 0) {
+                throw new IOException("Unexpected end of stream");
+            }
+            count -= skipped;
+        }
+    }
+
+    private static void readFully(InputStream inputStream, byte[] buffer) throws IOException {
+        int offset = 0;
+        while (offset < buffer.length) {
+            int read = inputStream.read(buffer, offset, buffer.length - offset);
+            if (read < 0) {
+                throw new IOException("Unexpected end of stream");
+            }
+            offset += read;
+        }
+    }
+
+    private static void readFully(SeekableByteChannel channel, long position, ByteBuffer buffer)
+            throws IOException {
+        buffer.clear();
+        channel.position(position);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of channel");
+            }
+        }
+    }
+}
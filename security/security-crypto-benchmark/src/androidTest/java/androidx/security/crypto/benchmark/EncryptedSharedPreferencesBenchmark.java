@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.security.crypto.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.security.crypto.EncryptedSharedPreferences;
+import androidx.security.crypto.MasterKey;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures reading and writing {@link EncryptedSharedPreferences} the way a settings screen
+ * does, {@link #PREF_COUNT} prefs at a time.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class EncryptedSharedPreferencesBenchmark {
+    private static final String PREFS_FILE = "benchmark_encrypted_prefs";
+    private static final int PREF_COUNT = 50;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+    private MasterKey mMasterKey;
+
+    @Before
+    public void setUp() throws Exception {
+        mContext = ApplicationProvider.getApplicationContext();
+        // Also removes the keysets, so each test starts from new prefs.
+        mContext.getSharedPreferences(PREFS_FILE, Context.MODE_PRIVATE).edit().clear().commit();
+        mMasterKey = new MasterKey.Builder(mContext)
+                .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
+                .build();
+    }
+
+    @Test
+    public void readPrefs() throws Exception {
+        measureRead(createPrefs(0));
+    }
+
+    @Test
+    public void readPrefs_valueCache() throws Exception {
+        measureRead(createPrefs(PREF_COUNT));
+    }
+
+    @Test
+    public void getAll() throws Exception {
+        measureGetAll(createPrefs(0));
+    }
+
+    @Test
+    public void getAll_valueCache() throws Exception {
+        measureGetAll(createPrefs(PREF_COUNT));
+    }
+
+    @Test
+    public void writePrefs() throws Exception {
+        SharedPreferences prefs = createPrefs(0);
+        final BenchmarkState state = mBenchmarkRule.getState();
+        int value = 0;
+        while (state.keepRunning()) {
+            writePrefs(prefs, value++);
+        }
+    }
+
+    private void measureRead(SharedPreferences prefs) {
+        writePrefs(prefs, 0);
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (int i = 0; i < PREF_COUNT; i++) {
+                prefs.getString(getKey(i), null);
+            }
+        }
+    }
+
+    private void measureGetAll(SharedPreferences prefs) {
+        writePrefs(prefs, 0);
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            assertEquals(PREF_COUNT, prefs.getAll().size());
+        }
+    }
+
+    private SharedPreferences createPrefs(int maxCachedValueCount) throws Exception {
+        return EncryptedSharedPreferences.create(mContext, PREFS_FILE, mMasterKey,
+                EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM,
+                maxCachedValueCount);
+    }
+
+    private static void writePrefs(SharedPreferences prefs, int value) {
+        SharedPreferences.Editor editor = prefs.edit();
+        for (int i = 0; i < PREF_COUNT; i++) {
+            editor.putString(getKey(i), "value_" + value);
+        }
+        editor.commit();
+    }
+
+    private static String getKey(int index) {
+        return "pref_" + index;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup.gradle
+
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.file.FileCollection
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+import java.io.File
+
+/**
+ * Generates the `androidx.startup.GeneratedInitializerIndex` class from the merged manifest of an
+ * application variant.
+ */
+open class GenerateInitializerIndexTask : DefaultTask() {
+    /**
+     * The outputs of the manifest merger task.
+     */
+    @get:InputFiles
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    lateinit var mergedManifests: FileCollection
+
+    @get:OutputDirectory
+    lateinit var outputDir: File
+
+    @TaskAction
+    fun generate() {
+        val manifest = findMergedManifest()
+            ?: throw GradleException(
+                "Unable to find the merged manifest in ${mergedManifests.files}"
+            )
+        val initializers = manifest.inputStream().use { readInitializers(it) }
+        if (outputDir.exists() && !outputDir.deleteRecursively()) {
+            logger.warn("Failed to clear directory for the initializer index")
+        }
+        val file = File(outputDir, "${INDEX_PACKAGE.replace('.', '/')}/$INDEX_CLASS.java")
+        if (!file.parentFile.exists() && !file.parentFile.mkdirs()) {
+            throw GradleException("Failed to create directory for the initializer index")
+        }
+        file.writeText(generateIndex(initializers))
+    }
+
+    private fun findMergedManifest(): File? {
+        val manifests = mergedManifests.asFileTree.filter { it.name == "AndroidManifest.xml" }.files
+        // The merger writes the same <provider> to all of its manifests; prefer the main one.
+        return manifests.firstOrNull { it.invariantSeparatorsPath.contains("/merged_manifests/") }
+            ?: manifests.firstOrNull()
+    }
+}
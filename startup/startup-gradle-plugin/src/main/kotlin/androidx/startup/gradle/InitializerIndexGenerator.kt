@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup.gradle
+
+import org.w3c.dom.Element
+import java.io.InputStream
+import javax.xml.parsers.DocumentBuilderFactory
+
+internal const val INDEX_PACKAGE = "androidx.startup"
+internal const val INDEX_CLASS = "GeneratedInitializerIndex"
+
+private const val ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android"
+private const val INITIALIZATION_PROVIDER = "androidx.startup.InitializationProvider"
+private const val PARALLEL_INITIALIZATION = "androidx.startup.PARALLEL_INITIALIZATION"
+private val STARTUP_VALUES = setOf("androidx.startup", "@string/androidx_startup")
+
+/**
+ * The `<meta-data>` entries of the `InitializationProvider` in a merged manifest.
+ *
+ * @property initializers the class names of the Initializers, in declaration order.
+ * @property parallel whether the app opted into parallel initialization.
+ */
+internal data class ManifestInitializers(val initializers: List<String>, val parallel: Boolean)
+
+/**
+ * Reads the Initializers from a merged `AndroidManifest.xml`. Entries removed with
+ * `tools:node="remove"` are already gone from the merged manifest, so the result matches what
+ * `AppInitializer` would discover at runtime.
+ */
+internal fun readInitializers(manifest: InputStream): ManifestInitializers {
+    val factory = DocumentBuilderFactory.newInstance().apply { isNamespaceAware = true }
+    val document = factory.newDocumentBuilder().parse(manifest)
+    val initializers = mutableListOf<String>()
+    var parallel = false
+    val providers = document.getElementsByTagName("provider")
+    for (i in 0 until providers.length) {
+        val provider = providers.item(i) as Element
+        if (provider.androidAttribute("name") != INITIALIZATION_PROVIDER) {
+            continue
+        }
+        val entries = provider.getElementsByTagName("meta-data")
+        for (j in 0 until entries.length) {
+            val entry = entries.item(j) as Element
+            val name = entry.androidAttribute("name")
+            val value = entry.androidAttribute("value")
+            if (name == PARALLEL_INITIALIZATION) {
+                parallel = value.toBoolean()
+            } else if (value in STARTUP_VALUES && name !in initializers) {
+                initializers.add(name)
+            }
+        }
+    }
+    return ManifestInitializers(initializers, parallel)
+}
+
+/**
+ * Generates the Java source of the `androidx.startup.InitializerIndex` implementation, which
+ * refers to every Initializer with a class literal so that none of them needs to be looked up
+ * by name at runtime.
+ *
+ * `AppInitializer` can only instantiate public Initializers, so the class literals resolve as long
+ * as the source is compiled against the runtime classpath of the app, see [StartupPlugin]. An
+ * entry which isn't an Initializer fails the build, where `AppInitializer` would skip it.
+ */
+internal fun generateIndex(manifest: ManifestInitializers): String {
+    val additions = manifest.initializers.joinToString("") {
+        "        initializers.add(${it.replace('$', '.')}.class);\n"
+    }
+    return """
+        |package $INDEX_PACKAGE;
+        |
+        |import java.util.ArrayList;
+        |import java.util.List;
+        |
+        |/**
+        | * Generated by the androidx.startup Gradle plugin from the merged AndroidManifest.xml.
+        | * Do not modify.
+        | */
+        |public final class $INDEX_CLASS implements InitializerIndex {
+        |    @Override
+        |    public List<Class<? extends Initializer<?>>> getInitializers() {
+        |        List<Class<? extends Initializer<?>>> initializers =
+        |                new ArrayList<>(${manifest.initializers.size});
+        |${additions}        return initializers;
+        |    }
+        |
+        |    @Override
+        |    public boolean isParallelInitializationEnabled() {
+        |        return ${manifest.parallel};
+        |    }
+        |}
+        |""".trimMargin()
+}
+
+private fun Element.androidAttribute(name: String): String =
+    getAttributeNS(ANDROID_NAMESPACE, name)
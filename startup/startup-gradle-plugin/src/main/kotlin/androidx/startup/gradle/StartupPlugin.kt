@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup.gradle
+
+import com.android.build.gradle.AppExtension
+import org.gradle.api.GradleException
+import org.gradle.api.Plugin
+import org.gradle.api.Project
+import org.gradle.api.attributes.Attribute
+import org.gradle.api.tasks.compile.JavaCompile
+import java.io.File
+
+internal const val GENERATED_PATH = "generated/source/startup"
+internal const val CLASSES_PATH = "intermediates/startup_classes"
+
+/**
+ * The attribute and value AGP uses to select the classes of the dependencies of a variant.
+ */
+private val ARTIFACT_TYPE = Attribute.of("artifactType", String::class.java)
+private const val CLASSES_ARTIFACT_TYPE = "android-classes"
+
+/**
+ * The boolean resource telling `AppInitializer` that the app contains a generated index. The
+ * `androidx.startup` library defines it as `false`.
+ */
+internal const val GENERATED_INDEX_RESOURCE = "androidx_startup_generated_index"
+
+/**
+ * Generates an `androidx.startup.InitializerIndex` for every variant of an application, so that
+ * `AppInitializer` does not need to read and resolve the `<meta-data>` entries of the
+ * `InitializationProvider` at startup.
+ */
+class StartupPlugin : Plugin<Project> {
+    override fun apply(project: Project) {
+        val extension = project.extensions.findByType(AppExtension::class.java)
+            ?: throw GradleException(
+                "androidx.startup plugin must be used with the android application plugin"
+            )
+        extension.applicationVariants.all { variant ->
+            val output = variant.outputs.first()
+            val generateTask = project.tasks.register(
+                "generate${variant.name.capitalize()}InitializerIndex",
+                GenerateInitializerIndexTask::class.java
+            ) { task ->
+                task.mergedManifests = project.files(output.processManifestProvider)
+                task.outputDir = File(project.buildDir, "$GENERATED_PATH/${variant.dirName}")
+            }
+            // The index refers to the Initializers of every library in the app, including the
+            // ones which are only runtime dependencies, so it is compiled on its own against the
+            // runtime classpath rather than by the javac task of the app.
+            val runtimeClasses = variant.runtimeConfiguration.incoming.artifactView { view ->
+                view.attributes { it.attribute(ARTIFACT_TYPE, CLASSES_ARTIFACT_TYPE) }
+            }.files
+            val compileTask = project.tasks.register(
+                "compile${variant.name.capitalize()}InitializerIndex",
+                JavaCompile::class.java
+            ) { task ->
+                val javaCompile = variant.javaCompileProvider.get()
+                task.source(generateTask)
+                task.classpath = project.files(
+                    javaCompile.classpath,
+                    variant.javaCompileProvider,
+                    runtimeClasses
+                )
+                task.options.bootstrapClasspath = javaCompile.options.bootstrapClasspath
+                task.sourceCompatibility = javaCompile.sourceCompatibility
+                task.targetCompatibility = javaCompile.targetCompatibility
+                task.destinationDir = File(project.buildDir, "$CLASSES_PATH/${variant.dirName}")
+            }
+            variant.registerPostJavacGeneratedBytecode(project.files(compileTask))
+            // Only look up the index in apps which have one.
+            variant.resValue("bool", GENERATED_INDEX_RESOURCE, "true")
+        }
+    }
+}
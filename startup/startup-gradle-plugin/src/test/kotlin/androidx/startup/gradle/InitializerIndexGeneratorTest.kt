@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup.gradle
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class InitializerIndexGeneratorTest {
+
+    private fun read(manifest: String) = readInitializers(manifest.byteInputStream())
+
+    @Test
+    fun readInitializers() {
+        val initializers = read(
+            """
+            <manifest xmlns:android="http://schemas.android.com/apk/res/android"
+                package="com.example">
+                <application>
+                    <provider
+                        android:name="com.example.OtherProvider"
+                        android:authorities="com.example.other">
+                        <meta-data
+                            android:name="com.example.NotAnInitializer"
+                            android:value="androidx.startup" />
+                    </provider>
+                    <provider
+                        android:name="androidx.startup.InitializationProvider"
+                        android:authorities="com.example.androidx-startup">
+                        <meta-data
+                            android:name="com.example.SecondInitializer"
+                            android:value="@string/androidx_startup" />
+                        <meta-data
+                            android:name="com.example.Outer${'$'}FirstInitializer"
+                            android:value="androidx.startup" />
+                        <meta-data
+                            android:name="com.example.Unrelated"
+                            android:value="something else" />
+                    </provider>
+                </application>
+            </manifest>
+            """.trimIndent()
+        )
+        assertEquals(
+            ManifestInitializers(
+                listOf("com.example.SecondInitializer", "com.example.Outer${'$'}FirstInitializer"),
+                parallel = false
+            ),
+            initializers
+        )
+    }
+
+    @Test
+    fun readParallelInitialization() {
+        val initializers = read(
+            """
+            <manifest xmlns:android="http://schemas.android.com/apk/res/android"
+                package="com.example">
+                <application>
+                    <provider android:name="androidx.startup.InitializationProvider">
+                        <meta-data
+                            android:name="androidx.startup.PARALLEL_INITIALIZATION"
+                            android:value="true" />
+                    </provider>
+                </application>
+            </manifest>
+            """.trimIndent()
+        )
+        assertEquals(ManifestInitializers(emptyList(), parallel = true), initializers)
+    }
+
+    @Test
+    fun generateIndex() {
+        val source = generateIndex(
+            ManifestInitializers(
+                listOf("com.example.SecondInitializer", "com.example.Outer${'$'}FirstInitializer"),
+                parallel = true
+            )
+        )
+        assertTrue(source.startsWith("package androidx.startup;\n"))
+        assertTrue(source.contains("public final class GeneratedInitializerIndex"))
+        assertTrue(
+            source.contains(
+                "        initializers.add(com.example.SecondInitializer.class);\n" +
+                    "        initializers.add(com.example.Outer.FirstInitializer.class);\n"
+            )
+        )
+        assertTrue(source.contains("return true;"))
+    }
+}
@@ -6,3 +6,9 @@
 }
 
 -assumenosideeffects class androidx.startup.StartupLogger
+
+# The generated InitializerIndex is looked up by name when the app uses the androidx.startup
+# Gradle plugin.
+-keep class androidx.startup.GeneratedInitializerIndex {
+    <init>();
+}
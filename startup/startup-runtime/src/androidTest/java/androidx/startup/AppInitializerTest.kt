@@ -22,6 +22,7 @@ import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.filters.MediumTest
 import org.hamcrest.CoreMatchers.`is`
 import org.hamcrest.CoreMatchers.containsString
+import org.junit.Assert.assertNull
 import org.junit.Assert.assertThat
 import org.junit.Assert.assertTrue
 import org.junit.Assert.fail
@@ -66,6 +67,92 @@ class AppInitializerTest {
         assertTrue(appInitializer.isEagerlyInitialized(InitializerNoDependencies::class.java))
     }
 
+    @Test
+    fun initializationFromIndex() {
+        val index = AppInitializer.loadIndex(TestInitializerIndex::class.java.name)!!
+        appInitializer.initializeDiscovered(
+            index.initializers,
+            index.isParallelInitializationEnabled
+        )
+        assertThat(appInitializer.mInitialized.size, `is`(2))
+        assertTrue(appInitializer.mInitialized.containsKey(InitializerNoDependencies::class.java))
+        assertTrue(appInitializer.isEagerlyInitialized(InitializerWithDependency::class.java))
+        assertThat(appInitializer.mDiscovered.size, `is`(1))
+    }
+
+    @Test
+    fun missingIndex() {
+        assertNull(AppInitializer.loadIndex("androidx.startup.MissingInitializerIndex"))
+    }
+
+    @Test
+    fun parallelInitializationWithDependencies() {
+        appInitializer.initializeInParallel(
+            listOf(InitializerWithDependency::class.java, MainThreadInitializer::class.java)
+        )
+        assertThat(appInitializer.mInitialized.size, `is`(3))
+        assertTrue(appInitializer.mInitialized.containsKey(InitializerNoDependencies::class.java))
+        assertTrue(appInitializer.mInitialized.containsKey(InitializerWithDependency::class.java))
+        // Pinned initializers run on the calling thread
+        assertThat(
+            appInitializer.mInitialized[MainThreadInitializer::class.java] as Thread,
+            `is`(Thread.currentThread())
+        )
+    }
+
+    @Test
+    fun parallelInitializationSkipsInitialized() {
+        appInitializer.initializeComponent(InitializerNoDependencies::class.java)
+        val initialized = appInitializer.mInitialized[InitializerNoDependencies::class.java]
+        appInitializer.initializeInParallel(listOf(InitializerWithDependency::class.java))
+        assertThat(appInitializer.mInitialized.size, `is`(2))
+        assertThat(
+            appInitializer.mInitialized[InitializerNoDependencies::class.java],
+            `is`(initialized)
+        )
+    }
+
+    @Test
+    fun parallelInitializationWithLazyDependency() {
+        val instance = AppInitializer.getInstance(context)
+        resetLazyDependencies(instance)
+        instance.initializeInParallel(
+            listOf(LazyDependencyInitializer::class.java, CountingInitializer::class.java)
+        )
+        // Created by the graph only, not a second time by initializeComponent()
+        assertThat(CountingInitializer.createCount.get(), `is`(1))
+        assertThat(
+            instance.mInitialized[LazyDependencyInitializer::class.java] as Int,
+            `is`(1)
+        )
+    }
+
+    @Test
+    fun parallelInitializationWithLazyDependencyOutsideGraph() {
+        val instance = AppInitializer.getInstance(context)
+        resetLazyDependencies(instance)
+        // LazyDependencyInitializer is created outside the graph, holding the initialization
+        // lock, while it waits for the CountingInitializer the graph is creating.
+        instance.initializeInParallel(
+            listOf(CountingInitializer::class.java, MainThreadLazyDependencyInitializer::class.java)
+        )
+        assertThat(CountingInitializer.createCount.get(), `is`(1))
+        assertThat(
+            instance.mInitialized[MainThreadLazyDependencyInitializer::class.java] as Int,
+            `is`(1)
+        )
+    }
+
+    @Test
+    fun parallelInitializationWithCyclicDependencies() {
+        try {
+            appInitializer.initializeInParallel(listOf(CyclicDependencyInitializer::class.java))
+            fail()
+        } catch (exception: StartupException) {
+            assertThat(exception.localizedMessage, containsString("Cycle detected."))
+        }
+    }
+
     @Test
     fun initializationWithCyclicDependencies() {
         try {
@@ -75,4 +162,11 @@ class AppInitializerTest {
             assertThat(exception.localizedMessage, containsString("Cycle detected."))
         }
     }
+
+    private fun resetLazyDependencies(instance: AppInitializer) {
+        instance.mInitialized.remove(CountingInitializer::class.java)
+        instance.mInitialized.remove(LazyDependencyInitializer::class.java)
+        instance.mInitialized.remove(MainThreadLazyDependencyInitializer::class.java)
+        CountingInitializer.createCount.set(0)
+    }
 }
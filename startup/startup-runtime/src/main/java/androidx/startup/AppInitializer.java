@@ -25,18 +25,22 @@ import android.content.pm.ProviderInfo;
 import android.os.Bundle;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.tracing.Trace;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * An {@link AppInitializer} can be used to initialize all discovered [ComponentInitializer]s.
  * <br/>
- * The discovery mechanism is via `<meta-data>` entries in the merged `AndroidManifest.xml`.
+ * The discovery mechanism is via `<meta-data>` entries in the merged `AndroidManifest.xml`, or via
+ * the {@link InitializerIndex} generated from them at build time when the app uses the
+ * `androidx.startup` Gradle plugin.
  */
 @SuppressWarnings("WeakerAccess")
 public final class AppInitializer {
@@ -44,6 +48,20 @@ public final class AppInitializer {
     // Tracing
     private static final String SECTION_NAME = "Startup";
 
+    /**
+     * The `<meta-data>` key on the {@link InitializationProvider} which opts into initializing
+     * independent {@link Initializer}s in parallel.
+     *
+     * @see InitializeOnMainThread
+     */
+    private static final String PARALLEL_INITIALIZATION =
+            "androidx.startup.PARALLEL_INITIALIZATION";
+
+    /**
+     * The {@link InitializerIndex} generated by the `androidx.startup` Gradle plugin, if any.
+     */
+    static final String GENERATED_INDEX = "androidx.startup.GeneratedInitializerIndex";
+
     /**
      * The {@link AppInitializer} instance.
      */
@@ -54,6 +72,10 @@ public final class AppInitializer {
      */
     private static final Object sLock = new Object();
 
+    /**
+     * The initialized components. Concurrent so that {@link ParallelInitializer} can publish
+     * results without taking {@link #sLock}, which may be held by a thread waiting for them.
+     */
     @NonNull
     final Map<Class<?>, Object> mInitialized;
 
@@ -63,6 +85,12 @@ public final class AppInitializer {
     @NonNull
     final Context mContext;
 
+    /**
+     * The {@link ParallelInitializer} running, if any.
+     */
+    @Nullable
+    volatile ParallelInitializer mParallelInitializer;
+
     /**
      * Creates an instance of {@link AppInitializer}
      *
@@ -71,7 +99,7 @@ public final class AppInitializer {
     AppInitializer(@NonNull Context context) {
         mContext = context.getApplicationContext();
         mDiscovered = new HashSet<>();
-        mInitialized = new HashMap<>();
+        mInitialized = new ConcurrentHashMap<>();
     }
 
     /**
@@ -101,6 +129,12 @@ public final class AppInitializer {
     @NonNull
     @SuppressWarnings("unused")
     public <T> T initializeComponent(@NonNull Class<? extends Initializer<T>> component) {
+        ParallelInitializer parallelInitializer = mParallelInitializer;
+        if (parallelInitializer != null) {
+            // Let the initializers being created in parallel finish rather than creating them
+            // a second time.
+            parallelInitializer.awaitGraphNodes(component);
+        }
         return doInitialize(component, new HashSet<Class<?>>());
     }
 
@@ -115,6 +149,29 @@ public final class AppInitializer {
         return mDiscovered.contains(component);
     }
 
+    /**
+     * @return <code>true</code> if the {@link Initializer} has been initialized already.
+     */
+    boolean isInitialized(@NonNull Class<?> component) {
+        return mInitialized.containsKey(component);
+    }
+
+    /**
+     * Records the result of an {@link Initializer} created by {@link ParallelInitializer}.
+     */
+    void onInitialized(@NonNull Class<?> component, @NonNull Object result) {
+        mInitialized.put(component, result);
+    }
+
+    /**
+     * Initializes the given components and their dependencies in parallel.
+     *
+     * @see ParallelInitializer
+     */
+    void initializeInParallel(@NonNull List<Class<? extends Initializer<?>>> components) {
+        new ParallelInitializer(this).initialize(components);
+    }
+
     @NonNull
     @SuppressWarnings({"unchecked", "TypeParameterUnusedInFormals"})
     <T> T doInitialize(
@@ -171,10 +228,75 @@ public final class AppInitializer {
         }
     }
 
-    @SuppressWarnings("unchecked")
     void discoverAndInitialize() {
         try {
             Trace.beginSection(SECTION_NAME);
+            // Only apps built with the Gradle plugin have an index; don't make every other app
+            // pay for a failed class lookup.
+            InitializerIndex index = null;
+            if (mContext.getResources().getBoolean(R.bool.androidx_startup_generated_index)) {
+                index = loadIndex(GENERATED_INDEX);
+            }
+            if (index != null) {
+                if (StartupLogger.DEBUG) {
+                    StartupLogger.i(String.format("Using %s", GENERATED_INDEX));
+                }
+                initializeDiscovered(index.getInitializers(),
+                        index.isParallelInitializationEnabled());
+            } else {
+                discoverFromMetadata();
+            }
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Instantiates the {@link InitializerIndex} generated at build time.
+     *
+     * @param className The name of the generated class
+     * @return The index, or <code>null</code> if the app was not built with one.
+     */
+    @Nullable
+    static InitializerIndex loadIndex(@NonNull String className) {
+        Class<?> clazz;
+        try {
+            clazz = Class.forName(className);
+        } catch (ClassNotFoundException exception) {
+            return null;
+        }
+        try {
+            return (InitializerIndex) clazz.getDeclaredConstructor().newInstance();
+        } catch (Throwable throwable) {
+            throw new StartupException(throwable);
+        }
+    }
+
+    /**
+     * Eagerly initializes the discovered {@link Initializer}s.
+     */
+    void initializeDiscovered(
+            @NonNull List<Class<? extends Initializer<?>>> components,
+            boolean parallel) {
+        for (Class<? extends Initializer<?>> component : components) {
+            mDiscovered.add(component);
+            if (StartupLogger.DEBUG) {
+                StartupLogger.i(String.format("Discovered %s", component.getName()));
+            }
+        }
+        if (parallel) {
+            initializeInParallel(components);
+        } else {
+            Set<Class<?>> initializing = new HashSet<>();
+            for (Class<? extends Initializer<?>> component : components) {
+                doInitialize(component, initializing);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void discoverFromMetadata() {
+        try {
             ComponentName provider = new ComponentName(mContext.getPackageName(),
                     InitializationProvider.class.getName());
             ProviderInfo providerInfo = mContext.getPackageManager()
@@ -182,28 +304,25 @@ public final class AppInitializer {
             Bundle metadata = providerInfo.metaData;
             String startup = mContext.getString(R.string.androidx_startup);
             if (metadata != null) {
-                Set<Class<?>> initializing = new HashSet<>();
+                List<Class<? extends Initializer<?>>> discovered = new ArrayList<>();
                 Set<String> keys = metadata.keySet();
                 for (String key : keys) {
+                    if (PARALLEL_INITIALIZATION.equals(key)) {
+                        continue;
+                    }
                     String value = metadata.getString(key, null);
                     if (startup.equals(value)) {
                         Class<?> clazz = Class.forName(key);
                         if (Initializer.class.isAssignableFrom(clazz)) {
-                            Class<? extends Initializer<?>> component =
-                                    (Class<? extends Initializer<?>>) clazz;
-                            mDiscovered.add(component);
-                            if (StartupLogger.DEBUG) {
-                                StartupLogger.i(String.format("Discovered %s", key));
-                            }
-                            doInitialize(component, initializing);
+                            discovered.add((Class<? extends Initializer<?>>) clazz);
                         }
                     }
                 }
+                initializeDiscovered(discovered,
+                        metadata.getBoolean(PARALLEL_INITIALIZATION, false));
             }
         } catch (PackageManager.NameNotFoundException | ClassNotFoundException exception) {
             throw new StartupException(exception);
-        } finally {
-            Trace.endSection();
         }
     }
 }
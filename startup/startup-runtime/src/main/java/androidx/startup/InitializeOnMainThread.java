@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an {@link Initializer} which must be created on the main thread.
+ * <p>
+ * By default {@link Initializer}s are created one after another on the main thread. Apps can opt
+ * into initializing independent {@link Initializer}s in parallel by adding the following
+ * `<meta-data>` entry to the `InitializationProvider` in their `AndroidManifest.xml`:
+ *
+ * <pre>
+ * &lt;meta-data
+ *     android:name="androidx.startup.PARALLEL_INITIALIZATION"
+ *     android:value="true" /&gt;
+ * </pre>
+ *
+ * In that mode, {@link Initializer}s run on background threads as soon as their dependencies are
+ * initialized, except for the ones with this annotation which keep running on the main thread.
+ * The main thread only runs those while it waits for the others, it does not process messages
+ * posted to it. An {@link Initializer} which posts work to the main thread and waits for it
+ * must therefore have this annotation, or it will never complete.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface InitializeOnMainThread {
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * An index of the {@link Initializer}s declared in the merged `AndroidManifest.xml`, generated at
+ * build time by the `androidx.startup` Gradle plugin.
+ * <br/>
+ * When the app contains a generated index, {@link AppInitializer} uses it instead of reading the
+ * `<meta-data>` entries of the {@link InitializationProvider} at startup, which saves a
+ * {@link android.content.pm.PackageManager} lookup and a reflective class lookup per
+ * {@link Initializer}. Apps should not implement this interface themselves.
+ */
+public interface InitializerIndex {
+
+    /**
+     * @return The {@link Initializer}s to eagerly initialize, in the order in which they are
+     * declared in the merged `AndroidManifest.xml`.
+     */
+    @NonNull
+    List<Class<? extends Initializer<?>>> getInitializers();
+
+    /**
+     * @return <code>true</code> if the app opted into parallel initialization.
+     * @see InitializeOnMainThread
+     */
+    boolean isParallelInitializationEnabled();
+}
@@ -0,0 +1,480 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup;
+
+import android.content.Context;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.tracing.Trace;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Initializes a set of {@link Initializer}s and their dependencies in parallel.
+ * <p>
+ * The dependency graph is built up front on the calling thread. Every {@link Initializer} is then
+ * created as soon as all of its dependencies are, on a bounded pool of background threads, or on
+ * the calling thread for the ones annotated with {@link InitializeOnMainThread}. The calling
+ * thread returns once everything is initialized.
+ * <p>
+ * While the calling thread waits, it only runs the {@link Initializer}s pinned to it. It does not
+ * process the messages of its {@link Looper}, so an {@link Initializer} running on a background
+ * thread must not post to the main thread and wait for the result. Such an {@link Initializer}
+ * should be annotated with {@link InitializeOnMainThread} instead. A warning naming the
+ * {@link Initializer}s still running is logged if the main thread waits for more than
+ * {@link #WAIT_WARNING_MILLIS}.
+ * <p>
+ * An {@link Initializer} can call {@link AppInitializer#initializeComponent(Class)} for any other
+ * {@link Initializer} of the graph, including ones it does not declare as a dependency. The
+ * component is then waited for, or created on the calling thread if it did not start yet, rather
+ * than created a second time.
+ * <p>
+ * The time each {@link Initializer} spent waiting, for its dependencies and for a free thread,
+ * is traced as an async section, and the time spent in {@link Initializer#create(Context)} as a
+ * regular section on the thread it ran on.
+ */
+final class ParallelInitializer {
+
+    /**
+     * Upper bound on the number of background threads. The main thread keeps running
+     * {@link InitializeOnMainThread} initializers, and the rest of the app is starting too.
+     */
+    private static final int MAX_THREADS = 4;
+
+    private static final String WAIT_SECTION_SUFFIX = " wait";
+
+    /**
+     * How long the main thread waits before logging which initializers are still running.
+     */
+    private static final long WAIT_WARNING_MILLIS = 5000;
+
+    @NonNull
+    private final AppInitializer mAppInitializer;
+
+    /**
+     * Nodes in the order their dependencies were visited, so each node comes after its
+     * dependencies.
+     */
+    @NonNull
+    private final Map<Class<?>, Node> mNodes = new LinkedHashMap<>();
+
+    /**
+     * Work for the calling thread: initializers pinned to it, and {@link #mWakeUp} whenever an
+     * initializer is done or something failed.
+     */
+    @NonNull
+    private final BlockingQueue<Node> mCallerQueue = new LinkedBlockingQueue<>();
+
+    @NonNull
+    private final Node mWakeUp = new Node(null, null);
+
+    @NonNull
+    private final AtomicInteger mRemaining = new AtomicInteger();
+
+    /**
+     * Notified whenever an initializer is done or something failed, for threads other than the
+     * calling thread waiting in {@link #await(Node)}.
+     */
+    @NonNull
+    private final Object mDoneLock = new Object();
+
+    @Nullable
+    private Thread mCallerThread;
+
+    @Nullable
+    private ExecutorService mExecutor;
+
+    @Nullable
+    private volatile Throwable mError;
+
+    private long mStartNanos;
+
+    private boolean mIsTracingEnabled;
+
+    ParallelInitializer(@NonNull AppInitializer appInitializer) {
+        mAppInitializer = appInitializer;
+    }
+
+    /**
+     * Initializes the components and their dependencies which are not initialized yet.
+     *
+     * @throws StartupException if a dependency cycle is detected or an initializer failed
+     */
+    void initialize(@NonNull List<Class<? extends Initializer<?>>> components) {
+        Set<Class<?>> visiting = new HashSet<>();
+        for (Class<? extends Initializer<?>> component : components) {
+            if (!mAppInitializer.isInitialized(component)) {
+                addNode(component, visiting);
+            }
+        }
+        if (mNodes.isEmpty()) {
+            return;
+        }
+
+        int backgroundCount = 0;
+        for (Node node : mNodes.values()) {
+            if (!node.mOnCallerThread) {
+                backgroundCount++;
+            }
+        }
+        if (backgroundCount > 0) {
+            mExecutor = createExecutor(Math.min(backgroundCount, getThreadCount()));
+        }
+
+        mRemaining.set(mNodes.size());
+        mCallerThread = Thread.currentThread();
+        mStartNanos = System.nanoTime();
+        mIsTracingEnabled = Trace.isEnabled();
+        if (mIsTracingEnabled) {
+            for (Node node : mNodes.values()) {
+                Trace.beginAsyncSection(node.getWaitSectionName(), node.mCookie);
+            }
+        }
+        mAppInitializer.mParallelInitializer = this;
+        try {
+            for (Node node : mNodes.values()) {
+                if (node.mPendingDependencies.get() == 0) {
+                    dispatch(node);
+                }
+            }
+            runCallerQueue(null);
+        } finally {
+            mAppInitializer.mParallelInitializer = null;
+            if (mExecutor != null) {
+                mExecutor.shutdown();
+            }
+        }
+
+        Throwable error = mError;
+        if (error != null) {
+            if (error instanceof StartupException) {
+                throw (StartupException) error;
+            }
+            throw new StartupException(error);
+        }
+        if (StartupLogger.DEBUG) {
+            for (Node node : mNodes.values()) {
+                StartupLogger.i(String.format("Initialized %s in %d ms, waited %d ms",
+                        node.mComponent.getName(),
+                        TimeUnit.NANOSECONDS.toMillis(node.mWallNanos),
+                        TimeUnit.NANOSECONDS.toMillis(node.mWaitNanos)));
+            }
+        }
+    }
+
+    @NonNull
+    private Node addNode(
+            @NonNull Class<? extends Initializer<?>> component,
+            @NonNull Set<Class<?>> visiting) {
+        Node node = mNodes.get(component);
+        if (node != null) {
+            return node;
+        }
+        if (visiting.contains(component)) {
+            String message = String.format(
+                    "Cannot initialize %s. Cycle detected.", component.getName()
+            );
+            throw new StartupException(message);
+        }
+        visiting.add(component);
+        Initializer<?> initializer;
+        try {
+            initializer = component.getDeclaredConstructor().newInstance();
+        } catch (Throwable throwable) {
+            throw new StartupException(throwable);
+        }
+        node = new Node(component, initializer);
+        for (Class<? extends Initializer<?>> dependency : initializer.dependencies()) {
+            if (!mAppInitializer.isInitialized(dependency)) {
+                Node dependencyNode = addNode(dependency, visiting);
+                dependencyNode.mDependents.add(node);
+                node.mDependencies.add(dependencyNode);
+                node.mPendingDependencies.incrementAndGet();
+            }
+        }
+        visiting.remove(component);
+        node.mCookie = mNodes.size();
+        mNodes.put(component, node);
+        return node;
+    }
+
+    /**
+     * Waits for the components of the graph which the component depends on, or for the
+     * component itself if it is part of the graph, so that {@link AppInitializer} does not create
+     * them a second time.
+     *
+     * @throws StartupException if an initializer of the graph failed
+     */
+    void awaitGraphNodes(@NonNull Class<? extends Initializer<?>> component) {
+        awaitGraphNodes(component, new HashSet<Class<?>>());
+    }
+
+    private void awaitGraphNodes(
+            @NonNull Class<? extends Initializer<?>> component,
+            @NonNull Set<Class<?>> visited) {
+        if (!visited.add(component) || mAppInitializer.isInitialized(component)) {
+            return;
+        }
+        Node node = mNodes.get(component);
+        if (node != null) {
+            await(node);
+            return;
+        }
+        Initializer<?> initializer;
+        try {
+            initializer = component.getDeclaredConstructor().newInstance();
+        } catch (Throwable throwable) {
+            throw new StartupException(throwable);
+        }
+        for (Class<? extends Initializer<?>> dependency : initializer.dependencies()) {
+            awaitGraphNodes(dependency, visited);
+        }
+    }
+
+    /**
+     * Waits until the node is created, creating it and its dependencies on the current thread
+     * if they did not start yet and are allowed to run on it.
+     */
+    private void await(@NonNull Node node) {
+        Thread thread = Thread.currentThread();
+        if (!node.mOnCallerThread || thread == mCallerThread) {
+            for (Node dependency : node.mDependencies) {
+                await(dependency);
+            }
+            create(node);
+        }
+        if (!node.mDone && mError == null && node.mThread == thread) {
+            String message = String.format(
+                    "Cannot initialize %s. Cycle detected.", node.mComponent.getName()
+            );
+            throw new StartupException(message);
+        }
+        if (thread == mCallerThread) {
+            runCallerQueue(node);
+        } else {
+            boolean interrupted = false;
+            synchronized (mDoneLock) {
+                while (!node.mDone && mError == null) {
+                    try {
+                        mDoneLock.wait();
+                    } catch (InterruptedException exception) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                thread.interrupt();
+            }
+        }
+        if (!node.mDone) {
+            String message = String.format(
+                    "Cannot initialize %s. An initializer failed.", node.mComponent.getName()
+            );
+            throw new StartupException(message, mError);
+        }
+    }
+
+    /**
+     * Runs the initializers pinned to the calling thread until the given node, or the whole
+     * graph if {@code null}, is done or something failed.
+     */
+    private void runCallerQueue(@Nullable Node awaited) {
+        boolean interrupted = false;
+        boolean warn = Looper.myLooper() == Looper.getMainLooper();
+        long warnAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WAIT_WARNING_MILLIS);
+        try {
+            while ((awaited == null ? mRemaining.get() > 0 : !awaited.mDone) && mError == null) {
+                Node node;
+                try {
+                    if (warn) {
+                        node = mCallerQueue.poll(warnAtNanos - System.nanoTime(),
+                                TimeUnit.NANOSECONDS);
+                        if (node == null) {
+                            warn = false;
+                            warnRunning();
+                            continue;
+                        }
+                    } else {
+                        node = mCallerQueue.take();
+                    }
+                } catch (InterruptedException exception) {
+                    interrupted = true;
+                    continue;
+                }
+                if (node != mWakeUp) {
+                    create(node);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void warnRunning() {
+        StringBuilder running = new StringBuilder();
+        for (Node node : mNodes.values()) {
+            if (node.mThread != null && !node.mDone) {
+                if (running.length() > 0) {
+                    running.append(", ");
+                }
+                running.append(node.mComponent.getName());
+            }
+        }
+        String message = String.format("The main thread waited %d ms for %s. Initializers "
+                + "which wait for the main thread must be annotated with @InitializeOnMainThread.",
+                WAIT_WARNING_MILLIS, running);
+        StartupLogger.w(message);
+    }
+
+    void dispatch(@NonNull Node node) {
+        if (mError != null) {
+            return;
+        }
+        if (!node.mOnCallerThread && mExecutor != null) {
+            try {
+                mExecutor.execute(node);
+                return;
+            } catch (RejectedExecutionException exception) {
+                // Fall back to the calling thread.
+            }
+        }
+        mCallerQueue.offer(node);
+    }
+
+    void create(@NonNull Node node) {
+        if (!node.mClaimed.compareAndSet(false, true)) {
+            // Already created, or being created, on another thread.
+            return;
+        }
+        node.mThread = Thread.currentThread();
+        long start = System.nanoTime();
+        node.mWaitNanos = start - mStartNanos;
+        // Read on every thread after being set, the executor hands tasks off with a memory barrier
+        boolean isTracingEnabled = mIsTracingEnabled;
+        if (isTracingEnabled) {
+            Trace.endAsyncSection(node.getWaitSectionName(), node.mCookie);
+        }
+        try {
+            if (isTracingEnabled) {
+                // Use the simpleName here because section names would get too big otherwise.
+                Trace.beginSection(node.mComponent.getSimpleName());
+            }
+            if (StartupLogger.DEBUG) {
+                StartupLogger.i(String.format("Initializing %s", node.mComponent.getName()));
+            }
+            Object result = node.mInitializer.create(mAppInitializer.mContext);
+            // Doesn't take the initialization lock, which the thread waiting for this node may
+            // hold. Published before the node is done, so that thread finds the result.
+            mAppInitializer.onInitialized(node.mComponent, result);
+        } catch (Throwable throwable) {
+            synchronized (mDoneLock) {
+                mError = throwable;
+                mDoneLock.notifyAll();
+            }
+            mCallerQueue.offer(mWakeUp);
+            return;
+        } finally {
+            if (isTracingEnabled) {
+                Trace.endSection();
+            }
+        }
+        node.mWallNanos = System.nanoTime() - start;
+        synchronized (mDoneLock) {
+            node.mDone = true;
+            mDoneLock.notifyAll();
+        }
+
+        for (Node dependent : node.mDependents) {
+            if (dependent.mPendingDependencies.decrementAndGet() == 0) {
+                dispatch(dependent);
+            }
+        }
+        mRemaining.decrementAndGet();
+        mCallerQueue.offer(mWakeUp);
+    }
+
+    private static int getThreadCount() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(processors - 1, MAX_THREADS));
+    }
+
+    @NonNull
+    private static ExecutorService createExecutor(int threadCount) {
+        final AtomicInteger threadId = new AtomicInteger();
+        return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        return new Thread(runnable,
+                                "androidx.startup-" + threadId.incrementAndGet());
+                    }
+                });
+    }
+
+    /**
+     * An {@link Initializer} in the dependency graph.
+     */
+    final class Node implements Runnable {
+        final Class<? extends Initializer<?>> mComponent;
+        final Initializer<?> mInitializer;
+        final boolean mOnCallerThread;
+        final List<Node> mDependents = new ArrayList<>();
+        final List<Node> mDependencies = new ArrayList<>();
+        final AtomicInteger mPendingDependencies = new AtomicInteger();
+        final AtomicBoolean mClaimed = new AtomicBoolean();
+        volatile Thread mThread;
+        volatile boolean mDone;
+        int mCookie;
+        long mWaitNanos;
+        long mWallNanos;
+
+        Node(Class<? extends Initializer<?>> component, Initializer<?> initializer) {
+            mComponent = component;
+            mInitializer = initializer;
+            mOnCallerThread = component != null
+                    && component.isAnnotationPresent(InitializeOnMainThread.class);
+        }
+
+        @NonNull
+        String getWaitSectionName() {
+            return mComponent.getSimpleName() + WAIT_SECTION_SUFFIX;
+        }
+
+        @Override
+        public void run() {
+            create(this);
+        }
+    }
+}
@@ -52,6 +52,15 @@ public final class StartupLogger {
         Log.i(TAG, message);
     }
 
+    /**
+     * Warning level logging.
+     *
+     * @param message The message being logged
+     */
+    public static void w(@NonNull String message) {
+        Log.w(TAG, message);
+    }
+
     /**
      * Error level logging
      *
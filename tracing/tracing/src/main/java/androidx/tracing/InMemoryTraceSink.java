@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.tracing;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link TraceSink} which keeps every event it receives in memory. Meant to capture traces in
+ * tests and benchmarks, including JVM tests which don't have access to the system trace:
+ *
+ * <pre>
+ * InMemoryTraceSink sink = new InMemoryTraceSink();
+ * Trace.setSink(sink);
+ * // code under test
+ * Trace.setSink(null);
+ * List&lt;TraceEvent&gt; events = sink.getEvents();
+ * </pre>
+ *
+ * This class is thread-safe.
+ */
+public final class InMemoryTraceSink implements TraceSink {
+    private final List<TraceEvent> mEvents = new ArrayList<>();
+
+    @Override
+    public void onTraceEvents(@NonNull List<TraceEvent> events) {
+        synchronized (mEvents) {
+            mEvents.addAll(events);
+        }
+    }
+
+    /**
+     * Returns the events received so far, grouped by batch. Call {@link Trace#flush()} first to
+     * include the events still buffered by every thread.
+     */
+    @NonNull
+    public List<TraceEvent> getEvents() {
+        synchronized (mEvents) {
+            return new ArrayList<>(mEvents);
+        }
+    }
+
+    /**
+     * Discards the events received so far.
+     */
+    public void clear() {
+        synchronized (mEvents) {
+            mEvents.clear();
+        }
+    }
+}
@@ -20,11 +20,15 @@ import android.annotation.SuppressLint;
 import android.os.Build;
 import android.util.Log;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
 
 /**
  * Writes trace events to the system trace buffer.  These trace events can be
@@ -35,6 +39,13 @@ import java.lang.reflect.Method;
  * tracing of events that occur across multiple processes.
  * <p>For information about using the Systrace tool, read <a
  * href="{@docRoot}studio/profile/systrace/">Overview of system tracing</a>.
+ *
+ * <p>For hot paths, section labels can be registered once with {@link #registerSection(String)}
+ * and then traced by id, or supplied lazily with {@link #beginSection(LabelSupplier)} so that
+ * they are only built while tracing is enabled.
+ *
+ * <p>Trace events can also be captured in process by installing a {@link TraceSink}, for
+ * instance in tests and benchmarks which can't collect a system trace.
  */
 public final class Trace {
 
@@ -46,6 +57,40 @@ public final class Trace {
     private static Method sAsyncTraceEndMethod;
     private static Method sTraceCounterMethod;
 
+    private static final Object sSinkLock = new Object();
+    private static volatile TraceSink sSink;
+    // Set once a sink has been installed. Until then sections only go to the system trace, so
+    // there is nothing to keep track of.
+    private static volatile boolean sTrackSections;
+
+    // Where each open section of a thread was begun, so that endSection() ends it in the same
+    // places even if the sink or the tracing state changed in between.
+    private static final ThreadLocal<SectionStack> sSectionStack =
+            new ThreadLocal<SectionStack>() {
+                @Override
+                protected SectionStack initialValue() {
+                    return new SectionStack();
+                }
+            };
+
+    private static final Object sSectionLock = new Object();
+    @GuardedBy("sSectionLock")
+    private static final HashMap<String, Integer> sSectionIds = new HashMap<>();
+    private static volatile String[] sSectionLabels = new String[0];
+
+    /**
+     * Supplies the label of a trace section, only called while tracing is enabled.
+     *
+     * @see #beginSection(LabelSupplier)
+     */
+    public interface LabelSupplier {
+        /**
+         * @return the name of the code section to appear in the trace.
+         */
+        @NonNull
+        String getLabel();
+    }
+
     /**
      * Checks whether or not tracing is currently enabled. This is useful to avoid intermediate
      * string creation for trace sections that require formatting. It is not necessary
@@ -53,10 +98,19 @@ public final class Trace {
      * recommended to use this to prevent creating any temporary objects that would then be
      * passed to those methods to reduce runtime cost when tracing isn't enabled.
      *
+     * <p>Tracing is also considered enabled while a {@link TraceSink} is installed.
+     *
      * @return true if tracing is currently enabled, false otherwise
      */
     @SuppressLint("NewApi")
     public static boolean isEnabled() {
+        if (sSink != null) {
+            return true;
+        }
+        if (Build.VERSION.SDK_INT < 18) {
+            // Never enabled on < API 18
+            return false;
+        }
         try {
             if (sIsTagEnabledMethod == null) {
                 return android.os.Trace.isEnabled();
@@ -77,9 +131,88 @@ public final class Trace {
      * @param label The name of the code section to appear in the trace.
      */
     public static void beginSection(@NonNull String label) {
+        final TraceSink sink = sSink;
+        if (sink != null) {
+            TraceEventBuffer.record(sink, TraceEvent.TYPE_BEGIN_SECTION, label, 0);
+        }
         if (Build.VERSION.SDK_INT >= 18) {
             TraceApi18Impl.beginSection(label);
         }
+        if (sTrackSections) {
+            sSectionStack.get().push(sink, Build.VERSION.SDK_INT >= 18);
+        }
+    }
+
+    /**
+     * Writes a trace message to indicate that a section of code registered with
+     * {@link #registerSection(String)} has begun. This call must be followed by a corresponding
+     * call to {@link #endSection()} on the same thread.
+     *
+     * @param sectionId The id returned by {@link #registerSection(String)}.
+     * @throws IllegalArgumentException if the section id was not registered
+     */
+    public static void beginSection(int sectionId) {
+        final String[] labels = sSectionLabels;
+        if (sectionId < 0 || sectionId >= labels.length) {
+            throw new IllegalArgumentException("Unknown section id " + sectionId);
+        }
+        beginSection(labels[sectionId]);
+    }
+
+    /**
+     * Writes a trace message to indicate that a given section of code has begun, if tracing is
+     * enabled. The label is only requested from {@code labelSupplier} while tracing is enabled,
+     * so it can be built with string formatting without any cost otherwise. This call must be
+     * followed by a corresponding call to {@link #endSection()} on the same thread.
+     *
+     * @param labelSupplier Supplies the name of the code section to appear in the trace.
+     * @see #isEnabled()
+     */
+    public static void beginSection(@NonNull LabelSupplier labelSupplier) {
+        if (isEnabled()) {
+            beginSection(labelSupplier.getLabel());
+        } else if (sTrackSections) {
+            // Still open a section, so that the matching endSection() doesn't end another one
+            // if tracing is enabled in between.
+            sSectionStack.get().push(null, false);
+        }
+    }
+
+    /**
+     * Registers a section label, so that the section can later be traced with
+     * {@link #beginSection(int)} without passing the label around. Registering the same label
+     * more than once returns the same id.
+     *
+     * <pre>
+     * private static final int BIND_SECTION = Trace.registerSection("RV OnBindView");
+     *
+     * void bind() {
+     *     Trace.beginSection(BIND_SECTION);
+     *     try {
+     *         // ...
+     *     } finally {
+     *         Trace.endSection();
+     *     }
+     * }
+     * </pre>
+     *
+     * @param label The name of the code section to appear in the trace.
+     * @return The id of the section.
+     */
+    public static int registerSection(@NonNull String label) {
+        synchronized (sSectionLock) {
+            final Integer existing = sSectionIds.get(label);
+            if (existing != null) {
+                return existing;
+            }
+            final String[] labels = sSectionLabels;
+            final int id = labels.length;
+            final String[] newLabels = Arrays.copyOf(labels, id + 1);
+            newLabels[id] = label;
+            sSectionLabels = newLabels;
+            sSectionIds.put(label, id);
+            return id;
+        }
     }
 
     /**
@@ -90,7 +223,28 @@ public final class Trace {
      * thread.
      */
     public static void endSection() {
-        if (Build.VERSION.SDK_INT >= 18) {
+        if (!sTrackSections) {
+            if (Build.VERSION.SDK_INT >= 18) {
+                TraceApi18Impl.endSection();
+            }
+            return;
+        }
+        final SectionStack sections = sSectionStack.get();
+        if (sections.isEmpty()) {
+            // Begun with android.os.Trace directly, so only in the system trace.
+            if (Build.VERSION.SDK_INT >= 18) {
+                TraceApi18Impl.endSection();
+            }
+            return;
+        }
+        final TraceSink sink = sections.getSink();
+        final boolean inSystemTrace = sections.isInSystemTrace();
+        sections.pop();
+        // Only end the section in the sink it was begun in.
+        if (sink != null && sink == sSink) {
+            TraceEventBuffer.record(sink, TraceEvent.TYPE_END_SECTION, null, 0);
+        }
+        if (inSystemTrace && Build.VERSION.SDK_INT >= 18) {
             TraceApi18Impl.endSection();
         }
     }
@@ -107,6 +261,13 @@ public final class Trace {
      */
     @SuppressLint("NewApi")
     public static void beginAsyncSection(@NonNull String methodName, int cookie) {
+        final TraceSink sink = sSink;
+        if (sink != null) {
+            TraceEventBuffer.record(sink, TraceEvent.TYPE_BEGIN_ASYNC_SECTION, methodName, cookie);
+        }
+        if (Build.VERSION.SDK_INT < 18) {
+            return;
+        }
         try {
             if (sAsyncTraceBeginMethod == null) {
                 TraceApi29Impl.beginAsyncSection(methodName, cookie);
@@ -127,6 +288,13 @@ public final class Trace {
      */
     @SuppressLint("NewApi")
     public static void endAsyncSection(@NonNull String methodName, int cookie) {
+        final TraceSink sink = sSink;
+        if (sink != null) {
+            TraceEventBuffer.record(sink, TraceEvent.TYPE_END_ASYNC_SECTION, methodName, cookie);
+        }
+        if (Build.VERSION.SDK_INT < 18) {
+            return;
+        }
         try {
             if (sAsyncTraceEndMethod == null) {
                 TraceApi29Impl.endAsyncSection(methodName, cookie);
@@ -145,6 +313,13 @@ public final class Trace {
      */
     @SuppressLint("NewApi")
     public static void setCounter(@NonNull String counterName, int counterValue) {
+        final TraceSink sink = sSink;
+        if (sink != null) {
+            TraceEventBuffer.record(sink, TraceEvent.TYPE_COUNTER, counterName, counterValue);
+        }
+        if (Build.VERSION.SDK_INT < 18) {
+            return;
+        }
         try {
             if (sTraceCounterMethod == null) {
                 TraceApi29Impl.setCounter(counterName, counterValue);
@@ -155,6 +330,34 @@ public final class Trace {
         setCounterFallback(counterName, counterValue);
     }
 
+    /**
+     * Installs a sink which receives the trace events recorded in this process, in addition to
+     * the system trace. Events are buffered per thread and delivered in batches. Any events
+     * buffered for the previous sink are delivered to it first.
+     *
+     * <p>While a sink is installed {@link #isEnabled()} returns true, so sections begun with
+     * {@link #beginSection(LabelSupplier)} are recorded too.
+     *
+     * @param sink The sink to install, or {@code null} to stop recording events in process.
+     */
+    public static void setSink(@Nullable TraceSink sink) {
+        synchronized (sSinkLock) {
+            TraceEventBuffer.flushAll(sSink);
+            if (sink != null) {
+                sTrackSections = true;
+            }
+            sSink = sink;
+        }
+    }
+
+    /**
+     * Delivers the events buffered by every thread to the installed {@link TraceSink}. Does
+     * nothing if no sink is installed.
+     */
+    public static void flush() {
+        TraceEventBuffer.flushAll(sSink);
+    }
+
     private static boolean isEnabledFallback() {
         if (Build.VERSION.SDK_INT >= 18) {
             try {
@@ -239,4 +442,47 @@ public final class Trace {
 
     private Trace() {
     }
+
+    /**
+     * Stack of the open sections of a thread.
+     */
+    private static final class SectionStack {
+        private TraceSink[] mSinks = new TraceSink[16];
+        private boolean[] mInSystemTrace = new boolean[16];
+        private int mSize;
+
+        void push(@Nullable TraceSink sink, boolean inSystemTrace) {
+            if (mSize == mSinks.length) {
+                mSinks = Arrays.copyOf(mSinks, mSize * 2);
+                mInSystemTrace = Arrays.copyOf(mInSystemTrace, mSize * 2);
+            }
+            mSinks[mSize] = sink;
+            mInSystemTrace[mSize] = inSystemTrace;
+            mSize++;
+        }
+
+        boolean isEmpty() {
+            return mSize == 0;
+        }
+
+        /**
+         * @return the sink the innermost open section was begun in, if any
+         */
+        @Nullable
+        TraceSink getSink() {
+            return mSinks[mSize - 1];
+        }
+
+        /**
+         * @return whether the innermost open section was begun in the system trace
+         */
+        boolean isInSystemTrace() {
+            return mInSystemTrace[mSize - 1];
+        }
+
+        void pop() {
+            mSize--;
+            mSinks[mSize] = null;
+        }
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.tracing;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A trace event recorded while a {@link TraceSink} is installed.
+ *
+ * @see Trace#setSink(TraceSink)
+ */
+public final class TraceEvent {
+    /**
+     * Recorded by {@link Trace#beginSection(String)} and its overloads.
+     */
+    public static final int TYPE_BEGIN_SECTION = 0;
+
+    /**
+     * Recorded by {@link Trace#endSection()}. Has no label, it ends the innermost section which
+     * was begun on the same thread.
+     */
+    public static final int TYPE_END_SECTION = 1;
+
+    /**
+     * Recorded by {@link Trace#beginAsyncSection(String, int)}. The value is the cookie.
+     */
+    public static final int TYPE_BEGIN_ASYNC_SECTION = 2;
+
+    /**
+     * Recorded by {@link Trace#endAsyncSection(String, int)}. The value is the cookie.
+     */
+    public static final int TYPE_END_ASYNC_SECTION = 3;
+
+    /**
+     * Recorded by {@link Trace#setCounter(String, int)}. The value is the counter value.
+     */
+    public static final int TYPE_COUNTER = 4;
+
+    private final int mType;
+    private final String mLabel;
+    private final long mTimestampNanos;
+    private final long mValue;
+    private final long mThreadId;
+
+    TraceEvent(int type, @Nullable String label, long timestampNanos, long value,
+            long threadId) {
+        mType = type;
+        mLabel = label;
+        mTimestampNanos = timestampNanos;
+        mValue = value;
+        mThreadId = threadId;
+    }
+
+    /**
+     * @return the type of the event, one of {@link #TYPE_BEGIN_SECTION},
+     * {@link #TYPE_END_SECTION}, {@link #TYPE_BEGIN_ASYNC_SECTION},
+     * {@link #TYPE_END_ASYNC_SECTION} or {@link #TYPE_COUNTER}.
+     */
+    public int getType() {
+        return mType;
+    }
+
+    /**
+     * @return the section or counter name, or {@code null} for {@link #TYPE_END_SECTION}.
+     */
+    @Nullable
+    public String getLabel() {
+        return mLabel;
+    }
+
+    /**
+     * @return the time of the event, as returned by {@link System#nanoTime()}.
+     */
+    public long getTimestampNanos() {
+        return mTimestampNanos;
+    }
+
+    /**
+     * @return the cookie of an async section event, the value of a counter event, and
+     * {@code 0} for other events.
+     */
+    public long getValue() {
+        return mValue;
+    }
+
+    /**
+     * @return the id of the thread which recorded the event, as returned by
+     * {@link Thread#getId()}.
+     */
+    public long getThreadId() {
+        return mThreadId;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "TraceEvent{type=" + mType + ", label=" + mLabel + ", timestampNanos="
+                + mTimestampNanos + ", value=" + mValue + ", threadId=" + mThreadId + "}";
+    }
+}
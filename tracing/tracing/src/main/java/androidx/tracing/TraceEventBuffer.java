@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.tracing;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Per-thread buffer of trace events recorded while a {@link TraceSink} is installed.
+ * <p>
+ * Events are stored in parallel primitive arrays, so recording one does not allocate. They are
+ * turned into {@link TraceEvent}s only when the buffer is drained, which happens when it is full
+ * or when {@link Trace#flush()} is called.
+ */
+final class TraceEventBuffer {
+    static final int CAPACITY = 512;
+
+    private static final ThreadLocal<TraceEventBuffer> sThreadBuffer = new ThreadLocal<>();
+
+    /**
+     * Every thread's buffer, so that {@link #flushAll(TraceSink)} can drain them. Buffers of
+     * threads which died are drained and dropped by the next flush, or as soon as another thread
+     * starts recording, so threads which only live briefly don't pile up while a sink stays
+     * installed.
+     */
+    @GuardedBy("sBuffers")
+    private static final List<TraceEventBuffer> sBuffers = new ArrayList<>();
+
+    private final Thread mThread;
+
+    @GuardedBy("this")
+    private final int[] mTypes = new int[CAPACITY];
+    @GuardedBy("this")
+    private final String[] mLabels = new String[CAPACITY];
+    @GuardedBy("this")
+    private final long[] mTimestamps = new long[CAPACITY];
+    @GuardedBy("this")
+    private final long[] mValues = new long[CAPACITY];
+    @GuardedBy("this")
+    private int mSize;
+
+    private TraceEventBuffer(Thread thread) {
+        mThread = thread;
+    }
+
+    /**
+     * Records an event in the calling thread's buffer, and delivers the buffer to the sink if it
+     * is full.
+     */
+    static void record(@NonNull TraceSink sink, int type, @Nullable String label, long value) {
+        TraceEventBuffer buffer = sThreadBuffer.get();
+        if (buffer == null) {
+            buffer = new TraceEventBuffer(Thread.currentThread());
+            sThreadBuffer.set(buffer);
+            flushDeadThreads(sink, buffer);
+        }
+        final List<TraceEvent> events = buffer.add(type, label, value);
+        if (events != null) {
+            sink.onTraceEvents(events);
+        }
+    }
+
+    /**
+     * Registers the buffer of a thread which starts recording, and delivers and drops the buffers
+     * of threads which died.
+     */
+    private static void flushDeadThreads(@NonNull TraceSink sink,
+            @NonNull TraceEventBuffer newBuffer) {
+        final List<TraceEventBuffer> deadBuffers = new ArrayList<>();
+        synchronized (sBuffers) {
+            final Iterator<TraceEventBuffer> iterator = sBuffers.iterator();
+            while (iterator.hasNext()) {
+                final TraceEventBuffer buffer = iterator.next();
+                if (!buffer.mThread.isAlive()) {
+                    iterator.remove();
+                    deadBuffers.add(buffer);
+                }
+            }
+            sBuffers.add(newBuffer);
+        }
+        for (TraceEventBuffer buffer : deadBuffers) {
+            final List<TraceEvent> events = buffer.drain();
+            if (!events.isEmpty()) {
+                sink.onTraceEvents(events);
+            }
+        }
+    }
+
+    /**
+     * Drains the buffers of all threads into the sink. Events are dropped if the sink is
+     * {@code null}.
+     */
+    static void flushAll(@Nullable TraceSink sink) {
+        final TraceEventBuffer[] buffers;
+        synchronized (sBuffers) {
+            buffers = sBuffers.toArray(new TraceEventBuffer[0]);
+        }
+        for (TraceEventBuffer buffer : buffers) {
+            final List<TraceEvent> events = buffer.drain();
+            if (sink != null && !events.isEmpty()) {
+                sink.onTraceEvents(events);
+            }
+        }
+        synchronized (sBuffers) {
+            final Iterator<TraceEventBuffer> iterator = sBuffers.iterator();
+            while (iterator.hasNext()) {
+                if (!iterator.next().mThread.isAlive()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the drained events if the buffer became full, {@code null} otherwise
+     */
+    @Nullable
+    private synchronized List<TraceEvent> add(int type, @Nullable String label, long value) {
+        mTypes[mSize] = type;
+        mLabels[mSize] = label;
+        mTimestamps[mSize] = System.nanoTime();
+        mValues[mSize] = value;
+        mSize++;
+        return mSize == CAPACITY ? drain() : null;
+    }
+
+    @NonNull
+    private synchronized List<TraceEvent> drain() {
+        if (mSize == 0) {
+            return Collections.emptyList();
+        }
+        final long threadId = mThread.getId();
+        final List<TraceEvent> events = new ArrayList<>(mSize);
+        for (int i = 0; i < mSize; i++) {
+            events.add(new TraceEvent(mTypes[i], mLabels[i], mTimestamps[i], mValues[i],
+                    threadId));
+            mLabels[i] = null;
+        }
+        mSize = 0;
+        return events;
+    }
+}
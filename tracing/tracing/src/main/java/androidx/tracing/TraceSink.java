@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.tracing;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Receives the trace events recorded in process while it is installed with
+ * {@link Trace#setSink(TraceSink)}.
+ * <p>
+ * Events are buffered per thread and delivered in batches, either when a thread's buffer is full
+ * or when {@link Trace#flush()} is called. Within a batch, events are from a single thread and in
+ * the order they were recorded. Batches can be delivered on any thread, implementations must be
+ * thread-safe.
+ */
+public interface TraceSink {
+    /**
+     * Called with a batch of recorded events.
+     *
+     * @param events the recorded events, only valid for the duration of the call.
+     */
+    void onTraceEvents(@NonNull List<TraceEvent> events);
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class TraceSinkTest {
+    private InMemoryTraceSink mSink;
+
+    @Before
+    public void setUp() {
+        mSink = new InMemoryTraceSink();
+        Trace.setSink(mSink);
+    }
+
+    @After
+    public void tearDown() {
+        Trace.setSink(null);
+    }
+
+    @Test
+    public void recordsSections() {
+        final int sectionId = Trace.registerSection("registered");
+        Trace.beginSection("outer");
+        Trace.beginSection(sectionId);
+        Trace.beginSection(new Trace.LabelSupplier() {
+            @Override
+            public String getLabel() {
+                return "lazy " + 1;
+            }
+        });
+        Trace.endSection();
+        Trace.endSection();
+        Trace.endSection();
+        Trace.flush();
+
+        final List<TraceEvent> events = mSink.getEvents();
+        assertEquals(6, events.size());
+        assertEvent(events.get(0), TraceEvent.TYPE_BEGIN_SECTION, "outer", 0);
+        assertEvent(events.get(1), TraceEvent.TYPE_BEGIN_SECTION, "registered", 0);
+        assertEvent(events.get(2), TraceEvent.TYPE_BEGIN_SECTION, "lazy 1", 0);
+        for (int i = 3; i < 6; i++) {
+            assertEvent(events.get(i), TraceEvent.TYPE_END_SECTION, null, 0);
+        }
+        for (int i = 1; i < events.size(); i++) {
+            assertTrue(events.get(i).getTimestampNanos()
+                    >= events.get(i - 1).getTimestampNanos());
+        }
+    }
+
+    @Test
+    public void recordsAsyncSectionsAndCounters() {
+        Trace.beginAsyncSection("async", 42);
+        Trace.setCounter("counter", 7);
+        Trace.endAsyncSection("async", 42);
+        Trace.flush();
+
+        final List<TraceEvent> events = mSink.getEvents();
+        assertEquals(3, events.size());
+        assertEvent(events.get(0), TraceEvent.TYPE_BEGIN_ASYNC_SECTION, "async", 42);
+        assertEvent(events.get(1), TraceEvent.TYPE_COUNTER, "counter", 7);
+        assertEvent(events.get(2), TraceEvent.TYPE_END_ASYNC_SECTION, "async", 42);
+    }
+
+    @Test
+    public void lazyLabel_notBuiltWithoutSink() {
+        Trace.setSink(null);
+        assertFalse(Trace.isEnabled());
+        Trace.beginSection(new Trace.LabelSupplier() {
+            @Override
+            public String getLabel() {
+                throw new AssertionError("Label built while tracing is disabled");
+            }
+        });
+        Trace.endSection();
+    }
+
+    @Test
+    public void lazySection_beganWithoutSink_notEndedInSink() {
+        Trace.setSink(null);
+        Trace.beginSection(new Trace.LabelSupplier() {
+            @Override
+            public String getLabel() {
+                return "lazy";
+            }
+        });
+        Trace.setSink(mSink);
+        Trace.endSection();
+        Trace.flush();
+
+        assertTrue(mSink.getEvents().isEmpty());
+    }
+
+    @Test
+    public void section_beganInPreviousSink_notEndedInNewSink() {
+        Trace.beginSection("section");
+        final InMemoryTraceSink newSink = new InMemoryTraceSink();
+        Trace.setSink(newSink);
+        Trace.endSection();
+        Trace.flush();
+
+        assertEquals(1, mSink.getEvents().size());
+        assertTrue(newSink.getEvents().isEmpty());
+    }
+
+    @Test
+    public void registerSection_internsLabels() {
+        final int first = Trace.registerSection("interned");
+        assertEquals(first, Trace.registerSection("interned"));
+        assertNotEquals(first, Trace.registerSection("other"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void beginSection_withUnknownId() {
+        Trace.beginSection(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void deliversFullBufferWithoutFlush() {
+        for (int i = 0; i < TraceEventBuffer.CAPACITY; i++) {
+            Trace.setCounter("counter", i);
+        }
+        final List<TraceEvent> events = mSink.getEvents();
+        assertEquals(TraceEventBuffer.CAPACITY, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i, events.get(i).getValue());
+        }
+    }
+
+    @Test
+    public void flush_includesOtherThreads() throws InterruptedException {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Trace.beginSection("background");
+                Trace.endSection();
+            }
+        });
+        thread.start();
+        thread.join();
+        assertTrue(mSink.getEvents().isEmpty());
+
+        Trace.flush();
+
+        final List<TraceEvent> events = mSink.getEvents();
+        assertEquals(2, events.size());
+        assertEquals("background", events.get(0).getLabel());
+        assertEquals(thread.getId(), events.get(0).getThreadId());
+    }
+
+    @Test
+    public void deadThread_deliveredWhenAnotherThreadStartsRecording()
+            throws InterruptedException {
+        final Thread deadThread = startTracingThread("dead");
+        deadThread.join();
+        assertTrue(mSink.getEvents().isEmpty());
+
+        startTracingThread("new").join();
+
+        final List<TraceEvent> events = mSink.getEvents();
+        assertEquals(2, events.size());
+        assertEquals("dead", events.get(0).getLabel());
+        assertEquals(deadThread.getId(), events.get(0).getThreadId());
+    }
+
+    @Test
+    public void setSink_flushesPreviousSink() {
+        Trace.beginSection("section");
+        Trace.endSection();
+        final InMemoryTraceSink newSink = new InMemoryTraceSink();
+
+        Trace.setSink(newSink);
+
+        assertEquals(2, mSink.getEvents().size());
+        assertTrue(newSink.getEvents().isEmpty());
+    }
+
+    private static Thread startTracingThread(final String label) {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Trace.beginSection(label);
+                Trace.endSection();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void assertEvent(TraceEvent event, int type, String label, long value) {
+        assertEquals(type, event.getType());
+        assertEquals(label, event.getLabel());
+        assertEquals(value, event.getValue());
+        assertEquals(Thread.currentThread().getId(), event.getThreadId());
+    }
+}
@@ -17,9 +17,11 @@ package androidx.versionedparcelable.compiler;
 
 import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 
@@ -73,6 +75,10 @@ public class VersionedParcelProcessor extends AbstractProcessor {
     private static final ClassName RESTRICT_TO_SCOPE = RESTRICT_TO.nestedClass("Scope");
     private static final ClassName VERSIONED_PARCEL =
             ClassName.get("androidx.versionedparcelable", "VersionedParcel");
+    private static final ClassName PARCELIZER =
+            ClassName.get("androidx.versionedparcelable", "Parcelizer");
+    private static final ClassName PARCELIZER_REGISTRY =
+            ClassName.get("androidx.versionedparcelable", "ParcelizerRegistry");
 
     private static final String GEN_SUFFIX = "Parcelizer";
     private static final String READ = "read";
@@ -306,18 +312,21 @@ public class VersionedParcelProcessor extends AbstractProcessor {
         readBuilder.addStatement("return obj");
         genClass.addMethod(readBuilder.build());
         genClass.addMethod(writeBuilder.build());
+        String pkg = getPkg(versionedParcelable);
+        addParcelizer(genClass,
+                ClassName.get(pkg, versionedParcelable.getSimpleName() + GEN_SUFFIX), type);
         try {
             TypeSpec typeSpec = genClass.build();
-            String pkg = getPkg(versionedParcelable);
             JavaFile.builder(pkg,
                     typeSpec).build().writeTo(mEnv.getFiler());
             if (jetifyAs != null && jetifyAs.length() > 0) {
                 int index = jetifyAs.lastIndexOf('.');
                 String jetPkg = jetifyAs.substring(1, index);
                 String superCls = pkg + "." + versionedParcelable.getSimpleName() + GEN_SUFFIX;
+                String jetName = jetifyAs.substring(index + 1, jetifyAs.length() - 1)
+                        + GEN_SUFFIX;
                 TypeSpec.Builder jetifyClass = TypeSpec
-                        .classBuilder(jetifyAs.substring(index + 1, jetifyAs.length() - 1)
-                                + GEN_SUFFIX)
+                        .classBuilder(jetName)
                         .addJavadoc("@hide\n")
                         .addAnnotation(restrictTo)
                         .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
@@ -338,6 +347,7 @@ public class VersionedParcelProcessor extends AbstractProcessor {
                         .addParameter(VERSIONED_PARCEL, "parcel")
                         .addStatement("$L.write(obj, parcel)", superCls)
                         .build());
+                addParcelizer(jetifyClass, ClassName.get(jetPkg, jetName), type);
                 TypeSpec jetified = jetifyClass.build();
                 JavaFile.builder(jetPkg, jetified).build().writeTo(mEnv.getFiler());
             }
@@ -346,6 +356,41 @@ public class VersionedParcelProcessor extends AbstractProcessor {
         }
     }
 
+    /**
+     * Adds a Parcelizer calling the static methods of the generated class, and a static
+     * initializer registering it, so they are not looked up and invoked through reflection. The
+     * registry only holds the Parcelizer weakly, so the class keeps it in a static field.
+     */
+    private void addParcelizer(TypeSpec.Builder builder, ClassName genClass, TypeName type) {
+        TypeSpec parcelizer = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(ParameterizedTypeName.get(PARCELIZER, type))
+                .addMethod(MethodSpec
+                        .methodBuilder(READ)
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(type)
+                        .addParameter(VERSIONED_PARCEL, "parcel")
+                        .addStatement("return $T.read(parcel)", genClass)
+                        .build())
+                .addMethod(MethodSpec
+                        .methodBuilder(WRITE)
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(type, "obj")
+                        .addParameter(VERSIONED_PARCEL, "parcel")
+                        .addStatement("$T.write(obj, parcel)", genClass)
+                        .build())
+                .build();
+        builder.addField(FieldSpec
+                .builder(ParameterizedTypeName.get(PARCELIZER, type), "sParcelizer")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$L", parcelizer)
+                .build());
+        builder.addStaticBlock(CodeBlock.builder()
+                .addStatement("$T.register($T.class, sParcelizer)", PARCELIZER_REGISTRY, genClass)
+                .build());
+    }
+
     private String strip(String s) {
         if (!s.startsWith("\"")) return s;
         return s.substring(1, s.length() - 1);
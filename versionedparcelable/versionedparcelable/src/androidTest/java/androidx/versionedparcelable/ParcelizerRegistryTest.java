@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.versionedparcelable;
+
+import static androidx.versionedparcelable.ParcelUtils.fromInputStream;
+import static androidx.versionedparcelable.ParcelUtils.fromParcelable;
+import static androidx.versionedparcelable.ParcelUtils.toOutputStream;
+import static androidx.versionedparcelable.ParcelUtils.toParcelable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import android.os.Parcel;
+
+import androidx.annotation.NonNull;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+@RunWith(Parameterized.class)
+@SmallTest
+public class ParcelizerRegistryTest {
+
+    @Parameterized.Parameters
+    public static Iterable<? extends Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    private boolean mUseStream;
+
+    public ParcelizerRegistryTest(boolean useStream) {
+        mUseStream = useStream;
+    }
+
+    @SuppressWarnings("TypeParameterUnusedInFormals")
+    private <T extends VersionedParcelable> T parcelCopy(VersionedParcelable obj) {
+        if (mUseStream) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            toOutputStream(obj, outputStream);
+            byte[] buf = outputStream.toByteArray();
+            ByteArrayInputStream inputStream = new ByteArrayInputStream(buf);
+            return fromInputStream(inputStream);
+        } else {
+            Parcel p = Parcel.obtain();
+            p.writeParcelable(toParcelable(obj), 0);
+            p.setDataPosition(0);
+            return fromParcelable(p.readParcelable(getClass().getClassLoader()));
+        }
+    }
+
+    @Test
+    public void testRegisteredParcelizer() {
+        RegisteredParcelable obj = new RegisteredParcelable();
+        obj.mInt = 42;
+        int reads = RegisteredParcelableParcelizer.sReads;
+        int writes = RegisteredParcelableParcelizer.sWrites;
+
+        RegisteredParcelable other = parcelCopy(obj);
+
+        assertEquals(42, other.mInt);
+        assertEquals(reads + 1, RegisteredParcelableParcelizer.sReads);
+        assertEquals(writes + 1, RegisteredParcelableParcelizer.sWrites);
+    }
+
+    @Test
+    public void testRegisteredParcelizer_fromChildClassLoader() throws Exception {
+        // The parcelizer is registered with the loader that defined its class.
+        String name = RegisteredParcelableParcelizer.class.getName();
+        ClassLoader parent = getClass().getClassLoader();
+        ClassLoader child = new ClassLoader(parent) {
+        };
+
+        assertSame(ParcelizerRegistry.getParcelizer(name, parent),
+                ParcelizerRegistry.getParcelizer(name, child));
+    }
+
+    @Test
+    public void testUnregisteredParcelizer() {
+        // Parcelizers generated before the registry existed only have static methods.
+        UnregisteredParcelable obj = new UnregisteredParcelable();
+        obj.mInt = 42;
+
+        UnregisteredParcelable other = parcelCopy(obj);
+
+        assertEquals(42, other.mInt);
+    }
+
+    @Test
+    public void testGeneratedParcelizer() {
+        GeneratedParcelable obj = new GeneratedParcelable();
+        obj.mInt = 42;
+
+        GeneratedParcelable other = parcelCopy(obj);
+
+        assertEquals(42, other.mInt);
+    }
+
+    @VersionedParcelize(allowSerialization = true)
+    public static class GeneratedParcelable implements VersionedParcelable {
+        @ParcelField(1)
+        public int mInt;
+    }
+
+    public static class RegisteredParcelable implements VersionedParcelable {
+        public int mInt;
+    }
+
+    public static class UnregisteredParcelable implements VersionedParcelable {
+        public int mInt;
+    }
+}
+
+/**
+ * Registers a parcelizer without static methods, so parcelizing fails unless the registry is used.
+ */
+final class RegisteredParcelableParcelizer {
+    static int sReads;
+    static int sWrites;
+
+    private static final Parcelizer<ParcelizerRegistryTest.RegisteredParcelable> sParcelizer =
+            new Parcelizer<ParcelizerRegistryTest.RegisteredParcelable>() {
+                @NonNull
+                @Override
+                public ParcelizerRegistryTest.RegisteredParcelable read(
+                        @NonNull VersionedParcel parcel) {
+                    sReads++;
+                    ParcelizerRegistryTest.RegisteredParcelable obj =
+                            new ParcelizerRegistryTest.RegisteredParcelable();
+                    obj.mInt = parcel.readInt(obj.mInt, 1);
+                    return obj;
+                }
+
+                @Override
+                public void write(@NonNull ParcelizerRegistryTest.RegisteredParcelable obj,
+                        @NonNull VersionedParcel parcel) {
+                    sWrites++;
+                    parcel.setSerializationFlags(true, false);
+                    parcel.writeInt(obj.mInt, 1);
+                }
+            };
+
+    static {
+        ParcelizerRegistry.register(RegisteredParcelableParcelizer.class, sParcelizer);
+    }
+
+    private RegisteredParcelableParcelizer() {
+    }
+}
+
+/**
+ * Has the static methods of a parcelizer generated without registration.
+ */
+final class UnregisteredParcelableParcelizer {
+    private UnregisteredParcelableParcelizer() {
+    }
+
+    public static ParcelizerRegistryTest.UnregisteredParcelable read(VersionedParcel parcel) {
+        ParcelizerRegistryTest.UnregisteredParcelable obj =
+                new ParcelizerRegistryTest.UnregisteredParcelable();
+        obj.mInt = parcel.readInt(obj.mInt, 1);
+        return obj;
+    }
+
+    public static void write(ParcelizerRegistryTest.UnregisteredParcelable obj,
+            VersionedParcel parcel) {
+        parcel.setSerializationFlags(true, false);
+        parcel.writeInt(obj.mInt, 1);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.versionedparcelable;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.os.Bundle;
+
+import androidx.test.filters.SmallTest;
+import androidx.versionedparcelable.VersionedParcelIntegTest.GenericType;
+import androidx.versionedparcelable.VersionedParcelIntegTest.ParcelizableImpl;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+@SmallTest
+public class VersionedParcelBufferStreamTest {
+
+    private final VersionedParcelBufferStream mOutputParcel = new VersionedParcelBufferStream();
+
+    @Test
+    public void testInt() {
+        mOutputParcel.writeInt(42, 0);
+        assertEquals(42, createInputParcel().readInt(0, 0));
+    }
+
+    @Test
+    public void testLong() {
+        mOutputParcel.writeLong(Long.MIN_VALUE + 1, 0);
+        assertEquals(Long.MIN_VALUE + 1, createInputParcel().readLong(0, 0));
+    }
+
+    @Test
+    public void testString() {
+        mOutputParcel.writeString("My string", 0);
+        mOutputParcel.writeString("\uD83D\uDE00 surrogates", 1);
+        VersionedParcel input = createInputParcel();
+        assertEquals("My string", input.readString(null, 0));
+        assertEquals("\uD83D\uDE00 surrogates", input.readString(null, 1));
+    }
+
+    @Test
+    public void testMissingField() {
+        mOutputParcel.writeInt(1, 1);
+        mOutputParcel.writeInt(3, 3);
+        VersionedParcel input = createInputParcel();
+        assertEquals(1, input.readInt(0, 1));
+        assertEquals(-1, input.readInt(-1, 2));
+        assertEquals(3, input.readInt(0, 3));
+    }
+
+    @Test
+    public void testSkipsLargeField() {
+        mOutputParcel.writeByteArray(new byte[0x10000], 1);
+        mOutputParcel.writeInt(42, 2);
+        assertEquals(42, createInputParcel().readInt(0, 2));
+    }
+
+    @Test
+    public void testNoException() {
+        mOutputParcel.writeException(null, 0);
+        assertNull(createInputParcel().readException(null, 0));
+    }
+
+    @Test
+    public void testSameBytesAsStream() {
+        ParcelizableImpl obj = createParcelizable();
+        byte[] expected = writeWithStream(obj);
+
+        assertArrayEquals(expected, ParcelUtils.toByteArray(obj));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ParcelUtils.toOutputStream(obj, output);
+        assertArrayEquals(expected, output.toByteArray());
+    }
+
+    @Test
+    public void testReadsStreamBytes() {
+        ParcelizableImpl obj = createParcelizable();
+        ParcelizableImpl other = ParcelUtils.fromByteBuffer(ByteBuffer.wrap(writeWithStream(obj)));
+        assertParcelizableEquals(obj, other);
+    }
+
+    @Test
+    public void testReadsDirectBuffer() {
+        ParcelizableImpl obj = createParcelizable();
+        byte[] bytes = ParcelUtils.toByteArray(obj);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 4);
+        buffer.putInt(7).put(bytes).flip();
+        buffer.position(4);
+
+        ParcelizableImpl other = ParcelUtils.fromByteBuffer(buffer);
+        assertParcelizableEquals(obj, other);
+        assertEquals(buffer.limit(), buffer.position());
+    }
+
+    @Test
+    public void testStreamReadsBufferBytes() {
+        ParcelizableImpl obj = createParcelizable();
+        ParcelizableImpl other = ParcelUtils.fromInputStream(
+                new ByteArrayInputStream(ParcelUtils.toByteArray(obj)));
+        assertParcelizableEquals(obj, other);
+    }
+
+    private static ParcelizableImpl createParcelizable() {
+        ParcelizableImpl obj = new ParcelizableImpl();
+        obj.mInt = 42;
+        obj.mLong = 68;
+        obj.mFloat = 3.5f;
+        obj.mString = "my_string_123";
+        // Large enough to need the extended field size
+        obj.mByteArray = new byte[0x12345];
+        Arrays.fill(obj.mByteArray, (byte) 7);
+        obj.mBundle = new Bundle();
+        obj.mBundle.putString("key", "value");
+        obj.mStringList = Arrays.asList("a", "b", "c");
+        obj.mGenericType = new GenericType<>("generic");
+        return obj;
+    }
+
+    private static void assertParcelizableEquals(ParcelizableImpl expected,
+            ParcelizableImpl actual) {
+        assertEquals(expected.mInt, actual.mInt);
+        assertEquals(expected.mLong, actual.mLong);
+        assertEquals(expected.mFloat, actual.mFloat, .01f);
+        assertEquals(expected.mString, actual.mString);
+        assertArrayEquals(expected.mByteArray, actual.mByteArray);
+        assertEquals("value", actual.mBundle.getString("key"));
+        assertEquals(expected.mStringList, actual.mStringList);
+        assertEquals(expected.mGenericType.mValue, actual.mGenericType.mValue);
+    }
+
+    private static byte[] writeWithStream(VersionedParcelable obj) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        VersionedParcelStream stream = new VersionedParcelStream(null, output);
+        stream.writeVersionedParcelable(obj);
+        stream.closeField();
+        return output.toByteArray();
+    }
+
+    private VersionedParcelBufferStream createInputParcel() {
+        mOutputParcel.closeField();
+        return new VersionedParcelBufferStream(ByteBuffer.wrap(mOutputParcel.toByteArray()));
+    }
+}
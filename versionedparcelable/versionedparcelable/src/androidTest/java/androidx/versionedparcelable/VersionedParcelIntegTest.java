@@ -16,8 +16,10 @@
 
 package androidx.versionedparcelable;
 
+import static androidx.versionedparcelable.ParcelUtils.fromByteBuffer;
 import static androidx.versionedparcelable.ParcelUtils.fromInputStream;
 import static androidx.versionedparcelable.ParcelUtils.fromParcelable;
+import static androidx.versionedparcelable.ParcelUtils.toByteArray;
 import static androidx.versionedparcelable.ParcelUtils.toOutputStream;
 import static androidx.versionedparcelable.ParcelUtils.toParcelable;
 
@@ -51,6 +53,7 @@ import org.junit.runners.Parameterized;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -62,17 +65,21 @@ public class VersionedParcelIntegTest {
 
     @Parameterized.Parameters
     public static Iterable<? extends Object[]> data() {
-        return Arrays.asList(new Object[][]{{false}, {true}});
+        return Arrays.asList(new Object[][]{{false, false}, {true, false}, {true, true}});
     }
 
     private boolean mUseStream;
+    private boolean mUseByteBuffer;
 
-    public VersionedParcelIntegTest(boolean useStream) {
+    public VersionedParcelIntegTest(boolean useStream, boolean useByteBuffer) {
         mUseStream = useStream;
+        mUseByteBuffer = useByteBuffer;
     }
 
     private ParcelizableImpl parcelCopy(ParcelizableImpl obj) {
-        if (mUseStream) {
+        if (mUseByteBuffer) {
+            return fromByteBuffer(ByteBuffer.wrap(toByteArray(obj)));
+        } else if (mUseStream) {
             ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             toOutputStream(obj, outputStream);
             byte[] buf = outputStream.toByteArray();
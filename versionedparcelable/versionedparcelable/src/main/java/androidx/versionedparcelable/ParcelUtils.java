@@ -25,8 +25,10 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -67,9 +69,28 @@ public class ParcelUtils {
      */
     @RestrictTo(LIBRARY_GROUP_PREFIX)
     public static void toOutputStream(VersionedParcelable obj, OutputStream output) {
-        VersionedParcelStream stream = new VersionedParcelStream(null, output);
+        VersionedParcelBufferStream stream = new VersionedParcelBufferStream();
         stream.writeVersionedParcelable(obj);
         stream.closeField();
+        try {
+            stream.writeTo(output);
+        } catch (IOException e) {
+            throw new VersionedParcel.ParcelException(e);
+        }
+    }
+
+    /**
+     * Write a VersionedParcelable into a byte array, in the same format as
+     * {@link #toOutputStream(VersionedParcelable, OutputStream)}.
+     * @hide
+     */
+    @RestrictTo(LIBRARY_GROUP_PREFIX)
+    @NonNull
+    public static byte[] toByteArray(@NonNull VersionedParcelable obj) {
+        VersionedParcelBufferStream stream = new VersionedParcelBufferStream();
+        stream.writeVersionedParcelable(obj);
+        stream.closeField();
+        return stream.toByteArray();
     }
 
     /**
@@ -83,6 +104,23 @@ public class ParcelUtils {
         return stream.readVersionedParcelable();
     }
 
+    /**
+     * Read a VersionedParcelable written by {@link #toByteArray(VersionedParcelable)} or
+     * {@link #toOutputStream(VersionedParcelable, OutputStream)} from a ByteBuffer.
+     *
+     * <p>Reading starts at the position of the buffer, which is advanced past the object.
+     * @hide
+     */
+    @SuppressWarnings("TypeParameterUnusedInFormals")
+    @RestrictTo(LIBRARY_GROUP_PREFIX)
+    public static <T extends VersionedParcelable> T fromByteBuffer(@NonNull ByteBuffer buffer) {
+        ByteBuffer input = buffer.duplicate();
+        VersionedParcelBufferStream stream = new VersionedParcelBufferStream(input);
+        T obj = stream.readVersionedParcelable();
+        buffer.position(input.position());
+        return obj;
+    }
+
     /**
      * Add a VersionedParcelable to an existing Bundle.
      */
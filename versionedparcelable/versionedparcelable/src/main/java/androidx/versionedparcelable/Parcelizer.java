@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.versionedparcelable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+/**
+ * Reads and writes the fields of a {@link VersionedParcelable} class.
+ *
+ * <p>Implementations are generated for every class annotated with {@link VersionedParcelize}
+ * and registered with {@link ParcelizerRegistry}, so that they can be called directly instead
+ * of through reflection.
+ *
+ * @param <T> the class that is parcelized.
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public interface Parcelizer<T extends VersionedParcelable> {
+
+    /**
+     * Creates a new object from the fields in the parcel.
+     */
+    @NonNull
+    T read(@NonNull VersionedParcel parcel);
+
+    /**
+     * Writes the fields of the object to the parcel.
+     */
+    void write(@NonNull T obj, @NonNull VersionedParcel parcel);
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.versionedparcelable;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+/**
+ * Process wide registry of the {@link Parcelizer}s of {@link VersionedParcelable} classes.
+ *
+ * <p>The class generated for each {@link VersionedParcelize} class registers its
+ * {@link Parcelizer} when it is initialized, so a parcelizer class is only looked up by name
+ * the first time it is used in the process. Parcelizer classes generated by earlier versions of
+ * the annotation processor don't register themselves, and are wrapped in a parcelizer that
+ * calls their static methods through reflection instead.
+ *
+ * <p>Parcelizers are kept per class loader, since classes with the same name can be loaded by
+ * different class loaders. The registry only holds class loaders, classes and parcelizers
+ * weakly, so it doesn't keep a class loader alive: a generated parcelizer class holds on to its
+ * own parcelizer instead.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public final class ParcelizerRegistry {
+
+    private static final String READ = "read";
+    private static final String WRITE = "write";
+
+    private static final Object sLock = new Object();
+    @GuardedBy("sLock")
+    private static final WeakHashMap<ClassLoader, HashMap<String, WeakReference<Parcelizer<?>>>>
+            sParcelizers = new WeakHashMap<>();
+    @GuardedBy("sLock")
+    private static final WeakHashMap<Class<?>, String> sParcelizerNames = new WeakHashMap<>();
+
+    private ParcelizerRegistry() {
+    }
+
+    /**
+     * Registers the parcelizer of a generated parcelizer class. The registry only holds the
+     * parcelizer weakly, so the class has to keep it, for instance in a static field.
+     *
+     * @param parcelizerClass the generated parcelizer class, whose name is written to the
+     *                        parcel to identify the class of the object.
+     * @param parcelizer      the parcelizer calling the generated class.
+     */
+    public static void register(@NonNull Class<?> parcelizerClass,
+            @NonNull Parcelizer<?> parcelizer) {
+        synchronized (sLock) {
+            put(parcelizerClass.getClassLoader(), parcelizerClass.getName(), parcelizer);
+        }
+    }
+
+    /**
+     * Returns the name of the generated parcelizer class of a {@link VersionedParcelable} class.
+     */
+    @NonNull
+    static String getParcelizerName(@NonNull Class<?> cls) {
+        synchronized (sLock) {
+            String name = sParcelizerNames.get(cls);
+            if (name == null) {
+                name = String.format("%s.%sParcelizer", cls.getPackage().getName(),
+                        cls.getSimpleName());
+                sParcelizerNames.put(cls, name);
+            }
+            return name;
+        }
+    }
+
+    /**
+     * Returns the parcelizer of the generated parcelizer class with the given name, loading the
+     * class with the given class loader if it has not been used with it yet.
+     *
+     * @throws ClassNotFoundException if there is no such parcelizer class.
+     * @throws NoSuchMethodException  if the class does not register itself and does not have
+     *                                the methods of a parcelizer class.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    static <T extends VersionedParcelable> Parcelizer<T> getParcelizer(
+            @NonNull String parcelizerName, @Nullable ClassLoader classLoader)
+            throws ClassNotFoundException, NoSuchMethodException {
+        synchronized (sLock) {
+            Parcelizer<?> parcelizer = get(classLoader, parcelizerName);
+            if (parcelizer != null) {
+                return (Parcelizer<T>) parcelizer;
+            }
+        }
+        // Initializing the class registers its parcelizer, with the loader that defined the
+        // class, which can be a parent of the given one.
+        Class<?> cls = Class.forName(parcelizerName, true, classLoader);
+        synchronized (sLock) {
+            Parcelizer<?> parcelizer = get(cls.getClassLoader(), parcelizerName);
+            if (parcelizer == null) {
+                // Nothing else holds on to it, so it is created again once it is collected.
+                parcelizer = new ReflectiveParcelizer(cls);
+            }
+            put(classLoader, parcelizerName, parcelizer);
+            return (Parcelizer<T>) parcelizer;
+        }
+    }
+
+    @GuardedBy("sLock")
+    @Nullable
+    private static Parcelizer<?> get(@Nullable ClassLoader classLoader, @NonNull String name) {
+        HashMap<String, WeakReference<Parcelizer<?>>> parcelizers = sParcelizers.get(classLoader);
+        if (parcelizers == null) {
+            return null;
+        }
+        WeakReference<Parcelizer<?>> reference = parcelizers.get(name);
+        return reference == null ? null : reference.get();
+    }
+
+    @GuardedBy("sLock")
+    private static void put(@Nullable ClassLoader classLoader, @NonNull String name,
+            @NonNull Parcelizer<?> parcelizer) {
+        HashMap<String, WeakReference<Parcelizer<?>>> parcelizers = sParcelizers.get(classLoader);
+        if (parcelizers == null) {
+            parcelizers = new HashMap<>();
+            sParcelizers.put(classLoader, parcelizers);
+        }
+        parcelizers.put(name, new WeakReference<Parcelizer<?>>(parcelizer));
+    }
+
+    /**
+     * Calls the static methods of a parcelizer class that does not register itself.
+     */
+    private static final class ReflectiveParcelizer implements Parcelizer<VersionedParcelable> {
+        private final Method mReadMethod;
+        private final Method mWriteMethod;
+
+        ReflectiveParcelizer(Class<?> cls) throws NoSuchMethodException {
+            mReadMethod = cls.getDeclaredMethod(READ, VersionedParcel.class);
+            mWriteMethod = findWriteMethod(cls);
+        }
+
+        @NonNull
+        @Override
+        public VersionedParcelable read(@NonNull VersionedParcel parcel) {
+            return (VersionedParcelable) invoke(mReadMethod, parcel);
+        }
+
+        @Override
+        public void write(@NonNull VersionedParcelable obj, @NonNull VersionedParcel parcel) {
+            invoke(mWriteMethod, obj, parcel);
+        }
+
+        private static Method findWriteMethod(Class<?> cls) throws NoSuchMethodException {
+            for (Method method : cls.getDeclaredMethods()) {
+                Class<?>[] parameters = method.getParameterTypes();
+                if (WRITE.equals(method.getName()) && parameters.length == 2
+                        && parameters[1] == VersionedParcel.class) {
+                    return method;
+                }
+            }
+            throw new NoSuchMethodException(cls.getName() + "." + WRITE);
+        }
+
+        private static Object invoke(Method method, Object... args) {
+            try {
+                return method.invoke(null, args);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
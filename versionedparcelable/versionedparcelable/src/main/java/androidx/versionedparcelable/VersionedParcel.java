@@ -35,7 +35,6 @@ import androidx.annotation.RequiresApi;
 import androidx.annotation.RestrictTo;
 import androidx.collection.ArrayMap;
 import androidx.collection.ArraySet;
-import androidx.collection.SimpleArrayMap;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -44,8 +43,6 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.Serializable;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -78,16 +75,7 @@ public abstract class VersionedParcel {
     private static final int TYPE_INTEGER = 7;
     private static final int TYPE_FLOAT = 8;
 
-    final SimpleArrayMap<String, Method> mReadCache;
-    final SimpleArrayMap<String, Method> mWriteCache;
-    final SimpleArrayMap<String, Class<?>> mParcelizerCache;
-
-    VersionedParcel(SimpleArrayMap<String, Method> readCache,
-            SimpleArrayMap<String, Method> writeCache,
-            SimpleArrayMap<String, Class<?>> parcelizerCache) {
-        mReadCache = readCache;
-        mWriteCache = writeCache;
-        mParcelizerCache = parcelizerCache;
+    VersionedParcel() {
     }
 
     /**
@@ -1038,14 +1026,15 @@ public abstract class VersionedParcel {
     }
 
     private void writeVersionedParcelableCreator(VersionedParcelable p) {
-        Class<?> name;
         try {
-            name = findParcelClass(p.getClass());
+            findParcelizer(p.getClass());
         } catch (ClassNotFoundException e) {
             throw new RuntimeException(p.getClass().getSimpleName() + " does not have a Parcelizer",
                     e);
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException(e);
         }
-        writeString(name.getName());
+        writeString(ParcelizerRegistry.getParcelizerName(p.getClass()));
     }
 
     /**
@@ -1559,23 +1548,13 @@ public abstract class VersionedParcel {
 
     /**
      */
-    @SuppressWarnings({"unchecked", "TypeParameterUnusedInFormals"})
+    @SuppressWarnings("TypeParameterUnusedInFormals")
     protected <T extends VersionedParcelable> T readFromParcel(
             String parcelCls, VersionedParcel versionedParcel) {
         try {
-            Method m = getReadMethod(parcelCls);
-            return (T) m.invoke(null, versionedParcel);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-        } catch (InvocationTargetException e) {
-            Throwable cause = e.getCause();
-            if (cause instanceof RuntimeException) {
-                throw (RuntimeException) cause;
-            }
-            if (cause instanceof Error) {
-                throw (Error) cause;
-            }
-            throw new RuntimeException(e);
+            Parcelizer<T> parcelizer = ParcelizerRegistry.getParcelizer(parcelCls,
+                    VersionedParcel.class.getClassLoader());
+            return parcelizer.read(versionedParcel);
         } catch (NoSuchMethodException e) {
             throw new RuntimeException(e);
         } catch (ClassNotFoundException e) {
@@ -1588,19 +1567,8 @@ public abstract class VersionedParcel {
     protected <T extends VersionedParcelable> void writeToParcel(T val,
             VersionedParcel versionedParcel) {
         try {
-            Method m = getWriteMethod(val.getClass());
-            m.invoke(null, val, versionedParcel);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-        } catch (InvocationTargetException e) {
-            Throwable cause = e.getCause();
-            if (cause instanceof RuntimeException) {
-                throw (RuntimeException) cause;
-            }
-            if (cause instanceof Error) {
-                throw (Error) cause;
-            }
-            throw new RuntimeException(e);
+            Parcelizer<T> parcelizer = findParcelizer(val.getClass());
+            parcelizer.write(val, versionedParcel);
         } catch (NoSuchMethodException e) {
             throw new RuntimeException(e);
         } catch (ClassNotFoundException e) {
@@ -1608,38 +1576,10 @@ public abstract class VersionedParcel {
         }
     }
 
-    private Method getReadMethod(String parcelCls) throws IllegalAccessException,
-            NoSuchMethodException, ClassNotFoundException {
-        Method m = mReadCache.get(parcelCls);
-        if (m == null) {
-            Class<?> cls = Class.forName(parcelCls, true, VersionedParcel.class.getClassLoader());
-            m = cls.getDeclaredMethod("read", VersionedParcel.class);
-            mReadCache.put(parcelCls, m);
-        }
-        return m;
-    }
-
-    private Method getWriteMethod(Class<?> baseCls) throws IllegalAccessException,
-            NoSuchMethodException, ClassNotFoundException {
-        Method m = mWriteCache.get(baseCls.getName());
-        if (m == null) {
-            Class<?> cls = findParcelClass(baseCls);
-            m = cls.getDeclaredMethod("write", baseCls, VersionedParcel.class);
-            mWriteCache.put(baseCls.getName(), m);
-        }
-        return m;
-    }
-
-    private Class<?> findParcelClass(Class<?> cls)
-            throws ClassNotFoundException {
-        Class<?> ret = mParcelizerCache.get(cls.getName());
-        if (ret == null) {
-            String pkg = cls.getPackage().getName();
-            String c = String.format("%s.%sParcelizer", pkg, cls.getSimpleName());
-            ret = Class.forName(c, false, cls.getClassLoader());
-            mParcelizerCache.put(cls.getName(), ret);
-        }
-        return ret;
+    private static <T extends VersionedParcelable> Parcelizer<T> findParcelizer(Class<?> cls)
+            throws NoSuchMethodException, ClassNotFoundException {
+        return ParcelizerRegistry.getParcelizer(ParcelizerRegistry.getParcelizerName(cls),
+                cls.getClassLoader());
     }
 
     /**
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.versionedparcelable;
+
+import androidx.annotation.RestrictTo;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A {@link VersionedParcelStream} that writes into a single growable buffer and reads from a
+ * {@link ByteBuffer}.
+ *
+ * <p>The format is the same as {@link VersionedParcelStream}. Instead of buffering each field
+ * separately to find its length, a field header is reserved when the field is opened and
+ * filled in when it is closed. Sub parcels share the buffer of their parent, so nested objects
+ * are written in place rather than copied into each enclosing field.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+class VersionedParcelBufferStream extends VersionedParcelStream {
+
+    private static final Charset UTF_16 = Charset.forName("UTF-16");
+
+    private static final int FIELD_HEADER_SIZE = 4;
+    // Fields of this size or larger store it in an extra int after the header.
+    private static final int LARGE_FIELD_SIZE = 0xffff;
+
+    private final ByteBuffer mInput;
+    // The end of the field this parcel was created in, reads never go past it.
+    private final int mInputLimit;
+    private final OutputBuffer mOutput;
+
+    private int mFieldId = -1;
+    private int mFieldStart = -1;
+    private int mFieldSize = -1;
+
+    private int mOutputFieldId = -1;
+    private int mOutputFieldHeader = -1;
+
+    /**
+     * Creates a parcel that writes into a new buffer, see {@link #toByteArray()}.
+     */
+    VersionedParcelBufferStream() {
+        this(null, 0, new OutputBuffer());
+    }
+
+    /**
+     * Creates a parcel that reads from the position of {@code input} up to its limit. The
+     * position of {@code input} is advanced as the parcel is read.
+     */
+    VersionedParcelBufferStream(ByteBuffer input) {
+        this(input.order(ByteOrder.BIG_ENDIAN), input.limit(), null);
+    }
+
+    private VersionedParcelBufferStream(ByteBuffer input, int inputLimit, OutputBuffer output) {
+        super(null, null);
+        mInput = input;
+        mInputLimit = inputLimit;
+        mOutput = output;
+    }
+
+    /**
+     * Returns a copy of everything written so far.
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(mOutput.mData, mOutput.mSize);
+    }
+
+    /**
+     * Writes everything written so far to {@code output}.
+     */
+    void writeTo(OutputStream output) throws IOException {
+        output.write(mOutput.mData, 0, mOutput.mSize);
+    }
+
+    @Override
+    public void closeField() {
+        if (mOutputFieldHeader != -1) {
+            mOutput.closeField(mOutputFieldHeader, mOutputFieldId);
+            mOutputFieldHeader = -1;
+        }
+    }
+
+    @Override
+    protected VersionedParcel createSubParcel() {
+        return new VersionedParcelBufferStream(mInput, getReadLimit(), mOutput);
+    }
+
+    @Override
+    public boolean readField(int fieldId) {
+        while (true) {
+            if (mFieldId == fieldId) {
+                return true;
+            }
+            if (String.valueOf(mFieldId).compareTo(String.valueOf(fieldId)) > 0) {
+                return false;
+            }
+            if (mFieldSize != -1 && mInput.position() < mFieldStart + mFieldSize) {
+                // Skip the rest of the field
+                int fieldEnd = mFieldStart + mFieldSize;
+                if (fieldEnd > mInputLimit) {
+                    return false;
+                }
+                mInput.position(fieldEnd);
+            }
+            mFieldSize = -1;
+            if (mInput.position() + FIELD_HEADER_SIZE > mInputLimit) {
+                return false;
+            }
+            int fieldInfo = mInput.getInt();
+            int size = fieldInfo & 0xffff;
+            if (size == LARGE_FIELD_SIZE) {
+                if (mInput.position() + 4 > mInputLimit) {
+                    return false;
+                }
+                size = mInput.getInt();
+            }
+            mFieldId = (fieldInfo >> 16) & 0xffff;
+            mFieldStart = mInput.position();
+            mFieldSize = size;
+        }
+    }
+
+    @Override
+    public void setOutputField(int fieldId) {
+        closeField();
+        mOutputFieldId = fieldId;
+        mOutputFieldHeader = mOutput.reserve(FIELD_HEADER_SIZE);
+    }
+
+    @Override
+    public void writeByteArray(byte[] b) {
+        if (b != null) {
+            writeByteArray(b, 0, b.length);
+        } else {
+            mOutput.writeInt(-1);
+        }
+    }
+
+    @Override
+    public void writeByteArray(byte[] b, int offset, int len) {
+        if (b != null) {
+            mOutput.writeInt(len);
+            mOutput.write(b, offset, len);
+        } else {
+            mOutput.writeInt(-1);
+        }
+    }
+
+    @Override
+    public void writeInt(int val) {
+        mOutput.writeInt(val);
+    }
+
+    @Override
+    public void writeLong(long val) {
+        mOutput.writeLong(val);
+    }
+
+    @Override
+    public void writeFloat(float val) {
+        // Same as DataOutputStream, which collapses NaNs.
+        mOutput.writeInt(Float.floatToIntBits(val));
+    }
+
+    @Override
+    public void writeDouble(double val) {
+        mOutput.writeLong(Double.doubleToLongBits(val));
+    }
+
+    @Override
+    public void writeString(String val) {
+        if (val == null) {
+            mOutput.writeInt(-1);
+        } else if (val.isEmpty() || !mOutput.writeUtf16(val)) {
+            byte[] bytes = val.getBytes(UTF_16);
+            mOutput.writeInt(bytes.length);
+            mOutput.write(bytes, 0, bytes.length);
+        }
+    }
+
+    @Override
+    public void writeBoolean(boolean val) {
+        mOutput.writeByte(val ? 1 : 0);
+    }
+
+    @Override
+    public int readInt() {
+        return getInput(4).getInt();
+    }
+
+    @Override
+    public long readLong() {
+        return getInput(8).getLong();
+    }
+
+    @Override
+    public float readFloat() {
+        return getInput(4).getFloat();
+    }
+
+    @Override
+    public double readDouble() {
+        return getInput(8).getDouble();
+    }
+
+    @Override
+    public String readString() {
+        int len = readInt();
+        if (len <= 0) {
+            return null;
+        }
+        ByteBuffer input = getInput(len);
+        String val;
+        if (input.hasArray()) {
+            val = new String(input.array(), input.arrayOffset() + input.position(), len, UTF_16);
+            input.position(input.position() + len);
+        } else {
+            byte[] bytes = new byte[len];
+            input.get(bytes);
+            val = new String(bytes, UTF_16);
+        }
+        return val;
+    }
+
+    @Override
+    public byte[] readByteArray() {
+        int len = readInt();
+        if (len <= 0) {
+            return null;
+        }
+        byte[] bytes = new byte[len];
+        getInput(len).get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public boolean readBoolean() {
+        return getInput(1).get() != 0;
+    }
+
+    private int getReadLimit() {
+        if (mFieldSize == -1) {
+            return mInputLimit;
+        }
+        return Math.min(mInputLimit, mFieldStart + mFieldSize);
+    }
+
+    private ByteBuffer getInput(int size) {
+        if (mInput.position() + size > getReadLimit()) {
+            throw new ParcelException(new EOFException());
+        }
+        return mInput;
+    }
+
+    /**
+     * The buffer shared by a parcel and its sub parcels, written big-endian like
+     * DataOutputStream.
+     */
+    private static final class OutputBuffer {
+        byte[] mData = new byte[256];
+        int mSize;
+
+        int reserve(int size) {
+            ensureCapacity(size);
+            int position = mSize;
+            mSize += size;
+            return position;
+        }
+
+        /**
+         * Fills in the header of the field written since {@code header}, or drops the field if
+         * nothing was written to it.
+         */
+        void closeField(int header, int fieldId) {
+            int size = mSize - header - FIELD_HEADER_SIZE;
+            if (size == 0) {
+                mSize = header;
+            } else if (size < LARGE_FIELD_SIZE) {
+                putInt(header, (fieldId << 16) | size);
+            } else {
+                // Rare enough that moving the field to make room for its size is fine.
+                int start = header + FIELD_HEADER_SIZE;
+                ensureCapacity(4);
+                System.arraycopy(mData, start, mData, start + 4, size);
+                mSize += 4;
+                putInt(header, (fieldId << 16) | LARGE_FIELD_SIZE);
+                putInt(start, size);
+            }
+        }
+
+        void writeByte(int val) {
+            ensureCapacity(1);
+            mData[mSize++] = (byte) val;
+        }
+
+        void writeInt(int val) {
+            ensureCapacity(4);
+            putInt(mSize, val);
+            mSize += 4;
+        }
+
+        void writeLong(long val) {
+            ensureCapacity(8);
+            putInt(mSize, (int) (val >>> 32));
+            putInt(mSize + 4, (int) val);
+            mSize += 8;
+        }
+
+        void write(byte[] b, int offset, int len) {
+            ensureCapacity(len);
+            System.arraycopy(b, offset, mData, mSize, len);
+            mSize += len;
+        }
+
+        /**
+         * Writes the length and big-endian UTF-16 bytes of {@code val}, with a byte order mark,
+         * the same as {@code String.getBytes("UTF-16")}. Returns false without writing anything
+         * if {@code val} has surrogates, which are left to the platform encoder.
+         */
+        boolean writeUtf16(String val) {
+            int length = val.length();
+            int size = 2 + 2 * length;
+            ensureCapacity(4 + size);
+            int start = mSize;
+            byte[] data = mData;
+            putInt(start, size);
+            int position = start + 4;
+            data[position++] = (byte) 0xfe;
+            data[position++] = (byte) 0xff;
+            for (int i = 0; i < length; i++) {
+                char c = val.charAt(i);
+                if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                    return false;
+                }
+                data[position++] = (byte) (c >> 8);
+                data[position++] = (byte) c;
+            }
+            mSize = position;
+            return true;
+        }
+
+        private void putInt(int position, int val) {
+            byte[] data = mData;
+            data[position] = (byte) (val >>> 24);
+            data[position + 1] = (byte) (val >>> 16);
+            data[position + 2] = (byte) (val >>> 8);
+            data[position + 3] = (byte) val;
+        }
+
+        private void ensureCapacity(int extra) {
+            int required = mSize + extra;
+            if (required > mData.length) {
+                mData = Arrays.copyOf(mData, Math.max(required, mData.length * 2));
+            }
+        }
+    }
+}
@@ -22,7 +22,6 @@ import android.os.IInterface;
 import android.os.Parcelable;
 
 import androidx.annotation.RestrictTo;
-import androidx.collection.SimpleArrayMap;
 
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
@@ -31,7 +30,6 @@ import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.Method;
 import java.nio.charset.Charset;
 import java.util.Set;
 
@@ -73,15 +71,6 @@ class VersionedParcelStream extends VersionedParcel {
     int mFieldSize = -1;
 
     public VersionedParcelStream(InputStream input, OutputStream output) {
-        this(input, output, new SimpleArrayMap<String, Method>(),
-                new SimpleArrayMap<String, Method>(), new SimpleArrayMap<String, Class<?>>());
-    }
-
-    private VersionedParcelStream(InputStream input, OutputStream output,
-            SimpleArrayMap<String, Method> readCache,
-            SimpleArrayMap<String, Method> writeCache,
-            SimpleArrayMap<String, Class<?>> parcelizerCache) {
-        super(readCache, writeCache, parcelizerCache);
         mMasterInput = input != null ? new DataInputStream(new FilterInputStream(input) {
             @Override
             public int read() throws IOException {
@@ -153,8 +142,7 @@ class VersionedParcelStream extends VersionedParcel {
 
     @Override
     protected VersionedParcel createSubParcel() {
-        return new VersionedParcelStream(mCurrentInput, mCurrentOutput, mReadCache, mWriteCache,
-                mParcelizerCache);
+        return new VersionedParcelStream(mCurrentInput, mCurrentOutput);
     }
 
     @Override
@@ -407,20 +395,16 @@ class VersionedParcelStream extends VersionedParcel {
 
     @Override
     public void writeBundle(Bundle val) {
-        try {
-            if (val != null) {
-                Set<String> keys = val.keySet();
-                mCurrentOutput.writeInt(keys.size());
-                for (String key : keys) {
-                    writeString(key);
-                    Object o = val.get(key);
-                    writeObject(o);
-                }
-            } else {
-                mCurrentOutput.writeInt(-1);
+        if (val != null) {
+            Set<String> keys = val.keySet();
+            writeInt(keys.size());
+            for (String key : keys) {
+                writeString(key);
+                Object o = val.get(key);
+                writeObject(o);
             }
-        } catch (IOException e) {
-            throw new ParcelException(e);
+        } else {
+            writeInt(-1);
         }
     }
 